@@ -0,0 +1,11 @@
+CREATE TABLE `stay_point_states` (
+  `user_id` int(11) NOT NULL,
+  `anchor_latitude` double NOT NULL,
+  `anchor_longitude` double NOT NULL,
+  `anchor_time` datetime NOT NULL,
+  `latitude_sum` double NOT NULL,
+  `longitude_sum` double NOT NULL,
+  `points` int(11) NOT NULL,
+  `recorded_until` datetime NOT NULL,
+  PRIMARY KEY (`user_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
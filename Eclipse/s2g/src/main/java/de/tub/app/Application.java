@@ -7,8 +7,12 @@ import java.io.InputStreamReader;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import org.javalite.activejdbc.Base;
 import org.neo4j.graphdb.Node;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,28 +21,44 @@ import com.beust.jcommander.IDefaultProvider;
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.ParameterException;
 
+import de.tub.clustering.ClusterOrderCache;
+import de.tub.clustering.ClusteringBenchmark;
+import de.tub.clustering.ClusteringIndex;
+import de.tub.clustering.ClusteredStayPoint;
+import de.tub.clustering.ELKICluster;
 import de.tub.clustering.ELKIClusterer;
+import de.tub.clustering.StayPointClusterer;
 import de.tub.data.dao.DAOFactory;
 import de.tub.data.dao.Neo4JUserDAO;
+import de.tub.data.model.StayPoint;
+import de.tub.data.model.User;
 import de.tub.evaluation.SimilarityEvaluation;
 import de.tub.evaluation.SimilarityEvaluator;
+import de.tub.graph.BatchGraphImporter;
 import de.tub.normalization.SimilarityNormalizer;
 import de.tub.observer.Interests;
+import de.tub.observer.Observer;
+import de.tub.observer.Subject;
+import de.tub.processor.graph.BatchHierarchicalGraphProcessor;
+import de.tub.processor.graph.BatchSharedFrameworkProcessor;
 import de.tub.processor.graph.HierarchicalGraphProcessor;
 import de.tub.processor.graph.SharedFrameworkProcessor;
 import de.tub.processor.preprocessing.GpsLogLineProcessor;
+import de.tub.processor.preprocessing.ParallelGpsLogPreprocessor;
 import de.tub.processor.staypoint.GeoStayPointProcessor;
+import de.tub.processor.staypoint.IncrementalStayPointProcessor;
+import de.tub.processor.staypoint.StayPointSweepSimulator;
 import de.tub.reader.ReaderFactory;
 import de.tub.reader.directory.IterativeDirectoryReader;
 import de.tub.reader.file.IterativeFileReader;
+import de.tub.reader.file.NioTextFileLineReader;
 import de.tub.reader.file.TextFileLineReader;
 import de.tub.reader.model.UserReader;
-import de.tub.similarity.Sequence;
-import de.tub.similarity.SequenceWrapper;
-import de.tub.similarity.SimilarSequenceCluster;
-import de.tub.similarity.analysis.Neo4JSimilarityAnalyzer;
-import de.tub.similarity.extraction.Neo4JSequenceExtractor;
-import de.tub.similarity.matching.Neo4JSequenceMatcher;
+import de.tub.similarity.ClusterIdDictionary;
+import de.tub.similarity.SimilarityCalculator;
+import de.tub.similarity.analysis.HgClusterFrequencyTable;
+import de.tub.similarity.extraction.ClusterUserIndex;
+import de.tub.similarity.extraction.UserSequenceStore;
 import de.tub.util.DBUtil;
 import de.tub.util.FileUtil;
 import de.tub.util.NumberUtil;
@@ -58,10 +78,6 @@ public class Application {
 	
 	private static CommandLineArgs clArgs;
 	
-	// Current values for the clustering task
-	private static int currentOpticsMinPoints;
-	private static double currentOpticsXi;
-	
 	// Decimal number formatter
 	private static DecimalFormat df = NumberUtil.decimalFormat();
 	
@@ -91,10 +107,18 @@ public class Application {
     		// Go into the detection of stay points
     		detectStayPoints();
     	}
+    	else if (clArgs.spSweep) {
+    		// Count the stay points of a grid of thresholds
+    		stayPointSweep();
+    	}
     	else if (clArgs.clustering) {
     		// Go into the clustering task
     		clustering();
     	}
+    	else if (clArgs.clusteringBenchmark) {
+    		// Compare the clustering time with and without an index
+    		clusteringBenchmark();
+    	}
     	else if (clArgs.buildFramework) {
     		// Create shared framework based on clustering results
     		buildFramework();
@@ -103,6 +127,10 @@ public class Application {
     		// Create hierarchical graph for each user
     		buildHierarchicalGraphs();
     	}
+    	else if (clArgs.importGraphs && !clArgs.automation) {
+    		// Import shared framework and hierarchical graphs
+    		importGraphs();
+    	}
     	else if (clArgs.calcSimilarity) {
     		// Calculate spatial similarity between users
     		calculateSimilarity();
@@ -157,82 +185,403 @@ public class Application {
      * Starts the automation which processes the following tasks: clustering of stay points, 
      * building of the shared framework, building of a hierarchical graph for each user, 
      * similarity measurement. After each run a clean up of useless resources is done.
+     * <p />
+     * If more than one automation thread is given the passes are run concurrently, each
+     * with its own clustering output directory and graph database (see {@link #automateInParallel(List, ClusterOrderCache, StayPointClusterer)}).
+     * In any case, the evaluation of all passes is summarized in one file at the end.
+     * <p />
+     * If a stage directory is given the outputs of the clustering, the graphs and the similarity
+     * measurement are kept under a hash of their inputs and parameters (see {@link StageCache}).
+     * A stage whose output already exists is skipped.
      */
     private static void automate() {
     	LOG.info("Begin automation task.");
     	
-    	currentOpticsXi = clArgs.clusteringOpticsXi;
+    	double opticsXi = clArgs.clusteringOpticsXi;
     	double opticsXiMax = (clArgs.clusteringOpticsXiMaxValue > ELKIClusterer.MAX_OPTICS_XI ? ELKIClusterer.MAX_OPTICS_XI : clArgs.clusteringOpticsXiMaxValue);
-    	currentOpticsMinPoints = clArgs.clusteringOpticsMinPts;
     	int opticsMinPointsMax = clArgs.clusteringOpticsMinPtsMaxValue;
     	
     	LOG.info("optics-xi-start: {}, optics-xi-min-points-start: {}, optics-xi-step-size: {}, optics-min-points-step-size: {}",
     			new Object[] { 
-    				df.format(currentOpticsXi), df.format(currentOpticsMinPoints), 
+    				df.format(opticsXi), df.format(clArgs.clusteringOpticsMinPts), 
     				df.format(clArgs.clusteringOpticsXiStepSize), df.format(clArgs.clusteringOpticsMinPtsStepSize)
     			});
     	
-    	while (currentOpticsXi <= opticsXiMax) {
-    		while (currentOpticsMinPoints <= opticsMinPointsMax) {
-    			// Run automation for each combination of opticsXi and opticsMinPoints
-    			LOG.info("Run automation with optics-xi: {}, optics-xi-min-points: {}", 
-    					df.format(currentOpticsXi), df.format(currentOpticsMinPoints));
+    	// Collect each combination of opticsXi and opticsMinPoints
+    	List<AutomationPass> passes = new ArrayList<AutomationPass>();
+    	while (opticsXi <= opticsXiMax) {
+    		int opticsMinPoints = clArgs.clusteringOpticsMinPts;
+    		while (opticsMinPoints <= opticsMinPointsMax) {
+    			passes.add(new AutomationPass(opticsXi, opticsMinPoints));
     			
-    			try {
-	    			// Step 1: Clustering
-	    			clustering(clArgs.clusteringInFile, clArgs.clusteringOutDir, currentOpticsXi, currentOpticsMinPoints);
-	    			
-	    			// Step 2: Build shared framework
-	    			buildFramework();
-	    			
-	    			// Step 3: Build user hierarchical graphs
-	    			buildHierarchicalGraphs();
-	    			
-	    			// Step 4: Calculate similarity between all users and create evaluation results afterwards
-	    			calculateSimilarity();
-    			} catch (Exception e) {
-					LOG.error("An error occurred during the automation task. Jumping to the next pass.", e);
-				} finally {
-	    			// Step 5: Clean up for the next run
-	    			cleanAutomationResults();
-	    			
-	    			// Increase the currentOpticsMinPoints for the next run if desired
-	    			if (clArgs.clusteringOpticsMinPtsStepSize > 0)
-	    				currentOpticsMinPoints += clArgs.clusteringOpticsMinPtsStepSize;
-	    			else
-	    				break;
-				}
+    			// Increase the opticsMinPoints for the next run if desired
+    			if (clArgs.clusteringOpticsMinPtsStepSize > 0)
+    				opticsMinPoints += clArgs.clusteringOpticsMinPtsStepSize;
+    			else
+    				break;
     		}
-    		// Reset current values
-    		currentOpticsMinPoints = clArgs.clusteringOpticsMinPts;
     		
-    		// Increase currentOpticsXi for the next run if desired
+    		// Increase opticsXi for the next run if desired
     		if (clArgs.clusteringOpticsXiStepSize > 0)
-				currentOpticsXi += clArgs.clusteringOpticsXiStepSize;
-			else
-				break;
+    			opticsXi += clArgs.clusteringOpticsXiStepSize;
+    		else
+    			break;
+    	}
+    	
+    	// The cluster order of OPTICS is computed once per minimum points and reused for all xi values
+    	ClusterOrderCache orderCache = new ClusterOrderCache(
+    			ClusterOrderCache.defaultDirectory(clArgs.clusteringOutDir), clArgs.clusteringInFile);
+    	// The cluster orders are kept for later runs on the same input file unless a fresh start is desired
+    	if (clArgs.clusteringClearOrderCache) {
+    		LOG.info("Deleting the cached cluster orders.");
+    		orderCache.clear();
+    	}
+    	
+    	// Clusters the stay points of the database in memory if desired
+    	List<ClusteredStayPoint> stayPoints = null;
+    	StayPointClusterer stayPointClusterer = null;
+    	if (clArgs.clusteringInMemory) {
+    		stayPoints = loadStayPointsForClustering();
+    		stayPointClusterer = new StayPointClusterer(stayPoints, ClusteringIndex.forName(clArgs.clusteringIndex));
+    	}
+    	
+    	// Keep the outputs of the stages if desired
+    	StageCache stageCache = null;
+    	if (clArgs.automationStageDir != null) {
+    		try {
+    			String inputHash = (stayPoints != null ? hashStayPoints(stayPoints) : StageCache.hashFile(clArgs.clusteringInFile));
+    			String graphInputHash = hashGraphInputs();
+    			for (AutomationPass pass : passes)
+    				setStageKeys(pass, inputHash, graphInputHash);
+    			
+    			stageCache = new StageCache(clArgs.automationStageDir);
+    			LOG.info("Keep the outputs of the automation stages in {}.", clArgs.automationStageDir);
+    		} catch (IOException e) {
+    			LOG.error("Could not hash the stay points file " + clArgs.clusteringInFile + ". The outputs of the automation stages are not kept.", e);
+    		}
+    	}
+    	
+    	if (clArgs.automationThreads > 1 && passes.size() > 1)
+    		automateInParallel(passes, orderCache, stayPointClusterer, stageCache);
+    	else {
+	    	for (AutomationPass pass : passes) {
+	    		LOG.info("Run automation with optics-xi: {}, optics-xi-min-points: {}", 
+	    				df.format(pass.opticsXi), df.format(pass.opticsMinPoints));
+	    		
+	    		pass.setDirectories(clArgs.clusteringOutDir, clArgs.buildFrameworkInDir, 
+	    				clArgs.calcSimilaritySequenceSpillDir, clArgs.evaluationOutDir, null);
+	    		if (stageCache != null)
+	    			useStageDirectories(pass, stageCache);
+	    		
+	    		try {
+	    			runAutomationPass(pass, orderCache, stayPointClusterer, stageCache);
+	    		} catch (Exception e) {
+	    			LOG.error("An error occurred during the automation task. Jumping to the next pass.", e);
+	    		}
+	    	}
     	}
     	
+    	writeAutomationSummary(passes);
+    	
     	LOG.info("End automation task.");
     }
     
     /**
-     * Deletes the results of the clustering task and the graph database
-     * which holds the shared framework and the hierarchical graphs.
+     * Runs the given passes of the automation concurrently with the number of 
+     * automation threads. Each pass writes its clustering results, its graph database and
+     * its spilled cluster sequences to its own directories next to the configured ones and its evaluation file to its own 
+     * directory in the evaluation output directory. Each pass binds its graph database to 
+     * its thread (see {@link DBUtil#bindGraph(String)}).
+     * 
+     * @param passes the passes to run.
+     * @param orderCache the cache of the cluster orders shared by all passes.
+     * @param stayPointClusterer the clusterer shared by all passes or <code>null</code> if
+     * the clustering is not done in memory.
+     * @param stageCache the cache of the stage outputs or <code>null</code> if the outputs are not kept.
      */
-    private static void cleanAutomationResults() {
-    	LOG.info("Deleting unneccessary automation results.");
+    private static void automateInParallel(List<AutomationPass> passes, final ClusterOrderCache orderCache, 
+    		final StayPointClusterer stayPointClusterer, final StageCache stageCache) {
+    	int threads = Math.min(clArgs.automationThreads, passes.size());
+    	LOG.info("Run {} automation passes with {} threads.", passes.size(), threads);
+    	
+    	ExecutorService executor = Executors.newFixedThreadPool(threads);
+    	List<Future<?>> futures = new ArrayList<Future<?>>(passes.size());
+    	for (final AutomationPass pass : passes) {
+    		// The name of the directories of the pass
+    		String name = "xi-" + df.format(pass.opticsXi) + "-minpts-" + pass.opticsMinPoints;
+    		pass.setDirectories(clArgs.clusteringOutDir + "-" + name, 
+    				relocate(clArgs.buildFrameworkInDir, clArgs.clusteringOutDir, clArgs.clusteringOutDir + "-" + name), 
+    				clArgs.calcSimilaritySequenceSpillDir != null ? clArgs.calcSimilaritySequenceSpillDir + "-" + name : null,
+    				new File(clArgs.evaluationOutDir, name).getPath(), 
+    				DBUtil.getNeo4jPath() + "-" + name);
+    		if (stageCache != null)
+    			useStageDirectories(pass, stageCache);
+    		
+    		futures.add(executor.submit(new Runnable() {
+				@Override
+				public void run() {
+					LOG.info("Run automation with optics-xi: {}, optics-xi-min-points: {}", 
+							NumberUtil.decimalFormat().format(pass.opticsXi), pass.opticsMinPoints);
+					
+					try {
+						runAutomationPass(pass, orderCache, stayPointClusterer, stageCache);
+					} finally {
+						DBUtil.close();
+					}
+				}
+			}));
+    	}
+    	executor.shutdown();
+    	
+    	// Wait for all passes
+    	for (int i = 0; i < futures.size(); i++) {
+    		try {
+    			futures.get(i).get();
+    		} catch (ExecutionException e) {
+    			LOG.error("An error occurred during the automation pass with optics-xi: " + df.format(passes.get(i).opticsXi) + 
+    					", optics-xi-min-points: " + passes.get(i).opticsMinPoints + ". The pass is skipped.", e.getCause());
+    		} catch (InterruptedException e) {
+    			LOG.error("The automation was interrupted. The remaining passes are cancelled.", e);
+    			executor.shutdownNow();
+    			Thread.currentThread().interrupt();
+    			return;
+    		}
+    	}
+    }
+    
+    /**
+     * Runs one pass of the automation: clustering of stay points, building of the shared 
+     * framework, building of a hierarchical graph for each user, similarity measurement.
+     * The evaluation of the pass is stored in the given pass. If the pass has its own graph
+     * database it is bound to the current thread during the pass. Afterwards, the outputs 
+     * of the pass are removed unless they are kept by the stage cache.
+     * 
+     * @param pass the pass to run.
+     * @param orderCache the cache of the cluster orders.
+     * @param stayPointClusterer the clusterer or <code>null</code> if the clustering is not done in memory.
+     * @param stageCache the cache of the stage outputs or <code>null</code> if the outputs are not kept.
+     */
+    private static void runAutomationPass(AutomationPass pass, ClusterOrderCache orderCache, 
+    		StayPointClusterer stayPointClusterer, StageCache stageCache) {
+    	if (pass.graphPath != null)
+    		DBUtil.bindGraph(pass.graphPath);
+    	
+    	try {
+    		double[][] similarityResults = null;
+    		if (stageCache != null && stageCache.isComplete(StageCache.SIMILARITY, pass.similarityKey)) {
+    			LOG.info("Reuse the similarity scores of stage {}.", pass.similarityKey);
+    			similarityResults = stageCache.loadResults(pass.similarityKey);
+    		}
+    		
+    		if (similarityResults == null) {
+    			if (stageCache != null && stageCache.isComplete(StageCache.GRAPH, pass.graphKey))
+    				LOG.info("Reuse the graph database of stage {}.", pass.graphKey);
+    			else {
+    				if (stageCache != null)
+    					stageCache.prepare(StageCache.GRAPH, pass.graphKey);
+    				
+    				// Step 1 to 3: Clustering, shared framework and user hierarchical graphs
+    				buildAutomationGraphs(pass, orderCache, stayPointClusterer, stageCache);
+    				
+    				if (stageCache != null) {
+    					// Write the graph database to disk before it is marked as complete
+    					DBUtil.closeGraph();
+    					stageCache.complete(StageCache.GRAPH, pass.graphKey);
+    				}
+    			}
+    			
+    			// Step 4: Calculate similarity between all users
+    			similarityResults = measureSimilarity(pass.sequenceSpillDir);
+    			if (stageCache != null)
+    				stageCache.storeResults(pass.similarityKey, similarityResults);
+    		}
+    		
+    		// Create evaluation results
+    		pass.evaluation = processSimilarityResults(similarityResults, pass);
+    	} finally {
+    		// Step 5: Clean up for the next run
+    		cleanAutomationResults(pass);
+    		
+    		if (pass.graphPath != null)
+    			DBUtil.unbindGraph();
+    	}
+    }
+    
+    /**
+     * Clusters the stay points and builds the shared framework and the hierarchical 
+     * graph of each user for the given pass of the automation.
+     * 
+     * @param pass the pass to run.
+     * @param orderCache the cache of the cluster orders.
+     * @param stayPointClusterer the clusterer or <code>null</code> if the clustering is not done in memory.
+     * @param stageCache the cache of the stage outputs or <code>null</code> if the outputs are not kept.
+     */
+    private static void buildAutomationGraphs(AutomationPass pass, ClusterOrderCache orderCache, 
+    		StayPointClusterer stayPointClusterer, StageCache stageCache) {
+    	// Step 1: Clustering
+    	List<ELKICluster> clusters = null;
+    	if (stayPointClusterer != null) {
+    		LOG.info("Begin clustering of stay points in memory.");
+    		clusters = stayPointClusterer.cluster(pass.opticsXi, pass.opticsMinPoints);
+    		LOG.info("Finished clustering of stay points in memory.");
+    	} else if (stageCache != null && stageCache.isComplete(StageCache.CLUSTERING, pass.clusteringKey))
+    		LOG.info("Reuse the clustering results of stage {}.", pass.clusteringKey);
+    	else {
+    		if (stageCache != null)
+    			stageCache.prepare(StageCache.CLUSTERING, pass.clusteringKey);
+    		
+    		clustering(clArgs.clusteringInFile, pass.clusteringOutDir, pass.opticsXi, pass.opticsMinPoints, orderCache);
+    		
+    		if (stageCache != null)
+    			stageCache.complete(StageCache.CLUSTERING, pass.clusteringKey);
+    	}
+    	
+    	if (clArgs.importGraphs) {
+    		// Step 2 and 3: Import shared framework and user hierarchical graphs
+    		importGraphs(pass.frameworkInDir, clusters, true);
+    	} else {
+    		// Step 2: Build shared framework
+    		if (clusters != null)
+    			buildFramework(clusters);
+    		else
+    			buildFramework(pass.frameworkInDir);
+    		
+    		// Step 3: Build user hierarchical graphs
+    		buildHierarchicalGraphs();
+    	}
+    }
+    
+    /**
+     * Computes the keys of the stages of the given pass. The key of the clustering depends on 
+     * the stay points and the parameters of OPTICS. The graphs are built from the clustering 
+     * and the users and stay points of the relational database, hence, their key additionally
+     * depends on these tables and on whether the graphs are built with transactions or imported. 
+     * The key of the similarity measurement additionally depends on its parameters.
+     * 
+     * @param pass the pass of the automation.
+     * @param inputHash the hash of the stay points of the clustering.
+     * @param graphInputHash the hash of the users and stay points of the relational database.
+     */
+    private static void setStageKeys(AutomationPass pass, String inputHash, String graphInputHash) {
+    	pass.clusteringKey = StageCache.hash(inputHash, pass.opticsXi, pass.opticsMinPoints);
+    	pass.graphKey = StageCache.hash(pass.clusteringKey, graphInputHash, clArgs.importGraphs ? "import" : "build");
+    	pass.similarityKey = StageCache.hash(pass.graphKey, 
+    			clArgs.calcSimilaritySplitThreshold, clArgs.calcSimilarityTempConstraintThreshold,
+    			clArgs.calcSimilarityMinSequenceLength, clArgs.calcSimilarityFromLevel, clArgs.calcSimilarityToLevel,
+    			clArgs.calcSimilarityMaxSimilarSequences, clArgs.calcSimilarityEncodedSequences);
+    }
+    
+    /**
+     * Lets the given pass write its clustering results and its graph database to the 
+     * directories of its stages. These outputs are kept after the pass.
+     * 
+     * @param pass the pass of the automation.
+     * @param stageCache the cache of the stage outputs.
+     */
+    private static void useStageDirectories(AutomationPass pass, StageCache stageCache) {
+    	String clusteringOutDir = stageCache.directory(StageCache.CLUSTERING, pass.clusteringKey).getPath();
+    	
+    	pass.clusteringOutDir = clusteringOutDir;
+    	pass.frameworkInDir = relocate(clArgs.buildFrameworkInDir, clArgs.clusteringOutDir, clusteringOutDir);
+    	pass.graphPath = stageCache.directory(StageCache.GRAPH, pass.graphKey).getPath();
+    	pass.keepResults = true;
+    }
+    
+    /**
+     * @param stayPoints the stay points of the in-memory clustering.
+     * @return the hash of the given stay points.
+     */
+    private static String hashStayPoints(List<ClusteredStayPoint> stayPoints) {
+    	StageCache.Hasher hasher = new StageCache.Hasher();
+    	for (ClusteredStayPoint sp : stayPoints)
+    		hasher.add(sp.getId()).add(sp.getLatitude()).add(sp.getLongitude())
+    			.add(sp.getArrivalTime()).add(sp.getLeavingTime());
+    	
+    	return hasher.hash();
+    }
+    
+    /**
+     * @return the hash of the users and stay points in the relational database of which the
+     * hierarchical graphs are built. The number of rows and the highest id of both tables are
+     * hashed, hence, the hash changes if users or stay points are added or deleted.
+     */
+    private static String hashGraphInputs() {
+    	DBUtil.open();
+    	
+    	StageCache.Hasher hasher = new StageCache.Hasher();
+    	for (String table : new String[] { User.getTableName(), StayPoint.getTableName() })
+    		hasher.add(table).add(Base.firstCell("SELECT COUNT(*) FROM " + table))
+    			.add(Base.firstCell("SELECT MAX(id) FROM " + table));
+    	
+    	return hasher.hash();
+    }
+    
+    /**
+     * Writes the evaluation of all successful passes of the automation to one file in the
+     * evaluation output directory. Each line holds the xi and minimum points of a pass 
+     * followed by the minimum, maximum and mean similarity and the number of similar user pairs.
+     * 
+     * @param passes the passes of the automation.
+     */
+    private static void writeAutomationSummary(List<AutomationPass> passes) {
+    	List<double[]> rows = new ArrayList<double[]>(passes.size());
+    	for (AutomationPass pass : passes) {
+    		// Failed passes have no evaluation
+    		if (pass.evaluation != null)
+    			rows.add(new double[] { 
+    					pass.opticsXi, pass.opticsMinPoints, 
+    					pass.evaluation.getMin(), pass.evaluation.getMax(), 
+    					pass.evaluation.getSimilarityMean(), pass.evaluation.getSimilarUserPairs() 
+    			});
+    	}
     	
+    	LOG.info("Writing the summary of {} of {} automation passes to a file.", rows.size(), passes.size());
+    	ArrayToCsvWriter.writeDoubles(rows.toArray(new double[rows.size()][]), clArgs.evaluationOutDir, new String[] {
+    			"Automation summary", CommandLineArgs.CLUSTERING_OPTICS_XI + ", " + CommandLineArgs.CLUSTERING_OPTICS_MIN_POINTS + ", " +
+    					SimilarityEvaluation.SIMILARITY_MIN + ", " + SimilarityEvaluation.SIMILARITY_MAX + ", " + 
+    					SimilarityEvaluation.SIMILARITY_MEAN + ", " + SimilarityEvaluation.SIMILAR_USER_PAIRS
+    	});
+    }
+    
+    /**
+     * Deletes the results of the clustering task of the given pass and the graph database
+     * which holds the shared framework and the hierarchical graphs. Results that are kept
+     * by the stage cache are not deleted.
+     * 
+     * @param pass the pass whose results are deleted.
+     */
+    private static void cleanAutomationResults(AutomationPass pass) {
     	// Stop the graph database because it gets deleted
     	DBUtil.closeGraph();
     	
+    	if (pass.keepResults)
+    		return;
+    	
+    	LOG.info("Deleting unneccessary automation results.");
+    	
     	// Remove clustering results
-    	FileUtil.deleteFileOrDirectory(clArgs.clusteringOutDir);
+    	FileUtil.deleteFileOrDirectory(pass.clusteringOutDir);
     	
     	// Remove graph database
     	FileUtil.deleteFileOrDirectory(DBUtil.getNeo4jPath());
     }
     
+    /**
+     * @return the given path with the given directory prefix replaced by the other directory. If the
+     * path does not lie within the given directory the other directory is returned.
+     */
+    private static String relocate(String path, String fromDir, String toDir) {
+    	String from = new File(fromDir).getAbsolutePath();
+    	String absolutePath = new File(path).getAbsolutePath();
+    	
+    	if (absolutePath.equals(from))
+    		return toDir;
+    	else if (absolutePath.startsWith(from + File.separator))
+    		return new File(toDir, absolutePath.substring(from.length() + 1)).getPath();
+    	
+    	return toDir;
+    }
+    
     /**
      * Preprocesses the data given in the files defined in the 
      * MAIN_PROP_FILE or via command line arguments.
@@ -240,6 +589,19 @@ public class Application {
     private static void preprocess() {
     	LOG.info("Begin preprocessing of data.");
     	
+    	if (clArgs.preprocessThreads > 1) {
+    		// The users are independent of each other
+    		ParallelGpsLogPreprocessor preprocessor = new ParallelGpsLogPreprocessor(clArgs.preprocessInDir, 
+    				clArgs.preprocessPathInChildDir, clArgs.preprocessOutFile, clArgs.preprocessLineOffset, clArgs.preprocessThreads, 
+    				clArgs.preprocessBinary);
+    		
+    		LOG.debug("Read GPS logs with {} threads. Save the data in a new file {}.", clArgs.preprocessThreads, clArgs.preprocessOutFile);
+    		preprocessor.preprocess();
+    		
+    		LOG.info("Finished preprocessing of data.");
+    		return;
+    	}
+    	
     	LOG.debug("Create a IterativeDirectoryReader.");
     	// Create a reader for directories
     	IterativeDirectoryReader iterativeDirectoryReader = (IterativeDirectoryReader) ReaderFactory.instance().getIterativeDirectoryReader();
@@ -251,14 +613,15 @@ public class Application {
     	IterativeFileReader iterativeFileReader = (IterativeFileReader) ReaderFactory.instance().getIterativeFileReader();
     	iterativeFileReader.setFileFilter(FileUtil.acceptVisibleFilesFilter(false, true));
     	
-    	LOG.debug("Create a TextFileLineReader.");
-    	// Create a reader for text files, the first six lines are not relevant in this data set
-    	TextFileLineReader textFileLineReader = (TextFileLineReader) ReaderFactory.instance().getTextFileLineReader();
+    	LOG.debug("Create a NioTextFileLineReader.");
+    	// Create a reader for text files that hands its lines as bytes to the processor, 
+    	// the first six lines are not relevant in this data set
+    	NioTextFileLineReader textFileLineReader = (NioTextFileLineReader) ReaderFactory.instance().getNioTextFileLineReader();
     	textFileLineReader.setOffset(clArgs.preprocessLineOffset);
     	
     	LOG.debug("Create a GpsLogLineProcessor.");
     	// Create a processor for user points
-    	GpsLogLineProcessor processor = new GpsLogLineProcessor(clArgs.preprocessOutFile);
+    	GpsLogLineProcessor processor = new GpsLogLineProcessor(clArgs.preprocessOutFile, clArgs.preprocessBinary);
     	
     	// Build reader chain
     	iterativeDirectoryReader.setReader(iterativeFileReader);
@@ -290,13 +653,23 @@ public class Application {
     	// Create a reader for users
     	UserReader userReader = (UserReader) ReaderFactory.instance().getUserReader();
     	
+    	if (clArgs.spdIncremental) {
+    		detectStayPointsIncrementally(userReader);
+    		return;
+    	}
+    	
     	LOG.info("Create a GeoStayPointProcessor with distance threshold {} and time threshold {}.", clArgs.spdDistanceThreshold, clArgs.spdTimeThreshold);
     	// Create a processor for stay points
     	GeoStayPointProcessor processor = new GeoStayPointProcessor(clArgs.spdDistanceThreshold, clArgs.spdTimeThreshold, false);
+    	processor.setBatchSize(clArgs.spdBatchSize);
     	
-    	LOG.debug("Initialize the UserReader with the GeoStayPointProcessor.");
+    	LOG.debug("Initialize the UserReader with the GeoStayPointProcessor, {} threads and pages of {} users.", clArgs.spdThreads, clArgs.spdPageSize);
     	// Initialize the reader
     	userReader.setProcessor(processor);
+    	// The processor writes its remaining stay points after the last user
+    	userReader.attach(processor, Interests.HasFinished);
+    	userReader.setThreads(clArgs.spdThreads);
+    	userReader.setPageSize(clArgs.spdPageSize);
     	
     	LOG.debug("Read users out of the database with a minimum of {} and a maximum of {} points.", userReader.getMinUserPoints(), userReader.getMaxUserPoints());
     	// Read and save the data
@@ -305,6 +678,86 @@ public class Application {
     	LOG.info("Finished detection of stay points.");
     }
     
+    /**
+     * Continues the detection of stay points of each user with the points that were
+     * recorded after the previous detection.
+     * 
+     * @param userReader the reader of the users.
+     */
+    private static void detectStayPointsIncrementally(UserReader userReader) {
+    	LOG.info("Create an IncrementalStayPointProcessor with distance threshold {} and time threshold {}.", clArgs.spdDistanceThreshold, clArgs.spdTimeThreshold);
+    	IncrementalStayPointProcessor processor = new IncrementalStayPointProcessor(clArgs.spdDistanceThreshold, clArgs.spdTimeThreshold);
+    	
+    	userReader.setProcessor(processor);
+    	userReader.setPageSize(clArgs.spdPageSize);
+    	
+    	// Read new points and save new stay points
+    	userReader.read();
+    	
+    	LOG.info("Finished incremental detection of stay points.");
+    }
+    
+    /**
+     * Counts the stay points that the detection of stay points would detect for each
+     * combination of the given distance and time thresholds. The counts of each user
+     * and of all users are written to the output directory of the evaluation.
+     */
+    private static void stayPointSweep() {
+    	LOG.info("Begin stay point sweep.");
+    	
+    	final int[] distanceThresholds, timeThresholds;
+    	try {
+    		distanceThresholds = NumberUtil.parseIntegers(clArgs.sweepDistanceThresholds);
+    		timeThresholds = NumberUtil.parseIntegers(clArgs.sweepTimeThresholds);
+    	} catch (NumberFormatException e) {
+    		LOG.error("The thresholds of the stay point sweep have to be comma separated integers. Refer to the options {} and {}.", 
+    				CommandLineArgs.SWEEP_DISTANCE_THRESHOLDS, CommandLineArgs.SWEEP_TIME_THRESHOLDS);
+    		return;
+    	}
+    	
+    	DBUtil.open();
+    	
+    	UserReader userReader = (UserReader) ReaderFactory.instance().getUserReader();
+    	final StayPointSweepSimulator simulator = new StayPointSweepSimulator(distanceThresholds, timeThresholds);
+    	userReader.setProcessor(simulator);
+    	userReader.setPageSize(clArgs.spdPageSize);
+    	
+    	// Collect the stay points of each user after it was simulated
+    	final int[] distances = simulator.getDistanceThresholds();
+    	final int[] times = simulator.getTimeThresholds();
+    	final List<double[]> userRows = new ArrayList<double[]>();
+    	userReader.attach(new Observer() {
+			@Override
+			public void update(Subject theSubject, Interests interest, Object arg) {
+				double userId = ((Number) arg).doubleValue();
+				int[][] stayPoints = simulator.getSimulationData();
+				for (int d = 0; d < distances.length; d++)
+					for (int t = 0; t < times.length; t++)
+						userRows.add(new double[] { userId, distances[d], times[t], stayPoints[d][t] });
+			}
+		}, Interests.UserFinished);
+    	
+    	LOG.info("Simulate {} distance thresholds and {} time thresholds.", distances.length, times.length);
+    	userReader.read();
+    	
+    	int[][] totalStayPoints = simulator.getTotalStayPoints();
+    	List<double[]> totalRows = new ArrayList<double[]>(distances.length * times.length);
+    	for (int d = 0; d < distances.length; d++)
+    		for (int t = 0; t < times.length; t++)
+    			totalRows.add(new double[] { distances[d], times[t], totalStayPoints[d][t] });
+    	
+    	LOG.info("Writing the stay points of {} users to the output directory of the evaluation.", simulator.getUsers());
+    	ArrayToCsvWriter.writeDoubles(userRows.toArray(new double[userRows.size()][]), clArgs.evaluationOutDir, new String[] {
+    			"Stay point sweep per user", "user id, distance threshold [m], time threshold [min], stay points"
+    	});
+    	ArrayToCsvWriter.writeDoubles(totalRows.toArray(new double[totalRows.size()][]), clArgs.evaluationOutDir, new String[] {
+    			"Stay point sweep", "distance threshold [m], time threshold [min], stay points",
+    			"users", String.valueOf(simulator.getUsers())
+    	});
+    	
+    	LOG.info("Finished stay point sweep.");
+    }
+    
     /**
      * Starts the clustering of stay points with ELKI with the given command line 
      * arguments.
@@ -321,16 +774,63 @@ public class Application {
     private static void clustering(String inputFile, String outputDir, double opticsXi, int opticsMinPoints) {
     	LOG.info("Begin clustering of stay points.");
     	
-    	ELKIClusterer.cluster(inputFile, outputDir,	opticsXi, opticsMinPoints);
+    	ELKIClusterer.cluster(inputFile, outputDir,	opticsXi, opticsMinPoints, ClusteringIndex.forName(clArgs.clusteringIndex));
     	
     	LOG.info("Finished clustering of stay points.");
     }
     
+    /**
+     * Starts the clustering of stay points with ELKI with the given
+     * parameters. The cluster order of OPTICS is taken from the given cache 
+     * if it was computed for the given minimum points before.
+     */
+    private static void clustering(String inputFile, String outputDir, double opticsXi, int opticsMinPoints, 
+    		ClusterOrderCache orderCache) {
+    	LOG.info("Begin clustering of stay points.");
+    	
+    	ELKIClusterer.cluster(inputFile, outputDir, opticsXi, opticsMinPoints, orderCache, 
+    			ClusteringIndex.forName(clArgs.clusteringIndex));
+    	
+    	LOG.info("Finished clustering of stay points.");
+    }
+    
+    /**
+     * Measures the time of the clustering of samples of the stay points of the
+     * database without an index and with an R*-tree. The results are written to
+     * the output directory of the evaluation.
+     */
+    private static void clusteringBenchmark() {
+    	LOG.info("Begin clustering benchmark.");
+    	
+    	ClusteringIndex[] indexes = new ClusteringIndex[] { ClusteringIndex.NONE, ClusteringIndex.RSTAR };
+    	ClusteringBenchmark benchmark = new ClusteringBenchmark(loadStayPointsForClustering(), indexes);
+    	double[][] results = benchmark.run(clArgs.clusteringBenchmarkStartSize, 
+    			clArgs.clusteringOpticsXi, clArgs.clusteringOpticsMinPts);
+    	
+    	ArrayToCsvWriter.writeDoubles(results, clArgs.evaluationOutDir, new String[] {
+    			"Clustering benchmark", "stay points, time without index [ms], time with R*-tree [ms]",
+    			"optics-xi", df.format(clArgs.clusteringOpticsXi),
+    			"optics-min-points", String.valueOf(clArgs.clusteringOpticsMinPts)
+    	});
+    	
+    	LOG.info("Finished clustering benchmark.");
+    }
+    
     /**
      * Reads the clustering results of ELKI, builds the shared framework
      * and persists it in a graph database.
      */
     private static void buildFramework() {
+    	buildFramework(clArgs.buildFrameworkInDir);
+    }
+    
+    /**
+     * Reads the clustering results of ELKI in the given directory, builds the 
+     * shared framework and persists it in a graph database.
+     * 
+     * @param inputDir the directory that holds the clustering results.
+     */
+    private static void buildFramework(String inputDir) {
     	LOG.info("Begin building of shared framework.");
     	
     	LOG.debug("Create a IterativeFileReader.");
@@ -339,14 +839,14 @@ public class Application {
     	TextFileLineReader textFileLineReader = (TextFileLineReader) ReaderFactory.instance().getTextFileLineReader();
     	
     	// Setup IterativeFileReader
-    	File dir = new File(clArgs.buildFrameworkInDir);
+    	File dir = new File(inputDir);
     	iterativeFileReader.setFile(dir);
     	iterativeFileReader.setFileFilter(FileUtil.acceptOnlyClusterFilesFilter());
     	iterativeFileReader.setReader(textFileLineReader);
     	
     	// Setup processor
-    	LOG.debug("Create a SharedFrameworkProcessor.");
-    	SharedFrameworkProcessor sharedFrameworkProcessor = new SharedFrameworkProcessor();
+    	LOG.debug("Create a SharedFrameworkProcessor with a batch size of {}.", clArgs.buildBatchSize);
+    	SharedFrameworkProcessor sharedFrameworkProcessor = new SharedFrameworkProcessor(clArgs.buildBatchSize);
     	textFileLineReader.setProcessor(sharedFrameworkProcessor);
     	// Get informed about the finishing of each cluster (file) to reset the processor's status
     	textFileLineReader.attach(sharedFrameworkProcessor, Interests.HasFinished);
@@ -358,6 +858,44 @@ public class Application {
     	LOG.info("Finished building shared framework.");
     }
     
+    /**
+     * Builds the shared framework from the given clusters of an in-memory 
+     * clustering and persists it in a graph database.
+     * 
+     * @param clusters the clusters of the clustering.
+     */
+    private static void buildFramework(List<ELKICluster> clusters) {
+    	LOG.info("Begin building of shared framework from {} clusters.", clusters.size());
+    	
+    	LOG.debug("Create a SharedFrameworkProcessor with a batch size of {}.", clArgs.buildBatchSize);
+    	SharedFrameworkProcessor sharedFrameworkProcessor = new SharedFrameworkProcessor(clArgs.buildBatchSize);
+    	sharedFrameworkProcessor.processClusters(clusters);
+    	
+    	LOG.info("Finished building shared framework.");
+    }
+    
+    /**
+     * Loads all stay points of the database for the in-memory clustering.
+     * 
+     * @return the stay points of all users.
+     */
+    private static List<ClusteredStayPoint> loadStayPointsForClustering() {
+    	LOG.info("Load stay points for the clustering.");
+    	
+    	DBUtil.open();
+    	
+    	List<StayPoint> stayPoints = StayPoint.findAll();
+    	List<ClusteredStayPoint> result = new ArrayList<ClusteredStayPoint>(stayPoints.size());
+    	for (StayPoint sp : stayPoints) {
+    		result.add(new ClusteredStayPoint(sp.getInteger("id"), sp.getDouble("latitude"), sp.getDouble("longitude"), 
+    				sp.getTimestamp("arr_time").getTime(), sp.getTimestamp("leav_time").getTime()));
+    	}
+    	
+    	LOG.info("Loaded {} stay points.", result.size());
+    	
+    	return result;
+    }
+    
     /**
      * Based on the stay points of each user and the shared framework this method
      * builds a hierarchical graph for each user.
@@ -372,8 +910,8 @@ public class Application {
     	UserReader userReader = (UserReader) ReaderFactory.instance().getUserReader();
 
 		// Create the processor to test
-    	LOG.debug("Create HierarchicalGraphProcessor.");
-		HierarchicalGraphProcessor hgProc = new HierarchicalGraphProcessor();
+    	LOG.debug("Create HierarchicalGraphProcessor with a batch size of {}.", clArgs.buildBatchSize);
+		HierarchicalGraphProcessor hgProc = new HierarchicalGraphProcessor(clArgs.buildBatchSize);
 		
 		// Setup the reader
 		userReader.setProcessor(hgProc);
@@ -386,10 +924,110 @@ public class Application {
     	LOG.info("Finished building of hierarchical graphs.");
     }
     
+    /**
+     * Imports the shared framework from the clustering results of ELKI and the 
+     * hierarchical graph of each user into a new graph database. The created graph
+     * is the same as the one of {@link #buildFramework()} and {@link #buildHierarchicalGraphs()}
+     * but no transactions are used. An existing graph database is not replaced.
+     */
+    private static void importGraphs() {
+    	importGraphs(clArgs.buildFrameworkInDir, null, false);
+    }
+    
+    /**
+     * Imports the shared framework and the hierarchical graph of each user into a new 
+     * graph database. The shared framework is imported from the given clusters or from 
+     * the clustering results of ELKI if no clusters are given.
+     * 
+     * @param inputDir the directory that holds the clustering results of ELKI. This
+     * is only used if no clusters are given.
+     * @param clusters the clusters of an in-memory clustering or <code>null</code>.
+     * @param replaceStore <code>true</code> if an existing graph database is deleted before
+     * the import, <code>false</code> if the import is stopped in this case.
+     */
+    private static void importGraphs(String inputDir, List<ELKICluster> clusters, boolean replaceStore) {
+    	LOG.info("Begin import of shared framework and hierarchical graphs.");
+    	
+    	// The batch insertion needs exclusive access to the graph database
+    	DBUtil.closeGraph();
+    	
+    	// The graphs would be added to the ones of the existing graph database
+    	String[] storeFiles = new File(DBUtil.getNeo4jPath()).list();
+    	if (storeFiles != null && storeFiles.length > 0) {
+    		if (!replaceStore) {
+    			LOG.error("The graph database at {} already exists. The graphs can only be imported into a new graph database. " +
+    					"Delete the existing one or choose another path. Stopping further execution.", DBUtil.getNeo4jPath());
+    			return;
+    		}
+    		
+    		LOG.info("Deleting the existing graph database at {} before the import.", DBUtil.getNeo4jPath());
+    		FileUtil.deleteFileOrDirectory(DBUtil.getNeo4jPath());
+    	}
+    	
+    	BatchGraphImporter importer = new BatchGraphImporter();
+    	try {
+	    	// Setup processor for the shared framework
+	    	LOG.debug("Create a BatchSharedFrameworkProcessor.");
+	    	BatchSharedFrameworkProcessor frameworkProc = new BatchSharedFrameworkProcessor(importer);
+	    	
+	    	if (clusters != null)
+	    		frameworkProc.processClusters(clusters);
+	    	else {
+		    	LOG.debug("Create a IterativeFileReader.");
+		    	IterativeFileReader iterativeFileReader = (IterativeFileReader) ReaderFactory.instance().getIterativeFileReader();
+		    	LOG.debug("Create a TextFileLineReader.");
+		    	TextFileLineReader textFileLineReader = (TextFileLineReader) ReaderFactory.instance().getTextFileLineReader();
+		    	
+		    	// Setup IterativeFileReader
+		    	iterativeFileReader.setFile(new File(inputDir));
+		    	iterativeFileReader.setFileFilter(FileUtil.acceptOnlyClusterFilesFilter());
+		    	iterativeFileReader.setReader(textFileLineReader);
+		    	
+		    	textFileLineReader.setProcessor(frameworkProc);
+		    	textFileLineReader.attach(frameworkProc, Interests.HasFinished);
+		    	iterativeFileReader.attach(frameworkProc, Interests.HasFinished);
+		    	
+		    	iterativeFileReader.read();
+	    	}
+	    	LOG.info("Finished import of shared framework.");
+	    	
+	    	DBUtil.open();
+	    	
+	    	// Setup processor for the hierarchical graphs
+	    	LOG.debug("Create a UserReader.");
+	    	UserReader userReader = (UserReader) ReaderFactory.instance().getUserReader();
+	    	LOG.debug("Create a BatchHierarchicalGraphProcessor.");
+	    	BatchHierarchicalGraphProcessor hgProc = new BatchHierarchicalGraphProcessor(importer);
+	    	userReader.setProcessor(hgProc);
+	    	userReader.attach(hgProc, Interests.UserFinished);
+	    	
+	    	LOG.debug("Read users out of the database with a minimum of {} and a maximum of {} points.", userReader.getMinUserPoints(), userReader.getMaxUserPoints());
+	    	userReader.read();
+    	} finally {
+    		// Write the graph database to disk
+    		importer.shutdown();
+    	}
+    	
+    	LOG.info("Finished import of shared framework and hierarchical graphs.");
+    }
+    
     /**
      * Calculates the spatial similarity between users based on their hierarchical graphs.
      */
     private static void calculateSimilarity() {
+    	double[][] similarityResults = measureSimilarity(clArgs.calcSimilaritySequenceSpillDir);
+    	
+    	processSimilarityResults(similarityResults, null);
+    }
+    
+    /**
+     * Measures the spatial similarity between users based on their hierarchical graphs.
+     * 
+     * @param sequenceSpillDir the directory to spill cluster sequences to or <code>null</code>
+     * if all cluster sequences are held in memory.
+     * @return the similarity scores of all user pairs.
+     */
+    private static double[][] measureSimilarity(String sequenceSpillDir) {
     	LOG.info("Begin calculating spatial similarity between users.");
     	
 		// Get a list of all users
@@ -399,95 +1037,67 @@ public class Application {
 		int usersCount = users.size();
     	LOG.debug("Found {} users.", usersCount);
 		
-		// Instantiate all needed classes for similarity measurement
-		Neo4JSequenceExtractor ex = new Neo4JSequenceExtractor();
-		ex.setFromLevel(clArgs.calcSimilarityFromLevel);
-		ex.setToLevel(clArgs.calcSimilarityToLevel);
+		// The cluster visits of each user are read once and shared by all user pairs
+		UserSequenceStore sequenceStore = null;
+		if (sequenceSpillDir != null) {
+			LOG.debug("Hold the cluster sequences of at most {} users in memory, spill the others to {}.", 
+					clArgs.calcSimilaritySequenceUsersInMemory, sequenceSpillDir);
+			sequenceStore = new UserSequenceStore(clArgs.calcSimilarityFromLevel, clArgs.calcSimilarityToLevel,
+					sequenceSpillDir, clArgs.calcSimilaritySequenceUsersInMemory);
+		}
+		else
+			sequenceStore = new UserSequenceStore(clArgs.calcSimilarityFromLevel, clArgs.calcSimilarityToLevel);
 		
-		Neo4JSequenceMatcher matcher = new Neo4JSequenceMatcher(
+		// Hg clusters are identified by integer ids while matching encoded sequences
+		if (clArgs.calcSimilarityEncodedSequences) {
+			LOG.debug("Extract, match and analyze encoded cluster sequences.");
+			sequenceStore.setClusterIdDictionary(new ClusterIdDictionary());
+		}
+		
+		// Setup the calculation of similarity between all pair-wise user combinations
+		SimilarityCalculator calculator = new SimilarityCalculator(users, 
 				clArgs.calcSimilaritySplitThreshold, 
 				clArgs.calcSimilarityMinSequenceLength,
 				clArgs.calcSimilarityTempConstraintThreshold);
-		Neo4JSimilarityAnalyzer analyzer = new Neo4JSimilarityAnalyzer();
+		calculator.setFromLevel(clArgs.calcSimilarityFromLevel);
+		calculator.setToLevel(clArgs.calcSimilarityToLevel);
+		calculator.setSequenceStore(sequenceStore);
 		
-		// Create matrix that holds similarity results
-		double[][] similarityResults = new double[usersCount][usersCount];
+		// Only user pairs that share at least one cluster are compared
+		LOG.info("Build index of users that share hg clusters.");
+		calculator.setClusterUserIndex(ClusterUserIndex.build(users, clArgs.calcSimilarityFromLevel, clArgs.calcSimilarityToLevel));
 		
-		// Go through all pair-wise user combinations
-    	for (int i = 0; i < usersCount; i++) {
-			Node userOne = users.get(i);
-			Object userOneId = uDao.getUserId(userOne);
-			
-			// Set current first user for sequence extraction
-			ex.setUserNodeOne(userOne);
-			
-			for (int j = i + 1; j < usersCount; j++) {
-				Node userTwo = users.get(j);
-				Object userTwoId = uDao.getUserId(userTwo);
-				LOG.info("Calculate similarity between user [{}] and [{}].", userOneId, userTwoId);
-				
-				double similarity = 0.0;
-				
-				// Step 1: Extract cluster sequences of two users based on their hierarchical graphs
-				// Set current second user for sequence extraction
-				ex.setUserNodeTwo(userTwo);
-				Map<Integer, SequenceWrapper> clusterSequences = null;
-				
-				try {
-					// Start extraction of cluster sequences
-					LOG.info("Step 1: Extraction of cluster sequences from level {} to level {}.", clArgs.calcSimilarityFromLevel, clArgs.calcSimilarityToLevel);
-					clusterSequences = ex.extract();
-				} catch (Exception e) {
-					LOG.error("An error occurred while extracting the sequences of common clusters of user [{}] and [{}]:\n{}", 
-							new Object[] {userOneId, userTwoId, e});
-					LOG.debug("Similarity measurement stopped for users [{}] and [{}].", userOneId, userTwoId);
-				}
-				
-				// Step 2: Match the extracted cluster sequences to find maximal length similar sequences
-				Map<Integer, List<Sequence<SimilarSequenceCluster>>> maxLengthSimilarSequences = null;
-				
-				// Matching is only possible if there is a valid result of step 1 
-				if (clusterSequences != null && !clusterSequences.isEmpty()) {
-					matcher.setSequencesOnLevel(clusterSequences);
-					
-					try {
-						// Start matching of cluster sequences
-						LOG.info("Step 2: Matching of cluster sequences.");
-						maxLengthSimilarSequences = matcher.match();
-					} catch (Exception e) {
-						LOG.error("An error occurred while matching the sequences of common clusters of user [{}] and [{}]:\n{}", 
-								new Object[] {userOneId, userTwoId, e});
-						LOG.debug("Similarity measurement stopped for users [{}] and [{}].", userOneId, userTwoId);
-					}
-				
-					// Step 3: Compute spatial similarity between the current two users
-					// Similarity measurement is only possible with a valid result of step 2
-					if (maxLengthSimilarSequences != null && !maxLengthSimilarSequences.isEmpty()) {
-						analyzer.setUserNodeOne(userOne);
-						analyzer.setUserNodeTwo(userTwo);
-						analyzer.setMaximalLengthSimilarSequencesOnLevel(maxLengthSimilarSequences);
-						
-						try {
-							// Start similarity measurement
-							LOG.info("Step 3: Similarity measurement.");
-							similarity = analyzer.analyze();
-							LOG.debug("Final similarity score: {}", similarity);
-							
-							// Save similarity value in result matrix
-							similarityResults[i][j] = similarity;
-						} catch (Exception e) {
-							LOG.error("An error occurred while measuring similarity between user [{}] and [{}]:\n{}", 
-									new Object[] {userOneId, userTwoId, e});
-							LOG.debug("Similarity measurement stopped for users [{}] and [{}].", userOneId, userTwoId);
-						}
-						
-					}	// END: step 3
-				}	// END: step 2
-			}	// END: user two loop
-		}	// END: user one loop
+		// The IDF values of all hg clusters are read once
+		LOG.info("Build table of users in each hg cluster.");
+		calculator.setFrequencyTable(HgClusterFrequencyTable.build());
+		calculator.setThreads(clArgs.calcSimilarityThreads);
+		calculator.setMaxSimilarSequences(clArgs.calcSimilarityMaxSimilarSequences);
+		
+		LOG.info("Calculate similarity with {} threads.", clArgs.calcSimilarityThreads);
+		double[][] similarityResults = calculator.calculate();
+    	
+    	// The cluster visits are not needed anymore
+    	sequenceStore.clear();
     	
     	LOG.info("Finished calculating spatial similarity.");
     	
+    	return similarityResults;
+    }
+    
+    /**
+     * Normalizes the given similarity scores if desired and evaluates them or writes them
+     * into the graph database if the evaluation is not requested.
+     * 
+     * @param similarityResults the similarity scores of all user pairs.
+     * @param pass the pass of the automation whose clustering information and evaluation 
+     * output directory are used or <code>null</code> if the automation task is not running.
+     * @return the evaluation of the similarity scores or <code>null</code> if the evaluation 
+     * is not requested.
+     */
+    private static SimilarityEvaluation processSimilarityResults(double[][] similarityResults, AutomationPass pass) {
+    	// The formatter is not shared because passes of the automation may run concurrently
+    	DecimalFormat df = NumberUtil.decimalFormat();
+    	
     	// Normalize the similarity scores from 0 to 1
     	if (clArgs.normalization) {
 	    	LOG.info("Normalizing similarity scores.");
@@ -504,12 +1114,12 @@ public class Application {
     		
     		// Build up other information to include in the evaluation files
     		List<String> otherInformation = new ArrayList<String>();
-    		if (clArgs.automation) {
+    		if (pass != null) {
     			// Clustering information is only included if the automation task is running
     			otherInformation.add(CommandLineArgs.CLUSTERING_OPTICS_XI);
-    			otherInformation.add(String.valueOf(df.format(currentOpticsXi)));
+    			otherInformation.add(String.valueOf(df.format(pass.opticsXi)));
     			otherInformation.add(CommandLineArgs.CLUSTERING_OPTICS_MIN_POINTS);
-    			otherInformation.add(String.valueOf(df.format(currentOpticsMinPoints)));
+    			otherInformation.add(String.valueOf(df.format(pass.opticsMinPoints)));
     		}
     		
     		// Add simple metrics from similarity measurement
@@ -524,12 +1134,16 @@ public class Application {
     		
     		// Write similarity results in a file
     		LOG.info("Writing evaluation data to a file.");
-    		ArrayToCsvWriter.writeDoubles(similarityResults, clArgs.evaluationOutDir, otherInformation.toArray(new String[0]));
+    		ArrayToCsvWriter.writeDoubles(similarityResults, 
+    				pass != null ? pass.evaluationOutDir : clArgs.evaluationOutDir, otherInformation.toArray(new String[0]));
+    		
+    		return evaluation;
     	}
     	// Evaluation is not requested, write the similarity scores into the graph database
     	else {
     		LOG.info("Write similarity scores to the graph database.");
     		
+    		Neo4JUserDAO uDao = (Neo4JUserDAO) DAOFactory.instance().getUserDAO();
     		for (int i = 0; i < similarityResults.length; i++) {
     			// Get first user by id
     			Node userOne = uDao.findUserById(i);
@@ -546,5 +1160,47 @@ public class Application {
     			}
     		}
     	}
+    	
+    	return null;
+    }
+    
+    /**
+     * One combination of the clustering parameters of the automation
+     * together with the directories and the evaluation of its pass.
+     */
+    private static class AutomationPass {
+    	private final double opticsXi;
+    	private final int opticsMinPoints;
+    	
+    	private String clusteringOutDir;
+    	private String frameworkInDir;
+    	private String sequenceSpillDir;
+    	private String evaluationOutDir;
+    	// The graph database of the pass or null if the shared graph database is used
+    	private String graphPath;
+    	// Whether the clustering results and the graph database are kept after the pass
+    	private boolean keepResults;
+    	
+    	// The keys of the stages of the pass
+    	private String clusteringKey;
+    	private String graphKey;
+    	private String similarityKey;
+    	
+    	// The evaluation of a successful pass
+    	private SimilarityEvaluation evaluation;
+    	
+    	AutomationPass(double opticsXi, int opticsMinPoints) {
+    		this.opticsXi = opticsXi;
+    		this.opticsMinPoints = opticsMinPoints;
+    	}
+    	
+    	void setDirectories(String clusteringOutDir, String frameworkInDir, String sequenceSpillDir, 
+    			String evaluationOutDir, String graphPath) {
+    		this.clusteringOutDir = clusteringOutDir;
+    		this.frameworkInDir = frameworkInDir;
+    		this.sequenceSpillDir = sequenceSpillDir;
+    		this.evaluationOutDir = evaluationOutDir;
+    		this.graphPath = graphPath;
+    	}
     }
 }
@@ -25,6 +25,8 @@ public class CommandLineArgs {
 	public static final String PREPROCESS_OUT_FILE = "--preprocess-out-file";
 	public static final String PREPROCESS_PATH_IN_CHILD = "--preprocess-path-in-child-dir";
 	public static final String PREPROCESS_RESOURCE_LINE_OFFSET = "--preprocess-line-offset";
+	public static final String PREPROCESS_THREADS = "--preprocess-threads";
+	public static final String PREPROCESS_BINARY = "--preprocess-binary";
 	
 	// ### Stay Point detection
 	public static final String STAY_POINT_DETECTION = "-s";
@@ -34,6 +36,17 @@ public class CommandLineArgs {
 	public static final String SPD_MAX_USER_POINTS = "--max-user-points";
 	public static final String SPD_DISTANCE_THRESHOLD = "--distance-threshold";
 	public static final String SPD_TIME_THRESHOLD = "--time-threshold";
+	public static final String SPD_THREADS = "--spd-threads";
+	public static final String SPD_PAGE_SIZE = "--spd-page-size";
+	public static final String SPD_BATCH_SIZE = "--spd-batch-size";
+	public static final String SPD_INCREMENTAL = "--spd-incremental";
+	
+	// ### Stay point sweep
+	public static final String STAY_POINT_SWEEP = "-sps";
+	public static final String STAY_POINT_SWEEP_LONG = "--stay-point-sweep";
+	// Arguments for the stay point sweep
+	public static final String SWEEP_DISTANCE_THRESHOLDS = "--sweep-distance-thresholds";
+	public static final String SWEEP_TIME_THRESHOLDS = "--sweep-time-thresholds";
 	
 	// ### Clustering
 	public static final String CLUSTERING = "-c";
@@ -47,17 +60,31 @@ public class CommandLineArgs {
 	public static final String CLUSTERING_OPTICS_MIN_POINTS = "--optics-minpts";
 	public static final String CLUSTERING_OPTICS_MIN_POINTS_STEP_SIZE = "--optics-minpts-step-size";
 	public static final String CLUSTERING_OPTICS_MIN_POINTS_MAX_VALUE = "--optics-minpts-max";
+	public static final String CLUSTERING_IN_MEMORY = "--clustering-in-memory";
+	public static final String CLUSTERING_INDEX = "--clustering-index";
+	public static final String CLUSTERING_CLEAR_ORDER_CACHE = "--clustering-clear-order-cache";
+	
+	// ### Clustering benchmark
+	public static final String CLUSTERING_BENCHMARK = "-cb";
+	public static final String CLUSTERING_BENCHMARK_LONG = "--clustering-benchmark";
+	// Arguments for the clustering benchmark
+	public static final String CLUSTERING_BENCHMARK_START_SIZE = "--clustering-benchmark-start-size";
 	
 	// ### Build shared framework
 	public static final String BUILD_FRAMEWORK = "-bf";
 	public static final String BUILD_FRAMEWORK_LONG = "--build-framework";
 	// Arguments for building the framework
 	public static final String BUILD_FRAMEWORK_IN = "--build-framework-in-dir";
+	public static final String BUILD_BATCH_SIZE = "--build-batch-size";
 	
 	// ### Build hierarchical graphs of each user
 	public static final String BUILD_USER_GRAPHS = "-bhg";
 	public static final String BUILD_USER_GRAPHS_LONG = "--build-hgs";
 	
+	// ### Import the shared framework and the hierarchical graphs of each user
+	public static final String IMPORT_GRAPHS = "-ig";
+	public static final String IMPORT_GRAPHS_LONG = "--import-graphs";
+	
 	// ### Calculate the spatial similarity between users
 	public static final String CALC_SIMILARITY = "-cs";
 	public static final String CALC_SIMILARITY_LONG = "--calculate-similarity";
@@ -67,6 +94,11 @@ public class CommandLineArgs {
 	public static final String CALC_SIMILARITY_MIN_SEQUENCE_LENGTH = "--min-sequence-length";
 	public static final String CALC_SIMILARITY_FROM_LEVEL = "--from-level";
 	public static final String CALC_SIMILARITY_TO_LEVEL = "--to-level";
+	public static final String CALC_SIMILARITY_SEQUENCE_SPILL_DIR = "--sequence-spill-dir";
+	public static final String CALC_SIMILARITY_SEQUENCE_USERS_IN_MEMORY = "--sequence-users-in-memory";
+	public static final String CALC_SIMILARITY_THREADS = "--threads";
+	public static final String CALC_SIMILARITY_MAX_SIMILAR_SEQUENCES = "--max-similar-sequences";
+	public static final String CALC_SIMILARITY_ENCODED_SEQUENCES = "--encoded-sequences";
 	
 	// ### Evaluation
 	public static final String EVALUATION = "-e";
@@ -81,6 +113,9 @@ public class CommandLineArgs {
 	// ### Automation
 	public static final String AUTOMATION = "-a";
 	public static final String AUTOMATION_LONG = "--automation";
+	// Arguments for automation
+	public static final String AUTOMATION_THREADS = "--automation-threads";
+	public static final String AUTOMATION_STAGE_DIR = "--automation-stage-dir";
 	
 	// ### Help
 	public static final String HELP = "-h";
@@ -110,6 +145,14 @@ public class CommandLineArgs {
 				description = "If the resources to read (i.e., text files) includes lines that are not relevant they can be skipped. The number of lines to skip at the beginning of each resource can be defined with this parameter.")
 	public int preprocessLineOffset;
 	
+	@Parameter(	names = PREPROCESS_THREADS, 
+				description = "The number of threads that preprocess the child directories (i.e., users) of the root directory. Each thread writes the data of a user to its own file. These files are appended to the output file in the order of the users at the end. This defaults to one thread.")
+	public int preprocessThreads = 1;
+	
+	@Parameter(	names = PREPROCESS_BINARY, 
+				description = "Writes the preprocessed data as a binary file instead of a text file. The points of each user are written as one block of latitudes, longitudes and times in milliseconds. An existing file is replaced.")
+	public boolean preprocessBinary = false;
+	
 	//###################################################################
 	// Stay point detection
 	//###################################################################
@@ -134,6 +177,38 @@ public class CommandLineArgs {
 				description = "Staypoint detection: Defines the amount of time (in minutes) a user has to stay within a certain area to be detected as a stay point.")
 	public int spdTimeThreshold = 30;
 	
+	@Parameter(	names = SPD_THREADS, 
+				description = "Staypoint detection: The number of threads that detect stay points. Each thread processes users with its own connection to the database. This defaults to one thread.")
+	public int spdThreads = 1;
+	
+	@Parameter(	names = SPD_PAGE_SIZE, 
+				description = "Staypoint detection: The number of users that are requested from the database at once. The detection starts with the first page of users. A value smaller than one requests all users at once. This defaults to 1000 users.")
+	public int spdPageSize = 1000;
+	
+	@Parameter(	names = SPD_BATCH_SIZE, 
+				description = "Staypoint detection: The number of stay points that are written to the database at once with batch inserts in one transaction. The stay points of a user are always written together. This defaults to 1000 stay points.")
+	public int spdBatchSize = 1000;
+	
+	@Parameter(	names = SPD_INCREMENTAL, 
+				description = "Staypoint detection: Continues the detection of each user with the points that were recorded after its previous incremental detection. The state of the detection of each user is kept in the database. The stay points of a user without such a state are detected again from its first point.")
+	public boolean spdIncremental = false;
+	
+	//###################################################################
+	// Stay point sweep
+	//###################################################################
+	
+	@Parameter(	names = { STAY_POINT_SWEEP, STAY_POINT_SWEEP_LONG }, 
+				description = "Counts the stay points that the stay point detection would detect for each combination of the given distance and time thresholds with one read of the geo points of each user. No stay points are persisted. The counts of each user and of all users are written as CSV files to the output directory of the evaluation.")
+	public boolean spSweep = false;
+	
+	@Parameter(	names = SWEEP_DISTANCE_THRESHOLDS, 
+				description = "Stay point sweep: The comma separated distance thresholds (in meters) of the stay point detection to simulate.")
+	public String sweepDistanceThresholds = "100,200,300";
+	
+	@Parameter(	names = SWEEP_TIME_THRESHOLDS, 
+				description = "Stay point sweep: The comma separated time thresholds (in minutes) of the stay point detection to simulate.")
+	public String sweepTimeThresholds = "20,30,40";
+	
 	//###################################################################
 	// Clustering
 	//###################################################################
@@ -174,6 +249,30 @@ public class CommandLineArgs {
 			description = "Clustering: Defines the maximal value that the value for the minimal number of points for a cluster should be increased to in consecutive clustering passes.")
 	public int clusteringOpticsMinPtsMaxValue = 100;
 	
+	@Parameter(	names = CLUSTERING_IN_MEMORY, 
+			description = "Clustering: Clusters the stay points of the database within this process during the automation. The shared framework is built directly from the clustering without a stay point file and cluster files.")
+	public boolean clusteringInMemory = false;
+	
+	@Parameter(	names = CLUSTERING_INDEX, 
+			description = "Clustering: The index used to answer the range queries of OPTICS. Valid values are 'none' (linear scans) and 'rstar' (an R*-tree on latitude and longitude).")
+	public String clusteringIndex = "none";
+	
+	@Parameter(	names = CLUSTERING_CLEAR_ORDER_CACHE, 
+			description = "Clustering: Deletes the cluster orders of OPTICS that were cached by previous automation runs before the automation starts. A cached cluster order is reused by later runs on the same stay points file and minimum points. It is deleted automatically if the stay points file changed.")
+	public boolean clusteringClearOrderCache = false;
+	
+	//###################################################################
+	// Clustering benchmark
+	//###################################################################
+	
+	@Parameter(	names = { CLUSTERING_BENCHMARK, CLUSTERING_BENCHMARK_LONG }, 
+			description = "Measures the time of the clustering of samples of the stay points of the database with and without an index. The results are written as a CSV file to the output directory of the evaluation.")
+	public boolean clusteringBenchmark = false;
+	
+	@Parameter(	names = CLUSTERING_BENCHMARK_START_SIZE, 
+			description = "Clustering benchmark: The number of stay points of the first sample. The number is doubled for each following sample until all stay points are clustered.")
+	public int clusteringBenchmarkStartSize = 1000;
+	
 	//###################################################################
 	// Build shared framework
 	//###################################################################
@@ -186,6 +285,10 @@ public class CommandLineArgs {
 				description = "The absolute path to the directory that holds the clustering results that are used to build the shared framework.")
 	public String buildFrameworkInDir;
 	
+	@Parameter(	names = BUILD_BATCH_SIZE, 
+				description = "The number of graph operations that are committed in one transaction while building the shared framework or the hierarchical graphs. Pending operations are also committed at the end of each cluster file and each user.")
+	public int buildBatchSize = 10000;
+	
 	//###################################################################
 	// Build hierarchical graphs
 	//###################################################################
@@ -194,6 +297,14 @@ public class CommandLineArgs {
 				description = "Starts the building of the hierarchical graph for each user based on the user's stay points and the shared framework.")
 	public boolean buildUserGraphs = false;
 	
+	//###################################################################
+	// Import graphs
+	//###################################################################
+	
+	@Parameter(	names = { IMPORT_GRAPHS, IMPORT_GRAPHS_LONG }, 
+				description = "Imports the shared framework and the hierarchical graph for each user into a new graph database without transactions. This replaces the building of the shared framework and the hierarchical graphs, also in the automation.")
+	public boolean importGraphs = false;
+	
 	//###################################################################
 	// Calculate similarity
 	//###################################################################
@@ -222,6 +333,26 @@ public class CommandLineArgs {
 			description = "Similarity measurement: The level of the hierarchical graph of each user at which the similarity measurement stops. In other words, all levels equal or less than the to level are included in the similarity measurement. This is ignored if the given value is smaller than zero, i.e., the measurement includes all levels of each graph.")
 	public int calcSimilarityToLevel = -1;
 	
+	@Parameter(	names = { CALC_SIMILARITY_SEQUENCE_SPILL_DIR }, 
+			description = "Similarity measurement: The cluster sequences of each user are extracted once and held in memory. If this absolute path to a directory is given only a limited number of users is held in memory, all others are written to this directory.")
+	public String calcSimilaritySequenceSpillDir;
+	
+	@Parameter(	names = { CALC_SIMILARITY_SEQUENCE_USERS_IN_MEMORY }, 
+			description = "Similarity measurement: The maximal number of users whose cluster sequences are held in memory. This has only an effect if a spill directory is given with " + CALC_SIMILARITY_SEQUENCE_SPILL_DIR + ".")
+	public int calcSimilaritySequenceUsersInMemory = 1000;
+	
+	@Parameter(	names = { CALC_SIMILARITY_THREADS }, 
+			description = "Similarity measurement: The number of threads used to compute the similarity between all user pairs. The results do not depend on the number of threads. This defaults to one thread.")
+	public int calcSimilarityThreads = 1;
+	
+	@Parameter(	names = { CALC_SIMILARITY_MAX_SIMILAR_SEQUENCES }, 
+			description = "Similarity measurement: The maximal number of similar sequences of maximal length that are enumerated for a pair of sequences. If the value is smaller than one all common subsequences are enumerated exhaustively which may take exponential time for sequences that visit the same clusters repeatedly.")
+	public int calcSimilarityMaxSimilarSequences = -1;
+	
+	@Parameter(	names = { CALC_SIMILARITY_ENCODED_SEQUENCES }, 
+			description = "Similarity measurement: Assigns an integer id to every hg cluster and extracts, matches and analyzes the cluster sequences of each user pair as arrays of integer ids and times instead of objects with string ids. Only the maximal length similar sequences are enumerated.")
+	public boolean calcSimilarityEncodedSequences = false;
+	
 	//###################################################################
 	// Evaluation
 	//###################################################################
@@ -250,6 +381,14 @@ public class CommandLineArgs {
 			description = "Enables automation of different tasks provided by this application. In detail, the following tasks are run in a row: clustering of stay points, building of the shared framework, building of a hierarchical graph for each user, similarity measurement. The automation task can only be run in connection with the evaluation. Hence, after a complete run an evaluation file is written. Then, all created resources (i.e., the clustering files, the complete graph with the shared framework and the hierarchical graphs) are removed. This ensures that each automation run starts with reseted resources. Note that the automation requires an empty graph database as it is building it from scratch in each pass.")
 	public boolean automation = false;
 	
+	@Parameter(	names = { AUTOMATION_THREADS }, 
+			description = "Automation: The number of passes of the automation that run concurrently. Each concurrent pass writes its clustering results, its graph database and its spilled cluster sequences to its own directories next to the configured ones and its evaluation file to its own directory in the evaluation output directory. Each pass opens its own graph database, hence, the memory usage grows with the number of threads. A summary of the evaluation of all passes is written to the evaluation output directory. This defaults to one thread, i.e., the passes run one after the other.")
+	public int automationThreads = 1;
+	
+	@Parameter(	names = { AUTOMATION_STAGE_DIR }, 
+			description = "Automation: The absolute path to a directory that keeps the outputs of the stages of the automation (i.e., the clustering results, the graph database and the similarity scores) under a hash of their inputs and parameters. A stage whose output already exists for the same inputs and parameters is skipped, e.g., if only a parameter of the similarity measurement changed only the similarity is measured again on the existing graph database. The outputs are not removed after a pass. If no directory is given all stages are run in each pass.")
+	public String automationStageDir;
+	
 	//###################################################################
 	// Other
 	//###################################################################
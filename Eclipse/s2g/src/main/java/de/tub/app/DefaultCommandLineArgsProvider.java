@@ -36,6 +36,8 @@ public class DefaultCommandLineArgsProvider implements IDefaultProvider {
 			return props.getProperty("app.preprocess.path_in_child_dir");
 		else if (optionName.equals(CommandLineArgs.PREPROCESS_RESOURCE_LINE_OFFSET))
 			return props.getProperty("app.preprocess.line_offset");
+		else if (optionName.equals(CommandLineArgs.PREPROCESS_THREADS))
+			return props.getProperty("app.preprocess.threads");
 		
 		// ### Stay point detection
 		else if (optionName.equals(CommandLineArgs.SPD_MIN_USER_POINTS))
@@ -46,6 +48,18 @@ public class DefaultCommandLineArgsProvider implements IDefaultProvider {
 			return props.getProperty("app.staypoints.distance_threshold");
 		else if (optionName.equals(CommandLineArgs.SPD_TIME_THRESHOLD))
 			return props.getProperty("app.staypoints.time_threshold");
+		else if (optionName.equals(CommandLineArgs.SPD_THREADS))
+			return props.getProperty("app.staypoints.threads");
+		else if (optionName.equals(CommandLineArgs.SPD_PAGE_SIZE))
+			return props.getProperty("app.staypoints.page_size");
+		else if (optionName.equals(CommandLineArgs.SPD_BATCH_SIZE))
+			return props.getProperty("app.staypoints.batch_size");
+		
+		// ### Stay point sweep
+		else if (optionName.equals(CommandLineArgs.SWEEP_DISTANCE_THRESHOLDS))
+			return props.getProperty("app.sweep.distance_thresholds");
+		else if (optionName.equals(CommandLineArgs.SWEEP_TIME_THRESHOLDS))
+			return props.getProperty("app.sweep.time_thresholds");
 		
 		// ### Clustering
 		else if (optionName.equals(CommandLineArgs.CLUSTERING_IN))
@@ -64,10 +78,16 @@ public class DefaultCommandLineArgsProvider implements IDefaultProvider {
 			return props.getProperty("app.clustering.optics_minpts_steps");
 		else if (optionName.equals(CommandLineArgs.CLUSTERING_OPTICS_MIN_POINTS_MAX_VALUE))
 			return props.getProperty("app.clustering.optics_minpts_max");
+		else if (optionName.equals(CommandLineArgs.CLUSTERING_INDEX))
+			return props.getProperty("app.clustering.index");
+		else if (optionName.equals(CommandLineArgs.CLUSTERING_BENCHMARK_START_SIZE))
+			return props.getProperty("app.clustering.benchmark_start_size");
 		
 		// ### Building shared framework
 		else if (optionName.equals(CommandLineArgs.BUILD_FRAMEWORK_IN))
 			return props.getProperty("app.build.shared_framework.in_dir");
+		else if (optionName.equals(CommandLineArgs.BUILD_BATCH_SIZE))
+			return props.getProperty("app.build.batch_size");
 		
 		// ### Similarity measurement
 		else if (optionName.equals(CommandLineArgs.CALC_SIMILARITY_SPLIT_THRESHOLD))
@@ -80,11 +100,25 @@ public class DefaultCommandLineArgsProvider implements IDefaultProvider {
 			return props.getProperty("app.similarity.from_level");
 		else if (optionName.equals(CommandLineArgs.CALC_SIMILARITY_TO_LEVEL))
 			return props.getProperty("app.similarity.to_level");
+		else if (optionName.equals(CommandLineArgs.CALC_SIMILARITY_SEQUENCE_SPILL_DIR))
+			return props.getProperty("app.similarity.sequence_spill_dir");
+		else if (optionName.equals(CommandLineArgs.CALC_SIMILARITY_SEQUENCE_USERS_IN_MEMORY))
+			return props.getProperty("app.similarity.sequence_users_in_memory");
+		else if (optionName.equals(CommandLineArgs.CALC_SIMILARITY_THREADS))
+			return props.getProperty("app.similarity.threads");
+		else if (optionName.equals(CommandLineArgs.CALC_SIMILARITY_MAX_SIMILAR_SEQUENCES))
+			return props.getProperty("app.similarity.max_similar_sequences");
 		
 		// ### Evaluation
 		else if (optionName.equals(CommandLineArgs.EVALUATION_OUT_DIR))
 			return props.getProperty("app.evaluation.out_dir");
 		
+		// ### Automation
+		else if (optionName.equals(CommandLineArgs.AUTOMATION_THREADS))
+			return props.getProperty("app.automation.threads");
+		else if (optionName.equals(CommandLineArgs.AUTOMATION_STAGE_DIR))
+			return props.getProperty("app.automation.stage_dir");
+		
 		else return null;
 	}
 
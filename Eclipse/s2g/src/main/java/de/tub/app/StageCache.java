@@ -0,0 +1,275 @@
+package de.tub.app;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.tub.util.FileUtil;
+
+/**
+ * The <code>StageCache</code> keeps the outputs of the stages of the automation
+ * (i.e., clustering, graphs and similarity) under a hash of their inputs and
+ * parameters. A stage whose output is already complete for the same hash does not
+ * have to be run again. Hence, if only a parameter of the similarity measurement
+ * changed, only the similarity is measured again on the existing graph database.
+ * <p />
+ * The output of a stage is held in the directory <code>&lt;stage&gt;-&lt;key&gt;</code>
+ * within the cache directory. A stage is complete when its marker file exists next to
+ * its directory. The marker is written after the stage finished, hence, the output of a
+ * stage that was interrupted is discarded and the stage is run again.
+ *
+ * @author Sebastian Oelke
+ *
+ */
+public class StageCache {
+
+	private static final Logger LOG = LoggerFactory.getLogger(StageCache.class);
+
+	public static final String CLUSTERING = "clustering";
+	public static final String GRAPH = "graph";
+	public static final String SIMILARITY = "similarity";
+
+	private static final String COMPLETE_SUFFIX = ".complete";
+	private static final String RESULTS_FILE = "similarity.bin";
+	private static final String HASH_ALGORITHM = "SHA-1";
+	private static final String ENCODING = "UTF-8";
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final File directory;
+
+	/**
+	 * @param directory the directory that holds the outputs of the stages.
+	 * @throws NullPointerException if the given directory is <code>null</code>.
+	 */
+	public StageCache(String directory) throws NullPointerException {
+		if (directory == null)
+			throw new NullPointerException(
+				"You provided a null value for the directory of the stage cache. " +
+				"This parameter is expected to be non-null.");
+
+		this.directory = new File(directory);
+	}
+
+	/**
+	 * @param stage the name of the stage.
+	 * @param key the hash of the inputs and parameters of the stage.
+	 * @return the directory that holds the output of the given stage for the given key.
+	 */
+	public File directory(String stage, String key) {
+		return new File(directory, stage + "-" + key);
+	}
+
+	/**
+	 * @param stage the name of the stage.
+	 * @param key the hash of the inputs and parameters of the stage.
+	 * @return <code>true</code> if the output of the given stage for the given key is
+	 * complete, <code>false</code> otherwise.
+	 */
+	public boolean isComplete(String stage, String key) {
+		return marker(stage, key).exists() && directory(stage, key).exists();
+	}
+
+	/**
+	 * Prepares an empty output directory for the given stage. An incomplete output
+	 * of a previous run is deleted.
+	 *
+	 * @param stage the name of the stage.
+	 * @param key the hash of the inputs and parameters of the stage.
+	 * @return the output directory of the stage.
+	 * @throws IllegalStateException if the output directory could not be created.
+	 */
+	public File prepare(String stage, String key) throws IllegalStateException {
+		File dir = directory(stage, key);
+
+		marker(stage, key).delete();
+		FileUtil.deleteFileOrDirectory(dir);
+		if (!FileUtil.ifNotExistCreateDir(dir.getPath()))
+			throw new IllegalStateException(
+				"The output directory " + dir + " of the stage " + stage + " could not be created.");
+
+		return dir;
+	}
+
+	/**
+	 * Marks the output of the given stage as complete.
+	 *
+	 * @param stage the name of the stage.
+	 * @param key the hash of the inputs and parameters of the stage.
+	 */
+	public void complete(String stage, String key) {
+		File marker = marker(stage, key);
+		try {
+			if (!marker.createNewFile() && !marker.exists())
+				LOG.error("Could not mark the output of the stage {} with key {} as complete.", stage, key);
+		} catch (IOException e) {
+			LOG.error("Could not mark the output of the stage " + stage + " with key " + key + " as complete.", e);
+		}
+	}
+
+	/**
+	 * Writes the results of the similarity measurement to the output directory of the
+	 * similarity stage and marks the stage as complete.
+	 *
+	 * @param key the hash of the inputs and parameters of the similarity stage.
+	 * @param results the similarity scores of all user pairs.
+	 */
+	public void storeResults(String key, double[][] results) {
+		File file = new File(prepare(SIMILARITY, key), RESULTS_FILE);
+
+		DataOutputStream out = null;
+		try {
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+			out.writeInt(results.length);
+			for (double[] row : results) {
+				out.writeInt(row.length);
+				for (double value : row)
+					out.writeDouble(value);
+			}
+		} catch (IOException e) {
+			LOG.error("Could not write the similarity results to " + file + ".", e);
+			close(out);
+			return;
+		}
+		close(out);
+
+		complete(SIMILARITY, key);
+	}
+
+	/**
+	 * Reads the results of a complete similarity stage.
+	 *
+	 * @param key the hash of the inputs and parameters of the similarity stage.
+	 * @return the similarity scores of all user pairs or <code>null</code> if they could not be read.
+	 */
+	public double[][] loadResults(String key) {
+		File file = new File(directory(SIMILARITY, key), RESULTS_FILE);
+
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+			double[][] results = new double[in.readInt()][];
+			for (int i = 0; i < results.length; i++) {
+				results[i] = new double[in.readInt()];
+				for (int j = 0; j < results[i].length; j++)
+					results[i][j] = in.readDouble();
+			}
+
+			return results;
+		} catch (IOException e) {
+			LOG.error("Could not read the similarity results of " + file + ".", e);
+			return null;
+		} finally {
+			close(in);
+		}
+	}
+
+	/**
+	 * @param parts the inputs and parameters of a stage.
+	 * @return the hash of the string representations of the given parts.
+	 */
+	public static String hash(Object... parts) {
+		Hasher hasher = new Hasher();
+		for (Object part : parts)
+			hasher.add(part);
+
+		return hasher.hash();
+	}
+
+	/**
+	 * @param path the path to a file.
+	 * @return the hash of the content of the given file.
+	 * @throws IOException if the file could not be read.
+	 */
+	public static String hashFile(String path) throws IOException {
+		MessageDigest digest = digest();
+
+		InputStream in = new FileInputStream(path);
+		try {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int read;
+			while ((read = in.read(buffer)) != -1)
+				digest.update(buffer, 0, read);
+		} finally {
+			close(in);
+		}
+
+		return toHex(digest.digest());
+	}
+
+	private File marker(String stage, String key) {
+		return new File(directory, stage + "-" + key + COMPLETE_SUFFIX);
+	}
+
+	private static MessageDigest digest() {
+		try {
+			return MessageDigest.getInstance(HASH_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform has to support SHA-1
+			throw new IllegalStateException("The hash algorithm " + HASH_ALGORITHM + " is not available.", e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder hex = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes)
+			hex.append(String.format("%02x", b));
+
+		return hex.toString();
+	}
+
+	private static void close(Closeable closeable) {
+		if (closeable == null) return;
+
+		try {
+			closeable.close();
+		} catch (IOException e) {
+			LOG.error("Could not close a file of the stage cache.", e);
+		}
+	}
+
+	/**
+	 * Computes the hash of a sequence of inputs and parameters part by part.
+	 */
+	public static class Hasher {
+		// Separates the parts, hence, ("ab", "c") and ("a", "bc") have different hashes
+		private static final byte SEPARATOR = 0;
+
+		private final MessageDigest digest = digest();
+
+		/**
+		 * @param part the input or parameter to add. Its string representation is hashed.
+		 * @return this hasher.
+		 */
+		public Hasher add(Object part) {
+			try {
+				digest.update(String.valueOf(part).getBytes(ENCODING));
+			} catch (UnsupportedEncodingException e) {
+				// Every Java platform has to support UTF-8
+				throw new IllegalStateException("The encoding " + ENCODING + " is not available.", e);
+			}
+			digest.update(SEPARATOR);
+
+			return this;
+		}
+
+		/**
+		 * @return the hash of all added parts.
+		 */
+		public String hash() {
+			return toHex(digest.digest());
+		}
+	}
+}
@@ -0,0 +1,212 @@
+package de.tub.clustering;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBID;
+import de.lmu.ifi.dbs.elki.distance.distancevalue.DoubleDistance;
+import de.lmu.ifi.dbs.elki.result.optics.ClusterOrderEntry;
+import de.lmu.ifi.dbs.elki.result.optics.ClusterOrderResult;
+import de.tub.util.FileUtil;
+
+/**
+ * The <code>ClusterOrderCache</code> persists the cluster order of OPTICS runs
+ * on one input file. The cluster order only depends on the input data, the
+ * distance function and the minimum points of OPTICS but not on the xi value of
+ * OPTICS-XI. Hence, a cached cluster order can be reused for all xi values with the
+ * same minimum points.
+ * <p />
+ * The cluster order of each minimum points value is written to its own file
+ * in the cache directory. Objects are referenced by their position in the input
+ * file because the database ids of ELKI change with each database that is loaded.
+ * A cached cluster order is deleted if the input file changed after it was written.
+ * Otherwise, the cached cluster orders are kept until {@link #clear()} is called, 
+ * hence, they are reused by later runs on the same input file.
+ * <p />
+ * The cache can be shared by concurrent clustering runs. Loading and storing a 
+ * cluster order are mutually exclusive.
+ *
+ * @author Sebastian Oelke
+ *
+ */
+public class ClusterOrderCache {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ClusterOrderCache.class);
+
+	private static final String FILE_PREFIX = "optics-order-minpts-";
+	private static final String FILE_SUFFIX = ".txt";
+	private static final String HEADER_PREFIX = "# ";
+	private static final String DELIMITER = " ";
+	private static final int NO_PREDECESSOR = -1;
+
+	private final File directory;
+	private final File inputFile;
+
+	/**
+	 * @param directory the directory that holds the cached cluster orders.
+	 * @param inputFile the input file of the OPTICS runs.
+	 * @throws NullPointerException if at least one of the given arguments is <code>null</code>.
+	 */
+	public ClusterOrderCache(String directory, String inputFile) throws NullPointerException {
+		if (directory == null || inputFile == null)
+			throw new NullPointerException(
+				"You provided a null value for either the cache directory or the input file. " +
+				"Both parameters are expected to be non-null.");
+
+		this.directory = new File(directory);
+		this.inputFile = new File(inputFile).getAbsoluteFile();
+	}
+
+	/**
+	 * Loads the cached cluster order for the given minimum points.
+	 *
+	 * @param opticsMinPoints the minimum points of the OPTICS run.
+	 * @param ids the ids of the objects of the database in the order of the input file.
+	 * @return the cached cluster order or <code>null</code> if there is no valid cached
+	 * cluster order for the given minimum points.
+	 */
+	public synchronized ClusterOrderResult<DoubleDistance> load(int opticsMinPoints, ArrayDBIDs ids) {
+		File file = orderFile(opticsMinPoints);
+		if (!file.exists()) return null;
+
+		ClusterOrderResult<DoubleDistance> order = new ClusterOrderResult<DoubleDistance>("OPTICS Clusterorder", "optics-clusterorder");
+		BufferedReader reader = null;
+		try {
+			reader = new BufferedReader(new FileReader(file));
+
+			// The cached cluster order has to belong to the current input file
+			if (!header(opticsMinPoints).equals(reader.readLine())) {
+				LOG.debug("The cached cluster order in {} belongs to another input file. It is deleted.", file);
+				close(reader);
+				reader = null;
+				file.delete();
+				return null;
+			}
+
+			int entries = 0;
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] tokens = line.split(DELIMITER);
+				int position = Integer.parseInt(tokens[0]);
+				int predecessor = Integer.parseInt(tokens[1]);
+
+				order.add(ids.get(position),
+						predecessor == NO_PREDECESSOR ? null : ids.get(predecessor),
+						new DoubleDistance(Double.parseDouble(tokens[2])));
+				entries++;
+			}
+
+			// Every object has to be part of the cluster order
+			if (entries != ids.size()) {
+				LOG.warn("The cached cluster order in {} has {} entries but {} were expected. It is ignored.",
+						new Object[] { file, entries, ids.size() });
+				return null;
+			}
+		} catch (IOException e) {
+			LOG.error("Could not read the cached cluster order in " + file + ".", e);
+			return null;
+		} catch (RuntimeException e) {
+			LOG.warn("The cached cluster order in " + file + " is corrupt. It is ignored.", e);
+			return null;
+		} finally {
+			close(reader);
+		}
+
+		LOG.debug("Loaded the cached cluster order for {} minimum points.", opticsMinPoints);
+
+		return order;
+	}
+
+	/**
+	 * Writes the given cluster order to the cache.
+	 *
+	 * @param opticsMinPoints the minimum points of the OPTICS run.
+	 * @param ids the ids of the objects of the database in the order of the input file.
+	 * @param order the cluster order of the OPTICS run.
+	 */
+	public synchronized void store(int opticsMinPoints, ArrayDBIDs ids, ClusterOrderResult<DoubleDistance> order) {
+		if (!FileUtil.ifNotExistCreateDir(directory.getPath())) {
+			LOG.error("Could not create the cache directory {}. The cluster order is not cached.", directory);
+			return;
+		}
+
+		// Positions of the objects in the input file
+		Map<DBID, Integer> positions = new HashMap<DBID, Integer>(ids.size());
+		for (int i = 0; i < ids.size(); i++)
+			positions.put(ids.get(i), i);
+
+		File file = orderFile(opticsMinPoints);
+		BufferedWriter writer = null;
+		try {
+			writer = new BufferedWriter(new FileWriter(file));
+			writer.write(header(opticsMinPoints));
+			writer.newLine();
+
+			for (ClusterOrderEntry<DoubleDistance> entry : order) {
+				DBID predecessor = entry.getPredecessorID();
+
+				writer.write(positions.get(entry.getID()) + DELIMITER +
+						(predecessor == null ? NO_PREDECESSOR : positions.get(predecessor)) + DELIMITER +
+						entry.getReachability().doubleValue());
+				writer.newLine();
+			}
+		} catch (IOException e) {
+			LOG.error("Could not write the cluster order to " + file + ".", e);
+			close(writer);
+			// Do not leave an incomplete cluster order behind
+			file.delete();
+			return;
+		}
+		close(writer);
+
+		LOG.debug("Cached the cluster order for {} minimum points in {}.", opticsMinPoints, file);
+	}
+
+	/**
+	 * Deletes all cached cluster orders.
+	 */
+	public synchronized void clear() {
+		FileUtil.deleteFileOrDirectory(directory);
+	}
+
+	/**
+	 * @param outputDir the output directory of the clustering.
+	 * @return the default cache directory next to the given output directory.
+	 */
+	public static String defaultDirectory(String outputDir) {
+		return new File(outputDir).getAbsolutePath() + "-optics-order";
+	}
+
+	private File orderFile(int opticsMinPoints) {
+		return new File(directory, FILE_PREFIX + opticsMinPoints + FILE_SUFFIX);
+	}
+
+	/**
+	 * @return the first line of a cached cluster order that identifies the input file and its version.
+	 */
+	private String header(int opticsMinPoints) {
+		return HEADER_PREFIX + inputFile.getPath() + DELIMITER + inputFile.length() + DELIMITER +
+				inputFile.lastModified() + DELIMITER + opticsMinPoints;
+	}
+
+	private static void close(Closeable closeable) {
+		if (closeable == null) return;
+
+		try {
+			closeable.close();
+		} catch (IOException e) {
+			LOG.error("Could not close the cached cluster order.", e);
+		}
+	}
+}
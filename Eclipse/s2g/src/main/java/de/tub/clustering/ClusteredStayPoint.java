@@ -0,0 +1,55 @@
+package de.tub.clustering;
+
+/**
+ * A stay point that is clustered by ELKI. It holds the 
+ * values of a stay point that are needed to create a stay
+ * point node in the shared framework.
+ * 
+ * @author Sebastian Oelke
+ *
+ */
+public final class ClusteredStayPoint {
+	
+	private final int id;
+	private final double latitude, longitude;
+	private final long arrivalTime, leavingTime;
+	
+	/**
+	 * @param id the id of the stay point.
+	 * @param latitude the latitude of the stay point.
+	 * @param longitude the longitude of the stay point.
+	 * @param arrivalTime the arrival time in milliseconds.
+	 * @param leavingTime the leaving time in milliseconds.
+	 */
+	public ClusteredStayPoint(int id, double latitude, double longitude, long arrivalTime, long leavingTime) {
+		this.id = id;
+		this.latitude = latitude;
+		this.longitude = longitude;
+		this.arrivalTime = arrivalTime;
+		this.leavingTime = leavingTime;
+	}
+	
+	//###################################################################
+	// Getters
+	//###################################################################
+	
+	public int getId() {
+		return id;
+	}
+	
+	public double getLatitude() {
+		return latitude;
+	}
+	
+	public double getLongitude() {
+		return longitude;
+	}
+	
+	public long getArrivalTime() {
+		return arrivalTime;
+	}
+	
+	public long getLeavingTime() {
+		return leavingTime;
+	}
+}
@@ -0,0 +1,126 @@
+package de.tub.clustering;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The <code>ClusteringBenchmark</code> measures the time of the clustering of
+ * stay points against the number of stay points with different indexes. For each
+ * number of stay points a random sample of the given stay points is clustered
+ * with each index by a new {@link StayPointClusterer}. The measured time includes
+ * the creation of the database and its index, OPTICS and OPTICS-XI. Before the
+ * measurement the first sample is clustered once with each index without measuring
+ * the time to warm up the JVM.
+ *
+ * @author Sebastian Oelke
+ *
+ */
+public class ClusteringBenchmark {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ClusteringBenchmark.class);
+
+	/**
+	 * The seed of the random sampling of stay points. A fixed seed lets benchmark runs
+	 * on the same stay points use the same samples.
+	 */
+	public static final long SAMPLE_SEED = 42L;
+
+	private final List<ClusteredStayPoint> stayPoints;
+	private final ClusteringIndex[] indexes;
+
+	/**
+	 * @param stayPoints the stay points to take samples from.
+	 * @param indexes the indexes to compare.
+	 * @throws NullPointerException if at least one of the given arguments is <code>null</code>.
+	 * @throws IllegalArgumentException if no stay points or indexes are given.
+	 */
+	public ClusteringBenchmark(List<ClusteredStayPoint> stayPoints, ClusteringIndex... indexes)
+			throws NullPointerException, IllegalArgumentException {
+		if (stayPoints == null || indexes == null)
+			throw new NullPointerException(
+				"You provided a null value for either the stay points or the indexes. " +
+				"Both parameters are expected to be non-null.");
+
+		if (stayPoints.isEmpty() || indexes.length == 0)
+			throw new IllegalArgumentException(
+				"You provided no stay points or no indexes. The benchmark needs at least one of each.");
+
+		// Shuffle once so that each sample is a prefix of the same random order
+		this.stayPoints = new ArrayList<ClusteredStayPoint>(stayPoints);
+		Collections.shuffle(this.stayPoints, new Random(SAMPLE_SEED));
+
+		this.indexes = indexes.clone();
+	}
+
+	/**
+	 * Doubles the number of stay points from the given start size until all stay points
+	 * are clustered.
+	 *
+	 * @param startSize the number of stay points of the first sample.
+	 * @param opticsXi the xi value used by OPTICS-XI.
+	 * @param opticsMinPoints the minimum points used by OPTICS.
+	 * @return a row for each sample. The first column holds the number of stay points, the
+	 * other columns hold the time in milliseconds for each index in the given order.
+	 * @throws IllegalArgumentException if the start size is smaller than one.
+	 */
+	public double[][] run(int startSize, double opticsXi, int opticsMinPoints) throws IllegalArgumentException {
+		if (startSize < 1)
+			throw new IllegalArgumentException(
+				"You provided a start size of " + startSize + ". The start size has to be greater than zero.");
+
+		List<Integer> sizes = new ArrayList<Integer>();
+		for (int size = startSize; size < stayPoints.size(); size *= 2)
+			sizes.add(size);
+		sizes.add(stayPoints.size());
+
+		// The first sample should not be measured on a cold JVM
+		warmUp(sizes.get(0), opticsXi, opticsMinPoints);
+
+		double[][] results = new double[sizes.size()][];
+		for (int i = 0; i < sizes.size(); i++)
+			results[i] = measure(sizes.get(i), opticsXi, opticsMinPoints);
+
+		return results;
+	}
+
+	/**
+	 * Clusters a sample with the given number of stay points once with each index
+	 * without measuring the time.
+	 */
+	private void warmUp(int size, double opticsXi, int opticsMinPoints) {
+		List<ClusteredStayPoint> sample = stayPoints.subList(0, size);
+
+		for (int i = 0; i < indexes.length; i++) {
+			LOG.debug("Warm up with {} stay points and index {}.", size, indexes[i]);
+			new StayPointClusterer(sample, indexes[i]).cluster(opticsXi, opticsMinPoints);
+		}
+	}
+
+	/**
+	 * Clusters a sample with the given number of stay points with each index.
+	 *
+	 * @return the number of stay points followed by the time in milliseconds for each index.
+	 */
+	private double[] measure(int size, double opticsXi, int opticsMinPoints) {
+		List<ClusteredStayPoint> sample = stayPoints.subList(0, size);
+
+		double[] row = new double[indexes.length + 1];
+		row[0] = size;
+
+		for (int i = 0; i < indexes.length; i++) {
+			long start = System.nanoTime();
+
+			new StayPointClusterer(sample, indexes[i]).cluster(opticsXi, opticsMinPoints);
+
+			row[i + 1] = (System.nanoTime() - start) / 1000000.0;
+			LOG.info("Clustered {} stay points with index {} in {} ms.", new Object[] { size, indexes[i], row[i + 1] });
+		}
+
+		return row;
+	}
+}
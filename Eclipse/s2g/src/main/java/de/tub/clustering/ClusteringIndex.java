@@ -0,0 +1,97 @@
+package de.tub.clustering;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import de.lmu.ifi.dbs.elki.index.IndexFactory;
+import de.lmu.ifi.dbs.elki.index.tree.spatial.rstarvariants.rstar.RStarTreeFactory;
+import de.lmu.ifi.dbs.elki.utilities.ClassGenericsUtil;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.SerializedParameterization;
+
+/**
+ * The index that is used by ELKI to answer the range queries of OPTICS.
+ * Without an index each range query is a linear scan over all stay points.
+ * The <code>geo.LatLngDistanceFunction</code> supports spatial indexes, hence,
+ * an R*-tree on latitude and longitude answers the range queries with the
+ * same results.
+ *
+ * @author Sebastian Oelke
+ *
+ */
+public enum ClusteringIndex {
+
+	/**
+	 * No index, i.e., linear scans.
+	 */
+	NONE(null),
+
+	/**
+	 * An in-memory R*-tree that is bulk loaded with the Sort-Tile-Recursive strategy.
+	 */
+	RSTAR(RStarTreeFactory.class,
+			"-pagefile.pagesize", "1024",
+			"-spatial.bulkstrategy", "SortTileRecursiveBulkSplit");
+
+	private static final String DATABASE_INDEX_PARAMETER = "-db.index";
+
+	private final Class<?> factoryClass;
+	private final List<String> factoryArguments;
+
+	private ClusteringIndex(Class<?> factoryClass, String... factoryArguments) {
+		this.factoryClass = factoryClass;
+		this.factoryArguments = Collections.unmodifiableList(Arrays.asList(factoryArguments));
+	}
+
+	/**
+	 * @return the ELKI arguments that add this index to the database. The list is
+	 * empty if no index is used.
+	 */
+	public List<String> databaseArguments() {
+		List<String> args = new ArrayList<String>();
+		if (factoryClass != null) {
+			args.add(DATABASE_INDEX_PARAMETER);
+			args.add(factoryClass.getName());
+			args.addAll(factoryArguments);
+		}
+
+		return args;
+	}
+
+	/**
+	 * @return the factories of this index for a database. The list is empty if
+	 * no index is used.
+	 */
+	public List<IndexFactory<?, ?>> createIndexFactories() {
+		List<IndexFactory<?, ?>> factories = new ArrayList<IndexFactory<?, ?>>();
+		if (factoryClass != null) {
+			SerializedParameterization params = new SerializedParameterization(
+					factoryArguments.toArray(new String[factoryArguments.size()]));
+			factories.add((IndexFactory<?, ?>) ClassGenericsUtil.parameterizeOrAbort(factoryClass, params));
+		}
+
+		return factories;
+	}
+
+	/**
+	 * @param name the name of the index, case is ignored.
+	 * @return the index with the given name.
+	 * @throws NullPointerException if the given name is <code>null</code>.
+	 * @throws IllegalArgumentException if there is no index with the given name.
+	 */
+	public static ClusteringIndex forName(String name) throws NullPointerException, IllegalArgumentException {
+		if (name == null)
+			throw new NullPointerException(
+				"You provided a null value for the name of the clustering index. " +
+				"This parameter is expected to be non-null.");
+
+		try {
+			return valueOf(name.trim().toUpperCase());
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException(
+				"There is no clustering index with the name [" + name + "]. " +
+				"Valid names are: " + Arrays.toString(values()) + ".", e);
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package de.tub.clustering;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A cluster of a hierarchical clustering with ELKI. It holds
+ * the same information as a cluster file written by ELKI, i.e.,
+ * the name of the cluster, the names of its parents and children
+ * and the stay points that belong to the cluster but not to one of
+ * its children.
+ * 
+ * @author Sebastian Oelke
+ *
+ */
+public final class ELKICluster {
+	
+	private final String name;
+	private final List<String> parents = new ArrayList<String>();
+	private final List<String> children = new ArrayList<String>();
+	private final List<ClusteredStayPoint> stayPoints = new ArrayList<ClusteredStayPoint>();
+	
+	/**
+	 * @param name the unique name of the cluster within its clustering.
+	 * @throws NullPointerException if the given name is <code>null</code>.
+	 */
+	public ELKICluster(String name) throws NullPointerException {
+		if (name == null)
+			throw new NullPointerException(
+				"You provided a null value for the cluster name. " +
+				"This parameter is expected to be non-null.");
+		
+		this.name = name;
+	}
+	
+	void addParent(String parent) {
+		parents.add(parent);
+	}
+	
+	void addChild(String child) {
+		children.add(child);
+	}
+	
+	void addStayPoint(ClusteredStayPoint stayPoint) {
+		stayPoints.add(stayPoint);
+	}
+	
+	//###################################################################
+	// Getters
+	//###################################################################
+	
+	public String getName() {
+		return name;
+	}
+	
+	public List<String> getParents() {
+		return Collections.unmodifiableList(parents);
+	}
+	
+	public List<String> getChildren() {
+		return Collections.unmodifiableList(children);
+	}
+	
+	public List<ClusteredStayPoint> getStayPoints() {
+		return Collections.unmodifiableList(stayPoints);
+	}
+	
+	@Override
+	public String toString() {
+		return name + " (parents: " + parents + ", children: " + children + ", stay points: " + stayPoints.size() + ")";
+	}
+}
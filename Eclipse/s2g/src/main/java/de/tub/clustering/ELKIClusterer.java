@@ -1,12 +1,31 @@
 package de.tub.clustering;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import de.lmu.ifi.dbs.elki.algorithm.AbstractDistanceBasedAlgorithm;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.OPTICS;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.OPTICSXi;
 import de.lmu.ifi.dbs.elki.application.KDDCLIApplication;
+import de.lmu.ifi.dbs.elki.data.Clustering;
+import de.lmu.ifi.dbs.elki.data.model.OPTICSModel;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.StaticArrayDatabase;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.database.relation.Relation;
+import de.lmu.ifi.dbs.elki.distance.distancefunction.geo.LatLngDistanceFunction;
+import de.lmu.ifi.dbs.elki.distance.distancevalue.DoubleDistance;
+import de.lmu.ifi.dbs.elki.result.ResultWriter;
+import de.lmu.ifi.dbs.elki.result.optics.ClusterOrderResult;
+import de.lmu.ifi.dbs.elki.utilities.ClassGenericsUtil;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.ListParameterization;
+import de.lmu.ifi.dbs.elki.utilities.optionhandling.parameterization.SerializedParameterization;
 
 /**
  * This class provides methods to invoke the clustering 
@@ -56,39 +75,37 @@ public class ELKIClusterer {
 	 */
 	public static void cluster(String inputFile, String outputDir, double opticsXi, int opticsMinPoints) 
 			throws NullPointerException, IllegalArgumentException {
-		if (inputFile == null)
-			throw new NullPointerException(
-				"You provided a null value for the required input file. " +
-				"The clustering cannot be performed without any input data.");
-		else if (inputFile.isEmpty())
-			throw new IllegalArgumentException(
-				"You provided an empty string for the required input file. " +
-				"The clustering cannot be performed without any input data.");
-		
-		if (outputDir == null)
-			throw new NullPointerException(
-				"You provided a null value for the output directory. " +
-				"The clustering cannot be performed without a specified output directory.");
-		else if (outputDir.isEmpty())
-			throw new IllegalArgumentException(
-				"You provided an empty string for the output directory. " +
-				"The clustering cannot be performed without a specified output directory.");
-		
-		if (opticsXi < MIN_OPTICS_XI || opticsXi >= 1.0)
-			throw new IllegalArgumentException(
-					"The parameter 'opticsXi' has to be within the range [0.0, 1.0). " +
-					"The clustering cannot be performed without a valid value for the 'opticsXi' parameter.");
-		
-		if (opticsMinPoints < MIN_OPTICS_POINTS)
-			throw new IllegalArgumentException(
-					"The parameter 'opticsMinPoints' has to be within the greater than zero. " +
-					"The clustering cannot be performed without a valid value for the 'opticsMinPoints' parameter.");
+		cluster(inputFile, outputDir, opticsXi, opticsMinPoints, ClusteringIndex.NONE);
+	}
+	
+	/**
+	 * Starts the clustering of stay points with ELKI like {@link #cluster(String, String, double, int)}.
+	 * The range queries of OPTICS are answered by the given index.
+	 * 
+	 * @param inputFile the input file holding the data that has to be clustered.
+	 * @param outputDir the output directory that holds the resulting cluster files after the OPTICS-XI run.
+	 * @param opticsXi the xi value used by OPTICS-XI. This has to be in the interval [0.0, 1.0).
+	 * @param opticsMinPoints the minimum points a cluster must have to be created used by OPTICS. Has to be 
+	 * greater than zero.
+	 * @param index the index of the database.
+	 * 
+	 * @throws NullPointerException if the given parameter for the input file, the output directory or the
+	 * index is <code>null</code>.
+	 * @throws IllegalArgumentException if the given parameter for the given input file or the output directory is empty. 
+	 * If the parameters opticsXi or opticsMinPoints are not valid.
+	 */
+	public static void cluster(String inputFile, String outputDir, double opticsXi, int opticsMinPoints, 
+			ClusteringIndex index) throws NullPointerException, IllegalArgumentException {
+		validate(inputFile, outputDir, opticsXi, opticsMinPoints);
+		validate(index);
 		
 		// Build up arguments for ELKI clustering
 		List<String> args = new ArrayList<String>();
 		// Input file
 		args.add("-dbc.in");
 		args.add(inputFile);
+		// Index
+		args.addAll(index.databaseArguments());
 		// Output directory
 		args.add("-out");
 		args.add(outputDir);
@@ -120,4 +137,137 @@ public class ELKIClusterer {
 		// Invoke ELKI with the given arguments
 		KDDCLIApplication.main(args.toArray(new String[] {}));
 	}
+	
+	/**
+	 * Starts the clustering of stay points with ELKI like {@link #cluster(String, String, double, int)}
+	 * but runs OPTICS-XI within this process. The cluster order of OPTICS does not depend on the
+	 * xi value. Therefore, it is taken from the given cache if it was computed for the given minimum
+	 * points before. Otherwise, OPTICS is run and its cluster order is added to the cache. The
+	 * clusters are extracted from the cluster order with OPTICS-XI and written to the output directory
+	 * in the same format as by {@link #cluster(String, String, double, int)}.
+	 * 
+	 * @param inputFile the input file holding the data that has to be clustered.
+	 * @param outputDir the output directory that holds the resulting cluster files after the OPTICS-XI run.
+	 * @param opticsXi the xi value used by OPTICS-XI. This has to be in the interval [0.0, 1.0).
+	 * @param opticsMinPoints the minimum points a cluster must have to be created used by OPTICS. Has to be 
+	 * greater than zero.
+	 * @param orderCache the cache of the cluster orders of the given input file.
+	 * @param index the index of the database.
+	 * 
+	 * @throws NullPointerException if the given parameter for the input file, the output directory,
+	 * the cache or the index is <code>null</code>.
+	 * @throws IllegalArgumentException if the given parameter for the given input file or the output directory is empty. 
+	 * If the parameters opticsXi or opticsMinPoints are not valid.
+	 */
+	public static void cluster(String inputFile, String outputDir, double opticsXi, int opticsMinPoints, 
+			ClusterOrderCache orderCache, ClusteringIndex index) throws NullPointerException, IllegalArgumentException {
+		validate(inputFile, outputDir, opticsXi, opticsMinPoints);
+		validate(index);
+		
+		if (orderCache == null)
+			throw new NullPointerException(
+				"You provided a null value for the cluster order cache. " +
+				"This parameter is expected to be non-null.");
+		
+		// Load the input file into an in-memory database with the same arguments as the command line invocation
+		List<String> dbArgs = new ArrayList<String>();
+		dbArgs.add("-dbc.in");
+		dbArgs.add(inputFile);
+		dbArgs.addAll(index.databaseArguments());
+		Database database = ClassGenericsUtil.parameterizeOrAbort(StaticArrayDatabase.class, 
+				new SerializedParameterization(dbArgs.toArray(new String[dbArgs.size()])));
+		database.initialize();
+		
+		// The ids of the objects in the order of the input file
+		Relation<?> relation = database.getRelation(TypeUtil.NUMBER_VECTOR_FIELD);
+		ArrayDBIDs ids = DBIDUtil.ensureArray(relation.getDBIDs());
+		
+		OPTICS<?, DoubleDistance> optics = optics(opticsMinPoints);
+		
+		// Get the cluster order from the cache or run OPTICS
+		ClusterOrderResult<DoubleDistance> clusterOrder = orderCache.load(opticsMinPoints, ids);
+		if (clusterOrder == null) {
+			LOG.debug("Run OPTICS with {} minimum points.", opticsMinPoints);
+			clusterOrder = optics.run(database);
+			orderCache.store(opticsMinPoints, ids, clusterOrder);
+		} else
+			LOG.debug("Reuse the cached cluster order of OPTICS with {} minimum points.", opticsMinPoints);
+		
+		// Extract the clusters from the cluster order
+		LOG.debug("Run OPTICS-XI with xi {}.", opticsXi);
+		OPTICSXi<DoubleDistance> opticsXiAlgorithm = new OPTICSXi<DoubleDistance>(
+				new PrecomputedOPTICS(optics, clusterOrder), opticsXi);
+		Clustering<OPTICSModel> clustering = opticsXiAlgorithm.run(database);
+		database.getHierarchy().add(database, clustering);
+		
+		// Write the clusters into the output directory
+		new ResultWriter(new File(outputDir), false, false).processNewResult(database, clustering);
+	}
+	
+	/**
+	 * Checks the OPTICS parameters of a clustering run.
+	 */
+	static void validate(double opticsXi, int opticsMinPoints) throws IllegalArgumentException {
+		if (opticsXi < MIN_OPTICS_XI || opticsXi >= 1.0)
+			throw new IllegalArgumentException(
+					"The parameter 'opticsXi' has to be within the range [0.0, 1.0). " +
+					"The clustering cannot be performed without a valid value for the 'opticsXi' parameter.");
+		
+		if (opticsMinPoints < MIN_OPTICS_POINTS)
+			throw new IllegalArgumentException(
+					"The parameter 'opticsMinPoints' has to be within the greater than zero. " +
+					"The clustering cannot be performed without a valid value for the 'opticsMinPoints' parameter.");
+	}
+	
+	/**
+	 * Checks the index of a clustering run.
+	 */
+	static void validate(ClusteringIndex index) throws NullPointerException {
+		if (index == null)
+			throw new NullPointerException(
+				"You provided a null value for the clustering index. " +
+				"Use ClusteringIndex.NONE if the clustering should not use an index.");
+	}
+	
+	/**
+	 * Creates OPTICS with the same parameters as the command line invocation.
+	 * 
+	 * @param opticsMinPoints the minimum points a cluster must have to be created used by OPTICS.
+	 * @return the OPTICS algorithm.
+	 */
+	static OPTICS<?, DoubleDistance> optics(int opticsMinPoints) {
+		ListParameterization opticsParams = new ListParameterization();
+		opticsParams.addParameter(AbstractDistanceBasedAlgorithm.DISTANCE_FUNCTION_ID, LatLngDistanceFunction.class);
+		opticsParams.addParameter(OPTICS.MINPTS_ID, opticsMinPoints);
+		
+		@SuppressWarnings("unchecked")
+		OPTICS<?, DoubleDistance> optics = ClassGenericsUtil.parameterizeOrAbort(OPTICS.class, opticsParams);
+		return optics;
+	}
+	
+	/**
+	 * Checks the parameters of a clustering run.
+	 */
+	private static void validate(String inputFile, String outputDir, double opticsXi, int opticsMinPoints) 
+			throws NullPointerException, IllegalArgumentException {
+		if (inputFile == null)
+			throw new NullPointerException(
+				"You provided a null value for the required input file. " +
+				"The clustering cannot be performed without any input data.");
+		else if (inputFile.isEmpty())
+			throw new IllegalArgumentException(
+				"You provided an empty string for the required input file. " +
+				"The clustering cannot be performed without any input data.");
+		
+		if (outputDir == null)
+			throw new NullPointerException(
+				"You provided a null value for the output directory. " +
+				"The clustering cannot be performed without a specified output directory.");
+		else if (outputDir.isEmpty())
+			throw new IllegalArgumentException(
+				"You provided an empty string for the output directory. " +
+				"The clustering cannot be performed without a specified output directory.");
+		
+		validate(opticsXi, opticsMinPoints);
+	}
 }
@@ -0,0 +1,47 @@
+package de.tub.clustering;
+
+import de.lmu.ifi.dbs.elki.algorithm.clustering.OPTICS;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.OPTICSTypeAlgorithm;
+import de.lmu.ifi.dbs.elki.data.type.TypeInformation;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.distance.distancevalue.DoubleDistance;
+import de.lmu.ifi.dbs.elki.result.optics.ClusterOrderResult;
+
+/**
+ * An OPTICS algorithm that returns a precomputed cluster order. The other 
+ * properties are taken from the OPTICS algorithm that computed the cluster order.
+ * This lets OPTICS-XI extract clusters from a cluster order without running OPTICS again.
+ * 
+ * @author Sebastian Oelke
+ *
+ */
+class PrecomputedOPTICS implements OPTICSTypeAlgorithm<DoubleDistance> {
+	
+	private final OPTICS<?, DoubleDistance> optics;
+	private final ClusterOrderResult<DoubleDistance> clusterOrder;
+	
+	PrecomputedOPTICS(OPTICS<?, DoubleDistance> optics, ClusterOrderResult<DoubleDistance> clusterOrder) {
+		this.optics = optics;
+		this.clusterOrder = clusterOrder;
+	}
+	
+	@Override
+	public ClusterOrderResult<DoubleDistance> run(Database database) {
+		return clusterOrder;
+	}
+	
+	@Override
+	public int getMinPts() {
+		return optics.getMinPts();
+	}
+	
+	@Override
+	public DoubleDistance getDistanceFactory() {
+		return optics.getDistanceFactory();
+	}
+	
+	@Override
+	public TypeInformation[] getInputTypeRestriction() {
+		return optics.getInputTypeRestriction();
+	}
+}
@@ -0,0 +1,188 @@
+package de.tub.clustering;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.lmu.ifi.dbs.elki.algorithm.clustering.OPTICS;
+import de.lmu.ifi.dbs.elki.algorithm.clustering.OPTICSXi;
+import de.lmu.ifi.dbs.elki.data.Cluster;
+import de.lmu.ifi.dbs.elki.data.Clustering;
+import de.lmu.ifi.dbs.elki.data.model.OPTICSModel;
+import de.lmu.ifi.dbs.elki.data.type.TypeUtil;
+import de.lmu.ifi.dbs.elki.database.Database;
+import de.lmu.ifi.dbs.elki.database.StaticArrayDatabase;
+import de.lmu.ifi.dbs.elki.database.ids.ArrayDBIDs;
+import de.lmu.ifi.dbs.elki.database.ids.DBID;
+import de.lmu.ifi.dbs.elki.database.ids.DBIDUtil;
+import de.lmu.ifi.dbs.elki.datasource.ArrayAdapterDatabaseConnection;
+import de.lmu.ifi.dbs.elki.distance.distancevalue.DoubleDistance;
+import de.lmu.ifi.dbs.elki.result.optics.ClusterOrderResult;
+
+/**
+ * The <code>StayPointClusterer</code> clusters stay points with OPTICS-XI of
+ * <a href="http://elki.dbs.ifi.lmu.de">ELKI</a> within this process. In contrast
+ * to {@link ELKIClusterer#cluster(String, String, double, int)} the stay points are
+ * given to ELKI as an in-memory database and the resulting hierarchical clustering
+ * is returned as a list of {@link ELKICluster}s. Neither a stay point file nor cluster
+ * files are needed.
+ * <p />
+ * The database is built once and used for all clustering runs of this clusterer. The
+ * cluster order of OPTICS is computed once for each minimum points value and reused
+ * for all xi values. The parameters of OPTICS and OPTICS-XI are the same as the ones
+ * of the command line invocation.
+ * <p />
+ * A clusterer can be shared by several threads. Their clustering runs are executed
+ * one after the other.
+ *
+ * @author Sebastian Oelke
+ *
+ */
+public class StayPointClusterer {
+
+	private static final Logger LOG = LoggerFactory.getLogger(StayPointClusterer.class);
+
+	private final List<ClusteredStayPoint> stayPoints;
+	private final Database database;
+	// The ids of the stay points in the database
+	private final ArrayDBIDs ids;
+	// The positions of the stay points by their id in the database
+	private final Map<DBID, Integer> positions;
+
+	// The cluster orders of OPTICS by the minimum points
+	private final Map<Integer, ClusterOrderResult<DoubleDistance>> clusterOrders =
+			new HashMap<Integer, ClusterOrderResult<DoubleDistance>>();
+
+	/**
+	 * Creates an in-memory database for the given stay points without an index.
+	 *
+	 * @param stayPoints the stay points to cluster.
+	 * @throws NullPointerException if the given list of stay points is <code>null</code>.
+	 * @throws IllegalArgumentException if the given list of stay points is empty.
+	 */
+	public StayPointClusterer(List<ClusteredStayPoint> stayPoints) throws NullPointerException, IllegalArgumentException {
+		this(stayPoints, ClusteringIndex.NONE);
+	}
+
+	/**
+	 * Creates an in-memory database for the given stay points with the given index.
+	 *
+	 * @param stayPoints the stay points to cluster.
+	 * @param index the index of the database.
+	 * @throws NullPointerException if the given list of stay points or the index is <code>null</code>.
+	 * @throws IllegalArgumentException if the given list of stay points is empty.
+	 */
+	public StayPointClusterer(List<ClusteredStayPoint> stayPoints, ClusteringIndex index) throws NullPointerException, IllegalArgumentException {
+		if (stayPoints == null)
+			throw new NullPointerException(
+				"You provided a null value for the stay points. " +
+				"The clustering cannot be performed without any input data.");
+		else if (stayPoints.isEmpty())
+			throw new IllegalArgumentException(
+				"You provided an empty list of stay points. " +
+				"The clustering cannot be performed without any input data.");
+		
+		ELKIClusterer.validate(index);
+
+		this.stayPoints = new ArrayList<ClusteredStayPoint>(stayPoints);
+
+		// The latitude and longitude of each stay point is the vector that is clustered
+		double[][] data = new double[stayPoints.size()][];
+		for (int i = 0; i < data.length; i++) {
+			ClusteredStayPoint sp = stayPoints.get(i);
+			data[i] = new double[] { sp.getLatitude(), sp.getLongitude() };
+		}
+
+		LOG.debug("Create an in-memory database with {} stay points and index {}.", data.length, index);
+		database = new StaticArrayDatabase(new ArrayAdapterDatabaseConnection(data), index.createIndexFactories());
+		database.initialize();
+
+		ids = DBIDUtil.ensureArray(database.getRelation(TypeUtil.NUMBER_VECTOR_FIELD).getDBIDs());
+		positions = new HashMap<DBID, Integer>(ids.size());
+		for (int i = 0; i < ids.size(); i++)
+			positions.put(ids.get(i), i);
+	}
+
+	/**
+	 * Clusters the stay points with OPTICS-XI.
+	 *
+	 * @param opticsXi the xi value used by OPTICS-XI. This has to be in the interval [0.0, 1.0).
+	 * @param opticsMinPoints the minimum points a cluster must have to be created used by OPTICS. Has to be
+	 * greater than zero.
+	 * @return the clusters of the hierarchical clustering. Each stay point belongs to exactly one cluster.
+	 * @throws IllegalArgumentException if the parameters opticsXi or opticsMinPoints are not valid.
+	 */
+	public synchronized List<ELKICluster> cluster(double opticsXi, int opticsMinPoints) throws IllegalArgumentException {
+		ELKIClusterer.validate(opticsXi, opticsMinPoints);
+
+		OPTICS<?, DoubleDistance> optics = ELKIClusterer.optics(opticsMinPoints);
+
+		// Get the cluster order of a previous run or run OPTICS
+		ClusterOrderResult<DoubleDistance> clusterOrder = clusterOrders.get(opticsMinPoints);
+		if (clusterOrder == null) {
+			LOG.debug("Run OPTICS with {} minimum points.", opticsMinPoints);
+			clusterOrder = optics.run(database);
+			clusterOrders.put(opticsMinPoints, clusterOrder);
+		} else
+			LOG.debug("Reuse the cluster order of OPTICS with {} minimum points.", opticsMinPoints);
+
+		// Extract the clusters from the cluster order
+		LOG.debug("Run OPTICS-XI with xi {}.", opticsXi);
+		OPTICSXi<DoubleDistance> opticsXiAlgorithm = new OPTICSXi<DoubleDistance>(
+				new PrecomputedOPTICS(optics, clusterOrder), opticsXi);
+		Clustering<OPTICSModel> clustering = opticsXiAlgorithm.run(database);
+
+		return toELKIClusters(clustering);
+	}
+
+	/**
+	 * Walks the given hierarchical clustering and converts its clusters.
+	 */
+	private List<ELKICluster> toELKIClusters(Clustering<OPTICSModel> clustering) {
+		List<Cluster<OPTICSModel>> allClusters = new ArrayList<Cluster<OPTICSModel>>(clustering.getAllClusters());
+
+		// Each cluster needs a unique name because the name identifies the cluster in the shared framework
+		Map<Cluster<OPTICSModel>, String> names = new HashMap<Cluster<OPTICSModel>, String>();
+		Set<String> usedNames = new HashSet<String>();
+		for (Cluster<OPTICSModel> c : allClusters) {
+			String name = c.getNameAutomatic();
+			for (int i = 1; !usedNames.add(name); i++)
+				name = c.getNameAutomatic() + "_" + i;
+
+			names.put(c, name);
+		}
+
+		List<ELKICluster> result = new ArrayList<ELKICluster>(allClusters.size());
+		for (Cluster<OPTICSModel> c : allClusters) {
+			ELKICluster cluster = new ELKICluster(names.get(c));
+
+			for (Cluster<OPTICSModel> parent : c.getParents())
+				cluster.addParent(names.get(parent));
+			for (Cluster<OPTICSModel> child : c.getChildren())
+				cluster.addChild(names.get(child));
+
+			ArrayDBIDs clusterIds = DBIDUtil.ensureArray(c.getIDs());
+			for (int i = 0; i < clusterIds.size(); i++)
+				cluster.addStayPoint(stayPoints.get(positions.get(clusterIds.get(i))));
+
+			result.add(cluster);
+		}
+
+		LOG.debug("The clustering has {} clusters.", result.size());
+
+		return result;
+	}
+
+	/**
+	 * @return the number of stay points of this clusterer.
+	 */
+	public int size() {
+		return stayPoints.size();
+	}
+}
@@ -65,6 +65,11 @@ public class Neo4JFrameworkClusterDAO implements IFrameworkClusterDAO<Node>, Clo
 		GraphDatabaseService graph = DBUtil.graph();
 		Index<Node> cIndex = graph.index().forNodes(DBUtil.FRAMEWORK_CLUSTER_INDEX);
 		
+		// Check if cluster with given id already exists
+		Node cExists = cIndex.get(NodeProperties.FRAMEWORK_CLUSTER_ID, id).getSingle();
+		if (cExists != null)
+			throw new RuntimeException("A framework cluster with the identifier [" + id + "] already exists. Creation is stopped.");
+		
 		// Create transaction
 		Transaction tx = graph.beginTx();
 		Node c = null;
@@ -73,25 +78,22 @@ public class Neo4JFrameworkClusterDAO implements IFrameworkClusterDAO<Node>, Clo
 			// Create new framework cluster
 			c = graph.createNode();
 			
-			// Check if cluster with given id already exists
-			Node cExists = cIndex.get(NodeProperties.FRAMEWORK_CLUSTER_ID, id).getSingle();
-			if (cExists != null) {
-				// Rollback transaction because node already exists
-				tx.failure();
-				throw new RuntimeException("A framework cluster with the identifier [" + id + "] already exists. Creation is stopped.");
-			}
-			
 			// Set properties
 			c.setProperty(NodeProperties.FRAMEWORK_CLUSTER_ID, id);
 			
 			// Add cluster to index
 			cIndex.add(c, NodeProperties.FRAMEWORK_CLUSTER_ID, id);
 			tx.success();
+		} catch (RuntimeException e) {
+			Neo4JUnitOfWork.operationFailed(e);
+			throw e;
 		} finally {
 			// Commit transaction
 			tx.finish();
 		}
 		
+		Neo4JUnitOfWork.operationFinished();
+		
 		return c;
 	}
 
@@ -128,10 +130,15 @@ public class Neo4JFrameworkClusterDAO implements IFrameworkClusterDAO<Node>, Clo
 			c.delete();
 			
 			tx.success();
+		} catch (RuntimeException e) {
+			Neo4JUnitOfWork.operationFailed(e);
+			throw e;
 		} finally {
 			// Commit transaction
 			tx.finish();
 		}
+		
+		Neo4JUnitOfWork.operationFinished();
 	}
 
 	/**
@@ -151,10 +158,15 @@ public class Neo4JFrameworkClusterDAO implements IFrameworkClusterDAO<Node>, Clo
 			cluster.setProperty(property, value);
 			
 			tx.success();
+		} catch (RuntimeException e) {
+			Neo4JUnitOfWork.operationFailed(e);
+			throw e;
 		} finally {
 			tx.finish();
 		}
 		
+		Neo4JUnitOfWork.operationFinished();
+		
 		return cluster;
 	}
 	
@@ -62,6 +62,11 @@ public class Neo4JHGClusterDAO implements IHGClusterDAO<Node>, Cloneable {
 		GraphDatabaseService graph = DBUtil.graph();
 		Index<Node> cIndex = graph.index().forNodes(DBUtil.HG_CLUSTER_INDEX);
 		
+		// Check if cluster with given id already exists
+		Node cExists = findHGClusterById(id, userId);
+		if (cExists != null)
+			throw new RuntimeException("A hierarchical graph cluster with the identifier [" + id + "] already exists. Creation is stopped.");
+		
 		// Create transaction
 		Transaction tx = graph.beginTx();
 		Node c = null;
@@ -70,14 +75,6 @@ public class Neo4JHGClusterDAO implements IHGClusterDAO<Node>, Cloneable {
 			// Create new hg cluster
 			c = graph.createNode();
 			
-			// Check if cluster with given id already exists
-			Node cExists = findHGClusterById(id, userId);
-			if (cExists != null) {
-				// Rollback transaction because node already exists
-				tx.failure();
-				throw new RuntimeException("A hierarchical graph cluster with the identifier [" + id + "] already exists. Creation is stopped.");
-			}
-			
 			// Set properties
 			c.setProperty(NodeProperties.HG_CLUSTER_ID, id);
 			
@@ -86,11 +83,16 @@ public class Neo4JHGClusterDAO implements IHGClusterDAO<Node>, Cloneable {
 			cIndex.add(c, NodeProperties.USER_ID, userId);
 			
 			tx.success();
+		} catch (RuntimeException e) {
+			Neo4JUnitOfWork.operationFailed(e);
+			throw e;
 		} finally {
 			// Commit transaction
 			tx.finish();
 		}
 		
+		Neo4JUnitOfWork.operationFinished();
+		
 		return c;
 	}
 
@@ -128,10 +130,15 @@ public class Neo4JHGClusterDAO implements IHGClusterDAO<Node>, Cloneable {
 			c.delete();
 			
 			tx.success();
+		} catch (RuntimeException e) {
+			Neo4JUnitOfWork.operationFailed(e);
+			throw e;
 		} finally {
 			// Commit transaction
 			tx.finish();
 		}
+		
+		Neo4JUnitOfWork.operationFinished();
 	}
 	
 	/**
@@ -53,6 +53,11 @@ public class Neo4JStaypointDAO implements IStaypointDAO<Node>, Cloneable {
 		GraphDatabaseService graph = DBUtil.graph();
 		Index<Node> spIndex = graph.index().forNodes(DBUtil.STAYPOINT_INDEX);
 		
+		// Check if stay point with given id already exists
+		Node spExists = spIndex.get(NodeProperties.STAYPOINT_ID, id).getSingle();
+		if (spExists != null)
+			throw new RuntimeException("A stay point with the identifier [" + id + "] already exists. Creation is stopped.");
+		
 		// Create transaction
 		Transaction tx = graph.beginTx();
 		Node sp = null;
@@ -61,14 +66,6 @@ public class Neo4JStaypointDAO implements IStaypointDAO<Node>, Cloneable {
 			// Create new stay point and add relationship to parent
 			sp = graph.createNode();
 			
-			// Check if stay point with given id already exists
-			Node spExists = spIndex.get(NodeProperties.STAYPOINT_ID, id).getSingle();
-			if (spExists != null) {
-				// Rollback transaction because node already exists
-				tx.failure();
-				throw new RuntimeException("A stay point with the identifier [" + id + "] already exists. Creation is stopped.");
-			}
-			
 			// Set properties
 			sp.setProperty(NodeProperties.STAYPOINT_ID, id);
 			sp.setProperty(NodeProperties.STAYPOINT_LAT, latitude);
@@ -79,11 +76,16 @@ public class Neo4JStaypointDAO implements IStaypointDAO<Node>, Cloneable {
 			// Add stay point to index
 			spIndex.add(sp, NodeProperties.STAYPOINT_ID, id);
 			tx.success();
+		} catch (RuntimeException e) {
+			Neo4JUnitOfWork.operationFailed(e);
+			throw e;
 		} finally {
 			// Commit transaction
 			tx.finish();
 		}
 		
+		Neo4JUnitOfWork.operationFinished();
+		
 		return sp;
 	}
 
@@ -111,10 +113,15 @@ public class Neo4JStaypointDAO implements IStaypointDAO<Node>, Cloneable {
 			sp.delete();
 			
 			tx.success();
+		} catch (RuntimeException e) {
+			Neo4JUnitOfWork.operationFailed(e);
+			throw e;
 		} finally {
 			// Commit transaction
 			tx.finish();
 		}
+		
+		Neo4JUnitOfWork.operationFinished();
 	}
 
 	@Override
@@ -0,0 +1,261 @@
+package de.tub.data.dao;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.TransactionFailureException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.tub.util.DBUtil;
+
+/**
+ * A <code>Neo4JUnitOfWork</code> groups the write operations of the
+ * Neo4J DAOs of one thread into batched transactions. Without a unit of
+ * work every DAO operation (e.g., the creation of a node or a relationship)
+ * is committed on its own.
+ * <p />
+ * A unit of work is started with {@link #begin(int)} and bound to the
+ * calling thread. It holds a transaction open as long as it is active. The
+ * transactions of the DAOs called by the same thread are nested into this
+ * transaction and are committed with it. The transaction is committed and
+ * a new one is started after the given number of operations (see
+ * {@link #flush()}) as well as at explicit boundaries, e.g., at the end of a
+ * cluster file or a user. The unit of work ends with {@link #finish()} which
+ * commits the pending operations or with {@link #abort()} which rolls them back.
+ * A unit of work has to be ended in any case, otherwise it stays bound to the
+ * calling thread:
+ * <pre>
+ * Neo4JUnitOfWork unitOfWork = Neo4JUnitOfWork.begin(batchSize);
+ * try {
+ *     // DAO operations
+ *     unitOfWork.finish();
+ * } finally {
+ *     unitOfWork.abort();
+ * }
+ * </pre>
+ * Because the transactions of the DAOs are nested into the transaction of
+ * the unit of work a DAO operation that fails marks all pending operations
+ * of the batch as failed. The DAOs report such a failure with
+ * {@link #operationFailed(RuntimeException)}. The batch is rolled back and a
+ * <code>TransactionFailureException</code> is thrown when it is committed
+ * afterwards. The batches committed before stay committed.
+ *
+ * @author Sebastian Oelke
+ *
+ */
+public class Neo4JUnitOfWork {
+
+	private static final Logger LOG = LoggerFactory.getLogger(Neo4JUnitOfWork.class);
+
+	/**
+	 * The default number of operations after which a batch is committed.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 10000;
+
+	// The unit of work of the current thread
+	private static final ThreadLocal<Neo4JUnitOfWork> CURRENT = new ThreadLocal<Neo4JUnitOfWork>();
+
+	private final GraphDatabaseService graph;
+	private final int batchSize;
+
+	private Transaction tx;
+	private int operationsInBatch;
+	private long commits;
+	// The first failed operation of the current batch
+	private RuntimeException failure;
+
+	private Neo4JUnitOfWork(GraphDatabaseService graph, int batchSize) {
+		this.graph = graph;
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Starts a unit of work for the calling thread. All DAO operations
+	 * of this thread join the unit of work until it is finished.
+	 *
+	 * @param batchSize the number of operations after which the pending
+	 * operations are committed. This has to be greater than zero.
+	 * @return the started unit of work.
+	 * @throws IllegalArgumentException if the batch size is smaller than one.
+	 * @throws IllegalStateException if a unit of work is already active for the calling thread.
+	 */
+	public static Neo4JUnitOfWork begin(int batchSize) throws IllegalArgumentException, IllegalStateException {
+		if (batchSize < 1)
+			throw new IllegalArgumentException(
+				"You provided a batch size of " + batchSize + ". The batch size has to be greater than zero.");
+
+		if (CURRENT.get() != null)
+			throw new IllegalStateException(
+				"A unit of work is already active for this thread. Finish it before a new one is started.");
+
+		Neo4JUnitOfWork unitOfWork = new Neo4JUnitOfWork(DBUtil.graph(), batchSize);
+		unitOfWork.tx = unitOfWork.graph.beginTx();
+		CURRENT.set(unitOfWork);
+
+		LOG.debug("Started unit of work with a batch size of {}.", batchSize);
+
+		return unitOfWork;
+	}
+
+	/**
+	 * @return the active unit of work of the calling thread or <code>null</code>
+	 * if there is no active unit of work.
+	 */
+	public static Neo4JUnitOfWork current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Counts a finished DAO operation of the calling thread if it has an
+	 * active unit of work. The pending operations are committed if the batch
+	 * size is reached. This has to be called by the DAOs after the transaction
+	 * of an operation is finished.
+	 */
+	static void operationFinished() {
+		Neo4JUnitOfWork unitOfWork = CURRENT.get();
+
+		if (unitOfWork != null && ++unitOfWork.operationsInBatch >= unitOfWork.batchSize)
+			unitOfWork.flush();
+	}
+
+	/**
+	 * Marks the current batch of the active unit of work of the calling
+	 * thread as failed. This has to be called by the DAOs if an operation
+	 * fails within its transaction because the nested transaction marks the
+	 * transaction of the whole batch for rollback.
+	 *
+	 * @param e the exception of the failed operation.
+	 */
+	static void operationFailed(RuntimeException e) {
+		Neo4JUnitOfWork unitOfWork = CURRENT.get();
+
+		if (unitOfWork != null && unitOfWork.failure == null)
+			unitOfWork.failure = e;
+	}
+
+	/**
+	 * Commits all pending operations and starts a new batch.
+	 *
+	 * @throws IllegalStateException if this unit of work is already finished.
+	 * @throws TransactionFailureException if an operation of the batch failed. The 
+	 * batch is rolled back and this unit of work is ended.
+	 */
+	public void flush() throws IllegalStateException, TransactionFailureException {
+		try {
+			commit();
+		} catch (TransactionFailureException e) {
+			CURRENT.remove();
+			throw e;
+		}
+		tx = graph.beginTx();
+	}
+
+	/**
+	 * Commits all pending operations and ends this unit of work. The
+	 * DAO operations of the calling thread are committed on their own
+	 * afterwards.
+	 *
+	 * @throws IllegalStateException if this unit of work is already finished.
+	 * @throws TransactionFailureException if an operation of the last batch failed.
+	 * The batch is rolled back.
+	 */
+	public void finish() throws IllegalStateException, TransactionFailureException {
+		try {
+			commit();
+		} finally {
+			CURRENT.remove();
+		}
+
+		LOG.debug("Finished unit of work after {} commits.", commits);
+	}
+
+	/**
+	 * Rolls back all pending operations and ends this unit of work. The
+	 * batches which were committed before are not affected. Nothing is done
+	 * if this unit of work is already finished, hence, this can be called in
+	 * a <code>finally</code> block after {@link #finish()}.
+	 */
+	public void abort() {
+		try {
+			if (tx != null) {
+				LOG.warn("Rolling back {} operations of an aborted unit of work.", operationsInBatch);
+
+				try {
+					tx.failure();
+				} finally {
+					tx.finish();
+					tx = null;
+					operationsInBatch = 0;
+					failure = null;
+				}
+			}
+		} finally {
+			if (CURRENT.get() == this)
+				CURRENT.remove();
+		}
+	}
+
+	/**
+	 * Commits the transaction of the current batch. The transaction is rolled
+	 * back if an operation of the batch failed.
+	 */
+	private void commit() {
+		if (tx == null)
+			throw new IllegalStateException("This unit of work is already finished.");
+
+		RuntimeException batchFailure = failure;
+		int operations = operationsInBatch;
+
+		try {
+			if (batchFailure == null) {
+				LOG.debug("Committing {} operations.", operations);
+				tx.success();
+			} else
+				tx.failure();
+		} finally {
+			tx.finish();
+			tx = null;
+			operationsInBatch = 0;
+			failure = null;
+		}
+
+		if (batchFailure != null)
+			throw new TransactionFailureException(
+				"An operation of the unit of work failed. The batch of " + operations + 
+				" operations was rolled back after " + commits + " commits.", batchFailure);
+
+		commits++;
+	}
+
+	//###################################################################
+	// Getters
+	//###################################################################
+
+	/**
+	 * @return the number of operations after which the pending operations are committed.
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * @return the number of operations which are not yet committed.
+	 */
+	public int getOperationsInBatch() {
+		return operationsInBatch;
+	}
+
+	/**
+	 * @return the number of commits of this unit of work so far.
+	 */
+	public long getCommits() {
+		return commits;
+	}
+
+	/**
+	 * @return <code>true</code> if this unit of work is not yet finished, <code>false</code> otherwise.
+	 */
+	public boolean isActive() {
+		return tx != null;
+	}
+}
@@ -70,6 +70,11 @@ public class Neo4JUserDAO implements IUserDAO<Node>, Cloneable {
 		GraphDatabaseService graph = DBUtil.graph();
 		Index<Node> uIndex = graph.index().forNodes(DBUtil.USER_INDEX);
 		
+		// Check if user with given id already exists
+		Node uExists = uIndex.get(NodeProperties.USER_ID, id).getSingle();
+		if (uExists != null)
+			throw new RuntimeException("A user with the identifier [" + id + "] already exists. Creation is stopped.");
+		
 		// Create transaction
 		Transaction tx = graph.beginTx();
 		Node u = null;
@@ -78,25 +83,22 @@ public class Neo4JUserDAO implements IUserDAO<Node>, Cloneable {
 			// Create new user
 			u = graph.createNode();
 			
-			// Check if user with given id already exists
-			Node uExists = uIndex.get(NodeProperties.USER_ID, id).getSingle();
-			if (uExists != null) {
-				// Rollback transaction because node already exists
-				tx.failure();
-				throw new RuntimeException("A user with the identifier [" + id + "] already exists. Creation is stopped.");
-			}
-			
 			// Set properties
 			u.setProperty(NodeProperties.USER_ID, id);
 			
 			// Add user to index
 			uIndex.add(u, NodeProperties.USER_ID, id);
 			tx.success();
+		} catch (RuntimeException e) {
+			Neo4JUnitOfWork.operationFailed(e);
+			throw e;
 		} finally {
 			// Commit transaction
 			tx.finish();
 		}
 		
+		Neo4JUnitOfWork.operationFinished();
+		
 		return u;
 	}
 
@@ -133,10 +135,15 @@ public class Neo4JUserDAO implements IUserDAO<Node>, Cloneable {
 			u.delete();
 			
 			tx.success();
+		} catch (RuntimeException e) {
+			Neo4JUnitOfWork.operationFailed(e);
+			throw e;
 		} finally {
 			// Commit transaction
 			tx.finish();
 		}
+		
+		Neo4JUnitOfWork.operationFinished();
 	}
 	
 	/**
@@ -62,9 +62,14 @@ public class SharedNeo4JDAO {
 			}
 			
 			tx.success();
+		} catch (RuntimeException e) {
+			Neo4JUnitOfWork.operationFailed(e);
+			throw e;
 		} finally {
 			tx.finish();
 		}
+		
+		Neo4JUnitOfWork.operationFinished();
 	}
 
 }
@@ -0,0 +1,184 @@
+package de.tub.data.geo;
+
+import static de.tub.data.geo.BinaryTrajectoryWriter.HEADER_SIZE;
+import static de.tub.data.geo.BinaryTrajectoryWriter.INDEX_ENTRY_SIZE;
+import static de.tub.data.geo.BinaryTrajectoryWriter.MAGIC;
+import static de.tub.data.geo.BinaryTrajectoryWriter.POINT_SIZE;
+import static de.tub.data.geo.BinaryTrajectoryWriter.VERSION;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This reader reads the trajectories of users from a binary file that was
+ * written by a {@link BinaryTrajectoryWriter}. The index of the file is read
+ * when the reader is opened. The block of a user is memory-mapped when it is
+ * loaded and its columns are copied into a <code>Trajectory</code>, hence,
+ * the points of a user can be handed to the stay point detection without
+ * parsing them.
+ *
+ * @author Sebastian Oelke
+ *
+ */
+public class BinaryTrajectoryReader {
+
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+
+	// The index of the file
+	private final int[] userIds, pointCounts;
+	private final long[] blockOffsets;
+	private final long points;
+	// The position of each user in the index by its id
+	private final Map<Integer, Integer> positions;
+
+	/**
+	 * Opens the given file and reads its index.
+	 *
+	 * @param file the file to read.
+	 * @throws IOException if the file could not be read or is not a binary trajectory file.
+	 */
+	public BinaryTrajectoryReader(File file) throws IOException {
+		this.file = new RandomAccessFile(file, "r");
+		this.channel = this.file.getChannel();
+
+		try {
+			if (channel.size() < HEADER_SIZE)
+				throw new IOException("The file " + file + " is too small to be a binary trajectory file.");
+
+			MappedByteBuffer header = map(0, HEADER_SIZE);
+			if (header.getInt() != MAGIC)
+				throw new IOException("The file " + file + " is not a binary trajectory file.");
+			int version = header.getInt();
+			if (version != VERSION)
+				throw new IOException("The file " + file + " has the version " + version + ". Only version " + VERSION + " is supported.");
+			int users = header.getInt();
+			header.getInt();
+			long indexOffset = header.getLong();
+			points = header.getLong();
+
+			userIds = new int[users];
+			pointCounts = new int[users];
+			blockOffsets = new long[users];
+			positions = new HashMap<Integer, Integer>(users * 2);
+
+			MappedByteBuffer index = map(indexOffset, (long) users * INDEX_ENTRY_SIZE);
+			for (int i = 0; i < users; i++) {
+				userIds[i] = index.getInt();
+				pointCounts[i] = index.getInt();
+				blockOffsets[i] = index.getLong();
+				positions.put(userIds[i], i);
+			}
+		} catch (IOException e) {
+			this.file.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Replaces the points of the given trajectory with the points of the given user.
+	 *
+	 * @param userId the id of the user.
+	 * @param trajectory the trajectory to fill. Its arrays are reused.
+	 * @return the given trajectory or <code>null</code> if the file has no block of the user.
+	 * @throws NullPointerException if the given trajectory is <code>null</code>.
+	 * @throws IOException if the points could not be read.
+	 */
+	public Trajectory load(int userId, Trajectory trajectory) throws NullPointerException, IOException {
+		Integer position = positions.get(userId);
+		if (position == null) return null;
+
+		return loadAt(position, trajectory);
+	}
+
+	/**
+	 * Replaces the points of the given trajectory with the points of the user at the
+	 * given position in the index.
+	 *
+	 * @param position the position of the user in the index (see {@link #getUserId(int)}).
+	 * @param trajectory the trajectory to fill. Its arrays are reused.
+	 * @return the given trajectory.
+	 * @throws NullPointerException if the given trajectory is <code>null</code>.
+	 * @throws IndexOutOfBoundsException if the position is not within the index.
+	 * @throws IOException if the points could not be read.
+	 */
+	public Trajectory loadAt(int position, Trajectory trajectory) throws NullPointerException, IndexOutOfBoundsException, IOException {
+		if (trajectory == null)
+			throw new NullPointerException(
+				"You provided a null value for the trajectory. " +
+				"This parameter is expected to be non-null.");
+		if (position < 0 || position >= userIds.length)
+			throw new IndexOutOfBoundsException("Position: " + position + ", Users: " + userIds.length);
+
+		trajectory.clear();
+		int size = pointCounts[position];
+		if (size == 0) return trajectory;
+
+		MappedByteBuffer block = map(blockOffsets[position], (long) size * POINT_SIZE);
+		int longitudes = size * 8, times = size * 16;
+		for (int i = 0; i < size; i++) {
+			int offset = i * 8;
+			trajectory.add(block.getDouble(offset), block.getDouble(longitudes + offset), block.getLong(times + offset));
+		}
+
+		return trajectory;
+	}
+
+	/**
+	 * Closes the file.
+	 *
+	 * @throws IOException if the file could not be closed.
+	 */
+	public void close() throws IOException {
+		file.close();
+	}
+
+	private MappedByteBuffer map(long position, long size) throws IOException {
+		if (position < 0 || position + size > channel.size())
+			throw new IOException("The range from " + position + " with " + size + " bytes is not within the file.");
+
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		return buffer;
+	}
+
+	//###################################################################
+	// Setters & Getters
+	//###################################################################
+
+	/**
+	 * @return the number of users in the file.
+	 */
+	public int getUsers() {
+		return userIds.length;
+	}
+
+	/**
+	 * @return the number of points of all users in the file.
+	 */
+	public long getPoints() {
+		return points;
+	}
+
+	/**
+	 * @param position the position of the user in the index.
+	 * @return the id of the user at the given position.
+	 */
+	public int getUserId(int position) {
+		return userIds[position];
+	}
+
+	/**
+	 * @param position the position of the user in the index.
+	 * @return the number of points of the user at the given position.
+	 */
+	public int getPointCount(int position) {
+		return pointCounts[position];
+	}
+}
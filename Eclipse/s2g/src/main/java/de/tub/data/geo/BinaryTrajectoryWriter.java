@@ -0,0 +1,173 @@
+package de.tub.data.geo;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * This writer writes the trajectories of users to a binary file. The
+ * points of a user are written as one block of fixed-width columns, hence,
+ * a block can be read without parsing (see {@link BinaryTrajectoryReader}).
+ * All values are little-endian. The file has the following layout:
+ * <ul>
+ * <li>a header of {@value #HEADER_SIZE} bytes: the magic number 'S2GP' (int),
+ * the version (int), the number of users (int), a reserved int, the offset of
+ * the index (long) and the number of points of all users (long),</li>
+ * <li>a block per user: the latitudes (double), the longitudes (double) and the
+ * recording times in milliseconds (long) of its points,</li>
+ * <li>the index with an entry of {@value #INDEX_ENTRY_SIZE} bytes per user in the
+ * order of the blocks: the user id (int), the number of points (int) and the
+ * offset of the block (long).</li>
+ * </ul>
+ * The index and the header are written when the writer is closed.
+ *
+ * @author Sebastian Oelke
+ *
+ */
+public class BinaryTrajectoryWriter {
+
+	public static final int MAGIC = 0x53324750;
+	public static final int VERSION = 1;
+	public static final int HEADER_SIZE = 32;
+	public static final int INDEX_ENTRY_SIZE = 16;
+	// Latitude, longitude and time of a point
+	public static final int POINT_SIZE = 24;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	// The columns are written through this buffer
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+	// The index entries of the written users
+	private int[] userIds = new int[256], pointCounts = new int[256];
+	private long[] blockOffsets = new long[256];
+	private int users;
+	private long points, position = HEADER_SIZE;
+
+	/**
+	 * Creates a writer of the given file. An existing file is replaced.
+	 *
+	 * @param file the file to write.
+	 * @throws IOException if the file could not be created.
+	 */
+	public BinaryTrajectoryWriter(File file) throws IOException {
+		this.file = new RandomAccessFile(file, "rw");
+		this.file.setLength(0);
+		this.channel = this.file.getChannel();
+		
+		// The header is written at last, its bytes are zero until then
+		for (int i = 0; i < HEADER_SIZE; i++)
+			buffer.put((byte) 0);
+	}
+
+	/**
+	 * Writes the points of the given trajectory as the block of the given user.
+	 *
+	 * @param userId the id of the user.
+	 * @param trajectory the points of the user.
+	 * @throws NullPointerException if the given trajectory is <code>null</code>.
+	 * @throws IOException if the points could not be written.
+	 */
+	public void write(int userId, Trajectory trajectory) throws NullPointerException, IOException {
+		if (trajectory == null)
+			throw new NullPointerException(
+				"You provided a null value for the trajectory. " +
+				"This parameter is expected to be non-null.");
+
+		int size = trajectory.size();
+		addIndexEntry(userId, size, position);
+
+		double[] latitudes = trajectory.getLatitudes();
+		for (int i = 0; i < size; i++) {
+			ensureRemaining(8);
+			buffer.putDouble(latitudes[i]);
+		}
+		double[] longitudes = trajectory.getLongitudes();
+		for (int i = 0; i < size; i++) {
+			ensureRemaining(8);
+			buffer.putDouble(longitudes[i]);
+		}
+		long[] times = trajectory.getTimes();
+		for (int i = 0; i < size; i++) {
+			ensureRemaining(8);
+			buffer.putLong(times[i]);
+		}
+
+		points += size;
+		position += (long) size * POINT_SIZE;
+	}
+
+	/**
+	 * Writes the index and the header and closes the file.
+	 *
+	 * @throws IOException if the index or the header could not be written.
+	 */
+	public void close() throws IOException {
+		try {
+			long indexOffset = position;
+			for (int i = 0; i < users; i++) {
+				ensureRemaining(INDEX_ENTRY_SIZE);
+				buffer.putInt(userIds[i]);
+				buffer.putInt(pointCounts[i]);
+				buffer.putLong(blockOffsets[i]);
+			}
+			flushBuffer();
+
+			buffer.putInt(MAGIC);
+			buffer.putInt(VERSION);
+			buffer.putInt(users);
+			buffer.putInt(0);
+			buffer.putLong(indexOffset);
+			buffer.putLong(points);
+			buffer.flip();
+			long headerPosition = 0;
+			while (buffer.hasRemaining())
+				headerPosition += channel.write(buffer, headerPosition);
+			buffer.clear();
+		} finally {
+			file.close();
+		}
+	}
+
+	private void addIndexEntry(int userId, int pointCount, long blockOffset) {
+		if (users == userIds.length) {
+			int capacity = users * 2;
+			userIds = Arrays.copyOf(userIds, capacity);
+			pointCounts = Arrays.copyOf(pointCounts, capacity);
+			blockOffsets = Arrays.copyOf(blockOffsets, capacity);
+		}
+
+		userIds[users] = userId;
+		pointCounts[users] = pointCount;
+		blockOffsets[users] = blockOffset;
+		users++;
+	}
+
+	private void ensureRemaining(int bytes) throws IOException {
+		if (buffer.remaining() < bytes)
+			flushBuffer();
+	}
+
+	/**
+	 * Appends the content of the buffer to the file.
+	 */
+	private void flushBuffer() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+
+	/**
+	 * @return the number of written users.
+	 */
+	public int getUsers() {
+		return users;
+	}
+}
@@ -0,0 +1,171 @@
+package de.tub.data.geo;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+
+import org.javalite.activejdbc.Base;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This writer collects stay points of several users and inserts them with
+ * JDBC batch inserts. In contrast to saving <code>StayPoint</code> models
+ * no object is created for each stay point and the stay points are not
+ * inserted one by one. The connection of ActiveJDBC of the current thread
+ * is used, hence, a connection to the database has to be opened beforehand.
+ * <p />
+ * The collected stay points are written in one transaction. If a transaction
+ * is already open on the connection, the stay points are written within it
+ * and the transaction is neither committed nor rolled back by this writer.
+ *
+ * @author Sebastian Oelke
+ *
+ */
+public class StayPointBatchWriter {
+
+	private static final Logger LOG = LoggerFactory.getLogger(StayPointBatchWriter.class);
+
+	private static final String INSERT =
+			"INSERT INTO stay_points (latitude, longitude, arr_time, leav_time, user_id) VALUES (?, ?, ?, ?, ?)";
+	private static final int INITIAL_CAPACITY = 64;
+
+	private final int batchSize;
+
+	private Object[] userIds;
+	private double[] latitudes, longitudes;
+	private long[] arrivalTimes, leavingTimes;
+	private int size;
+
+	/**
+	 * @param batchSize the number of stay points that are written at once.
+	 * @throws IllegalArgumentException if the given batch size is smaller than one.
+	 */
+	public StayPointBatchWriter(int batchSize) throws IllegalArgumentException {
+		if (batchSize < 1)
+			throw new IllegalArgumentException(
+				"You provided a batch size of " + batchSize + ". " +
+				"At least one stay point has to be written at once.");
+
+		this.batchSize = batchSize;
+
+		int capacity = Math.min(batchSize, INITIAL_CAPACITY);
+		userIds = new Object[capacity];
+		latitudes = new double[capacity];
+		longitudes = new double[capacity];
+		arrivalTimes = new long[capacity];
+		leavingTimes = new long[capacity];
+	}
+
+	/**
+	 * Collects a stay point. It is not written until {@link #flush()} is called.
+	 *
+	 * @param userId the id of the user of the stay point.
+	 * @param latitude the mean latitude of the stay point.
+	 * @param longitude the mean longitude of the stay point.
+	 * @param arrivalTime the arrival time in milliseconds.
+	 * @param leavingTime the leaving time in milliseconds.
+	 * @throws NullPointerException if the given user id is <code>null</code>.
+	 */
+	public void add(Object userId, double latitude, double longitude, long arrivalTime, long leavingTime) throws NullPointerException {
+		if (userId == null)
+			throw new NullPointerException(
+				"You provided a null value for the user id of the stay point. " +
+				"This parameter is expected to be non-null.");
+
+		if (size == latitudes.length) {
+			int capacity = latitudes.length * 2;
+			userIds = Arrays.copyOf(userIds, capacity);
+			latitudes = Arrays.copyOf(latitudes, capacity);
+			longitudes = Arrays.copyOf(longitudes, capacity);
+			arrivalTimes = Arrays.copyOf(arrivalTimes, capacity);
+			leavingTimes = Arrays.copyOf(leavingTimes, capacity);
+		}
+
+		userIds[size] = userId;
+		latitudes[size] = latitude;
+		longitudes[size] = longitude;
+		arrivalTimes[size] = arrivalTime;
+		leavingTimes[size] = leavingTime;
+		size++;
+	}
+
+	/**
+	 * @return <code>true</code> if at least as many stay points as the batch size
+	 * were collected.
+	 */
+	public boolean isFull() {
+		return size >= batchSize;
+	}
+
+	/**
+	 * Writes all collected stay points in one transaction. The collected stay points
+	 * are discarded even if they could not be written.
+	 *
+	 * @return the number of written stay points.
+	 * @throws SQLException if the stay points could not be written. The transaction
+	 * of this writer is rolled back.
+	 */
+	public int flush() throws SQLException {
+		if (size == 0) return 0;
+
+		int count = size;
+		Connection connection = Base.connection();
+		boolean autoCommit = connection.getAutoCommit();
+		if (autoCommit)
+			connection.setAutoCommit(false);
+
+		try {
+			PreparedStatement statement = connection.prepareStatement(INSERT);
+			try {
+				for (int i = 0; i < count; i++) {
+					statement.setDouble(1, latitudes[i]);
+					statement.setDouble(2, longitudes[i]);
+					statement.setTimestamp(3, new Timestamp(arrivalTimes[i]));
+					statement.setTimestamp(4, new Timestamp(leavingTimes[i]));
+					statement.setObject(5, userIds[i]);
+					statement.addBatch();
+
+					if ((i + 1) % batchSize == 0)
+						statement.executeBatch();
+				}
+				statement.executeBatch();
+			} finally {
+				statement.close();
+			}
+
+			if (autoCommit)
+				connection.commit();
+		} catch (SQLException e) {
+			if (autoCommit)
+				connection.rollback();
+			throw e;
+		} finally {
+			clear();
+			if (autoCommit)
+				connection.setAutoCommit(true);
+		}
+
+		LOG.debug("Wrote {} stay points.", count);
+
+		return count;
+	}
+
+	/**
+	 * @return the number of collected stay points that were not written yet.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Discards all collected stay points.
+	 */
+	public void clear() {
+		// Release the user ids, the other arrays are reused
+		Arrays.fill(userIds, 0, size, null);
+		size = 0;
+	}
+}
@@ -0,0 +1,131 @@
+package de.tub.data.geo;
+
+/**
+ * The state of the stay point detection of a user after its last processed point.
+ * The detection compares each point with an anchor point. All points since the
+ * anchor are within the distance threshold of the anchor, hence, only their sums
+ * of latitude and longitude are needed to compute the mean position of a stay
+ * point once a point leaves the distance threshold.
+ * <p />
+ * The recording time of the last processed point is the high-water mark of the
+ * user. Only points that were recorded after it have to be processed to continue
+ * the detection.
+ *
+ * @author Sebastian Oelke
+ *
+ */
+public class StayPointState {
+
+	private double anchorLatitude, anchorLongitude;
+	private long anchorTime;
+	// The sums of the points since the anchor including the anchor
+	private double latitudeSum, longitudeSum;
+	private int points;
+	private long recordedUntil;
+
+	/**
+	 * Creates an empty state of a user without processed points.
+	 */
+	public StayPointState() {}
+
+	/**
+	 * Creates the state of a user with processed points.
+	 *
+	 * @param anchorLatitude the latitude of the anchor point.
+	 * @param anchorLongitude the longitude of the anchor point.
+	 * @param anchorTime the recording time of the anchor point in milliseconds.
+	 * @param latitudeSum the sum of the latitudes of the points since the anchor including the anchor.
+	 * @param longitudeSum the sum of the longitudes of the points since the anchor including the anchor.
+	 * @param points the number of points since the anchor including the anchor.
+	 * @param recordedUntil the recording time of the last processed point in milliseconds.
+	 * @throws IllegalArgumentException if the number of points is smaller than one.
+	 */
+	public StayPointState(double anchorLatitude, double anchorLongitude, long anchorTime,
+			double latitudeSum, double longitudeSum, int points, long recordedUntil) throws IllegalArgumentException {
+		if (points < 1)
+			throw new IllegalArgumentException(
+				"You provided " + points + " points for the state of the stay point detection. " +
+				"At least the anchor point has to be counted.");
+
+		this.anchorLatitude = anchorLatitude;
+		this.anchorLongitude = anchorLongitude;
+		this.anchorTime = anchorTime;
+		this.latitudeSum = latitudeSum;
+		this.longitudeSum = longitudeSum;
+		this.points = points;
+		this.recordedUntil = recordedUntil;
+	}
+
+	/**
+	 * Makes the given point the anchor of the following points.
+	 *
+	 * @param latitude the latitude of the point.
+	 * @param longitude the longitude of the point.
+	 * @param time the recording time of the point in milliseconds.
+	 */
+	public void anchor(double latitude, double longitude, long time) {
+		anchorLatitude = latitude;
+		anchorLongitude = longitude;
+		anchorTime = time;
+		latitudeSum = latitude;
+		longitudeSum = longitude;
+		points = 1;
+		recordedUntil = time;
+	}
+
+	/**
+	 * Adds a point that is within the distance threshold of the anchor.
+	 *
+	 * @param latitude the latitude of the point.
+	 * @param longitude the longitude of the point.
+	 * @param time the recording time of the point in milliseconds.
+	 */
+	public void extend(double latitude, double longitude, long time) {
+		latitudeSum += latitude;
+		longitudeSum += longitude;
+		points++;
+		recordedUntil = time;
+	}
+
+	/**
+	 * @return <code>true</code> if no point was processed yet.
+	 */
+	public boolean isEmpty() {
+		return points == 0;
+	}
+
+	//###################################################################
+	// Setters & Getters
+	//###################################################################
+
+	public double getAnchorLatitude() {
+		return anchorLatitude;
+	}
+
+	public double getAnchorLongitude() {
+		return anchorLongitude;
+	}
+
+	public long getAnchorTime() {
+		return anchorTime;
+	}
+
+	public double getLatitudeSum() {
+		return latitudeSum;
+	}
+
+	public double getLongitudeSum() {
+		return longitudeSum;
+	}
+
+	public int getPoints() {
+		return points;
+	}
+
+	/**
+	 * @return the recording time of the last processed point in milliseconds.
+	 */
+	public long getRecordedUntil() {
+		return recordedUntil;
+	}
+}
@@ -0,0 +1,109 @@
+package de.tub.data.geo;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+import org.javalite.activejdbc.Base;
+
+/**
+ * This store reads and writes the states of the stay point detection of users
+ * (see {@link StayPointState}) with plain JDBC. The connection of ActiveJDBC of
+ * the current thread is used, hence, a connection to the database has to be
+ * opened beforehand.
+ *
+ * @author Sebastian Oelke
+ *
+ */
+public class StayPointStateStore {
+
+	private static final String SELECT =
+			"SELECT anchor_latitude, anchor_longitude, anchor_time, latitude_sum, longitude_sum, points, recorded_until " +
+			"FROM stay_point_states WHERE user_id = ?";
+	private static final String UPDATE =
+			"UPDATE stay_point_states SET anchor_latitude = ?, anchor_longitude = ?, anchor_time = ?, " +
+			"latitude_sum = ?, longitude_sum = ?, points = ?, recorded_until = ? WHERE user_id = ?";
+	private static final String INSERT =
+			"INSERT INTO stay_point_states (anchor_latitude, anchor_longitude, anchor_time, " +
+			"latitude_sum, longitude_sum, points, recorded_until, user_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+	/**
+	 * @param userId the id of the user.
+	 * @return the state of the given user or <code>null</code> if the user has no state.
+	 * @throws NullPointerException if the given user id is <code>null</code>.
+	 * @throws SQLException if the state could not be read.
+	 */
+	public StayPointState load(Object userId) throws NullPointerException, SQLException {
+		checkUserId(userId);
+
+		PreparedStatement statement = Base.connection().prepareStatement(SELECT);
+		try {
+			statement.setObject(1, userId);
+
+			ResultSet rs = statement.executeQuery();
+			try {
+				if (!rs.next())
+					return null;
+
+				return new StayPointState(rs.getDouble(1), rs.getDouble(2), rs.getTimestamp(3).getTime(),
+						rs.getDouble(4), rs.getDouble(5), rs.getInt(6), rs.getTimestamp(7).getTime());
+			} finally {
+				rs.close();
+			}
+		} finally {
+			statement.close();
+		}
+	}
+
+	/**
+	 * Writes the given state of the given user. A previous state of the user is replaced.
+	 *
+	 * @param userId the id of the user.
+	 * @param state the state of the user.
+	 * @throws NullPointerException if the given user id or state is <code>null</code>.
+	 * @throws IllegalArgumentException if the given state is empty.
+	 * @throws SQLException if the state could not be written.
+	 */
+	public void save(Object userId, StayPointState state) throws NullPointerException, IllegalArgumentException, SQLException {
+		checkUserId(userId);
+		if (state == null)
+			throw new NullPointerException(
+				"You provided a null value for the state of the stay point detection. " +
+				"This parameter is expected to be non-null.");
+		else if (state.isEmpty())
+			throw new IllegalArgumentException(
+				"You provided an empty state of the stay point detection for the user " + userId + ". " +
+				"Only states of users with processed points are stored.");
+
+		Connection connection = Base.connection();
+		if (write(connection, UPDATE, userId, state) == 0)
+			write(connection, INSERT, userId, state);
+	}
+
+	private static int write(Connection connection, String sql, Object userId, StayPointState state) throws SQLException {
+		PreparedStatement statement = connection.prepareStatement(sql);
+		try {
+			statement.setDouble(1, state.getAnchorLatitude());
+			statement.setDouble(2, state.getAnchorLongitude());
+			statement.setTimestamp(3, new Timestamp(state.getAnchorTime()));
+			statement.setDouble(4, state.getLatitudeSum());
+			statement.setDouble(5, state.getLongitudeSum());
+			statement.setInt(6, state.getPoints());
+			statement.setTimestamp(7, new Timestamp(state.getRecordedUntil()));
+			statement.setObject(8, userId);
+
+			return statement.executeUpdate();
+		} finally {
+			statement.close();
+		}
+	}
+
+	private static void checkUserId(Object userId) throws NullPointerException {
+		if (userId == null)
+			throw new NullPointerException(
+				"You provided a null value for the user id. " +
+				"This parameter is expected to be non-null.");
+	}
+}
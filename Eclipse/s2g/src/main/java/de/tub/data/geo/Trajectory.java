@@ -0,0 +1,149 @@
+package de.tub.data.geo;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * This class holds the geographic points of a user ordered by their 
+ * recording time in primitive arrays. Latitude, longitude and the recording 
+ * time in milliseconds of the i-th point are stored at the i-th position of the 
+ * respective array. The arrays grow as needed and are reused when the trajectory 
+ * is cleared, hence, a single instance can hold the points of one user after 
+ * another without allocating new arrays for each user.
+ * <p />
+ * The arrays returned by the getters are the internal buffers of this trajectory.
+ * Only the first {@link #size()} elements are valid.
+ * 
+ * @author Sebastian Oelke
+ *
+ */
+public class Trajectory {
+	
+	private static final int DEFAULT_CAPACITY = 1024;
+	
+	private double[] latitudes, longitudes;
+	private long[] times;
+	private int size;
+	
+	/**
+	 * Creates an empty trajectory with a default capacity.
+	 */
+	public Trajectory() {
+		this(DEFAULT_CAPACITY);
+	}
+	
+	/**
+	 * Creates an empty trajectory with the given capacity.
+	 * 
+	 * @param capacity the number of points the trajectory can hold before its arrays grow.
+	 * @throws IllegalArgumentException if the given capacity is smaller than one.
+	 */
+	public Trajectory(int capacity) throws IllegalArgumentException {
+		if (capacity < 1)
+			throw new IllegalArgumentException(
+				"You provided a capacity of " + capacity + " for the trajectory. " +
+				"The capacity has to be greater than zero.");
+		
+		latitudes = new double[capacity];
+		longitudes = new double[capacity];
+		times = new long[capacity];
+	}
+	
+	/**
+	 * Appends a point to this trajectory.
+	 * 
+	 * @param latitude the latitude of the point.
+	 * @param longitude the longitude of the point.
+	 * @param time the recording time of the point in milliseconds.
+	 */
+	public void add(double latitude, double longitude, long time) {
+		if (size == latitudes.length) {
+			int capacity = latitudes.length * 2;
+			latitudes = Arrays.copyOf(latitudes, capacity);
+			longitudes = Arrays.copyOf(longitudes, capacity);
+			times = Arrays.copyOf(times, capacity);
+		}
+		
+		latitudes[size] = latitude;
+		longitudes[size] = longitude;
+		times[size] = time;
+		size++;
+	}
+	
+	/**
+	 * Orders the points of this trajectory by their recording time. Points with
+	 * the same time keep their order. A trajectory that is already ordered is
+	 * not changed.
+	 */
+	public void sortByTime() {
+		int i = 1;
+		while (i < size && times[i - 1] <= times[i])
+			i++;
+		if (i >= size) return;
+		
+		Integer[] order = new Integer[size];
+		for (int j = 0; j < size; j++)
+			order[j] = j;
+		// The sort is stable
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer p1, Integer p2) {
+				long t1 = times[p1], t2 = times[p2];
+				return t1 < t2 ? -1 : (t1 == t2 ? 0 : 1);
+			}
+		});
+		
+		double[] sortedLatitudes = new double[latitudes.length];
+		double[] sortedLongitudes = new double[longitudes.length];
+		long[] sortedTimes = new long[times.length];
+		for (int j = 0; j < size; j++) {
+			sortedLatitudes[j] = latitudes[order[j]];
+			sortedLongitudes[j] = longitudes[order[j]];
+			sortedTimes[j] = times[order[j]];
+		}
+		latitudes = sortedLatitudes;
+		longitudes = sortedLongitudes;
+		times = sortedTimes;
+	}
+	
+	/**
+	 * Removes all points of this trajectory. The arrays are kept for 
+	 * the next points.
+	 */
+	public void clear() {
+		size = 0;
+	}
+	
+	//###################################################################
+	// Setters & Getters
+	//###################################################################
+	
+	/**
+	 * @return the number of points of this trajectory.
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * @return the latitudes of the points. Only the first {@link #size()} elements are valid.
+	 */
+	public double[] getLatitudes() {
+		return latitudes;
+	}
+	
+	/**
+	 * @return the longitudes of the points. Only the first {@link #size()} elements are valid.
+	 */
+	public double[] getLongitudes() {
+		return longitudes;
+	}
+	
+	/**
+	 * @return the recording times of the points in milliseconds. Only the first {@link #size()} 
+	 * elements are valid.
+	 */
+	public long[] getTimes() {
+		return times;
+	}
+}
@@ -0,0 +1,105 @@
+package de.tub.data.geo;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+import org.javalite.activejdbc.Base;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This loader reads the geographic points of a user with plain JDBC into 
+ * a {@link Trajectory}. In contrast to loading <code>GeoPoint</code> models no 
+ * object is created for each point. The connection of ActiveJDBC of the current 
+ * thread is used, hence, a connection to the database has to be opened beforehand.
+ * <p />
+ * The points are streamed from the database. With MySQL the rows are fetched 
+ * one by one instead of reading the whole result into memory first.
+ * 
+ * @author Sebastian Oelke
+ *
+ */
+public class TrajectoryLoader {
+	
+	private static final Logger LOG = LoggerFactory.getLogger(TrajectoryLoader.class);
+	
+	private static final String QUERY = 
+			"SELECT latitude, longitude, recorded_at FROM geo_points WHERE user_id = ? ORDER BY recorded_at ASC";
+	private static final String QUERY_AFTER = 
+			"SELECT latitude, longitude, recorded_at FROM geo_points WHERE user_id = ? AND recorded_at > ? ORDER BY recorded_at ASC";
+	private static final String MYSQL_DRIVER_NAME = "MySQL";
+	private static final int DEFAULT_FETCH_SIZE = 10000;
+	
+	/**
+	 * Replaces the points of the given trajectory with the points of the given user 
+	 * ordered by their recording time.
+	 * 
+	 * @param userId the id of the user.
+	 * @param trajectory the trajectory to fill. Its arrays are reused.
+	 * @return the given trajectory.
+	 * @throws NullPointerException if the given user id or trajectory is <code>null</code>.
+	 * @throws SQLException if the points could not be read.
+	 */
+	public Trajectory load(Object userId, Trajectory trajectory) throws NullPointerException, SQLException {
+		return load(userId, null, trajectory);
+	}
+	
+	/**
+	 * Replaces the points of the given trajectory with the points of the given user 
+	 * that were recorded after the given time ordered by their recording time.
+	 * 
+	 * @param userId the id of the user.
+	 * @param after the time in milliseconds after which the points were recorded or 
+	 * <code>null</code> to load all points of the user.
+	 * @param trajectory the trajectory to fill. Its arrays are reused.
+	 * @return the given trajectory.
+	 * @throws NullPointerException if the given user id or trajectory is <code>null</code>.
+	 * @throws SQLException if the points could not be read.
+	 */
+	public Trajectory load(Object userId, Long after, Trajectory trajectory) throws NullPointerException, SQLException {
+		if (userId == null || trajectory == null)
+			throw new NullPointerException(
+				"You provided a null value for either the user id or the trajectory. " +
+				"Both parameters are expected to be non-null.");
+		
+		trajectory.clear();
+		
+		Connection connection = Base.connection();
+		PreparedStatement statement = connection.prepareStatement(after == null ? QUERY : QUERY_AFTER, 
+				ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+		try {
+			statement.setFetchSize(fetchSize(connection));
+			statement.setObject(1, userId);
+			if (after != null)
+				statement.setTimestamp(2, new Timestamp(after));
+			
+			ResultSet rs = statement.executeQuery();
+			try {
+				while (rs.next())
+					trajectory.add(rs.getDouble(1), rs.getDouble(2), rs.getTimestamp(3).getTime());
+			} finally {
+				rs.close();
+			}
+		} finally {
+			statement.close();
+		}
+		
+		LOG.debug("Loaded {} points of user {}.", trajectory.size(), userId);
+		
+		return trajectory;
+	}
+	
+	/**
+	 * @return the fetch size that streams the rows of the given connection.
+	 */
+	private static int fetchSize(Connection connection) throws SQLException {
+		// The MySQL driver only streams the rows of a result with this fetch size
+		if (connection.getMetaData().getDriverName().contains(MYSQL_DRIVER_NAME))
+			return Integer.MIN_VALUE;
+		
+		return DEFAULT_FETCH_SIZE;
+	}
+}
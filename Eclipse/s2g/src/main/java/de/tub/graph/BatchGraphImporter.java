@@ -0,0 +1,505 @@
+package de.tub.graph;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.helpers.collection.MapUtil;
+import org.neo4j.index.lucene.unsafe.batchinsert.LuceneBatchInserterIndexProvider;
+import org.neo4j.unsafe.batchinsert.BatchInserter;
+import org.neo4j.unsafe.batchinsert.BatchInserterIndex;
+import org.neo4j.unsafe.batchinsert.BatchInserterIndexProvider;
+import org.neo4j.unsafe.batchinsert.BatchInserters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.tub.data.dao.Neo4JUnitOfWork;
+import de.tub.processor.graph.SharedFrameworkProcessor;
+import de.tub.util.DBUtil;
+
+/**
+ * The <code>BatchGraphImporter</code> writes the shared framework and the
+ * hierarchical graphs of the users into a new graph database with Neo4j's
+ * batch insertion API. There are no transactions, hence, this is considerably
+ * faster than the creation through the Neo4J DAOs. The graph database must not
+ * be used by an <code>EmbeddedGraphDatabase</code> (e.g., the one of
+ * {@link DBUtil#graph()}) during the import.
+ * <p />
+ * The created nodes, relationships, properties and index entries are the same
+ * as the ones created by the Neo4J DAOs for the shared framework and the hierarchical
+ * graphs. Like them, a framework cluster stays indexed under the id given by ELKI
+ * while its property holds the pretty cluster id after {@link #generatePrettyClusterIds()}.
+ * <p />
+ * The structure of the shared framework is held in memory because the batch
+ * insertion API cannot traverse the graph. The hg clusters of a user are
+ * only held in memory while the user is imported. The pretty cluster ids are
+ * generated by the same traversal as for the built shared framework, hence, the
+ * graph database is shortly opened as an <code>EmbeddedGraphDatabase</code> by
+ * {@link #generatePrettyClusterIds()}.
+ *
+ * @author Sebastian Oelke
+ *
+ * @see de.tub.processor.graph.BatchSharedFrameworkProcessor BatchSharedFrameworkProcessor
+ * @see de.tub.processor.graph.BatchHierarchicalGraphProcessor BatchHierarchicalGraphProcessor
+ *
+ */
+public class BatchGraphImporter {
+
+	private static final Logger LOG = LoggerFactory.getLogger(BatchGraphImporter.class);
+
+	private static final Map<String, String> INDEX_CONFIG = MapUtil.stringMap("type", "exact");
+
+	private final String storagePath;
+	private BatchInserter inserter;
+	private BatchInserterIndexProvider indexProvider;
+	private BatchInserterIndex frameworkClusterIndex, hgClusterIndex, stayPointIndex, userIndex;
+	private long referenceNode;
+
+	// ### Shared framework
+	// Framework cluster nodes by the id given by ELKI
+	private final Map<String, Long> frameworkClusters = new HashMap<String, Long>();
+	// Current framework cluster id (i.e., property value) of each framework cluster node
+	private final Map<Long, String> frameworkClusterIds = new HashMap<Long, String>();
+	// Parents of each framework cluster node in the order of creation
+	private final Map<Long, List<Long>> parentClusters = new HashMap<Long, List<Long>>();
+	// Framework clusters connected to the reference node
+	private final List<Long> rootClusters = new ArrayList<Long>();
+	// Stay point nodes by their id and the framework cluster node of each stay point node
+	private final Map<Integer, Long> stayPoints = new HashMap<Integer, Long>();
+	private final Map<Long, Long> frameworkClusterOfStayPoint = new HashMap<Long, Long>();
+
+	// ### Hierarchical graph of the current user
+	private Object currentUserId;
+	private final Map<String, Long> hgClusters = new HashMap<String, Long>();
+	private final Map<Long, Set<Long>> hgChildClusters = new HashMap<Long, Set<Long>>();
+
+	// Users by their id
+	private final Set<Object> users = new HashSet<Object>();
+
+	/**
+	 * Creates an importer for the default graph database path.
+	 *
+	 * @see DBUtil#getNeo4jPath()
+	 */
+	public BatchGraphImporter() {
+		this(DBUtil.getNeo4jPath());
+	}
+
+	/**
+	 * @param storagePath the path of the graph database to import to.
+	 * @throws NullPointerException if the given storage path is <code>null</code>.
+	 */
+	public BatchGraphImporter(String storagePath) throws NullPointerException {
+		if (storagePath == null)
+			throw new NullPointerException(
+				"You have to specify a non-null storage path for the import into " +
+				"a Neo4j graph database.");
+
+		this.storagePath = storagePath;
+
+		open();
+	}
+
+	//###################################################################
+	// Shared framework
+	//###################################################################
+
+	/**
+	 * @param id the id of the framework cluster given by ELKI.
+	 * @return the node of the framework cluster or <code>null</code> if it does not exist.
+	 */
+	public Long findFrameworkClusterById(String id) {
+		return frameworkClusters.get(id);
+	}
+
+	/**
+	 * Creates a framework cluster with the given id.
+	 *
+	 * @param id the id of the framework cluster given by ELKI.
+	 * @return the node of the framework cluster.
+	 * @throws NullPointerException if the given id is <code>null</code>.
+	 * @throws RuntimeException if a framework cluster with the given id already exists.
+	 */
+	public long createFrameworkCluster(String id) throws NullPointerException, RuntimeException {
+		if (id == null)
+			throw new NullPointerException(
+				"You provided a null value for the framework cluster id. " +
+				"This parameter is expected to be non-null. A " +
+				"framework cluster cannot be created without an id.");
+
+		if (frameworkClusters.containsKey(id))
+			throw new RuntimeException("A framework cluster with the identifier [" + id + "] already exists. Creation is stopped.");
+
+		Map<String, Object> properties = MapUtil.map(NodeProperties.FRAMEWORK_CLUSTER_ID, id);
+		long c = inserter.createNode(properties);
+		frameworkClusterIndex.add(c, properties);
+
+		frameworkClusters.put(id, c);
+		frameworkClusterIds.put(c, id);
+
+		return c;
+	}
+
+	/**
+	 * Connects a framework cluster with one of its children.
+	 *
+	 * @param parent the node of the parent framework cluster.
+	 * @param child the node of the child framework cluster.
+	 */
+	public void addChildFrameworkCluster(long parent, long child) {
+		createRelationship(parent, child, RelTypes.HasChildCluster);
+
+		listOf(parentClusters, child).add(parent);
+	}
+
+	/**
+	 * Connects a framework cluster with the graph's reference node.
+	 *
+	 * @param root the node of the framework cluster at the top of the hierarchy.
+	 */
+	public void addRootFrameworkCluster(long root) {
+		createRelationship(referenceNode, root, RelTypes.RootFrameworkCluster);
+		rootClusters.add(root);
+	}
+
+	/**
+	 * Creates a stay point.
+	 *
+	 * @return the node of the stay point.
+	 * @throws RuntimeException if a stay point with the given id already exists.
+	 */
+	public long createStayPoint(int id, double latitude, double longitude,
+			long arrivalTime, long leavingTime) throws RuntimeException {
+		if (stayPoints.containsKey(id))
+			throw new RuntimeException("A stay point with the identifier [" + id + "] already exists. Creation is stopped.");
+
+		Map<String, Object> properties = new HashMap<String, Object>();
+		properties.put(NodeProperties.STAYPOINT_ID, id);
+		properties.put(NodeProperties.STAYPOINT_LAT, latitude);
+		properties.put(NodeProperties.STAYPOINT_LONG, longitude);
+		properties.put(NodeProperties.STAYPOINT_ARRIVAL, arrivalTime);
+		properties.put(NodeProperties.STAYPOINT_LEAVING, leavingTime);
+
+		long sp = inserter.createNode(properties);
+		stayPointIndex.add(sp, MapUtil.map(NodeProperties.STAYPOINT_ID, id));
+
+		stayPoints.put(id, sp);
+
+		return sp;
+	}
+
+	/**
+	 * Connects a framework cluster with a stay point.
+	 *
+	 * @param cluster the node of the framework cluster.
+	 * @param stayPoint the node of the stay point.
+	 * @throws IllegalStateException if the stay point is already connected to a framework cluster.
+	 */
+	public void addStayPoint(long cluster, long stayPoint) throws IllegalStateException {
+		if (frameworkClusterOfStayPoint.containsKey(stayPoint))
+			throw new IllegalStateException(
+				"The stay point node [" + stayPoint + "] is already connected to a framework cluster. " +
+				"A stay point has to belong to exactly one framework cluster.");
+
+		createRelationship(cluster, stayPoint, RelTypes.HasStayPoint);
+		frameworkClusterOfStayPoint.put(stayPoint, cluster);
+	}
+
+	/**
+	 * Gives each framework cluster a pretty id of the form <code>[depth_in_tree]_[id]</code>.
+	 * The batch insertion API cannot traverse the graph, hence, the imported graph database
+	 * is written to disk and the pretty ids are generated by the same traversal as for the
+	 * built shared framework (see {@link SharedFrameworkProcessor#generatePrettyClusterIds(int)}).
+	 * Thereby, the framework clusters get the same ids as if the shared framework was built
+	 * with transactions. The batch insertion continues afterwards. The index entries of the
+	 * framework clusters are not changed.
+	 * <p />
+	 * If the storage path of this importer is not the one of {@link DBUtil#graph()} the
+	 * graph database is bound to the current thread during the traversal.
+	 *
+	 * @throws IllegalStateException if the storage path of this importer is not the one of
+	 * {@link DBUtil#graph()} and another graph database is bound to the current thread.
+	 * @see de.tub.graph.generator.PrettyClusterIdGenerator PrettyClusterIdGenerator
+	 * @see DBUtil#bindGraph(String)
+	 */
+	public void generatePrettyClusterIds() throws IllegalStateException {
+		LOG.debug("Generate pretty ids for framework clusters.");
+
+		// The traversal needs the graph database that has been imported so far
+		close();
+
+		boolean bind = !storagePath.equals(DBUtil.getNeo4jPath());
+		if (bind)
+			DBUtil.bindGraph(storagePath);
+
+		try {
+			SharedFrameworkProcessor.generatePrettyClusterIds(Neo4JUnitOfWork.DEFAULT_BATCH_SIZE);
+
+			// Keep the generated ids for the import of the hierarchical graphs
+			GraphDatabaseService graph = DBUtil.graph();
+			for (Map.Entry<Long, String> entry : frameworkClusterIds.entrySet())
+				entry.setValue((String) graph.getNodeById(entry.getKey()).getProperty(NodeProperties.FRAMEWORK_CLUSTER_ID));
+		} finally {
+			// The embedded graph database must not be used during the batch insertion
+			if (bind)
+				DBUtil.unbindGraph();
+			else
+				DBUtil.closeGraph();
+
+			open();
+		}
+	}
+
+	/**
+	 * @param cluster the node of a framework cluster.
+	 * @return the current id (i.e., the value of the property) of the framework cluster.
+	 */
+	public String getFrameworkClusterId(long cluster) {
+		return frameworkClusterIds.get(cluster);
+	}
+
+	/**
+	 * @return the node of the framework cluster connected to the graph's reference node.
+	 * @throws IllegalStateException if not exactly one framework cluster is connected to
+	 * the graph's reference node.
+	 */
+	public long getFrameworkRootCluster() throws IllegalStateException {
+		if (rootClusters.size() != 1)
+			throw new IllegalStateException(
+				"There are " + rootClusters.size() + " framework clusters connected to the graph's " +
+				"reference node. Exactly one root framework cluster is expected.");
+
+		return rootClusters.get(0);
+	}
+
+	/**
+	 * @param stayPointId the id of a stay point.
+	 * @return the node of the stay point or <code>null</code> if it does not exist.
+	 */
+	public Long findStayPointById(int stayPointId) {
+		return stayPoints.get(stayPointId);
+	}
+
+	/**
+	 * @param stayPoint the node of a stay point.
+	 * @return the node of the framework cluster of the stay point or <code>null</code> if the
+	 * stay point is not connected to a framework cluster.
+	 */
+	public Long findFrameworkClusterOfStayPoint(long stayPoint) {
+		return frameworkClusterOfStayPoint.get(stayPoint);
+	}
+
+	/**
+	 * Returns the ancestors of the given framework cluster in the same depth first
+	 * order as the traversal {@link TraversalDescriptions#FRAMEWORK_CLUSTER_UP_TRAVERSAL}
+	 * from the given framework cluster. The given framework cluster is excluded.
+	 *
+	 * @param cluster the node of a framework cluster.
+	 * @return the nodes of the ancestors of the framework cluster.
+	 */
+	public List<Long> ancestorFrameworkClusters(long cluster) {
+		List<Long> ancestors = new ArrayList<Long>();
+		Set<Long> visited = new HashSet<Long>();
+		visited.add(cluster);
+
+		collectAncestors(cluster, visited, ancestors);
+
+		return ancestors;
+	}
+
+	//###################################################################
+	// Hierarchical graphs
+	//###################################################################
+
+	/**
+	 * @param id the id of the hg cluster.
+	 * @param userId the id of the user.
+	 * @return the node of the hg cluster of the user or <code>null</code> if it does not exist.
+	 * @throws NullPointerException if at least one of the given arguments is <code>null</code>.
+	 */
+	public Long findHGClusterById(Object id, Object userId) throws NullPointerException {
+		if (id == null || userId == null)
+			throw new NullPointerException(
+				"You provided a null value for either the hg cluster id or the user id. " +
+				"Both parameters are expected to be non-null.");
+
+		if (!userId.equals(currentUserId))
+			return null;
+
+		return hgClusters.get(String.valueOf(id));
+	}
+
+	/**
+	 * Creates a hg cluster for the given user. The hg clusters of a user have to be
+	 * created before the ones of the next user.
+	 *
+	 * @param id the id of the hg cluster.
+	 * @param userId the id of the user.
+	 * @return the node of the hg cluster.
+	 * @throws NullPointerException if at least one of the given arguments is <code>null</code>.
+	 * @throws RuntimeException if the user already has a hg cluster with the given id.
+	 */
+	public long createHGCluster(Object id, Object userId) throws NullPointerException, RuntimeException {
+		if (findHGClusterById(id, userId) != null)
+			throw new RuntimeException("A hierarchical graph cluster with the identifier [" + id + "] already exists. Creation is stopped.");
+
+		// The hierarchical graph of a new user begins
+		if (!userId.equals(currentUserId)) {
+			currentUserId = userId;
+			hgClusters.clear();
+			hgChildClusters.clear();
+		}
+
+		long c = inserter.createNode(MapUtil.map(NodeProperties.HG_CLUSTER_ID, id));
+		hgClusterIndex.add(c, MapUtil.map(NodeProperties.HG_CLUSTER_ID, id, NodeProperties.USER_ID, userId));
+
+		hgClusters.put(String.valueOf(id), c);
+
+		return c;
+	}
+
+	/**
+	 * Connects a hg cluster with a stay point.
+	 *
+	 * @param hgCluster the node of the hg cluster.
+	 * @param stayPoint the node of the stay point.
+	 */
+	public void addHGStayPoint(long hgCluster, long stayPoint) {
+		createRelationship(hgCluster, stayPoint, RelTypes.HasHGStayPoint);
+	}
+
+	/**
+	 * Connects a hg cluster with one of its children.
+	 *
+	 * @param parent the node of the parent hg cluster.
+	 * @param child the node of the child hg cluster.
+	 */
+	public void addChildHGCluster(long parent, long child) {
+		createRelationship(parent, child, RelTypes.HasHGChildCluster);
+
+		Set<Long> children = hgChildClusters.get(parent);
+		if (children == null) {
+			children = new HashSet<Long>();
+			hgChildClusters.put(parent, children);
+		}
+		children.add(child);
+	}
+
+	/**
+	 * @param parent the node of the parent hg cluster.
+	 * @param child the node of the child hg cluster.
+	 * @return <code>true</code> if the parent hg cluster is connected to the child,
+	 * <code>false</code> otherwise.
+	 */
+	public boolean hasChildHGCluster(long parent, long child) {
+		Set<Long> children = hgChildClusters.get(parent);
+		return children != null && children.contains(child);
+	}
+
+	/**
+	 * Creates a user and connects it with the graph's reference node.
+	 *
+	 * @param id the id of the user.
+	 * @return the node of the user.
+	 * @throws NullPointerException if the given id is <code>null</code>.
+	 * @throws RuntimeException if a user with the given id already exists.
+	 */
+	public long createUser(Object id) throws NullPointerException, RuntimeException {
+		if (id == null)
+			throw new NullPointerException(
+				"You provided a null value for the user id. " +
+				"This parameter is expected to be non-null. A " +
+				"user cannot be created without an id");
+
+		if (!users.add(id))
+			throw new RuntimeException("A user with the identifier [" + id + "] already exists. Creation is stopped.");
+
+		Map<String, Object> properties = MapUtil.map(NodeProperties.USER_ID, id);
+		long u = inserter.createNode(properties);
+		userIndex.add(u, properties);
+
+		createRelationship(referenceNode, u, RelTypes.RootUser);
+
+		return u;
+	}
+
+	/**
+	 * Connects a user with the root of its hierarchical graph.
+	 *
+	 * @param user the node of the user.
+	 * @param root the node of the hg root cluster.
+	 */
+	public void addRootHGCluster(long user, long root) {
+		createRelationship(user, root, RelTypes.HasHG);
+	}
+
+	//###################################################################
+	// Shutdown
+	//###################################################################
+
+	/**
+	 * Flushes the indices and writes the graph database to disk. The importer
+	 * cannot be used afterwards.
+	 */
+	public void shutdown() {
+		LOG.debug("Shutting down batch insertion.");
+
+		close();
+	}
+
+	//###################################################################
+	// Helper
+	//###################################################################
+
+	/**
+	 * Starts the batch insertion into the graph database of the storage path.
+	 */
+	private void open() {
+		LOG.debug("Setup batch insertion into Neo4j graph database:\n\tStorage path: {}", storagePath);
+
+		inserter = BatchInserters.inserter(storagePath);
+		indexProvider = new LuceneBatchInserterIndexProvider(inserter);
+
+		frameworkClusterIndex = indexProvider.nodeIndex(DBUtil.FRAMEWORK_CLUSTER_INDEX, INDEX_CONFIG);
+		hgClusterIndex = indexProvider.nodeIndex(DBUtil.HG_CLUSTER_INDEX, INDEX_CONFIG);
+		stayPointIndex = indexProvider.nodeIndex(DBUtil.STAYPOINT_INDEX, INDEX_CONFIG);
+		userIndex = indexProvider.nodeIndex(DBUtil.USER_INDEX, INDEX_CONFIG);
+
+		referenceNode = inserter.getReferenceNode();
+	}
+
+	/**
+	 * Flushes the indices and writes the graph database to disk.
+	 */
+	private void close() {
+		indexProvider.shutdown();
+		inserter.shutdown();
+	}
+
+	private void createRelationship(long from, long to, RelationshipType type) {
+		inserter.createRelationship(from, to, type, null);
+	}
+
+	private void collectAncestors(long cluster, Set<Long> visited, List<Long> ancestors) {
+		for (Long parent : listOf(parentClusters, cluster)) {
+			if (visited.add(parent)) {
+				ancestors.add(parent);
+				collectAncestors(parent, visited, ancestors);
+			}
+		}
+	}
+
+	private static List<Long> listOf(Map<Long, List<Long>> lists, long node) {
+		List<Long> list = lists.get(node);
+		if (list == null) {
+			list = new ArrayList<Long>();
+			lists.put(node, list);
+		}
+		return list;
+	}
+}
@@ -10,11 +10,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import de.tub.util.DBUtil;
-import de.tub.util.ListUtil;
 
 /**
  * This class provides methods to execute Cypher queries on
  * the Neo4j graph database.
+ * <p />
+ * All queries are executed on the shared engine of {@link DBUtil#cypherEngine()}.
+ * Values are passed as query parameters so that the text of a query only 
+ * depends on its structure (e.g., the levels to search) and its execution 
+ * plan can be reused from the plan cache of the engine.
  * 
  * @author Sebastian Oelke
  *
@@ -72,17 +76,7 @@ public class CypherQueries {
     	params.put("id", Arrays.asList(userNodeIds));
 		
     	// Level string, default is to search all levels and ignore the starting node
-    	String interval = "*";
-    	String fromInterval = "";
-    	String toInterval = "";
-    	
-    	// Check the from and to level parameters
-    	if (fromLevel > 0) fromInterval = String.valueOf(fromLevel);
-    	if (toLevel >= 0) toInterval = String.valueOf(toLevel);
-    	
-    	// Build final level string based on fromLevel and toLevel
-    	if (!fromInterval.isEmpty() || !toInterval.isEmpty())
-    		interval += fromInterval + ".." + toInterval;
+    	String interval = levelInterval(fromLevel, toLevel);
     	
     	// Build the query
 		StringBuilder builder = new StringBuilder();
@@ -105,7 +99,7 @@ public class CypherQueries {
 		logCypherQuery(stringQuery);
 		
 		// Execute the query and return the results
-		return DBUtil.cypherEngine().execute(stringQuery, params);
+		return DBUtil.executeCypher(stringQuery, params);
 	}
 	
 	/**
@@ -120,7 +114,7 @@ public class CypherQueries {
 	 * <pre>
 	 * START u=node({userNodeId})
 	 * MATCH u-[:HasHG|HasHGChildCluster*]->hgc-[:HasHGStayPoint]->sp
-	 * WHERE hgc.hg_cluster_id IN [{hgClusterIds}]
+	 * WHERE hgc.hg_cluster_id IN {hgClusterIds}
 	 * RETURN hgc.hg_cluster_id AS hg_cluster_id, 
 	 * 	sp.staypoint_arr AS staypoint_arr,
 	 * 	sp.staypoint_leav AS staypoint_leav
@@ -158,6 +152,8 @@ public class CypherQueries {
 		Map<String, Object> params = new HashMap<String, Object>();
 		// User id
 		params.put("userNodeId", userNodeId);
+		// Ids of the hg clusters to restrict the result to
+		params.put("hgClusterIds", Arrays.asList(hgClusterIds));
 		
     	// Build the query
     	StringBuilder builder = new StringBuilder();
@@ -171,9 +167,7 @@ public class CypherQueries {
 			.append("]->sp ")
 			.append("WHERE hgc.")
 			.append(NodeProperties.HG_CLUSTER_ID)
-			.append(" IN [")
-			.append(ListUtil.join(hgClusterIds, ",", "\""))
-			.append("] ")
+			.append(" IN {hgClusterIds} ")
 			.append("RETURN hgc.")
 			.append(NodeProperties.HG_CLUSTER_ID)
 			.append(" AS ")
@@ -194,7 +188,82 @@ public class CypherQueries {
 		logCypherQuery(stringQuery);
 		
 		// Execute the query and return the results
-		return DBUtil.cypherEngine().execute(stringQuery, params);
+		return DBUtil.executeCypher(stringQuery, params);
+	}
+	
+	/**
+	 * This method queries the graph database with a cypher query
+	 * to receive all hg clusters of the given user node ordered by
+	 * the leaving time of the connected stay points. In contrast to
+	 * {@link #hgClustersInStaypointOrderForUser(Long, String[])} the
+	 * result is not restricted to a set of hg cluster ids but to the depth
+	 * of the hg clusters. Hence, the complete timeline of a user can be 
+	 * received with one query. The depth can be tweaked by the parameters 
+	 * <code>fromLevel</code> and <code>toLevel</code> in the same way as in
+	 * {@link #allHgClusterIdsForUsersFromToLevel(Long[], int, int)}.
+	 * <p />
+	 * The resulting query looks like the following:
+	 * 
+	 * <pre>
+	 * START u=node({userNodeId})
+	 * MATCH u-[:HasHG|HasHGChildCluster*]->hgc-[:HasHGStayPoint]->sp
+	 * RETURN hgc.hg_cluster_id AS hg_cluster_id, 
+	 * 	sp.staypoint_arr AS staypoint_arr,
+	 * 	sp.staypoint_leav AS staypoint_leav
+	 * ORDER BY sp.staypoint_leav
+	 * </pre>
+	 *
+	 * The result columns of the returned <code>ExecutionResult</code>
+	 * are named 'hg_cluster_id', 'staypoint_arr' and 'staypoint_leav' 
+	 * (cf. the generated Cypher query). To access them use those names.
+	 * <p />
+	 * @param userNodeId the id of the user node to access its hierarchical graph.
+	 * @param fromLevel the starting depth of the query. This has to be greater than zero. Otherwise it is ignored.
+	 * @param toLevel the end depth of the query. This has to be greater or equal zero. Otherwise it is ignored.
+	 * @return the result of the cypher query in form of an <code>ExecutionResult</code> which includes all 
+	 * found hg cluster ids as well as the arrival and leaving time of the corresponding stay points.
+	 */
+	public static ExecutionResult hgClustersInStaypointOrderForUserFromToLevel(long userNodeId, int fromLevel, int toLevel) {
+		// Build parameter map for cypher query
+		Map<String, Object> params = new HashMap<String, Object>();
+		// User id
+		params.put("userNodeId", userNodeId);
+		
+		// Level string, default is to search all levels and ignore the starting node
+		String interval = levelInterval(fromLevel, toLevel);
+		
+		// Build the query
+		StringBuilder builder = new StringBuilder();
+		builder.append("START u=node({userNodeId}) ")
+			.append("MATCH u-[:")
+			.append(RelTypes.HasHG)
+			.append("|")
+			.append(RelTypes.HasHGChildCluster)
+			.append(interval)
+			.append("]->hgc-[:")
+			.append(RelTypes.HasHGStayPoint)
+			.append("]->sp ")
+			.append("RETURN hgc.")
+			.append(NodeProperties.HG_CLUSTER_ID)
+			.append(" AS ")
+			.append(NodeProperties.HG_CLUSTER_ID)
+			.append(", sp.")
+			.append(NodeProperties.STAYPOINT_ARRIVAL)
+			.append(" AS ")
+			.append(NodeProperties.STAYPOINT_ARRIVAL)
+			.append(", sp.")
+			.append(NodeProperties.STAYPOINT_LEAVING)
+			.append(" AS ")
+			.append(NodeProperties.STAYPOINT_LEAVING)
+			.append(" ORDER BY sp.")
+			.append(NodeProperties.STAYPOINT_LEAVING);
+		
+		String stringQuery = builder.toString();
+		
+		logCypherQuery(stringQuery);
+		
+		// Execute the query and return the results
+		return DBUtil.executeCypher(stringQuery, params);
 	}
 	
 	// TODO: Refactor this to be used in the users dao.
@@ -229,7 +298,7 @@ public class CypherQueries {
 		logCypherQuery(stringQuery);
 		
 		// Execute the query and return the results
-		return DBUtil.cypherEngine().execute(stringQuery);
+		return DBUtil.executeCypher(stringQuery, null);
 	}
 	
 	/**
@@ -275,7 +344,7 @@ public class CypherQueries {
 		// Execute the query and return the results
 		ExecutionResult result = null;
 		try {
-			result = DBUtil.cypherEngine().execute(stringQuery);
+			result = DBUtil.executeCypher(stringQuery, null);
 		} catch (MissingIndexException e) {
 			// If the user node index is not found an exception is thrown
 			// Use fallback Cypher query without index
@@ -293,7 +362,7 @@ public class CypherQueries {
 			stringQuery = builder.toString();
 			logCypherQuery(stringQuery);
 			
-			result = DBUtil.cypherEngine().execute(stringQuery);
+			result = DBUtil.executeCypher(stringQuery, null);
 		}
 		
 		return result;
@@ -309,7 +378,7 @@ public class CypherQueries {
 	 * <pre>
 	 * START r=node(0)
 	 * MATCH r-[:RootUser]->u-[:HasHG|HasHGChildCluster*]->hgc
-	 * WHERE hgc.hg_cluster_id = "{hgClusterId}"
+	 * WHERE hgc.hg_cluster_id = {hgClusterId}
 	 * RETURN count(distinct u)	AS usersInHgCluster
 	 * LIMIT 1
 	 * </pre>
@@ -338,6 +407,11 @@ public class CypherQueries {
 					"You provided an empty string for the hg cluster id. " +
 					"The hg cluster id should not be empty.");
 		
+		// Build parameter map for cypher query
+		Map<String, Object> params = new HashMap<String, Object>();
+		// Id of the hg cluster
+		params.put("hgClusterId", hgClusterId);
+		
     	// Build the query
     	StringBuilder builder = new StringBuilder();
     	builder.append("START r=node(0) ")
@@ -350,9 +424,7 @@ public class CypherQueries {
 			.append("*]->hgc ")
 			.append("WHERE hgc.")
 			.append(NodeProperties.HG_CLUSTER_ID)
-			.append(" = '")
-			.append(hgClusterId)
-			.append("' ")
+			.append(" = {hgClusterId} ")
 			.append("RETURN count(distinct u) AS usersInHgCluster ")
 			.append("LIMIT 1");
 		
@@ -361,7 +433,53 @@ public class CypherQueries {
 		logCypherQuery(stringQuery);
 		
 		// Execute the query and return the results
-		return DBUtil.cypherEngine().execute(stringQuery);
+		return DBUtil.executeCypher(stringQuery, params);
+	}
+	
+	/**
+	 * This method queries the graph database with a cypher query
+	 * to receive the number of users that visited each hg cluster. 
+	 * In contrast to {@link #countUsersInHgCluster(String)} all hg
+	 * clusters are counted in one pass.
+	 * <p />
+	 * The resulting query looks like the following:
+	 * 
+	 * <pre>
+	 * START r=node(0)
+	 * MATCH r-[:RootUser]->u-[:HasHG|HasHGChildCluster*]->hgc
+	 * RETURN hgc.hg_cluster_id AS hg_cluster_id, count(distinct u) AS usersInHgCluster
+	 * </pre>
+	 *
+	 * The result columns of the returned <code>ExecutionResult</code>
+	 * are named 'hg_cluster_id' and 'usersInHgCluster' (cf. the generated Cypher query). 
+	 * To access them use those names.
+	 * <p />
+	 * @return the result of the cypher query in form of an <code>ExecutionResult</code> which includes 
+	 * the number of distinct users for each hg cluster id.
+	 */
+	public static ExecutionResult countUsersOfAllHgClusters() {
+    	// Build the query
+    	StringBuilder builder = new StringBuilder();
+    	builder.append("START r=node(0) ")
+			.append("MATCH r-[:")
+			.append(RelTypes.RootUser)
+			.append("]->u-[:")
+			.append(RelTypes.HasHG)
+			.append("|")
+			.append(RelTypes.HasHGChildCluster)
+			.append("*]->hgc ")
+			.append("RETURN hgc.")
+			.append(NodeProperties.HG_CLUSTER_ID)
+			.append(" AS ")
+			.append(NodeProperties.HG_CLUSTER_ID)
+			.append(", count(distinct u) AS usersInHgCluster");
+		
+		String stringQuery = builder.toString();
+		
+		logCypherQuery(stringQuery);
+		
+		// Execute the query and return the results
+		return DBUtil.executeCypher(stringQuery, null);
 	}
 	
 	// TODO: Refactor this to be used in the users dao.
@@ -411,7 +529,33 @@ public class CypherQueries {
 		logCypherQuery(stringQuery);
 		
 		// Execute the query and return the results
-		return DBUtil.cypherEngine().execute(stringQuery, params);
+		return DBUtil.executeCypher(stringQuery, params);
+	}
+	
+	/**
+	 * Builds the variable length part of a relationship pattern
+	 * for the given levels, e.g. <code>*2..4</code>. Negative values 
+	 * for the parameters result in querying all depths. A <code>fromLevel</code> 
+	 * of zero is also ignored to avoid the inclusion of the starting node.
+	 * 
+	 * @param fromLevel the starting depth.
+	 * @param toLevel the end depth.
+	 * @return the variable length part of a relationship pattern.
+	 */
+	private static String levelInterval(int fromLevel, int toLevel) {
+		String interval = "*";
+		String fromInterval = "";
+		String toInterval = "";
+		
+		// Check the from and to level parameters
+		if (fromLevel > 0) fromInterval = String.valueOf(fromLevel);
+		if (toLevel >= 0) toInterval = String.valueOf(toLevel);
+		
+		// Build final level string based on fromLevel and toLevel
+		if (!fromInterval.isEmpty() || !toInterval.isEmpty())
+			interval += fromInterval + ".." + toInterval;
+		
+		return interval;
 	}
 	
 	/**
@@ -0,0 +1,169 @@
+package de.tub.processor.graph;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.tub.data.model.StayPoint;
+import de.tub.data.model.User;
+import de.tub.graph.BatchGraphImporter;
+import de.tub.observer.Interests;
+import de.tub.observer.Observer;
+import de.tub.observer.Subject;
+import de.tub.processor.IProcessor;
+import de.tub.reader.model.UserReader;
+
+/**
+ * This processor creates a hierarchical graph for a given
+ * user like the <code>HierarchicalGraphProcessor</code>. Instead of the 
+ * Neo4J DAOs it uses the <code>BatchGraphImporter</code> which created 
+ * the shared framework before.
+ * <p />
+ * This processor handles the <code>UserFinished</code> interest
+ * of a <code>UserReader</code> in the same way as the 
+ * <code>HierarchicalGraphProcessor</code>.
+ * 
+ * @author Sebastian Oelke
+ * 
+ * @see HierarchicalGraphProcessor
+ * @see BatchGraphImporter
+ *
+ */
+public class BatchHierarchicalGraphProcessor implements IProcessor<User>, Observer {
+
+	private static final Logger LOG = LoggerFactory.getLogger(BatchHierarchicalGraphProcessor.class);
+	
+	private final BatchGraphImporter importer;
+	
+	private User currentUser;
+	private boolean noHgForUser = false;
+	
+	private final Object rootFrameworkClusterId;
+	
+	/**
+	 * @param importer the importer that created the shared framework.
+	 * @throws NullPointerException if the given importer is <code>null</code>.
+	 * @throws IllegalStateException if the shared framework of the importer has
+	 * not exactly one root cluster.
+	 */
+	public BatchHierarchicalGraphProcessor(BatchGraphImporter importer) throws NullPointerException, IllegalStateException {
+		if (importer == null)
+			throw new NullPointerException(
+				"You provided a null value for the importer. " +
+				"This parameter is expected to be non-null.");
+		
+		this.importer = importer;
+		this.rootFrameworkClusterId = importer.getFrameworkClusterId(importer.getFrameworkRootCluster());
+	}
+	
+	@Override
+	public void newData(User data) {
+		// Return if the data's reference is null
+		if (data == null) return;
+		
+		// Process the given data
+		processData(data);
+	}
+	
+	@Override
+	public void finish() {
+		if (currentUser != null) {
+			// Create a user node which is connected to the graph reference node
+			long userNode = importer.createUser(currentUser.getId());
+			
+			// A hg was created for this user
+			if (!noHgForUser) {
+				// Connect the hg root cluster to the root of the users hierarchical graph (i.e., the user node) 
+				Long hgRootCluster = importer.findHGClusterById(rootFrameworkClusterId, currentUser.getId());
+				importer.addRootHGCluster(userNode, hgRootCluster);
+			}
+			// A hg was not created for this user because of the lack of stay points.
+			// Only the user node is created and attached to the graph's reference node.
+			else {
+				LOG.warn("For the user with id [{}] no stay points were detected. " +
+							"Therefore, a hierarchical graph is not created for this user.", currentUser.getId());
+				
+				// Reset for the following user
+				noHgForUser = false;
+			}
+		} else
+			LOG.error("The current user instance is null. Cannot properly finish this processor, i.e., " +
+						"cannot create a user node and connect it to the graph's reference node.");
+	}
+	
+	private void processData(User user) {
+		// Set the current user
+		currentUser = user;
+		
+		// Get stay points of user
+		List<StayPoint> stayPoints = currentUser.getAll(StayPoint.class);
+		
+		for (int i = 0; i < stayPoints.size(); i++) {
+			// Get stay point node from the imported shared framework
+			StayPoint sp = stayPoints.get(i);
+			Long spNode = importer.findStayPointById((Integer) sp.getId());
+			
+			if (spNode != null) {
+				// Every stay point node should belong to one framework cluster
+				Long frameworkCluster = importer.findFrameworkClusterOfStayPoint(spNode);
+				if (frameworkCluster != null) {
+					// Create hierarchical graph cluster and connect it with the stay point
+					long hgCluster = findOrCreateHGCluster(importer.getFrameworkClusterId(frameworkCluster));
+					importer.addHGStayPoint(hgCluster, spNode);
+					
+					// Go upwards in the shared framework and add hg clusters as needed and attach the stay point to it
+					long currentHGChild = hgCluster;
+					for (Long parent : importer.ancestorFrameworkClusters(frameworkCluster)) {
+						// Create a hg cluster that resembles the parent framework cluster
+						long parentHgCluster = findOrCreateHGCluster(importer.getFrameworkClusterId(parent));
+						
+						// Create the connection to the child hg cluster if it does not exist
+						if (!importer.hasChildHGCluster(parentHgCluster, currentHGChild))
+							importer.addChildHGCluster(parentHgCluster, currentHGChild);
+						
+						// Connect the parent hg cluster with the stay point
+						importer.addHGStayPoint(parentHgCluster, spNode);
+						
+						// The current parent hg cluster is the child hg cluster for the next iteration
+						currentHGChild = parentHgCluster;
+					}
+					
+				} else {
+					// No framework cluster found for the given stay point
+					LOG.error("There was no relationship to a framework cluster found for the stay point with id [{}].", spNode);
+				}
+			} else {
+				// A stay point with the given id could not be found in the graph
+				LOG.error("A stay point with id [{}] could not be found in the graph database.", sp.getId());
+			}
+		}
+		
+		// This user has no stay points so no hg can be created
+		if (stayPoints.isEmpty())
+			noHgForUser = true;
+	}
+	
+	/**
+	 * @param hgClusterId the id of the hg cluster.
+	 * @return the node of the existing or the created hg cluster of the current user.
+	 */
+	private long findOrCreateHGCluster(Object hgClusterId) {
+		Long hgCluster = importer.findHGClusterById(hgClusterId, currentUser.getId());
+		if (hgCluster == null)
+			hgCluster = importer.createHGCluster(hgClusterId, currentUser.getId());
+		
+		return hgCluster;
+	}
+
+	@Override
+	public void update(Subject theSubject, Interests interest, Object arg) {
+		if (theSubject instanceof UserReader) {
+			// A UserReader notifies us about its finishing
+			if (interest == Interests.UserFinished) {
+				// The reading of a user ended, finish this processor
+				finish();
+			}
+		} 
+	}
+}
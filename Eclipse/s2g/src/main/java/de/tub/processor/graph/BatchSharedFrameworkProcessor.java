@@ -0,0 +1,215 @@
+package de.tub.processor.graph;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.tub.clustering.ClusteredStayPoint;
+import de.tub.clustering.ELKICluster;
+import de.tub.graph.BatchGraphImporter;
+import de.tub.observer.Interests;
+import de.tub.observer.Observer;
+import de.tub.observer.Subject;
+import de.tub.processor.IProcessor;
+import de.tub.reader.file.IterativeFileReader;
+import de.tub.reader.file.TextFileLineReader;
+
+/**
+ * This processor handles the output of a clustering run
+ * of OPTICS-XI with <a href="http://elki.dbs.ifi.lmu.de">ELKI</a> like the 
+ * <code>SharedFrameworkProcessor</code>. Instead of the Neo4J DAOs it uses a 
+ * <code>BatchGraphImporter</code> to create the shared framework in a new 
+ * graph database without transactions.
+ * <p />
+ * This processor handles the interest <code>HasFinished</code> of a 
+ * <code>TextFileLineReader</code> and an <code>IterativeFileReader</code> in the
+ * same way as the <code>SharedFrameworkProcessor</code>.
+ * 
+ * @author Sebastian Oelke
+ * 
+ * @see SharedFrameworkProcessor
+ * @see BatchGraphImporter
+ *
+ */
+public class BatchSharedFrameworkProcessor implements IProcessor<String>, Observer {
+	
+	private static final Logger LOG = LoggerFactory.getLogger(BatchSharedFrameworkProcessor.class);
+	
+	private final BatchGraphImporter importer;
+	
+	private String clusterId;
+	
+	/**
+	 * The node of the cluster which is currently processed.
+	 */
+	private Long currentCluster;
+	
+	/**
+	 * Defines if the current cluster has a parent.
+	 */
+	private boolean hasParent;
+	
+	/**
+	 * @param importer the importer that creates the shared framework.
+	 * @throws NullPointerException if the given importer is <code>null</code>.
+	 */
+	public BatchSharedFrameworkProcessor(BatchGraphImporter importer) throws NullPointerException {
+		if (importer == null)
+			throw new NullPointerException(
+				"You provided a null value for the importer. " +
+				"This parameter is expected to be non-null.");
+		
+		this.importer = importer;
+		
+		// ...and other instance variables
+		initialize();
+	}
+	
+	@Override
+	public void newData(String data) {
+		// Return if their is no data or the reference is null
+		if (data == null || data.isEmpty()) return;
+		
+		// Process the given data
+		processData(data);
+	}
+
+	@Override
+	public void finish() {
+		// If the current node has no parents connect it to the graph's reference node
+		// because it is at the top of the hierarchy.
+		if (!hasParent && currentCluster != null)
+			importer.addRootFrameworkCluster(currentCluster);
+		
+		// Reset instance variables
+		initialize();
+	}
+	
+	/**
+	 * Resets instance variables.
+	 */
+	private void initialize() {
+		currentCluster = null;
+		hasParent = false;
+	}
+	
+	/**
+	 * Processes the given data. This method reads lines of a cluster
+	 * file generated by ELKI, extracts the cluster structure with
+	 * framework clusters and stay points.
+	 * 
+	 * @param data the data to process.
+	 */
+	private void processData(String data) {
+		// Cluster ID found
+		if (data.startsWith(SharedFrameworkProcessor.CLUSTER_REG)) {
+			clusterId = data.replaceFirst(SharedFrameworkProcessor.CLUSTER_REG, "");
+			LOG.debug("Found cluster {}.", clusterId);
+			
+			currentCluster = findOrCreateFrameworkCluster(clusterId);
+		}
+		// Parents of cluster found
+		else if (data.startsWith(SharedFrameworkProcessor.PARENTS_REG)) {
+			String parents = data.replaceFirst(SharedFrameworkProcessor.PARENTS_REG, "");
+			String[] parentsArray = parents.split(SharedFrameworkProcessor.PARENTS_DELIMITER);
+			LOG.debug("Found parents of cluster {}: {}", clusterId, parentsArray);
+			
+			hasParent = true;
+		}
+		// Children of cluster found
+		else if (data.startsWith(SharedFrameworkProcessor.CHILDREN_REG)) {
+			String children = data.replaceFirst(SharedFrameworkProcessor.CHILDREN_REG, "");
+			String[] childrenArray = children.split(SharedFrameworkProcessor.CHILDREN_DELIMITER);
+			LOG.debug("Found children of cluster {}: {}", clusterId, childrenArray);
+			
+			// Create new child cluster nodes for all found children and connect it to the current cluster node
+			for (int i = 0; i < childrenArray.length; i++)
+				importer.addChildFrameworkCluster(currentCluster, findOrCreateFrameworkCluster(childrenArray[i]));
+		}
+		// Real data points
+		else if (!data.startsWith(SharedFrameworkProcessor.COMMENT_LINE)) {
+			// Extract the stay point of the data line
+			addStayPoint(ClusterFileParser.parseStayPoint(data));
+		}
+	}
+	
+	/**
+	 * Imports the shared framework from the given clusters of a clustering
+	 * with ELKI. Each cluster is processed like a cluster file and pretty cluster
+	 * ids are generated afterwards.
+	 * 
+	 * @param clusters the clusters of the clustering.
+	 * @throws NullPointerException if the given list of clusters is <code>null</code>.
+	 * 
+	 * @see de.tub.clustering.StayPointClusterer StayPointClusterer
+	 */
+	public void processClusters(List<ELKICluster> clusters) throws NullPointerException {
+		if (clusters == null)
+			throw new NullPointerException(
+				"You provided a null value for the clusters. " +
+				"This parameter is expected to be non-null.");
+		
+		for (ELKICluster cluster : clusters) {
+			clusterId = cluster.getName();
+			LOG.debug("Found cluster {}.", clusterId);
+			
+			currentCluster = findOrCreateFrameworkCluster(clusterId);
+			hasParent = !cluster.getParents().isEmpty();
+			
+			for (String child : cluster.getChildren())
+				importer.addChildFrameworkCluster(currentCluster, findOrCreateFrameworkCluster(child));
+			for (ClusteredStayPoint stayPoint : cluster.getStayPoints())
+				addStayPoint(stayPoint);
+			
+			// The cluster is finished
+			finish();
+		}
+		
+		// All clusters are finished, generate pretty cluster ids
+		importer.generatePrettyClusterIds();
+	}
+	
+	/**
+	 * Creates the given stay point and adds it to the current cluster.
+	 * 
+	 * @param stayPoint the stay point to add.
+	 */
+	private void addStayPoint(ClusteredStayPoint stayPoint) {
+		long sp = importer.createStayPoint(stayPoint.getId(), stayPoint.getLatitude(), stayPoint.getLongitude(), 
+				stayPoint.getArrivalTime(), stayPoint.getLeavingTime());
+		importer.addStayPoint(currentCluster, sp);
+	}
+	
+	/**
+	 * @param id the id of the framework cluster given by ELKI.
+	 * @return the node of the existing or the created framework cluster.
+	 */
+	private long findOrCreateFrameworkCluster(String id) {
+		Long cluster = importer.findFrameworkClusterById(id);
+		// Cluster has not been created, yet
+		if (cluster == null)
+			cluster = importer.createFrameworkCluster(id);
+		
+		return cluster;
+	}
+
+	@Override
+	public void update(Subject theSubject, Interests interest, Object arg) {
+		if (theSubject instanceof TextFileLineReader) {
+			// A TextFileLineReader notifies us about its finishing
+			if (interest == Interests.HasFinished) {
+				// The reading of a cluster file ended, finish this processor
+				finish();
+			}
+		} else if (theSubject instanceof IterativeFileReader) {
+			// A IterativeFileReader notifies us about its finishing
+			if (interest == Interests.HasFinished) {
+				// The reading of all cluster files ended, the graph is built up,
+				// generate pretty cluster ids
+				importer.generatePrettyClusterIds();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,105 @@
+package de.tub.processor.graph;
+
+import java.sql.Timestamp;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.tub.clustering.ClusteredStayPoint;
+import de.tub.util.StringUtil;
+
+/**
+ * This class parses the data lines of a cluster file generated
+ * by ELKI. Values that cannot be parsed are logged and replaced 
+ * by zero.
+ * 
+ * @author Sebastian Oelke
+ * 
+ * @see de.tub.processor.graph.SharedFrameworkProcessor SharedFrameworkProcessor
+ * @see de.tub.processor.graph.BatchSharedFrameworkProcessor BatchSharedFrameworkProcessor
+ *
+ */
+final class ClusterFileParser {
+	
+	private static final Logger LOG = LoggerFactory.getLogger(ClusterFileParser.class);
+	
+	private static final Pattern DATA_PATTERN = Pattern.compile("(\\s{1}\\d{1,3}\\.\\d+)|('[\\w\\s\\-:]*')");
+	
+	private ClusterFileParser() {}
+	
+	/**
+	 * Extracts the stay point of the given data line of a cluster file.
+	 * 
+	 * @param data the data line to parse.
+	 * @return the stay point of the data line.
+	 */
+	static ClusteredStayPoint parseStayPoint(String data) {
+		 /**
+		  * Each data line of the ELKI output should have the following format:
+		  *
+		  *	ID=<elki_point_id> <point_latitude> <point_longitude> '<point_id>' '<point_arrival_time>' '<point_leaving_time>' reachability=<point_reachability_value>[ predecessor=<point_predecesor_value>]
+		  *
+		  * Concrete example: ID=24346 8.3352576 98.5045304 '24346' '2009-03-22 05:11:18' '2009-03-22 05:57:59' reachability=808.5024539029628 predecessor=28126
+		  *	
+		  *	Each line has seven to eight data tokens. Only the tokens two to six are relevant here.
+		  */
+		
+		// Filter relevant data fields
+		Matcher m = DATA_PATTERN.matcher(data);
+		
+		String currentExtractedData = "";
+		// The latitude and longitude values have to be trimmed because they are extracted with a leading space
+		m.find();
+		double lat = 0.0;
+		currentExtractedData = m.group().trim();
+		try {
+			lat = Double.valueOf(currentExtractedData);
+		} catch (NumberFormatException e) {
+			LOG.error("The current latitude value [{}] could not be parsed as a decimal number:\n{}", currentExtractedData, e);
+		}
+		
+		m.find();
+		double lon = 0.0;
+		currentExtractedData = m.group().trim();
+		try {
+			lon = Double.valueOf(currentExtractedData);
+		} catch (NumberFormatException e) {
+			LOG.error("The current longitude value [{}] could not be parsed as a decimal number:\n{}", currentExtractedData, e);
+		}
+		
+		// The other values are enclosed by single quotes so ELKI treats them as labels; we have to remove the single quotes
+		m.find();
+		currentExtractedData = StringUtil.trimSingleQuotes(m.group());
+		int id = 0;
+		try {
+			id = Integer.valueOf(currentExtractedData);
+		} catch (NumberFormatException e) {
+			LOG.error("The current id value [{}] could not be parsed as an integer number:\n{}", currentExtractedData, e);
+		}
+		
+		// Neo4j does not support time stamps as node properties, 
+		// to be able to order stay points by time later on we 
+		// have to get the time as a long value
+		m.find();
+		currentExtractedData = StringUtil.trimSingleQuotes(m.group());
+		long arr = 0L;
+		try {
+			arr = Timestamp.valueOf(currentExtractedData).getTime();
+		} catch (IllegalArgumentException e) {
+			LOG.error("The current arrival time value [{}] could not be parsed as a time stamp:\n{}", currentExtractedData, e);
+		}
+		
+		m.find();
+		currentExtractedData = StringUtil.trimSingleQuotes(m.group());
+		long leav = 0L;
+		try {
+			leav = Timestamp.valueOf(currentExtractedData).getTime();
+		} catch (IllegalArgumentException e) {
+			LOG.error("The current leaving time value [{}] could not be parsed as a time stamp:\n{}", currentExtractedData, e);
+		}
+		
+		return new ClusteredStayPoint(id, lat, lon, arr, leav);
+	}
+}
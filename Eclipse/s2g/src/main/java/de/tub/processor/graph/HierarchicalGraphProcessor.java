@@ -14,6 +14,7 @@ import de.tub.data.dao.DAOFactory;
 import de.tub.data.dao.Neo4JFrameworkClusterDAO;
 import de.tub.data.dao.Neo4JHGClusterDAO;
 import de.tub.data.dao.Neo4JStaypointDAO;
+import de.tub.data.dao.Neo4JUnitOfWork;
 import de.tub.data.dao.Neo4JUserDAO;
 import de.tub.data.model.StayPoint;
 import de.tub.data.model.User;
@@ -34,6 +35,11 @@ import de.tub.reader.model.UserReader;
  * This processor handles the <code>UserFinished</code> interest
  * of a <code>UserReader</code>. Thereupon, it finishes its processing
  * by creating a user node and connects it to the graph's reference node.
+ * <p />
+ * The graph operations of a user are grouped into a <code>Neo4JUnitOfWork</code>.
+ * They are committed at the end of each user and after the given number of 
+ * operations in between. If the processing of a user fails its pending operations
+ * are rolled back.
  * 
  * @author Sebastian Oelke
  *
@@ -52,34 +58,76 @@ public class HierarchicalGraphProcessor implements IProcessor<User>, Observer {
 	
 	private Object rootFrameworkClusterId = fDao.getFrameworkClusterId(fDao.getFrameworkRootCluster());
 	
+	private final int batchSize;
+	private Neo4JUnitOfWork unitOfWork;
+	
+	/**
+	 * Creates a processor that commits its graph operations in batches of
+	 * the default size.
+	 * 
+	 * @see Neo4JUnitOfWork#DEFAULT_BATCH_SIZE
+	 */
+	public HierarchicalGraphProcessor() {
+		this(Neo4JUnitOfWork.DEFAULT_BATCH_SIZE);
+	}
+	
+	/**
+	 * @param batchSize the number of graph operations after which the pending 
+	 * operations are committed. This has to be greater than zero.
+	 * @throws IllegalArgumentException if the batch size is smaller than one.
+	 */
+	public HierarchicalGraphProcessor(int batchSize) throws IllegalArgumentException {
+		if (batchSize < 1)
+			throw new IllegalArgumentException(
+				"You provided a batch size of " + batchSize + ". The batch size has to be greater than zero.");
+		
+		this.batchSize = batchSize;
+	}
+	
 	@Override
 	public void newData(User data) {
 		// Return if the data's reference is null
 		if (data == null) return;
 		
 		// Process the given data
-		processData(data);
+		try {
+			processData(data);
+		} catch (RuntimeException e) {
+			// Do not leave the unit of work of the failed user bound to this thread
+			abortUnitOfWork();
+			throw e;
+		}
 	}
 	
 	@Override
 	public void finish() {
 		if (currentUser != null) {
-			// Create a user node
-			Node userNode = uDao.createUser(currentUser.getId());
-			// Connect user node to graph reference node
-			uDao.addRootUser(userNode.getGraphDatabase().getReferenceNode(), userNode);
+			beginUnitOfWork();
 			
-			// A hg was created for this user
-			if (!noHgForUser) {
-				// Connect the hg root cluster to the root of the users hierarchical graph (i.e., the user node) 
-				Node hgRootCluster = hgDao.findHGClusterById(rootFrameworkClusterId, currentUser.getId());
-				uDao.addRootHGCluster(userNode, hgRootCluster);
-			}
-			// A hg was not created for this user because of the lack of stay points.
-			// Only the user node is created and attached to the graph's reference node.
-			else {
-				LOG.warn("For the user with id [{}] no stay points were detected. " +
-							"Therefore, a hierarchical graph is not created for this user.", currentUser.getId());
+			try {
+				// Create a user node
+				Node userNode = uDao.createUser(currentUser.getId());
+				// Connect user node to graph reference node
+				uDao.addRootUser(userNode.getGraphDatabase().getReferenceNode(), userNode);
+				
+				// A hg was created for this user
+				if (!noHgForUser) {
+					// Connect the hg root cluster to the root of the users hierarchical graph (i.e., the user node) 
+					Node hgRootCluster = hgDao.findHGClusterById(rootFrameworkClusterId, currentUser.getId());
+					uDao.addRootHGCluster(userNode, hgRootCluster);
+				}
+				// A hg was not created for this user because of the lack of stay points.
+				// Only the user node is created and attached to the graph's reference node.
+				else {
+					LOG.warn("For the user with id [{}] no stay points were detected. " +
+								"Therefore, a hierarchical graph is not created for this user.", currentUser.getId());
+				}
+				
+				// The user is finished, commit its pending graph operations
+				unitOfWork.finish();
+			} finally {
+				// Nothing is rolled back if the unit of work was finished
+				abortUnitOfWork();
 				
 				// Reset for the following user
 				noHgForUser = false;
@@ -93,6 +141,8 @@ public class HierarchicalGraphProcessor implements IProcessor<User>, Observer {
 		// Set the current user
 		currentUser = user;
 		
+		beginUnitOfWork();
+		
 		// Get stay points of user
 		List<StayPoint> stayPoints = currentUser.getAll(StayPoint.class);
 		
@@ -185,6 +235,26 @@ public class HierarchicalGraphProcessor implements IProcessor<User>, Observer {
 			noHgForUser = true;
 	}
 
+	/**
+	 * Starts a unit of work for the graph operations of the current user 
+	 * if not already done.
+	 */
+	private void beginUnitOfWork() {
+		if (unitOfWork == null)
+			unitOfWork = Neo4JUnitOfWork.begin(batchSize);
+	}
+	
+	/**
+	 * Rolls back the pending graph operations of the current user 
+	 * if they were not committed.
+	 */
+	private void abortUnitOfWork() {
+		if (unitOfWork != null) {
+			unitOfWork.abort();
+			unitOfWork = null;
+		}
+	}
+
 	@Override
 	public void update(Subject theSubject, Interests interest, Object arg) {
 		if (theSubject instanceof UserReader) {
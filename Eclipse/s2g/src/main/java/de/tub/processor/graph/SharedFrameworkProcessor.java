@@ -1,8 +1,6 @@
 package de.tub.processor.graph;
 
-import java.sql.Timestamp;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.List;
 
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
@@ -11,9 +9,12 @@ import org.neo4j.graphdb.traversal.Traverser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import de.tub.clustering.ClusteredStayPoint;
+import de.tub.clustering.ELKICluster;
 import de.tub.data.dao.DAOFactory;
 import de.tub.data.dao.Neo4JFrameworkClusterDAO;
 import de.tub.data.dao.Neo4JStaypointDAO;
+import de.tub.data.dao.Neo4JUnitOfWork;
 import de.tub.graph.TraversalDescriptions;
 import de.tub.graph.generator.PrettyClusterIdGenerator;
 import de.tub.observer.Interests;
@@ -23,7 +24,6 @@ import de.tub.processor.IProcessor;
 import de.tub.reader.file.IterativeFileReader;
 import de.tub.reader.file.TextFileLineReader;
 import de.tub.util.DBUtil;
-import de.tub.util.StringUtil;
 
 /**
  * This processor handles the output of a clustering run
@@ -41,6 +41,14 @@ import de.tub.util.StringUtil;
  * The <code>IterativeFileReader</code> informs this processor about the finishing of all 
  * cluster files, i.e., the cluster hierarchy should be built up. Upon this, pretty cluster
  * ids are generated.
+ * <p />
+ * Alternatively, the clusters of an in-memory clustering can be handed to
+ * {@link #processClusters(List)} without any cluster files.
+ * <p />
+ * The graph operations are grouped into a <code>Neo4JUnitOfWork</code>. They 
+ * are committed at the end of each cluster file, after the generation of the 
+ * pretty cluster ids and after the given number of operations in between.
+ * If the processing of a cluster file fails its pending operations are rolled back.
  * 
  * @author Sebastian Oelke
  * 
@@ -51,13 +59,12 @@ public class SharedFrameworkProcessor implements IProcessor<String>, Observer {
 	
 	private static final Logger LOG = LoggerFactory.getLogger(SharedFrameworkProcessor.class);
 
-	private static final String COMMENT_LINE = "#";
-	private static final String CLUSTER_REG = "# Cluster: ";
-	private static final String PARENTS_REG = "# Parents: ";
-	private static final String PARENTS_DELIMITER = " ";
-	private static final String CHILDREN_REG = "# Children: ";
-	private static final String CHILDREN_DELIMITER = " ";
-	private static final String DATA_REG = "(\\s{1}\\d{1,3}\\.\\d+)|('[\\w\\s\\-:]*')";
+	static final String COMMENT_LINE = "#";
+	static final String CLUSTER_REG = "# Cluster: ";
+	static final String PARENTS_REG = "# Parents: ";
+	static final String PARENTS_DELIMITER = " ";
+	static final String CHILDREN_REG = "# Children: ";
+	static final String CHILDREN_DELIMITER = " ";
 	
 	private String clusterId;
 	
@@ -74,7 +81,38 @@ public class SharedFrameworkProcessor implements IProcessor<String>, Observer {
 	 */
 	private boolean hasParent;
 	
+	/**
+	 * The number of graph operations after which the pending operations are committed.
+	 */
+	private final int batchSize;
+	
+	/**
+	 * The unit of work of the cluster file which is currently processed.
+	 */
+	private Neo4JUnitOfWork unitOfWork;
+	
+	/**
+	 * Creates a processor that commits its graph operations in batches of
+	 * the default size.
+	 * 
+	 * @see Neo4JUnitOfWork#DEFAULT_BATCH_SIZE
+	 */
 	public SharedFrameworkProcessor() {
+		this(Neo4JUnitOfWork.DEFAULT_BATCH_SIZE);
+	}
+	
+	/**
+	 * @param batchSize the number of graph operations after which the pending 
+	 * operations are committed. This has to be greater than zero.
+	 * @throws IllegalArgumentException if the batch size is smaller than one.
+	 */
+	public SharedFrameworkProcessor(int batchSize) throws IllegalArgumentException {
+		if (batchSize < 1)
+			throw new IllegalArgumentException(
+				"You provided a batch size of " + batchSize + ". The batch size has to be greater than zero.");
+		
+		this.batchSize = batchSize;
+		
 		// ...and other instance variables
 		initialize();
 	}
@@ -85,18 +123,44 @@ public class SharedFrameworkProcessor implements IProcessor<String>, Observer {
 		if (data == null || data.isEmpty()) return;
 		
 		// Process the given data
-		processData(data);
+		try {
+			processData(data);
+		} catch (RuntimeException e) {
+			// Do not leave the unit of work of the failed cluster file bound to this thread
+			abortUnitOfWork();
+			throw e;
+		}
 	}
 
 	@Override
 	public void finish() {
-		// If the current node has no parents connect it to the graph's reference node
-		// because it is at the top of the hierarchy.
-		if (!hasParent && currentCluster != null)
-			cDao.addRootFrameworkCluster(currentCluster.getGraphDatabase().getReferenceNode(), currentCluster);
-		
-		// Reset instance variables
-		initialize();
+		try {
+			// If the current node has no parents connect it to the graph's reference node
+			// because it is at the top of the hierarchy.
+			if (!hasParent && currentCluster != null)
+				cDao.addRootFrameworkCluster(currentCluster.getGraphDatabase().getReferenceNode(), currentCluster);
+			
+			// The cluster file is finished, commit its pending graph operations
+			if (unitOfWork != null)
+				unitOfWork.finish();
+		} finally {
+			// Nothing is rolled back if the unit of work was finished
+			abortUnitOfWork();
+			
+			// Reset instance variables
+			initialize();
+		}
+	}
+	
+	/**
+	 * Rolls back the pending graph operations of the current cluster file 
+	 * if they were not committed.
+	 */
+	private void abortUnitOfWork() {
+		if (unitOfWork != null) {
+			unitOfWork.abort();
+			unitOfWork = null;
+		}
 	}
 	
 	/**
@@ -112,6 +176,21 @@ public class SharedFrameworkProcessor implements IProcessor<String>, Observer {
 	 * identifiers to each cluster.
 	 */
 	private void generatePrettyClusterIds() {
+		generatePrettyClusterIds(batchSize);
+	}
+	
+	/**
+	 * Does a traversal through the shared framework of the graph database of 
+	 * {@link DBUtil#graph()} and gives pretty identifiers to each cluster. 
+	 * The shared framework may have been built by this processor or imported 
+	 * by a <code>BatchGraphImporter</code>.
+	 * 
+	 * @param batchSize the number of graph operations after which the pending 
+	 * operations are committed. This has to be greater than zero.
+	 * 
+	 * @see de.tub.graph.BatchGraphImporter#generatePrettyClusterIds() BatchGraphImporter#generatePrettyClusterIds()
+	 */
+	public static void generatePrettyClusterIds(int batchSize) {
 		LOG.debug("Generate pretty ids for framework clusters.");
 		// Start the traversal from the graph's reference node to each framework cluster node
 		// and generate a pretty id for each cluster
@@ -119,9 +198,15 @@ public class SharedFrameworkProcessor implements IProcessor<String>, Observer {
 		Traverser traverser = TraversalDescriptions.FRAMEWORK_CLUSTER_TRAVERSAL.traverse(graph.getReferenceNode());
 		PrettyClusterIdGenerator prettyIdGenerator = new PrettyClusterIdGenerator();
 		
-		for (Path p : traverser) {
-			// Generate a pretty id for each path end node
-			prettyIdGenerator.generate(p);
+		Neo4JUnitOfWork prettyIdsUnitOfWork = Neo4JUnitOfWork.begin(batchSize);
+		try {
+			for (Path p : traverser) {
+				// Generate a pretty id for each path end node
+				prettyIdGenerator.generate(p);
+			}
+			prettyIdsUnitOfWork.finish();
+		} finally {
+			prettyIdsUnitOfWork.abort();
 		}
 	}
 	
@@ -133,16 +218,16 @@ public class SharedFrameworkProcessor implements IProcessor<String>, Observer {
 	 * @param data the data to process.
 	 */
 	private void processData(String data) {
+		// Start a unit of work for the current cluster file if not already done
+		if (unitOfWork == null)
+			unitOfWork = Neo4JUnitOfWork.begin(batchSize);
+		
 		// Cluster ID found
 		if (data.startsWith(CLUSTER_REG)) {
 			clusterId = data.replaceFirst(CLUSTER_REG, "");
 			LOG.debug("Found cluster {}.", clusterId);
 			
-			// Check if cluster with given id already exists
-			currentCluster = cDao.findFrameworkClusterById(clusterId);
-			// Cluster has not been created, yet
-			if (currentCluster == null) 
-				currentCluster = cDao.createFrameworkCluster(clusterId);
+			currentCluster = findOrCreateFrameworkCluster(clusterId);
 		}
 		// Parents of cluster found
 		else if (data.startsWith(PARENTS_REG)) {
@@ -159,89 +244,94 @@ public class SharedFrameworkProcessor implements IProcessor<String>, Observer {
 			LOG.debug("Found children of cluster {}: {}", clusterId, childrenArray);
 			
 			// Create new child cluster nodes for all found children and connect it to the current cluster node
-			for (int i = 0; i < childrenArray.length; i++) {
-				// Check if child already exists
-				Node childExists = cDao.findFrameworkClusterById(childrenArray[i]);
-				// Child has not been created, yet
-				if (childExists == null)
-					childExists = cDao.createFrameworkCluster(childrenArray[i]);
-				
-				// Create connection between current cluster and its child
-				cDao.addChildFrameworkCluster(currentCluster, childExists);
-			}
+			for (int i = 0; i < childrenArray.length; i++)
+				addChild(childrenArray[i]);
 		}
 		// Real data points
 		else if (!data.startsWith(COMMENT_LINE)) {
-			 /**
-			  * Each data line of the ELKI output should have the following format:
-			  *
-			  *	ID=<elki_point_id> <point_latitude> <point_longitude> '<point_id>' '<point_arrival_time>' '<point_leaving_time>' reachability=<point_reachability_value>[ predecessor=<point_predecesor_value>]
-			  *
-			  * Concrete example: ID=24346 8.3352576 98.5045304 '24346' '2009-03-22 05:11:18' '2009-03-22 05:57:59' reachability=808.5024539029628 predecessor=28126
-			  *	
-			  *	Each line has seven to eight data tokens. Only the tokens two to six are relevant here.
-			  */
-			
-			// Prepare regular expression to filter relevant data fields
-			Pattern p = Pattern.compile(DATA_REG);
-			Matcher m = p.matcher(data);
-			
-			String currentExtractedData = "";
-			// The latitude and longitude values have to be trimmed because they are extracted with a leading space
-			m.find();
-			double lat = 0.0;
-			currentExtractedData = m.group().trim();
-			try {
-				lat = Double.valueOf(currentExtractedData);
-			} catch (NumberFormatException e) {
-				LOG.error("The current latitude value [{}] could not be parsed as a decimal number:\n{}", currentExtractedData, e);
-			}
-			
-			m.find();
-			double lon = 0.0;
-			currentExtractedData = m.group().trim();
-			try {
-				lon = Double.valueOf(currentExtractedData);
-			} catch (NumberFormatException e) {
-				LOG.error("The current longitude value [{}] could not be parsed as a decimal number:\n{}", currentExtractedData, e);
-			}
-			
-			// The other values are enclosed by single quotes so ELKI treats them as labels; we have to remove the single quotes
-			m.find();
-			currentExtractedData = StringUtil.trimSingleQuotes(m.group());
-			int id = 0;
-			try {
-				id = Integer.valueOf(currentExtractedData);
-			} catch (NumberFormatException e) {
-				LOG.error("The current id value [{}] could not be parsed as an integer number:\n{}", currentExtractedData, e);
-			}
-			
-			// Neo4j does not support time stamps as node properties, 
-			// to be able to order stay points by time later on we 
-			// have to get the time as a long value
-			m.find();
-			currentExtractedData = StringUtil.trimSingleQuotes(m.group());
-			long arr = 0L;
-			try {
-				arr = Timestamp.valueOf(currentExtractedData).getTime();
-			} catch (IllegalArgumentException e) {
-				LOG.error("The current arrival time value [{}] could not be parsed as a time stamp:\n{}", currentExtractedData, e);
-			}
+			// Extract the stay point of the data line
+			addStayPoint(ClusterFileParser.parseStayPoint(data));
+		}
+	}
+	
+	/**
+	 * Builds the shared framework from the given clusters of a clustering
+	 * with ELKI. Each cluster is processed like a cluster file and pretty cluster
+	 * ids are generated afterwards.
+	 * 
+	 * @param clusters the clusters of the clustering.
+	 * @throws NullPointerException if the given list of clusters is <code>null</code>.
+	 * 
+	 * @see de.tub.clustering.StayPointClusterer StayPointClusterer
+	 */
+	public void processClusters(List<ELKICluster> clusters) throws NullPointerException {
+		if (clusters == null)
+			throw new NullPointerException(
+				"You provided a null value for the clusters. " +
+				"This parameter is expected to be non-null.");
+		
+		for (ELKICluster cluster : clusters) {
+			unitOfWork = Neo4JUnitOfWork.begin(batchSize);
 			
-			m.find();
-			currentExtractedData = StringUtil.trimSingleQuotes(m.group());
-			long leav = 0L;
 			try {
-				leav = Timestamp.valueOf(currentExtractedData).getTime();
-			} catch (IllegalArgumentException e) {
-				LOG.error("The current leaving time value [{}] could not be parsed as a time stamp:\n{}", currentExtractedData, e);
+				clusterId = cluster.getName();
+				LOG.debug("Found cluster {}.", clusterId);
+				
+				currentCluster = findOrCreateFrameworkCluster(clusterId);
+				hasParent = !cluster.getParents().isEmpty();
+				
+				for (String child : cluster.getChildren())
+					addChild(child);
+				for (ClusteredStayPoint stayPoint : cluster.getStayPoints())
+					addStayPoint(stayPoint);
+				
+				// The cluster is finished
+				finish();
+			} finally {
+				abortUnitOfWork();
 			}
-			
-			// Create stay point with extracted data
-			Node sp = sDao.createStayPoint(id, lat, lon, arr, leav);
-			// Add stay point to current cluster
-			cDao.addStayPoint(currentCluster, sp);
 		}
+		
+		// All clusters are finished, generate pretty cluster ids
+		generatePrettyClusterIds();
+	}
+	
+	/**
+	 * @param id the id of the framework cluster given by ELKI.
+	 * @return the node of the existing or the created framework cluster.
+	 */
+	private Node findOrCreateFrameworkCluster(String id) {
+		// Check if cluster with given id already exists
+		Node cluster = cDao.findFrameworkClusterById(id);
+		// Cluster has not been created, yet
+		if (cluster == null) 
+			cluster = cDao.createFrameworkCluster(id);
+		
+		return cluster;
+	}
+	
+	/**
+	 * Connects the current cluster to the child cluster with the given id
+	 * which is created if it does not exist.
+	 * 
+	 * @param childId the id of the child cluster given by ELKI.
+	 */
+	private void addChild(String childId) {
+		// Create connection between current cluster and its child
+		cDao.addChildFrameworkCluster(currentCluster, findOrCreateFrameworkCluster(childId));
+	}
+	
+	/**
+	 * Creates the given stay point and adds it to the current cluster.
+	 * 
+	 * @param stayPoint the stay point to add.
+	 */
+	private void addStayPoint(ClusteredStayPoint stayPoint) {
+		// Create stay point with extracted data
+		Node sp = sDao.createStayPoint(stayPoint.getId(), stayPoint.getLatitude(), stayPoint.getLongitude(), 
+				stayPoint.getArrivalTime(), stayPoint.getLeavingTime());
+		// Add stay point to current cluster
+		cDao.addStayPoint(currentCluster, sp);
 	}
 
 	@Override
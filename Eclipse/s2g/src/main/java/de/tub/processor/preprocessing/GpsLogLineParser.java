@@ -0,0 +1,121 @@
+package de.tub.processor.preprocessing;
+
+import de.tub.reader.file.ByteLine;
+import de.tub.util.DateTimeUtil;
+import de.tub.util.NumberUtil;
+
+/**
+ * This parser extracts latitude, longitude and recording time out of
+ * a line of a GPS log that has the format
+ * <i>latitude,longitude,0,altitude,date(as #days passed since 12/30/1899),date,time</i>.
+ * It scans the bytes of the line once and parses the values without
+ * creating any object. The recording time is computed from the number
+ * of days passed since 12/30/1899, the date and time columns are ignored.
+ * <p />
+ * The parser keeps the values of the last parsed line, hence, one parser
+ * is reused for all lines.
+ *
+ * @author Sebastian Oelke
+ *
+ */
+public class GpsLogLineParser {
+
+	// The columns of a line
+	private static final int LATITUDE = 0, LONGITUDE = 1, DAYS = 4;
+
+	private double latitude, longitude;
+	private long time;
+	// The ranges of latitude and longitude in the bytes of the last line
+	private int latitudeStart, latitudeEnd, longitudeStart, longitudeEnd;
+
+	/**
+	 * Parses the given line. The values of the line are available with the
+	 * getters of this parser if the line is valid.
+	 *
+	 * @param line the line to parse.
+	 * @param delimiter the character that separates the columns of the line.
+	 * @return <code>true</code> if the line contains a latitude, a longitude and
+	 * the number of days passed since 12/30/1899, otherwise <code>false</code>.
+	 */
+	public boolean parse(ByteLine line, char delimiter) {
+		byte[] bytes = line.getBytes();
+		int end = line.getOffset() + line.length();
+
+		int column = 0, start = line.getOffset();
+		try {
+			for (int i = start; i <= end && column <= DAYS; i++) {
+				if (i < end && bytes[i] != delimiter) continue;
+
+				// The column ends at i
+				switch (column) {
+				case LATITUDE:
+					latitude = NumberUtil.parseDouble(bytes, start, i);
+					latitudeStart = start;
+					latitudeEnd = i;
+					break;
+				case LONGITUDE:
+					longitude = NumberUtil.parseDouble(bytes, start, i);
+					longitudeStart = start;
+					longitudeEnd = i;
+					break;
+				case DAYS:
+					time = DateTimeUtil.daysSince1899ToMillis(NumberUtil.parseDouble(bytes, start, i));
+					break;
+				}
+				column++;
+				start = i + 1;
+			}
+		} catch (NumberFormatException e) {
+			return false;
+		}
+
+		return column > DAYS;
+	}
+
+	//###################################################################
+	// Setters & Getters
+	//###################################################################
+
+	public double getLatitude() {
+		return latitude;
+	}
+
+	public double getLongitude() {
+		return longitude;
+	}
+
+	/**
+	 * @return the recording time in milliseconds since 01/01/1970 UTC.
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 * @return the index of the first byte of the latitude in the bytes of the last line.
+	 */
+	public int getLatitudeStart() {
+		return latitudeStart;
+	}
+
+	/**
+	 * @return the index after the last byte of the latitude in the bytes of the last line.
+	 */
+	public int getLatitudeEnd() {
+		return latitudeEnd;
+	}
+
+	/**
+	 * @return the index of the first byte of the longitude in the bytes of the last line.
+	 */
+	public int getLongitudeStart() {
+		return longitudeStart;
+	}
+
+	/**
+	 * @return the index after the last byte of the longitude in the bytes of the last line.
+	 */
+	public int getLongitudeEnd() {
+		return longitudeEnd;
+	}
+}
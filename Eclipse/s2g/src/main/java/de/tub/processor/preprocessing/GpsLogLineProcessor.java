@@ -1,17 +1,22 @@
 package de.tub.processor.preprocessing;
 
-import java.io.FileWriter;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.util.StringTokenizer;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import de.tub.data.geo.BinaryTrajectoryWriter;
+import de.tub.data.geo.Trajectory;
 import de.tub.observer.Interests;
 import de.tub.observer.Observer;
 import de.tub.observer.Subject;
 import de.tub.reader.directory.IterativeDirectoryReader;
+import de.tub.reader.file.ByteLine;
 
 /**
  * This specific processor extracts the information of
@@ -19,6 +24,21 @@ import de.tub.reader.directory.IterativeDirectoryReader;
  * of a text file that has the format 
  * <i>latitude,longitude,0,altitude,date(as #days passed since 12/30/1899),date,time</i>.
  * <p />
+ * Each line is written as <i>user id, latitude, longitude, time</i> separated 
+ * by tabs to the output file. The time is given in milliseconds since 
+ * 01/01/1970 UTC and is computed from the number of days passed since 12/30/1899 
+ * (see {@link GpsLogLineParser}). Latitude and longitude are written as they 
+ * were given. Lines without these values are skipped.
+ * <p />
+ * Alternatively, the points are written to a binary file with a 
+ * <code>BinaryTrajectoryWriter</code>. The points of a user are collected, 
+ * ordered by their time and written as one block when the next user starts or 
+ * the processor finishes. The ids of the users have to be integers in this case.
+ * <p />
+ * The lines are processed as bytes and written through a buffer that is reused 
+ * for all lines. Given a reader that supports <code>IByteLineProcessor</code>s
+ * (e.g., the <code>NioTextFileLineReader</code>) no object is created per line.
+ * <p />
  * 
  * This processor handles data from the data set version 1.3 of the 
  * GeoLife project. See the following reference for more information:<br />
@@ -27,27 +47,59 @@ import de.tub.reader.directory.IterativeDirectoryReader;
  * @author Sebastian Oelke
  *
  */
-public class GpsLogLineProcessor extends AbstractTextLineProcessor implements Observer {
+public class GpsLogLineProcessor extends AbstractTextLineProcessor implements IByteLineProcessor, Observer {
 	
 	private static final Logger LOG = LoggerFactory.getLogger(GpsLogLineProcessor.class);
 	
-	private StringTokenizer tokens;
-	private String userId, latitude, longitude, timeStamp;
+	private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+	private static final int OUT_BUFFER_SIZE = 64 * 1024;
+	
+	private final GpsLogLineParser parser = new GpsLogLineParser();
+	private String userId;
+	private byte[] userIdBytes = "null".getBytes(ISO_8859_1);
+	
+	// The output line and the view of a given string, both are reused
+	private byte[] outLine = new byte[128];
+	private final ByteLine stringLine = new ByteLine();
 	
-	private PrintWriter writer;
+	private OutputStream writer;
+	
+	// The binary output and the points of the current user
+	private final boolean binary;
+	private BinaryTrajectoryWriter binaryWriter;
+	private final Trajectory points;
+	private Integer binaryUserId;
 	
 	/**
 	 * This constructor takes a file name parameter which defines
 	 * the full path and name to the file to write the results to.
+	 * The results are appended to the file as text.
 	 * 
 	 * @param outFileName the file to which to write results.
 	 */
 	public GpsLogLineProcessor(String outFileName) {
+		this(outFileName, false);
+	}
+	
+	/**
+	 * This constructor takes a file name parameter which defines
+	 * the full path and name to the file to write the results to.
+	 * 
+	 * @param outFileName the file to which to write results.
+	 * @param binary <code>true</code> to replace the file with a binary 
+	 * file, <code>false</code> to append the results to the file as text.
+	 */
+	public GpsLogLineProcessor(String outFileName, boolean binary) {
 		this.delimiter = ",";
+		this.binary = binary;
+		this.points = binary ? new Trajectory() : null;
 		
 		// Initialize a file writer
 		try {
-			writer = new PrintWriter(new FileWriter(outFileName, true));
+			if (binary)
+				binaryWriter = new BinaryTrajectoryWriter(new File(outFileName));
+			else
+				writer = new BufferedOutputStream(new FileOutputStream(outFileName, true), OUT_BUFFER_SIZE);
 		} catch (IOException e) {
 			LOG.error("An error occurred initializing the file writer with the file {}:\n{}", outFileName, e);
 		}
@@ -59,7 +111,18 @@ public class GpsLogLineProcessor extends AbstractTextLineProcessor implements Ob
 		if (data == null || data.isEmpty()) return;
 		
 		// Process the given data
-		processData(data);
+		byte[] bytes = data.getBytes(ISO_8859_1);
+		stringLine.set(bytes, 0, bytes.length);
+		processData(stringLine);
+	}
+	
+	@Override
+	public void newLine(ByteLine line) {
+		// Return if their is no data or the reference is null
+		if (line == null || line.isEmpty()) return;
+		
+		// Process the given data
+		processData(line);
 	}
 	
 	/**
@@ -69,10 +132,24 @@ public class GpsLogLineProcessor extends AbstractTextLineProcessor implements Ob
 	 */
 	@Override
 	public void finish() {
+		// Write the last user and close the binary writer.
+		if (binaryWriter != null) {
+			try {
+				writeUser();
+				binaryWriter.close();
+			} catch (IOException e) {
+				LOG.error("An error occurred closing the file writer:\n{}", e);
+			}
+			binaryWriter = null;
+		}
 		// Close the writer.
 		if (writer != null) { 
-			writer.flush();
-			writer.close();
+			try {
+				writer.close();
+			} catch (IOException e) {
+				LOG.error("An error occurred closing the file writer:\n{}", e);
+			}
+			writer = null;
 		}
 	}
 	
@@ -82,40 +159,108 @@ public class GpsLogLineProcessor extends AbstractTextLineProcessor implements Ob
 	 * 
 	 * @param data the data to process.
 	 */
-	private void processData(String data) {
-		tokens = new StringTokenizer(data, delimiter);
-		
-		// Save information of new GPS log entry: latitude, longitude, date, time
-		if (tokens.hasMoreTokens()) latitude = tokens.nextToken();
-		if (tokens.hasMoreTokens()) longitude = tokens.nextToken();
-		
-		// Skip three tokens as they contain irrelevant information
-		for (int i = 0; i < 3; i++)
-			if (tokens.hasMoreTokens()) tokens.nextToken();
-		
-		String date = "", time = "";
-		
-		if (tokens.hasMoreTokens()) date = tokens.nextToken();
-		if (tokens.hasMoreTokens()) time = tokens.nextToken();
+	private void processData(ByteLine data) {
+		if (!parser.parse(data, delimiter.charAt(0))) {
+			LOG.warn("The line '{}' of user {} is not a valid GPS log entry. It is skipped.", data, userId);
+			return;
+		}
 		
-		// Create time stamp from date and time tokens
-		timeStamp = date + " " + time;
+		if (binary)
+			addLastLine();
+		else
+			writeLastLineToFile(data.getBytes());
+	}
+	
+	/**
+	 * Adds the point of the last line to the points of the current user.
+	 */
+	private void addLastLine() {
+		if (binaryWriter == null)
+			LOG.error("The writer was not properly initialized. Could not write to the file.");
+		else if (binaryUserId != null)
+			points.add(parser.getLatitude(), parser.getLongitude(), parser.getTime());
+	}
+	
+	/**
+	 * Writes the points of the current user to the binary file.
+	 */
+	private void writeUser() throws IOException {
+		if (binaryWriter == null || binaryUserId == null || points.size() == 0) return;
 		
-		writeLastLineToFile();
+		points.sortByTime();
+		binaryWriter.write(binaryUserId, points);
+		points.clear();
 	}
 	
 	/**
 	 * Writes the information of the last line to a file.
+	 * 
+	 * @param bytes the bytes of the last line.
 	 */
-	private void writeLastLineToFile() {
+	private void writeLastLineToFile(byte[] bytes) {
 		if (writer != null) {
-			writer.println(userId + "\t" +  
-					latitude + "\t" + 
-					longitude + "\t" +
-					timeStamp);
+			int latitudeLength = parser.getLatitudeEnd() - parser.getLatitudeStart();
+			int longitudeLength = parser.getLongitudeEnd() - parser.getLongitudeStart();
+			// The time has at most 20 characters
+			ensureOutLineCapacity(userIdBytes.length + latitudeLength + longitudeLength + 24);
+			
+			int size = append(userIdBytes, 0, userIdBytes.length, 0);
+			outLine[size++] = '\t';
+			size = append(bytes, parser.getLatitudeStart(), latitudeLength, size);
+			outLine[size++] = '\t';
+			size = append(bytes, parser.getLongitudeStart(), longitudeLength, size);
+			outLine[size++] = '\t';
+			size = appendLong(parser.getTime(), size);
+			outLine[size++] = '\n';
+			
+			try {
+				writer.write(outLine, 0, size);
+			} catch (IOException e) {
+				LOG.error("An error occurred while writing to the file:\n{}", e);
+			}
 		}
 		else LOG.error("The writer was not properly initialized. Could not write to the file.");
 	}
+	
+	private void ensureOutLineCapacity(int capacity) {
+		if (outLine.length < capacity)
+			outLine = new byte[Math.max(capacity, outLine.length * 2)];
+	}
+	
+	private int append(byte[] bytes, int offset, int length, int position) {
+		System.arraycopy(bytes, offset, outLine, position, length);
+		return position + length;
+	}
+	
+	private int appendLong(long value, int position) {
+		if (value == 0) {
+			outLine[position] = '0';
+			return position + 1;
+		}
+		if (value < 0) {
+			outLine[position++] = '-';
+		} else {
+			// The digits are computed for the negative value that has no overflow
+			value = -value;
+		}
+		
+		// Write the digits from the end
+		int end = position + digits(value);
+		for (int i = end - 1; value != 0; i--) {
+			outLine[i] = (byte) ('0' - (value % 10));
+			value /= 10;
+		}
+		
+		return end;
+	}
+	
+	private static int digits(long negativeValue) {
+		int digits = 0;
+		for (long v = negativeValue; v != 0; v /= 10)
+			digits++;
+		
+		return digits;
+	}
 
 	@Override
 	public void update(Subject theSubject, Interests interest, Object arg) {
@@ -123,7 +268,7 @@ public class GpsLogLineProcessor extends AbstractTextLineProcessor implements Ob
 			// An IterativeDirectoryReader notifies us about new child directories that it reads
 			if (interest == Interests.NewChildDirectory) {
 				// A new user should be processed
-				userId = (String) arg;
+				setUserId((String) arg);
 				LOG.debug("New user {}.", userId);
 			} else if (interest == Interests.HasFinished) {
 				// Finish this processor
@@ -131,4 +276,44 @@ public class GpsLogLineProcessor extends AbstractTextLineProcessor implements Ob
 			}
 		}
 	}
+	
+	//###################################################################
+	// Setters & Getters
+	//###################################################################
+	
+	/**
+	 * Returns the id of the user whose lines are processed.
+	 * 
+	 * @return the id of the user.
+	 */
+	public String getUserId() {
+		return userId;
+	}
+	
+	/**
+	 * Sets the id of the user whose lines are processed. It is written
+	 * with each following line.
+	 * 
+	 * @param userId the id of the user.
+	 */
+	public void setUserId(String userId) {
+		if (binary) {
+			try {
+				writeUser();
+			} catch (IOException e) {
+				LOG.error("An error occurred while writing the user " + this.userId + " to the file.", e);
+			}
+			points.clear();
+			
+			try {
+				binaryUserId = Integer.valueOf(userId);
+			} catch (NumberFormatException e) {
+				LOG.error("The id of the user {} is not an integer. The user is skipped.", userId);
+				binaryUserId = null;
+			}
+		}
+		
+		this.userId = userId;
+		this.userIdBytes = String.valueOf(userId).getBytes(ISO_8859_1);
+	}
 }
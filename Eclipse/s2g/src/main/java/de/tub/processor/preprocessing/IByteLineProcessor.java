@@ -0,0 +1,25 @@
+package de.tub.processor.preprocessing;
+
+import de.tub.processor.IProcessor;
+import de.tub.reader.file.ByteLine;
+
+/**
+ * A processor of lines of text that can process a line as a
+ * view of the bytes a reader read (see {@link ByteLine}). Readers
+ * that support such views (e.g., the <code>NioTextFileLineReader</code>)
+ * do not create a <code>String</code> for each line for these processors.
+ *
+ * @author Sebastian Oelke
+ *
+ */
+public interface IByteLineProcessor extends IProcessor<String> {
+
+	/**
+	 * Give a processor a new line to process. The given line is reused
+	 * by the reader after this method returned.
+	 *
+	 * @param line the line to process.
+	 */
+	void newLine(ByteLine line);
+
+}
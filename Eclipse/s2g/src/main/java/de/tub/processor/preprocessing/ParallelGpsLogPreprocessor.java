@@ -0,0 +1,265 @@
+package de.tub.processor.preprocessing;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.tub.data.geo.BinaryTrajectoryReader;
+import de.tub.data.geo.BinaryTrajectoryWriter;
+import de.tub.data.geo.Trajectory;
+import de.tub.reader.ReaderFactory;
+import de.tub.reader.file.IterativeFileReader;
+import de.tub.reader.file.NioTextFileLineReader;
+import de.tub.util.FileUtil;
+
+/**
+ * This class preprocesses the GPS logs of the users of the GeoLife data set
+ * with a pool of threads. It writes the same output file as the sequential
+ * reader chain of an <code>IterativeDirectoryReader</code>, an
+ * <code>IterativeFileReader</code> and a <code>NioTextFileLineReader</code>
+ * that delegate to one <code>GpsLogLineProcessor</code>.
+ * <p />
+ * Each child directory of the root directory holds the logs of one user.
+ * The users are independent of each other, hence, each thread takes the next
+ * user and reads its logs with its own reader chain. Each user is written by
+ * its own <code>GpsLogLineProcessor</code> to its own file (a shard) in a
+ * directory next to the output file. The id of a user is its index in the
+ * root directory as with the <code>IterativeDirectoryReader</code>. After all
+ * users were processed the shards are appended to the output file in the order
+ * of the users and deleted.
+ * <p />
+ * In binary mode the shards are binary files. Their blocks are copied to a new
+ * binary output file in the order of the users (see {@link BinaryTrajectoryWriter}).
+ *
+ * @author Sebastian Oelke
+ *
+ */
+public class ParallelGpsLogPreprocessor {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ParallelGpsLogPreprocessor.class);
+
+	private static final String SHARD_DIRECTORY_SUFFIX = ".shards";
+
+	private final String directoryName, pathInChildDirectory, outFileName;
+	private final int lineOffset, threads;
+	private final boolean binary;
+
+	/**
+	 * @param directoryName the root directory that contains a directory per user.
+	 * @param pathInChildDirectory the path that is appended to each child of the root
+	 * directory or <code>null</code>.
+	 * @param outFileName the file to which to append the results.
+	 * @param lineOffset the number of lines to skip at the beginning of each log.
+	 * @param threads the number of threads. Values smaller than one are treated as one.
+	 */
+	public ParallelGpsLogPreprocessor(String directoryName, String pathInChildDirectory, String outFileName,
+			int lineOffset, int threads) {
+		this(directoryName, pathInChildDirectory, outFileName, lineOffset, threads, false);
+	}
+	
+	/**
+	 * @param directoryName the root directory that contains a directory per user.
+	 * @param pathInChildDirectory the path that is appended to each child of the root
+	 * directory or <code>null</code>.
+	 * @param outFileName the file to which to write the results.
+	 * @param lineOffset the number of lines to skip at the beginning of each log.
+	 * @param threads the number of threads. Values smaller than one are treated as one.
+	 * @param binary <code>true</code> to replace the output file with a binary file, 
+	 * <code>false</code> to append the results to it as text.
+	 */
+	public ParallelGpsLogPreprocessor(String directoryName, String pathInChildDirectory, String outFileName,
+			int lineOffset, int threads, boolean binary) {
+		this.directoryName = directoryName;
+		this.pathInChildDirectory = pathInChildDirectory;
+		this.outFileName = outFileName;
+		this.lineOffset = lineOffset;
+		this.threads = Math.max(threads, 1);
+		this.binary = binary;
+	}
+
+	/**
+	 * Preprocesses the logs of all users and appends them to the output file.
+	 *
+	 * @return the number of users that were appended to the output file.
+	 */
+	public int preprocess() {
+		// No folder to read specified
+		if (directoryName == null || directoryName.isEmpty()) {
+			LOG.error("This ParallelGpsLogPreprocessor requires the name of and the path to a root folder/directory.");
+			return 0;
+		}
+
+		File dir = new File(directoryName);
+		if (!dir.exists() || !dir.isDirectory()) {
+			LOG.error("The given folder {} could not be found or is not a directory. Stopping further execution.", directoryName);
+			return 0;
+		}
+
+		// Get children of root directory
+		final File[] children = dir.listFiles(FileUtil.acceptVisibleFilesFilter(true, false));
+		if (children == null) {
+			LOG.error("An error occurred while reading the children of the directory {}. Stopping further execution.", directoryName);
+			return 0;
+		}
+
+		final File shardDirectory = new File(outFileName + SHARD_DIRECTORY_SUFFIX);
+		// The files of the users are appended to, hence, files of an aborted run are deleted
+		if (shardDirectory.exists()) {
+			LOG.debug("Delete the files of the users of a previous run in {}.", shardDirectory);
+			FileUtil.deleteFileOrDirectory(shardDirectory);
+		}
+		if (shardDirectory.exists() || !shardDirectory.mkdirs()) {
+			LOG.error("The directory {} for the files of the users could not be created. Stopping further execution.", shardDirectory);
+			return 0;
+		}
+
+		// Each user is finished by exactly one thread
+		final boolean[] finished = new boolean[children.length];
+		final AtomicInteger nextUser = new AtomicInteger();
+
+		LOG.info("Preprocess {} users with {} threads.", children.length, threads);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<?>> futures = new ArrayList<Future<?>>(threads);
+		for (int t = 0; t < threads; t++) {
+			futures.add(executor.submit(new Runnable() {
+				@Override
+				public void run() {
+					// The reader chain of this thread, the line reader reuses its buffer for all logs
+					IterativeFileReader fileReader = (IterativeFileReader) ReaderFactory.instance().getIterativeFileReader();
+					fileReader.setFileFilter(FileUtil.acceptVisibleFilesFilter(false, true));
+					NioTextFileLineReader lineReader = (NioTextFileLineReader) ReaderFactory.instance().getNioTextFileLineReader();
+					lineReader.setOffset(lineOffset);
+					fileReader.setReader(lineReader);
+
+					int user;
+					while ((user = nextUser.getAndIncrement()) < children.length) {
+						GpsLogLineProcessor processor = new GpsLogLineProcessor(shard(shardDirectory, user).getPath(), binary);
+						processor.setUserId(String.valueOf(user));
+						lineReader.setProcessor(processor);
+
+						File childDirectory = pathInChildDirectory != null ?
+								new File(children[user], pathInChildDirectory) : children[user];
+						LOG.debug("Preprocess user {} in {}.", user, childDirectory);
+						try {
+							fileReader.setFile(childDirectory);
+							fileReader.read();
+						} finally {
+							processor.finish();
+						}
+
+						finished[user] = true;
+					}
+				}
+			}));
+		}
+		executor.shutdown();
+
+		// Wait for all threads, the finished users are visible after get()
+		for (Future<?> future : futures) {
+			try {
+				future.get();
+			} catch (ExecutionException e) {
+				LOG.error("A thread of the preprocessing stopped because of an error.", e.getCause());
+			} catch (InterruptedException e) {
+				LOG.error("The preprocessing was interrupted.", e);
+				executor.shutdownNow();
+				Thread.currentThread().interrupt();
+				return 0;
+			}
+		}
+
+		int merged = merge(shardDirectory, finished);
+		if (merged < children.length)
+			LOG.error("Only {} of {} users were preprocessed.", merged, children.length);
+
+		return merged;
+	}
+
+	/**
+	 * Appends the shards of the finished users to the output file in the order
+	 * of the users and deletes all shards.
+	 *
+	 * @param shardDirectory the directory of the shards.
+	 * @param finished the users whose shards are complete.
+	 * @return the number of appended shards.
+	 */
+	private int merge(File shardDirectory, boolean[] finished) {
+		int merged = 0;
+		try {
+			if (binary) {
+				BinaryTrajectoryWriter writer = new BinaryTrajectoryWriter(new File(outFileName));
+				try {
+					Trajectory trajectory = new Trajectory();
+					for (int user = 0; user < finished.length; user++) {
+						if (finished[user]) {
+							copy(shard(shardDirectory, user), writer, trajectory);
+							merged++;
+						}
+					}
+				} finally {
+					writer.close();
+				}
+			} else {
+				FileOutputStream out = new FileOutputStream(outFileName, true);
+				try {
+					FileChannel outChannel = out.getChannel();
+					for (int user = 0; user < finished.length; user++) {
+						if (finished[user]) {
+							append(shard(shardDirectory, user), outChannel);
+							merged++;
+						}
+					}
+				} finally {
+					out.close();
+				}
+			}
+		} catch (IOException e) {
+			LOG.error("An error occurred while appending the users to the file " + outFileName + ".", e);
+		} finally {
+			for (int user = 0; user < finished.length; user++)
+				shard(shardDirectory, user).delete();
+			shardDirectory.delete();
+		}
+
+		return merged;
+	}
+
+	private static void append(File shard, FileChannel outChannel) throws IOException {
+		FileInputStream in = new FileInputStream(shard);
+		try {
+			FileChannel inChannel = in.getChannel();
+			long size = inChannel.size();
+			long position = 0;
+			while (position < size)
+				position += inChannel.transferTo(position, size - position, outChannel);
+		} finally {
+			in.close();
+		}
+	}
+
+	private static void copy(File shard, BinaryTrajectoryWriter writer, Trajectory trajectory) throws IOException {
+		BinaryTrajectoryReader reader = new BinaryTrajectoryReader(shard);
+		try {
+			for (int i = 0; i < reader.getUsers(); i++)
+				writer.write(reader.getUserId(i), reader.loadAt(i, trajectory));
+		} finally {
+			reader.close();
+		}
+	}
+
+	private File shard(File shardDirectory, int user) {
+		return new File(shardDirectory, user + (binary ? ".bin" : ".txt"));
+	}
+}
@@ -1,26 +1,38 @@
 package de.tub.processor.staypoint;
 
+import java.sql.SQLException;
 import java.sql.Timestamp;
-import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import de.tub.data.geo.GeoPointWrapper;
-import de.tub.data.model.GeoPoint;
-import de.tub.data.model.StayPoint;
+import de.tub.data.geo.StayPointBatchWriter;
+import de.tub.data.geo.Trajectory;
+import de.tub.data.geo.TrajectoryLoader;
 import de.tub.data.model.User;
 import de.tub.observer.Interests;
 import de.tub.observer.Observer;
 import de.tub.observer.Subject;
 import de.tub.processor.IProcessor;
 import de.tub.processor.ISimulator;
+import de.tub.reader.model.UserReader;
 import de.tub.util.DateTimeUtil;
 import de.tub.util.GeoUtil;
 
 /**
  * This processor takes user entities and assesses, based on the
- * geographic points of the each user, their stay points.
+ * geographic points of the each user, their stay points. The points
+ * of a user are loaded into the primitive arrays of a {@link Trajectory}
+ * that is reused for all users.
+ * <p />
+ * The stay points are collected across users and written with batch
+ * inserts (see {@link #setBatchSize(int)}). They are written after the 
+ * user whose stay points fill the batch was processed, hence, the stay 
+ * points of a user are written in the same transaction. The remaining stay 
+ * points are written by {@link #finish()} which is also called when a 
+ * <code>UserReader</code> notifies this processor with the 
+ * <code>HasFinished</code> interest.
  * <p />
  * As this processor implements the <code>ISimulator</code> interface
  * it can be used in simulation mode in which the stay points of each 
@@ -38,6 +50,14 @@ public class GeoStayPointProcessor implements IProcessor<User>, ISimulator<Integ
 	private int distanceThreshold, timeThreshold, stayPointsOfUser;
 	private boolean simulation = false;
 	
+	// The points of the current user, the arrays are reused for all users
+	private final Trajectory trajectory = new Trajectory();
+	private final TrajectoryLoader trajectoryLoader = new TrajectoryLoader();
+	
+	// The number of stay points that are written at once
+	private int batchSize = 1;
+	private StayPointBatchWriter stayPointWriter = new StayPointBatchWriter(batchSize);
+	
 	/**
 	 * With this constructor the distance threshold as well as the
 	 * time threshold has to be defined. The simulation mode is 
@@ -59,6 +79,19 @@ public class GeoStayPointProcessor implements IProcessor<User>, ISimulator<Integ
 		this.simulation = simulation;
 	}
 	
+	/**
+	 * Copy constructor. The copy has the same thresholds, batch size and simulation 
+	 * mode as the given processor but its own state. Hence, the copy can process users
+	 * in another thread than the given processor.
+	 * 
+	 * @param processor the processor to copy.
+	 */
+	public GeoStayPointProcessor(final GeoStayPointProcessor processor) {
+		this(processor.distanceThreshold, processor.timeThreshold, processor.simulation);
+		
+		setBatchSize(processor.batchSize);
+	}
+	
 	@Override
 	public void newData(User data) {
 		// Return if the reference of the data is null
@@ -68,64 +101,68 @@ public class GeoStayPointProcessor implements IProcessor<User>, ISimulator<Integ
 		processData(data);
 	}
 
+	/**
+	 * Writes the stay points that were not written yet.
+	 * 
+	 * @throws IllegalStateException if the stay points could not be written.
+	 */
 	@Override
-	public void finish() {	}
+	public void finish() throws IllegalStateException {
+		writeStayPoints();
+	}
 	
 	private void processData(User data) {
 		LOG.debug("Process user: {}", data);
 		if (simulation) stayPointsOfUser = 0;
 		
 		// Get all geo points of a user
-		List<GeoPoint> points = GeoPoint.where("user_id = ?", data.getString("id")).orderBy("recorded_at asc");
-		int pointsSize = points.size();
+		try {
+			trajectoryLoader.load(data.getId(), trajectory);
+		} catch (SQLException e) {
+			LOG.error("Could not load the points of user " + data.getId() + ". The user is skipped.", e);
+			return;
+		}
+		int pointsSize = trajectory.size();
+		double[] latitudes = trajectory.getLatitudes();
+		double[] longitudes = trajectory.getLongitudes();
+		long[] times = trajectory.getTimes();
 		
 		LOG.debug("Found {} points.", pointsSize);
 		
 		for (int i = 0; i < pointsSize - 1; i++) {
 			// First point to check
-			GeoPoint point1 = points.get(i);
-			double lat1 = point1.getDouble("latitude");
-			double long1 = point1.getDouble("longitude");
+			double lat1 = latitudes[i];
+			double long1 = longitudes[i];
 			
 			for (int j = i + 1; j < pointsSize; j++) {
-				// Second point to check
-				GeoPoint point2 = points.get(j);
-				
-				// Calculate distance between two points				
-				double lat2 = point2.getDouble("latitude");
-				double long2 = point2.getDouble("longitude");
-				
 				// Compute distance in meters between geographic values of point1 and point2
-				double distance = GeoUtil.distanceInMeter(lat1, long1, lat2, long2);
-				LOG.debug("Distance in meters: {}", distance);
+				double distance = GeoUtil.distanceInMeter(lat1, long1, latitudes[j], longitudes[j]);
+				if (LOG.isTraceEnabled())
+					LOG.trace("Distance in meters: {}", distance);
 				
 				// The user has to stay within the distance threshold
 				if (distance > distanceThreshold) {
 					// Compute time the user stayed within the distance threshold
-					Timestamp p1TimeStamp = point1.getTimestamp("recorded_at");
-					Timestamp p2TimeStamp = point2.getTimestamp("recorded_at");
-					long differenceInMinutes = DateTimeUtil.differenceInMinutes(p1TimeStamp, p2TimeStamp);
+					long differenceInMinutes = DateTimeUtil.differenceInMinutes(times[i], times[j]);
 					
-					LOG.debug("Difference in minutes: {}", differenceInMinutes);
+					if (LOG.isTraceEnabled())
+						LOG.trace("Difference in minutes: {}", differenceInMinutes);
 					// The user has to stay within the distance threshold at least for the time threshold
 					if (differenceInMinutes > timeThreshold) {
 						// Compute the mean of latitude and longitude for a stay point
-						GeoPointWrapper meanGeoPoint = GeoUtil.computeMeanPosition(points.subList(i, j+1));
+						GeoPointWrapper meanGeoPoint = GeoUtil.computeMeanPosition(latitudes, longitudes, i, j + 1);
 						
 						// Test if in simulation mode
 						if (simulation) {
 							stayPointsOfUser++;
 						}
 						else {
-							// Create stay point and add it to current user
-							StayPoint s = new StayPoint();
-							s.set("latitude", meanGeoPoint.getMeanLatitude()).
-								set("longitude", meanGeoPoint.getMeanLongitude()).
-								set("arr_time", p1TimeStamp).
-								set("leav_time", p2TimeStamp);
-							data.add(s);
+							// Collect the stay point of the current user
+							stayPointWriter.add(data.getId(), meanGeoPoint.getMeanLatitude(), 
+									meanGeoPoint.getMeanLongitude(), times[i], times[j]);
 							
-							LOG.debug("Created: {}.", s);
+							if (LOG.isDebugEnabled())
+								LOG.debug("Created stay point from {} to {}.", new Timestamp(times[i]), new Timestamp(times[j]));
 						}
 					}
 					i = j - 1;
@@ -133,11 +170,33 @@ public class GeoStayPointProcessor implements IProcessor<User>, ISimulator<Integ
 				}
 			}
 		}
+		
+		// The stay points of a user are not split across batches
+		if (stayPointWriter.isFull())
+			writeStayPoints();
+	}
+	
+	/**
+	 * Writes the collected stay points. If they could not be written the transaction 
+	 * of the writer is rolled back and the stay points are not written at all.
+	 * 
+	 * @throws IllegalStateException if the stay points could not be written.
+	 */
+	private void writeStayPoints() throws IllegalStateException {
+		try {
+			stayPointWriter.flush();
+		} catch (SQLException e) {
+			throw new IllegalStateException("Could not write the stay points. The detection of stay points cannot be continued.", e);
+		}
 	}
 	
 	@Override
 	public void update(Subject theSubject, Interests interest, Object arg) {
-		LOG.warn("This processor does not support state changes of a subject, yet.");
+		if (theSubject instanceof UserReader && interest == Interests.HasFinished) {
+			// The reader read all users, write the remaining stay points
+			finish();
+		} else
+			LOG.warn("This processor does not support state changes of a subject, yet.");
 	}
 	
 	//###################################################################
@@ -165,4 +224,30 @@ public class GeoStayPointProcessor implements IProcessor<User>, ISimulator<Integ
 		return stayPointsOfUser;
 	}
 	
+	/**
+	 * Returns the number of stay points that are written at once.
+	 * 
+	 * @return the batch size.
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
+	
+	/**
+	 * Sets the number of stay points that are written at once. The stay 
+	 * points that were collected with the previous batch size are written.
+	 * 
+	 * @param batchSize the batch size. A batch size of one writes the stay
+	 * points of each user after it was processed.
+	 * @throws IllegalArgumentException if the given batch size is smaller than one.
+	 * @throws IllegalStateException if the collected stay points could not be written.
+	 */
+	public void setBatchSize(int batchSize) throws IllegalArgumentException, IllegalStateException {
+		StayPointBatchWriter writer = new StayPointBatchWriter(batchSize);
+		writeStayPoints();
+		
+		this.batchSize = batchSize;
+		this.stayPointWriter = writer;
+	}
+	
 }
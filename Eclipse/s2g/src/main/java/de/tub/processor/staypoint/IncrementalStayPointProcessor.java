@@ -0,0 +1,169 @@
+package de.tub.processor.staypoint;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.javalite.activejdbc.Base;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.tub.data.geo.StayPointBatchWriter;
+import de.tub.data.geo.StayPointState;
+import de.tub.data.geo.StayPointStateStore;
+import de.tub.data.geo.Trajectory;
+import de.tub.data.geo.TrajectoryLoader;
+import de.tub.data.model.StayPoint;
+import de.tub.data.model.User;
+import de.tub.processor.IProcessor;
+import de.tub.util.DateTimeUtil;
+import de.tub.util.GeoUtil;
+
+/**
+ * This processor continues the stay point detection of each user with the points
+ * that were recorded after the user was processed the last time. It detects the
+ * same stay points as the <code>GeoStayPointProcessor</code>: each point is compared
+ * with an anchor point and once a point leaves the distance threshold of the anchor
+ * a stay point is created if the user stayed longer than the time threshold. The
+ * leaving point becomes the next anchor. Instead of the points since the anchor only
+ * their sums are kept in the {@link StayPointState} of the user.
+ * <p />
+ * The new stay points and the state of a user are written in one transaction after
+ * the user was processed. The stay points of a user without a state are deleted before
+ * all of its points are processed, hence, stay points of a previous full detection are
+ * not created twice.
+ * <p />
+ * The points after the last anchor of a user may still become a stay point, hence,
+ * no stay point is created for them until a point leaves the distance threshold.
+ * Points that are recorded at or before the last processed point of a user are ignored.
+ *
+ * @author Sebastian Oelke
+ *
+ */
+public class IncrementalStayPointProcessor implements IProcessor<User> {
+
+	private static final Logger LOG = LoggerFactory.getLogger(IncrementalStayPointProcessor.class);
+
+	// The stay points of a user are written at once
+	private static final int BATCH_SIZE = 1000;
+
+	private final int distanceThreshold, timeThreshold;
+
+	// The new points of the current user, the arrays are reused for all users
+	private final Trajectory trajectory = new Trajectory();
+	private final TrajectoryLoader trajectoryLoader = new TrajectoryLoader();
+	private final StayPointStateStore stateStore = new StayPointStateStore();
+	private final StayPointBatchWriter stayPointWriter = new StayPointBatchWriter(BATCH_SIZE);
+
+	/**
+	 * @param distanceThreshold the maximum distance two locations/points of a user
+	 * can be apart and still be detected as a stay point.
+	 * @param timeThreshold the time a user has to stay within a certain area to be identified as
+	 * a stay point.
+	 */
+	public IncrementalStayPointProcessor(int distanceThreshold, int timeThreshold) {
+		this.distanceThreshold = distanceThreshold;
+		this.timeThreshold = timeThreshold;
+	}
+
+	@Override
+	public void newData(User data) {
+		// Return if the reference of the data is null
+		if (data == null) return;
+
+		// Process the given data
+		processData(data);
+	}
+
+	@Override
+	public void finish() { }
+
+	private void processData(User data) {
+		Object userId = data.getId();
+		LOG.debug("Process user: {}", data);
+
+		Connection connection = Base.connection();
+		try {
+			boolean autoCommit = connection.getAutoCommit();
+			if (autoCommit)
+				connection.setAutoCommit(false);
+
+			try {
+				StayPointState state = stateStore.load(userId);
+				if (state == null) {
+					// The stay points of a previous detection are detected again
+					StayPoint.delete("user_id = ?", userId);
+					state = new StayPointState();
+				}
+
+				trajectoryLoader.load(userId, state.isEmpty() ? null : state.getRecordedUntil(), trajectory);
+				int stayPoints = detect(userId, state, trajectory.getLatitudes(), trajectory.getLongitudes(),
+						trajectory.getTimes(), trajectory.size(), stayPointWriter);
+				LOG.debug("Detected {} new stay points in {} new points.", stayPoints, trajectory.size());
+
+				stayPointWriter.flush();
+				if (!state.isEmpty())
+					stateStore.save(userId, state);
+
+				if (autoCommit)
+					connection.commit();
+			} catch (SQLException e) {
+				if (autoCommit)
+					connection.rollback();
+				throw e;
+			} finally {
+				// Stay points of a failed user are not written with the next user
+				stayPointWriter.clear();
+				if (autoCommit)
+					connection.setAutoCommit(true);
+			}
+		} catch (SQLException e) {
+			LOG.error("Could not detect the stay points of user " + userId + ". The user is skipped.", e);
+		}
+	}
+
+	/**
+	 * Continues the stay point detection of a user with the given points.
+	 *
+	 * @param userId the id of the user.
+	 * @param state the state of the user. It is updated with the given points.
+	 * @param latitudes the latitudes of the points ordered by their time.
+	 * @param longitudes the longitudes of the points ordered by their time.
+	 * @param times the times of the points in milliseconds.
+	 * @param size the number of points.
+	 * @param stayPointWriter the writer that collects the detected stay points.
+	 * @return the number of detected stay points.
+	 */
+	public int detect(Object userId, StayPointState state, double[] latitudes, double[] longitudes, long[] times,
+			int size, StayPointBatchWriter stayPointWriter) {
+		int stayPoints = 0;
+
+		for (int i = 0; i < size; i++) {
+			if (state.isEmpty()) {
+				state.anchor(latitudes[i], longitudes[i], times[i]);
+				continue;
+			}
+
+			double distance = GeoUtil.distanceInMeter(state.getAnchorLatitude(), state.getAnchorLongitude(),
+					latitudes[i], longitudes[i]);
+
+			// The user has to stay within the distance threshold
+			if (distance > distanceThreshold) {
+				// The user has to stay within the distance threshold at least for the time threshold
+				if (DateTimeUtil.differenceInMinutes(state.getAnchorTime(), times[i]) > timeThreshold) {
+					// The mean position includes the point that left the distance threshold
+					int points = state.getPoints() + 1;
+					stayPointWriter.add(userId,
+							(state.getLatitudeSum() + latitudes[i]) / points,
+							(state.getLongitudeSum() + longitudes[i]) / points,
+							state.getAnchorTime(), times[i]);
+					stayPoints++;
+				}
+
+				state.anchor(latitudes[i], longitudes[i], times[i]);
+			} else
+				state.extend(latitudes[i], longitudes[i], times[i]);
+		}
+
+		return stayPoints;
+	}
+}
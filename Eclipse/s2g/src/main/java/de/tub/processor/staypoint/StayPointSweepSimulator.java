@@ -0,0 +1,224 @@
+package de.tub.processor.staypoint;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.tub.data.geo.Trajectory;
+import de.tub.data.geo.TrajectoryLoader;
+import de.tub.data.model.User;
+import de.tub.processor.IProcessor;
+import de.tub.processor.ISimulator;
+import de.tub.util.DateTimeUtil;
+import de.tub.util.GeoUtil;
+
+/**
+ * This simulator counts the stay points of users like a
+ * <code>GeoStayPointProcessor</code> in simulation mode but for a grid
+ * of distance and time thresholds at once. The points of each user are
+ * loaded once and are scanned once for each distance threshold. The scan
+ * of the detection does not depend on the time threshold, hence, the
+ * stay points of all time thresholds are counted during the same scan.
+ * <p />
+ * The simulation data of a user is a matrix with a row for each distance
+ * threshold and a column for each time threshold (both in ascending order).
+ * The matrices of all users are summed up (see {@link #getTotalStayPoints()}).
+ * Stay points are never persisted.
+ *
+ * @author Sebastian Oelke
+ *
+ */
+public class StayPointSweepSimulator implements IProcessor<User>, ISimulator<int[][]> {
+
+	private static final Logger LOG = LoggerFactory.getLogger(StayPointSweepSimulator.class);
+
+	private final int[] distanceThresholds, timeThresholds;
+	// The stay points of the current user and of all users by distance and time threshold
+	private final int[][] stayPointsOfUser, totalStayPoints;
+	private int users;
+
+	// The points of the current user, the arrays are reused for all users
+	private final Trajectory trajectory = new Trajectory();
+	private final TrajectoryLoader trajectoryLoader = new TrajectoryLoader();
+
+	/**
+	 * @param distanceThresholds the maximum distances two points of a user can be apart
+	 * and still be detected as a stay point.
+	 * @param timeThresholds the times a user has to stay within a certain area to be
+	 * identified as a stay point.
+	 * @throws NullPointerException if one of the given thresholds is <code>null</code>.
+	 * @throws IllegalArgumentException if one of the given thresholds is empty.
+	 */
+	public StayPointSweepSimulator(int[] distanceThresholds, int[] timeThresholds) throws NullPointerException, IllegalArgumentException {
+		if (distanceThresholds == null || timeThresholds == null)
+			throw new NullPointerException(
+				"You provided a null value for either the distance or the time thresholds. " +
+				"Both parameters are expected to be non-null.");
+		else if (distanceThresholds.length == 0 || timeThresholds.length == 0)
+			throw new IllegalArgumentException(
+				"You provided no distance or no time thresholds. " +
+				"At least one of each is needed to simulate the stay point detection.");
+
+		this.distanceThresholds = sortedCopy(distanceThresholds);
+		this.timeThresholds = sortedCopy(timeThresholds);
+
+		stayPointsOfUser = new int[distanceThresholds.length][timeThresholds.length];
+		totalStayPoints = new int[distanceThresholds.length][timeThresholds.length];
+	}
+
+	@Override
+	public void newData(User data) {
+		// Return if the reference of the data is null
+		if (data == null) return;
+
+		// Process the given data
+		processData(data);
+	}
+
+	@Override
+	public void finish() { }
+
+	private void processData(User data) {
+		LOG.debug("Simulate user: {}", data);
+		for (int[] row : stayPointsOfUser)
+			Arrays.fill(row, 0);
+
+		// Get all geo points of a user
+		try {
+			trajectoryLoader.load(data.getId(), trajectory);
+		} catch (SQLException e) {
+			LOG.error("Could not load the points of user " + data.getId() + ". The user is skipped.", e);
+			return;
+		}
+
+		for (int d = 0; d < distanceThresholds.length; d++) {
+			countStayPoints(trajectory.getLatitudes(), trajectory.getLongitudes(), trajectory.getTimes(),
+					trajectory.size(), distanceThresholds[d], timeThresholds, stayPointsOfUser[d]);
+
+			for (int t = 0; t < timeThresholds.length; t++)
+				totalStayPoints[d][t] += stayPointsOfUser[d][t];
+		}
+		users++;
+	}
+
+	/**
+	 * Scans the given points like the stay point detection of a <code>GeoStayPointProcessor</code>
+	 * with the given distance threshold and counts the stay points of each time threshold.
+	 *
+	 * @param latitudes the latitudes of the points ordered by their time.
+	 * @param longitudes the longitudes of the points ordered by their time.
+	 * @param times the times of the points in milliseconds.
+	 * @param size the number of points.
+	 * @param distanceThreshold the maximum distance two points can be apart and still be detected as a stay point.
+	 * @param timeThresholds the time thresholds in ascending order.
+	 * @param counts the counts of stay points by time threshold. The stay points are added to them.
+	 */
+	static void countStayPoints(double[] latitudes, double[] longitudes, long[] times, int size,
+			int distanceThreshold, int[] timeThresholds, int[] counts) {
+		for (int i = 0; i < size - 1; i++) {
+			double lat1 = latitudes[i];
+			double long1 = longitudes[i];
+
+			for (int j = i + 1; j < size; j++) {
+				// The user has to stay within the distance threshold
+				if (GeoUtil.distanceInMeter(lat1, long1, latitudes[j], longitudes[j]) > distanceThreshold) {
+					long differenceInMinutes = DateTimeUtil.differenceInMinutes(times[i], times[j]);
+
+					// A stay point for all time thresholds that the user stayed longer than
+					for (int t = 0; t < timeThresholds.length && differenceInMinutes > timeThresholds[t]; t++)
+						counts[t]++;
+
+					i = j - 1;
+					break;
+				}
+			}
+		}
+	}
+
+	private static int[] sortedCopy(int[] values) {
+		int[] copy = Arrays.copyOf(values, values.length);
+		Arrays.sort(copy);
+
+		return copy;
+	}
+
+	private static int[][] copy(int[][] matrix) {
+		int[][] copy = new int[matrix.length][];
+		for (int i = 0; i < matrix.length; i++)
+			copy[i] = Arrays.copyOf(matrix[i], matrix[i].length);
+
+		return copy;
+	}
+
+	//###################################################################
+	// Setters & Getters
+	//###################################################################
+
+	/**
+	 * This simulator is always in simulation mode.
+	 *
+	 * @return <code>true</code>.
+	 */
+	@Override
+	public boolean isSimulation() {
+		return true;
+	}
+
+	/**
+	 * This simulator is always in simulation mode.
+	 *
+	 * @param simulate has to be <code>true</code>.
+	 * @throws UnsupportedOperationException if the simulation mode is turned off.
+	 */
+	@Override
+	public void setSimulation(boolean simulate) throws UnsupportedOperationException {
+		if (!simulate)
+			throw new UnsupportedOperationException(
+				"The simulation mode of the stay point sweep cannot be turned off. " +
+				"Use a GeoStayPointProcessor to detect and persist stay points.");
+	}
+
+	/**
+	 * Returns the number of stay points of the last processed user by distance
+	 * and time threshold.
+	 *
+	 * @return a copy of the stay points of the last processed user.
+	 */
+	@Override
+	public int[][] getSimulationData() {
+		return copy(stayPointsOfUser);
+	}
+
+	/**
+	 * Returns the number of stay points of all processed users by distance
+	 * and time threshold.
+	 *
+	 * @return a copy of the stay points of all processed users.
+	 */
+	public int[][] getTotalStayPoints() {
+		return copy(totalStayPoints);
+	}
+
+	/**
+	 * @return the number of processed users.
+	 */
+	public int getUsers() {
+		return users;
+	}
+
+	/**
+	 * @return the distance thresholds in ascending order.
+	 */
+	public int[] getDistanceThresholds() {
+		return Arrays.copyOf(distanceThresholds, distanceThresholds.length);
+	}
+
+	/**
+	 * @return the time thresholds in ascending order.
+	 */
+	public int[] getTimeThresholds() {
+		return Arrays.copyOf(timeThresholds, timeThresholds.length);
+	}
+}
@@ -8,6 +8,7 @@ import de.tub.reader.directory.IterativeDirectoryReader;
 import de.tub.reader.file.IFileReader;
 import de.tub.reader.file.ITextFileReader;
 import de.tub.reader.file.IterativeFileReader;
+import de.tub.reader.file.NioTextFileLineReader;
 import de.tub.reader.file.TextFileLineReader;
 import de.tub.reader.model.IUserReader;
 import de.tub.reader.model.UserReader;
@@ -35,6 +36,7 @@ public class ReaderFactory extends AbstractReaderFactory {
 		
 		// Add initial prototypes to Reader registration
 		addReader(TextFileLineReader.class, new TextFileLineReader());
+		addReader(NioTextFileLineReader.class, new NioTextFileLineReader());
 		addReader(IterativeFileReader.class, new IterativeFileReader());
 		addReader(IterativeDirectoryReader.class, new IterativeDirectoryReader());
 		addReader(UserReader.class, new UserReader());
@@ -69,6 +71,23 @@ public class ReaderFactory extends AbstractReaderFactory {
 		}
 	}
 	
+	/**
+	 * Returns an instance of the <code>NioTextFileLineReader</code> class.
+	 * If it was not possible to create the instance 
+	 * <code>null</code> is returned.
+	 * 
+	 * @return an instance of the <code>NioTextFileLineReader</code> class.
+	 */
+	public ITextFileReader getNioTextFileLineReader() {
+		NioTextFileLineReader nioTextFileLineReader = (NioTextFileLineReader) getReader(NioTextFileLineReader.class);
+		try {
+			return nioTextFileLineReader.clone();
+		} catch (CloneNotSupportedException e) {
+			LOG.error("Cloning {} did not work:\n{}", NioTextFileLineReader.class, e);
+			return null;
+		}
+	}
+	
 	/**
 	 * Returns an instance of the <code>IterativeFileReader</code> class.
 	 * If it was not possible to create the instance 
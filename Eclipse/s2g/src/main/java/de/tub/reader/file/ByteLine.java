@@ -0,0 +1,127 @@
+package de.tub.reader.file;
+
+/**
+ * A line of text that is a view of a range of a byte array. Each
+ * byte is one character, hence, this view is meant for text in
+ * ASCII or ISO-8859-1 encoding (e.g., the GPS logs of the GeoLife
+ * data set).
+ * <p />
+ * A reader reuses one instance for all lines it reads and only moves
+ * the view to the next line. A processor must not keep a reference
+ * to the line after it processed it. Use <code>toString()</code> to
+ * get a copy of the line.
+ *
+ * @author Sebastian Oelke
+ *
+ */
+public class ByteLine implements CharSequence {
+
+	private byte[] bytes;
+	private int offset, length;
+
+	/**
+	 * Creates an empty line.
+	 */
+	public ByteLine() {
+		this(new byte[0], 0, 0);
+	}
+
+	/**
+	 * Creates a line that is a view of the given range of the given bytes.
+	 *
+	 * @param bytes the bytes of the line.
+	 * @param offset the index of the first byte of the line.
+	 * @param length the number of bytes of the line.
+	 * @throws IndexOutOfBoundsException if the given range is not within the given bytes.
+	 */
+	public ByteLine(byte[] bytes, int offset, int length) throws IndexOutOfBoundsException {
+		set(bytes, offset, length);
+	}
+
+	/**
+	 * Moves this view to the given range of the given bytes.
+	 *
+	 * @param bytes the bytes of the line.
+	 * @param offset the index of the first byte of the line.
+	 * @param length the number of bytes of the line.
+	 * @throws IndexOutOfBoundsException if the given range is not within the given bytes.
+	 */
+	public void set(byte[] bytes, int offset, int length) throws IndexOutOfBoundsException {
+		if (offset < 0 || length < 0 || offset + length > bytes.length)
+			throw new IndexOutOfBoundsException(
+				"The range from " + offset + " with length " + length +
+				" is not within the " + bytes.length + " bytes of the line.");
+
+		this.bytes = bytes;
+		this.offset = offset;
+		this.length = length;
+	}
+
+	/**
+	 * @return <code>true</code> if this line has no characters.
+	 */
+	public boolean isEmpty() {
+		return length == 0;
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if (index < 0 || index >= length)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Length: " + length);
+
+		return (char) (bytes[offset + index] & 0xff);
+	}
+
+	/**
+	 * Returns a view of the given range of this line. The view
+	 * shares the bytes of this line.
+	 */
+	@Override
+	public ByteLine subSequence(int start, int end) {
+		if (start < 0 || end > length || start > end)
+			throw new IndexOutOfBoundsException("Start: " + start + ", End: " + end + ", Length: " + length);
+
+		return new ByteLine(bytes, offset + start, end - start);
+	}
+
+	/**
+	 * Returns a copy of this line.
+	 */
+	@Override
+	public String toString() {
+		char[] chars = new char[length];
+		for (int i = 0; i < length; i++)
+			chars[i] = (char) (bytes[offset + i] & 0xff);
+
+		return new String(chars);
+	}
+
+	//###################################################################
+	// Setters & Getters
+	//###################################################################
+
+	/**
+	 * Returns the bytes of which this line is a view. The line
+	 * starts at <code>getOffset()</code> of the returned bytes.
+	 *
+	 * @return the bytes of this line.
+	 */
+	public byte[] getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * Returns the index of the first byte of this line.
+	 *
+	 * @return the offset of this line.
+	 */
+	public int getOffset() {
+		return offset;
+	}
+
+}
@@ -0,0 +1,227 @@
+package de.tub.reader.file;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.tub.observer.Interests;
+import de.tub.observer.Subject;
+import de.tub.processor.IProcessor;
+import de.tub.processor.preprocessing.IByteLineProcessor;
+
+/**
+ * This reader reads a file with the given name from the file
+ * system line by line like the <code>TextFileLineReader</code>.
+ * Instead of decoding the file into a <code>String</code> per line
+ * it reads the whole file into a byte buffer that is reused for
+ * all files and finds the line boundaries in the bytes.
+ * <p />
+ * A processor that implements <code>IByteLineProcessor</code> gets
+ * each line as a view of the buffer (see {@link ByteLine}), hence,
+ * no object is created per line. Other processors get a
+ * <code>String</code> per line. Each byte is one character, hence,
+ * the file has to be encoded in ASCII or ISO-8859-1. Lines end with
+ * '\n', '\r' or "\r\n". An <code>offset</code> can be specified to
+ * ignore a certain amount of lines from the beginning of the file.
+ * <p />
+ * The <code>NioTextFileLineReader</code> notifies its observers about
+ * its finishing of reading a file.
+ *
+ * @author Sebastian Oelke
+ *
+ */
+public class NioTextFileLineReader extends Subject implements ITextFileReader, Cloneable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(NioTextFileLineReader.class);
+
+	private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+	private String resourceName;
+	private int offset;
+	private IProcessor<String> processor;
+
+	// The content of the current file and the view of its current line, both are reused
+	private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+	private final ByteLine line = new ByteLine();
+
+	/**
+	 * Standard constructor.
+	 */
+	public NioTextFileLineReader() {}
+
+	/**
+	 * Copy constructor for use with the Prototype design pattern.
+	 * If you use <code>clone()</code> this constructor has to be used
+	 * and all instance variables have to be copied. The copy has its
+	 * own buffer.
+	 *
+	 * @param nioTextFileLineReader The <code>NioTextFileLineReader</code> which has to be copied.
+	 * @see de.tub.reader.file.NioTextFileLineReader#clone()
+	 */
+	public NioTextFileLineReader(final NioTextFileLineReader nioTextFileLineReader) {
+		this.resourceName = nioTextFileLineReader.getResourceName();
+		this.offset = nioTextFileLineReader.getOffset();
+	}
+
+	@Override
+	public void read() {
+		// No processor specified
+		if (processor == null) {
+			LOG.error("You have to specify a Processor (e.g., TextLineProcessor) for this Reader to work. A Reader is only " +
+					"responsible for accessing a data resource. The processing is done by a Processor.");
+			return;
+		}
+		// No file to read specified
+		if (resourceName == null || resourceName.isEmpty()) {
+			LOG.error("This NioTextFileLineReader requires the name of and the path to a text file.");
+			return;
+		}
+
+		// Access the file specified by the file name and read it line by line
+		try {
+			int size = readFile();
+			processLines(size);
+
+			// Notify all observers that the reader finished this resource
+			notifyObservers(Interests.HasFinished, null);
+		} catch (FileNotFoundException e) {
+			LOG.error("The file {} could not be found:\n{}", resourceName, e);
+		} catch (IOException e) {
+			LOG.error("An error occurred while reading the file {}:\n{}", resourceName, e);
+		}
+	}
+
+	/**
+	 * Reads the whole file into the buffer.
+	 *
+	 * @return the number of bytes of the file.
+	 * @throws IOException if the file could not be read or is larger than 2GB.
+	 */
+	private int readFile() throws IOException {
+		FileInputStream in = new FileInputStream(resourceName);
+		try {
+			FileChannel channel = in.getChannel();
+			long fileSize = channel.size();
+			if (fileSize > Integer.MAX_VALUE)
+				throw new IOException("The file has " + fileSize + " bytes. Only files with up to " +
+						Integer.MAX_VALUE + " bytes are supported.");
+
+			if (buffer.length < fileSize)
+				buffer = new byte[(int) fileSize];
+
+			ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, (int) fileSize);
+			while (byteBuffer.hasRemaining())
+				if (channel.read(byteBuffer) < 0) break;
+
+			return byteBuffer.position();
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Delegates the lines in the given number of bytes of the buffer
+	 * to the processor. The first <code>offset</code> lines are ignored.
+	 *
+	 * @param size the number of bytes in the buffer.
+	 */
+	private void processLines(int size) {
+		IByteLineProcessor byteLineProcessor = processor instanceof IByteLineProcessor ?
+				(IByteLineProcessor) processor : null;
+
+		int lineNumber = 0, start = 0;
+		while (start < size) {
+			// Find the end of the line
+			int end = start;
+			while (end < size && buffer[end] != '\n' && buffer[end] != '\r')
+				end++;
+
+			// Ignore offset lines
+			if (lineNumber++ >= offset) {
+				// Delegate the line data to the processor
+				line.set(buffer, start, end - start);
+				if (byteLineProcessor != null)
+					byteLineProcessor.newLine(line);
+				else
+					processor.newData(line.toString());
+			}
+
+			// Skip the line break, "\r\n" is one line break
+			if (end < size && buffer[end] == '\r' && end + 1 < size && buffer[end + 1] == '\n')
+				end++;
+			start = end + 1;
+		}
+	}
+
+	//###################################################################
+	// Setters & Getters
+	//###################################################################
+
+	/**
+	 * Sets the file name.
+	 */
+	@Override
+	public void setResourceName(String fileName) {
+		this.resourceName = fileName;
+	}
+
+	/**
+	 * Returns the file name.
+	 */
+	@Override
+	public String getResourceName()	{
+		return resourceName;
+	}
+
+	/**
+	 * Returns the offset that defines from which line to start
+	 * reading the file.
+	 *
+	 * @return the offset
+	 */
+	public int getOffset() {
+		return offset;
+	}
+
+	/**
+	 * Sets the offset that defines from which line to start
+	 * reading the file.
+	 *
+	 * @param offset the offset to set
+	 */
+	public void setOffset(int offset) {
+		this.offset = offset;
+	}
+
+	@Override
+	public IProcessor<String> getProcessor() {
+		return processor;
+	}
+
+	@Override
+	public void setProcessor(IProcessor<String> processor) {
+		this.processor = processor;
+	}
+
+	//###################################################################
+	// Other
+	//###################################################################
+
+	/**
+	 * This method clones an instance of the <code>NioTextFileLineReader</code>
+	 * class. Therefore it copies all of its properties to a new
+	 * instance.
+	 *
+	 * @see java.lang.Object#clone()
+	 */
+	@Override
+	public ITextFileReader clone() throws CloneNotSupportedException {
+		return new NioTextFileLineReader(this);
+	}
+
+}
@@ -1,7 +1,16 @@
 package de.tub.reader.model;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
+import org.javalite.activejdbc.LazyList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -10,6 +19,7 @@ import de.tub.observer.Interests;
 import de.tub.observer.Subject;
 import de.tub.processor.IProcessor;
 import de.tub.processor.staypoint.GeoStayPointProcessor;
+import de.tub.util.DBUtil;
 
 /**
  * This reader reads user resources from a
@@ -19,7 +29,18 @@ import de.tub.processor.staypoint.GeoStayPointProcessor;
  * <p />
  * This reader informs its observers after 
  * finishing each user resource with the
- * <code>UserFinished</code> interest.
+ * <code>UserFinished</code> interest and after finishing
+ * all user resources with the <code>HasFinished</code> interest.
+ * <p />
+ * The users are requested page by page ordered by their id
+ * (see {@link #setPageSize(int)}). The processing starts with 
+ * the first page and the memory that is needed does not depend 
+ * on the number of users.
+ * <p />
+ * The stay point detection of a <code>GeoStayPointProcessor</code> 
+ * can be run by several threads (see {@link #setThreads(int)}). 
+ * Each thread processes users with its own copy of the processor
+ * and its own connection to the database.
  * 
  * @author Sebastian Oelke
  *
@@ -28,11 +49,20 @@ public class UserReader extends Subject implements IUserReader, Cloneable {
 
 	private static final Logger LOG = LoggerFactory.getLogger(UserReader.class);
 	
+	/**
+	 * The default number of users that are requested at once.
+	 */
+	public static final int DEFAULT_PAGE_SIZE = 1000;
+	
 	private IProcessor<User> processor;
 	
 	// All users should be requested if not explicitly specified
 	private int minUserPoints, maxUserPoints = Integer.MAX_VALUE;
 	private int simulationData;
+	// The number of threads that process users
+	private int threads = 1;
+	// The number of users that are requested at once
+	private int pageSize = DEFAULT_PAGE_SIZE;
 	
 	/**
 	 * Standard constructor.
@@ -51,6 +81,8 @@ public class UserReader extends Subject implements IUserReader, Cloneable {
 		this.minUserPoints = userReader.minUserPoints;
 		this.maxUserPoints = userReader.maxUserPoints;
 		this.simulationData = userReader.simulationData;
+		this.threads = userReader.threads;
+		this.pageSize = userReader.pageSize;
 	}
 	
 	@Override
@@ -84,11 +116,6 @@ public class UserReader extends Subject implements IUserReader, Cloneable {
         // If the upper bound was set to -1 it is disabled
         int max = maxUserPoints;
         if (max == -1) max = Integer.MAX_VALUE;
-		
-		// Start reading users from database
-        // This generates a query which gathers all users at once
-        List<User> users = User.where("points_in_data_count BETWEEN ? AND ?", minUserPoints, max);
-        int size = users.size();
         
         // Check if processor is in simulation mode and cast it appropriately
         boolean simulationMode = false;
@@ -99,19 +126,57 @@ public class UserReader extends Subject implements IUserReader, Cloneable {
         		simulationMode = true;
         }
         
-        for (int i = 0; i < size; i++) {
-        	User user = users.get(i);
-        	// Give the user instance to the processor
-            processor.newData(user);
-            
-            // Notify all observers that the reader finished reading this user resource
-         	notifyObservers(Interests.UserFinished, user.getId());
-            
-            // Collect simulation data
-            if (simulationMode) { 
-            	simulationData += geoProcessor.getSimulationData();
-            }
-        }
+        // The stay point detection of users is independent of each other
+        ParallelDetection parallelDetection = null;
+        if (threads > 1 && geoProcessor != null)
+        	parallelDetection = new ParallelDetection(geoProcessor, simulationMode);
+        else if (threads > 1)
+        	LOG.warn("Only the stay point detection can process users in parallel. The users are processed by one thread.");
+        
+        // Start reading users from database page by page. Each page is processed 
+        // before the next one is requested, hence, only one page is held in memory
+        int read = 0;
+        Object lastId = null;
+        List<User> users;
+        do {
+        	users = readPage(lastId, max);
+        	int size = users.size();
+        	
+        	for (int i = 0; i < size; i++) {
+        		User user = users.get(i);
+        		
+        		if (parallelDetection != null) {
+        			parallelDetection.submit(user);
+        			continue;
+        		}
+        		
+	        	// Give the user instance to the processor
+	            processor.newData(user);
+	            
+	            // Notify all observers that the reader finished reading this user resource
+	         	notifyObservers(Interests.UserFinished, user.getId());
+	            
+	            // Collect simulation data
+	            if (simulationMode) { 
+	            	simulationData += geoProcessor.getSimulationData();
+	            }
+        	}
+        	
+        	if (size > 0)
+        		lastId = users.get(size - 1).getId();
+        	read += size;
+        	
+        	if (parallelDetection != null)
+        		parallelDetection.notifyFinishedUsers();
+        	
+        	LOG.debug("Read {} users.", read);
+        } while (pageSize > 0 && users.size() == pageSize);
+        
+        if (parallelDetection != null)
+        	parallelDetection.finish();
+        
+        // Notify all observers that the reader finished reading all user resources
+        notifyObservers(Interests.HasFinished, null);
         
 		if (simulationMode) {
 			LOG.info("Number of stay points: {}", simulationData);
@@ -119,6 +184,194 @@ public class UserReader extends Subject implements IUserReader, Cloneable {
 		}
 	}
 	
+	/**
+	 * Requests the next page of users ordered by their id. The users are paged 
+	 * by their id (keyset pagination), hence, the database does not have to skip 
+	 * the users of previous pages as with an offset and each page is requested
+	 * equally fast.
+	 * 
+	 * @param lastId the id of the last user of the previous page or <code>null</code> 
+	 * for the first page.
+	 * @param max the maximum points of a user.
+	 * @return the next page of users. If the page size is not greater than zero
+	 * all users are returned.
+	 */
+	private List<User> readPage(Object lastId, int max) {
+		LazyList<User> users;
+		if (lastId == null)
+			users = User.where("points_in_data_count BETWEEN ? AND ?", minUserPoints, max);
+		else
+			users = User.where("points_in_data_count BETWEEN ? AND ? AND id > ?", minUserPoints, max, lastId);
+		users = users.orderBy("id");
+		
+		if (pageSize > 0)
+			users = users.limit(pageSize);
+		
+		return users;
+	}
+	
+	/**
+	 * Processes the users that are submitted by the calling thread with a pool 
+	 * of threads. Each thread has its own copy of the given processor and its own 
+	 * connection to the database and takes the next user that was submitted. The 
+	 * observers are notified and the simulation data is collected in the calling 
+	 * thread. Hence, observers do not have to be thread-safe but the notifications 
+	 * follow the order in which the users were finished.
+	 * <p />
+	 * At most one page of users waits for a thread, hence, the calling thread is 
+	 * blocked while it submits users faster than they are processed.
+	 */
+	private class ParallelDetection {
+		private final BlockingQueue<User> submittedUsers;
+		private final BlockingQueue<FinishedUser> finishedUsers = new LinkedBlockingQueue<FinishedUser>();
+		private final ExecutorService executor;
+		private final List<Future<?>> futures;
+		
+		private int submitted, finished;
+		// Tells the threads that no more users are submitted
+		private volatile boolean noMoreUsers;
+		private boolean interrupted;
+		
+		/**
+		 * Starts the threads.
+		 * 
+		 * @param geoProcessor the processor to copy for each thread.
+		 * @param simulationMode <code>true</code> if the simulation data has to be collected.
+		 */
+		ParallelDetection(GeoStayPointProcessor geoProcessor, final boolean simulationMode) {
+			submittedUsers = new LinkedBlockingQueue<User>(pageSize > 0 ? pageSize : Integer.MAX_VALUE);
+			
+			LOG.info("Process users with {} threads.", threads);
+			executor = Executors.newFixedThreadPool(threads);
+			futures = new ArrayList<Future<?>>(threads);
+			for (int t = 0; t < threads; t++) {
+				final GeoStayPointProcessor workerProcessor = new GeoStayPointProcessor(geoProcessor);
+				
+				futures.add(executor.submit(new Runnable() {
+					@Override
+					public void run() {
+						// A connection to the database is only available in the thread that opened it
+						DBUtil.open();
+						try {
+							while (!noMoreUsers || !submittedUsers.isEmpty()) {
+								User user = submittedUsers.poll(100, TimeUnit.MILLISECONDS);
+								if (user == null) continue;
+								
+								workerProcessor.newData(user);
+								
+								finishedUsers.add(new FinishedUser(user.getId(), 
+										simulationMode ? workerProcessor.getSimulationData() : 0));
+							}
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						} finally {
+							try {
+								// Write the remaining stay points with the connection of this thread
+								workerProcessor.finish();
+							} finally {
+								DBUtil.close();
+							}
+						}
+					}
+				}));
+			}
+			executor.shutdown();
+		}
+		
+		/**
+		 * Hands the given user to the next free thread.
+		 * 
+		 * @param user the user to process.
+		 */
+		void submit(User user) {
+			if (interrupted) return;
+			
+			try {
+				// All threads stopped, at least one of them because of an error
+				while (!submittedUsers.offer(user, 1, TimeUnit.SECONDS)) {
+					if (executor.isTerminated()) return;
+					notifyFinishedUsers();
+				}
+				submitted++;
+			} catch (InterruptedException e) {
+				interrupted(e);
+			}
+		}
+		
+		/**
+		 * Notifies the observers about all users that were finished so far.
+		 */
+		void notifyFinishedUsers() {
+			FinishedUser user;
+			while ((user = finishedUsers.poll()) != null)
+				finished(user);
+		}
+		
+		/**
+		 * Waits until all submitted users were processed and stops the threads.
+		 */
+		void finish() {
+			noMoreUsers = true;
+			if (interrupted) return;
+			
+			try {
+				while (finished < submitted) {
+					FinishedUser user = finishedUsers.poll(1, TimeUnit.SECONDS);
+					if (user == null) {
+						// All threads stopped, at least one of them because of an error
+						if (executor.isTerminated() && finishedUsers.isEmpty()) break;
+						continue;
+					}
+					finished(user);
+				}
+				
+				for (Future<?> future : futures) {
+					try {
+						future.get();
+					} catch (ExecutionException e) {
+						LOG.error("A thread of the stay point detection stopped because of an error.", e.getCause());
+					}
+				}
+			} catch (InterruptedException e) {
+				interrupted(e);
+			}
+			
+			if (finished < submitted)
+				LOG.error("Only {} of {} users were processed.", finished, submitted);
+		}
+		
+		private void finished(FinishedUser user) {
+			finished++;
+			
+			// Notify all observers that the reader finished reading this user resource
+			notifyObservers(Interests.UserFinished, user.id);
+			
+			// Collect simulation data
+			simulationData += user.stayPoints;
+		}
+		
+		private void interrupted(InterruptedException e) {
+			interrupted = true;
+			LOG.error("The processing of users was interrupted.", e);
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * A user that was processed by a thread and its number of stay points
+	 * in simulation mode.
+	 */
+	private static class FinishedUser {
+		private final Object id;
+		private final int stayPoints;
+		
+		FinishedUser(Object id, int stayPoints) {
+			this.id = id;
+			this.stayPoints = stayPoints;
+		}
+	}
+	
 	//###################################################################
 	// Setters & Getters
 	//###################################################################
@@ -170,6 +423,48 @@ public class UserReader extends Subject implements IUserReader, Cloneable {
 		this.maxUserPoints = maxUserPoints;
 	}
 	
+	/**
+	 * Returns the number of threads that process users.
+	 * 
+	 * @return the number of threads.
+	 */
+	public int getThreads() {
+		return threads;
+	}
+	
+	/**
+	 * Sets the number of threads that process users. Only the 
+	 * stay point detection of a <code>GeoStayPointProcessor</code> 
+	 * is run by more than one thread.
+	 * 
+	 * @param threads the number of threads. Values smaller than two
+	 * let the calling thread process all users.
+	 */
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+	
+	/**
+	 * Returns the number of users that are requested at once.
+	 * 
+	 * @return the page size.
+	 */
+	public int getPageSize() {
+		return pageSize;
+	}
+	
+	/**
+	 * Sets the number of users that are requested at once. The next
+	 * page is requested after the users of the previous page were
+	 * handed to the processor.
+	 * 
+	 * @param pageSize the page size. Values smaller than one request
+	 * all users at once.
+	 */
+	public void setPageSize(int pageSize) {
+		this.pageSize = pageSize;
+	}
+	
 	//###################################################################
 	// Other
 	//###################################################################
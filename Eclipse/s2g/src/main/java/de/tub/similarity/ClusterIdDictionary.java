@@ -0,0 +1,99 @@
+package de.tub.similarity;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.tub.util.GraphUtil;
+
+/**
+ * The <code>ClusterIdDictionary</code> assigns a dense integer id to every
+ * hg cluster id, e.g., <code>3_17</code>. The integer ids start at zero and
+ * are assigned in the order the hg cluster ids are requested. The level of
+ * each hg cluster is extracted once when the id is assigned and is held
+ * alongside.
+ * <p />
+ * Integer ids allow to compare clusters and to look up values for them
+ * in arrays instead of comparing strings and using hashed maps. A dictionary
+ * can be shared by several threads.
+ *
+ * @author Sebastian Oelke
+ *
+ * @see de.tub.similarity.EncodedSequence
+ *
+ */
+public class ClusterIdDictionary {
+
+	/** Holds the mapping <code>[hg_cluster_id, dense_id]</code>. */
+	private Map<String, Integer> idOfHgCluster = new HashMap<String, Integer>();
+	private List<String> hgClusterIds = new ArrayList<String>();
+	private int[] levels = new int[16];
+
+	/**
+	 * Returns the integer id of the given hg cluster id. If the hg cluster id is
+	 * unknown to this dictionary a new integer id is assigned.
+	 *
+	 * @param hgClusterId the hg cluster id.
+	 * @return the integer id of the hg cluster id.
+	 * @throws NullPointerException if the given hg cluster id is <code>null</code>.
+	 * @throws IllegalArgumentException if the level of the hg cluster id cannot be extracted.
+	 */
+	public synchronized int idOf(String hgClusterId) throws NullPointerException, IllegalArgumentException {
+		if (hgClusterId == null)
+			throw new NullPointerException(
+				"You provided a null value for the hg cluster id. " +
+				"This parameter is expected to be non-null.");
+
+		Integer id = idOfHgCluster.get(hgClusterId);
+		if (id != null) return id;
+
+		String depth = GraphUtil.extractFrameworkClusterDepth(hgClusterId);
+		if (depth == null)
+			throw new IllegalArgumentException(
+				"The level of the hg cluster id '" + hgClusterId + "' could not be extracted. " +
+				"The expected format is [depth_in_tree]_[id].");
+
+		int newId = hgClusterIds.size();
+		if (newId == levels.length) {
+			int[] newLevels = new int[levels.length * 2];
+			System.arraycopy(levels, 0, newLevels, 0, levels.length);
+			levels = newLevels;
+		}
+
+		levels[newId] = Integer.parseInt(depth);
+		hgClusterIds.add(hgClusterId);
+		idOfHgCluster.put(hgClusterId, newId);
+
+		return newId;
+	}
+
+	/**
+	 * @param id the integer id of an hg cluster.
+	 * @return the hg cluster id for the given integer id.
+	 * @throws IndexOutOfBoundsException if the integer id was not assigned by this dictionary.
+	 */
+	public synchronized String hgClusterIdOf(int id) throws IndexOutOfBoundsException {
+		return hgClusterIds.get(id);
+	}
+
+	/**
+	 * @param id the integer id of an hg cluster.
+	 * @return the level of the hg cluster with the given integer id.
+	 * @throws IndexOutOfBoundsException if the integer id was not assigned by this dictionary.
+	 */
+	public synchronized int levelOf(int id) throws IndexOutOfBoundsException {
+		if (id < 0 || id >= hgClusterIds.size())
+			throw new IndexOutOfBoundsException("Id: " + id + ", Size: " + hgClusterIds.size());
+
+		return levels[id];
+	}
+
+	/**
+	 * @return the number of hg cluster ids known to this dictionary. All integer ids
+	 * are smaller than this value.
+	 */
+	public synchronized int size() {
+		return hgClusterIds.size();
+	}
+}
@@ -0,0 +1,201 @@
+package de.tub.similarity;
+
+import java.util.Arrays;
+
+/**
+ * The <code>EncodedSequence</code> holds a sequence of clusters visited by
+ * a user as parallel primitive arrays. The cluster at position <code>i</code>
+ * is given by the integer id of the hg cluster, its arrival and leaving time
+ * and the number of times the user successively stayed in it, each at index
+ * <code>i</code> of the corresponding array.
+ * <p />
+ * It holds the same information as a <code>Sequence</code> of
+ * <code>SequenceCluster</code>s but does not need an object for each
+ * cluster. The arrays are not copied and must not be changed.
+ *
+ * @author Sebastian Oelke
+ *
+ * @see de.tub.similarity.ClusterIdDictionary
+ * @see de.tub.similarity.Sequence
+ * @see de.tub.similarity.SequenceCluster
+ *
+ */
+public class EncodedSequence {
+
+	private final int[] clusterIds;
+	private final long[] arrivalTimes;
+	private final long[] leavingTimes;
+	private final int[] successivelyInCluster;
+
+	public EncodedSequence() {
+		this(new int[0], new long[0], new long[0], new int[0]);
+	}
+
+	/**
+	 * @param clusterIds the integer ids of the visited hg clusters.
+	 * @param arrivalTimes the arrival times of the clusters.
+	 * @param leavingTimes the leaving times of the clusters.
+	 * @param successivelyInCluster the number of times the user successively stayed in the clusters.
+	 * @throws NullPointerException if one of the arrays is <code>null</code>.
+	 * @throws IllegalArgumentException if the arrays differ in length.
+	 */
+	public EncodedSequence(int[] clusterIds, long[] arrivalTimes, long[] leavingTimes, int[] successivelyInCluster)
+			throws NullPointerException, IllegalArgumentException {
+		if (clusterIds == null || arrivalTimes == null || leavingTimes == null || successivelyInCluster == null)
+			throw new NullPointerException(
+				"You provided a null value for one of the arrays of the sequence. " +
+				"All parameters are expected to be non-null.");
+
+		if (arrivalTimes.length != clusterIds.length || leavingTimes.length != clusterIds.length
+				|| successivelyInCluster.length != clusterIds.length)
+			throw new IllegalArgumentException(
+				"You provided arrays of different length. All arrays of a sequence have to " +
+				"hold one value for each cluster.");
+
+		this.clusterIds = clusterIds;
+		this.arrivalTimes = arrivalTimes;
+		this.leavingTimes = leavingTimes;
+		this.successivelyInCluster = successivelyInCluster;
+	}
+
+	/**
+	 * Encodes the given sequence with the given dictionary.
+	 *
+	 * @param sequence the sequence to encode.
+	 * @param dictionary the dictionary to look up the integer ids of the hg clusters.
+	 * @return the encoded sequence.
+	 * @throws NullPointerException if the sequence or the dictionary is <code>null</code>.
+	 */
+	public static EncodedSequence encode(Sequence<SequenceCluster> sequence, ClusterIdDictionary dictionary)
+			throws NullPointerException {
+		if (sequence == null || dictionary == null)
+			throw new NullPointerException(
+				"You provided a null value for the sequence or the dictionary. " +
+				"Both parameters are expected to be non-null.");
+
+		int size = sequence.size();
+		int[] clusterIds = new int[size];
+		long[] arrivalTimes = new long[size];
+		long[] leavingTimes = new long[size];
+		int[] successivelyInCluster = new int[size];
+
+		for (int i = 0; i < size; i++) {
+			SequenceCluster cluster = sequence.getCluster(i);
+			clusterIds[i] = dictionary.idOf(cluster.getId());
+			arrivalTimes[i] = cluster.getArrivalTime();
+			leavingTimes[i] = cluster.getLeavingTime();
+			successivelyInCluster[i] = cluster.getSuccessivelyInCluster();
+		}
+
+		return new EncodedSequence(clusterIds, arrivalTimes, leavingTimes, successivelyInCluster);
+	}
+
+	/**
+	 * @return the number of clusters in this sequence.
+	 */
+	public int size() {
+		return clusterIds.length;
+	}
+
+	/**
+	 * @return <code>true</code> if this sequence contains no clusters, <code>false</code> otherwise.
+	 */
+	public boolean isEmpty() {
+		return clusterIds.length == 0;
+	}
+
+	//###################################################################
+	// Getters
+	//###################################################################
+
+	/**
+	 * @return the integer ids of the visited hg clusters.
+	 */
+	public int[] getClusterIds() {
+		return clusterIds;
+	}
+
+	/**
+	 * @return the arrival times of the clusters.
+	 */
+	public long[] getArrivalTimes() {
+		return arrivalTimes;
+	}
+
+	/**
+	 * @return the leaving times of the clusters.
+	 */
+	public long[] getLeavingTimes() {
+		return leavingTimes;
+	}
+
+	/**
+	 * @return the number of times the user successively stayed in the clusters.
+	 */
+	public int[] getSuccessivelyInCluster() {
+		return successivelyInCluster;
+	}
+
+	//###################################################################
+	// hashCode, equals & toString
+	//###################################################################
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+
+		result = prime * result + Arrays.hashCode(clusterIds);
+		result = prime * result + Arrays.hashCode(arrivalTimes);
+		result = prime * result + Arrays.hashCode(leavingTimes);
+		result = prime * result + Arrays.hashCode(successivelyInCluster);
+
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+
+		if (obj == null)
+			return false;
+
+		if (!(obj instanceof EncodedSequence))
+			return false;
+
+		EncodedSequence other = (EncodedSequence) obj;
+
+		return Arrays.equals(clusterIds, other.clusterIds)
+				&& Arrays.equals(arrivalTimes, other.arrivalTimes)
+				&& Arrays.equals(leavingTimes, other.leavingTimes)
+				&& Arrays.equals(successivelyInCluster, other.successivelyInCluster);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+
+		builder.append("\n--> ")
+				.append(EncodedSequence.class.getSimpleName())
+				.append(" with ")
+				.append(this.size())
+				.append(" elements:\n");
+
+		for (int i = 0; i < this.size(); i++) {
+			builder.append("[")
+					.append(i)
+					.append("] ")
+					.append(clusterIds[i])
+					.append(", ")
+					.append(successivelyInCluster[i])
+					.append(", ")
+					.append(arrivalTimes[i])
+					.append(", ")
+					.append(leavingTimes[i])
+					.append("\n");
+		}
+
+		return builder.toString();
+	}
+}
@@ -0,0 +1,63 @@
+package de.tub.similarity;
+
+/**
+ * The <code>EncodedSequenceWrapper</code> class wraps the
+ * encoded cluster sequences of two users.
+ *
+ * @author Sebastian Oelke
+ *
+ * @see de.tub.similarity.EncodedSequence EncodedSequence
+ * @see de.tub.similarity.SequenceWrapper SequenceWrapper
+ *
+ */
+public class EncodedSequenceWrapper {
+
+	private EncodedSequence firstSequence, secondSequence;
+
+	public EncodedSequenceWrapper() {}
+
+	public EncodedSequenceWrapper(EncodedSequence firstSequence, EncodedSequence secondSequence) {
+		this.firstSequence = firstSequence;
+		this.secondSequence = secondSequence;
+	}
+
+	//###################################################################
+	// Setters & Getters
+	//###################################################################
+
+	/**
+	 * Returns the sequence of the first user.
+	 *
+	 * @return the sequence of the first user.
+	 */
+	public EncodedSequence getFirstSequence() {
+		return firstSequence;
+	}
+
+	/**
+	 * Sets the sequence of the first user.
+	 *
+	 * @param firstSequence the sequence of the first user.
+	 */
+	public void setFirstSequence(EncodedSequence firstSequence) {
+		this.firstSequence = firstSequence;
+	}
+
+	/**
+	 * Returns the sequence of the second user.
+	 *
+	 * @return the sequence of the second user.
+	 */
+	public EncodedSequence getSecondSequence() {
+		return secondSequence;
+	}
+
+	/**
+	 * Sets the sequence of the second user.
+	 *
+	 * @param secondSequence the sequence of the second user.
+	 */
+	public void setSecondSequence(EncodedSequence secondSequence) {
+		this.secondSequence = secondSequence;
+	}
+}
@@ -0,0 +1,117 @@
+package de.tub.similarity;
+
+import java.util.Arrays;
+
+/**
+ * The <code>EncodedSimilarSequence</code> holds a maximal length similar
+ * sequence of two users as parallel primitive arrays. The cluster at position
+ * <code>i</code> is given by the integer id of the hg cluster and the minimum
+ * number of times both users successively stayed in it. This is all the
+ * information the similarity analysis needs of a similar sequence.
+ * <p />
+ * The arrays are not copied and must not be changed.
+ *
+ * @author Sebastian Oelke
+ *
+ * @see de.tub.similarity.ClusterIdDictionary
+ * @see de.tub.similarity.SimilarSequenceCluster
+ *
+ */
+public class EncodedSimilarSequence {
+
+	private final int[] clusterIds;
+	private final int[] successivelyInCluster;
+
+	/**
+	 * @param clusterIds the integer ids of the hg clusters.
+	 * @param successivelyInCluster the minimum number of times both users successively stayed in the clusters.
+	 * @throws NullPointerException if one of the arrays is <code>null</code>.
+	 * @throws IllegalArgumentException if the arrays differ in length.
+	 */
+	public EncodedSimilarSequence(int[] clusterIds, int[] successivelyInCluster)
+			throws NullPointerException, IllegalArgumentException {
+		if (clusterIds == null || successivelyInCluster == null)
+			throw new NullPointerException(
+				"You provided a null value for one of the arrays of the similar sequence. " +
+				"Both parameters are expected to be non-null.");
+
+		if (clusterIds.length != successivelyInCluster.length)
+			throw new IllegalArgumentException(
+				"You provided arrays of different length. Both arrays of a similar sequence have to " +
+				"hold one value for each cluster.");
+
+		this.clusterIds = clusterIds;
+		this.successivelyInCluster = successivelyInCluster;
+	}
+
+	/**
+	 * @return the number of clusters in this similar sequence.
+	 */
+	public int size() {
+		return clusterIds.length;
+	}
+
+	/**
+	 * @return <code>true</code> if this similar sequence contains no clusters, <code>false</code> otherwise.
+	 */
+	public boolean isEmpty() {
+		return clusterIds.length == 0;
+	}
+
+	//###################################################################
+	// Getters
+	//###################################################################
+
+	/**
+	 * @return the integer ids of the hg clusters.
+	 */
+	public int[] getClusterIds() {
+		return clusterIds;
+	}
+
+	/**
+	 * @return the minimum number of times both users successively stayed in the clusters.
+	 */
+	public int[] getSuccessivelyInCluster() {
+		return successivelyInCluster;
+	}
+
+	//###################################################################
+	// hashCode, equals & toString
+	//###################################################################
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+
+		result = prime * result + Arrays.hashCode(clusterIds);
+		result = prime * result + Arrays.hashCode(successivelyInCluster);
+
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+
+		if (obj == null)
+			return false;
+
+		if (!(obj instanceof EncodedSimilarSequence))
+			return false;
+
+		EncodedSimilarSequence other = (EncodedSimilarSequence) obj;
+
+		return Arrays.equals(clusterIds, other.clusterIds)
+				&& Arrays.equals(successivelyInCluster, other.successivelyInCluster);
+	}
+
+	@Override
+	public String toString() {
+		return EncodedSimilarSequence.class.getSimpleName()
+				+ " [clusterIds=" + Arrays.toString(clusterIds)
+				+ ", successivelyInCluster=" + Arrays.toString(successivelyInCluster) + "]";
+	}
+}
@@ -1,158 +1,224 @@
 package de.tub.similarity;
 
-import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * The <code>Sequence</code> class is backed by a 
- * <code>LinkedList</code> and can be used in connection
- * with the <code>SequenceCluster</code> to map a
- * sequence of clusters visited by a user.
- * 
+ * The <code>Sequence</code> class is an immutable sequence that is
+ * backed by an array and can be used in connection with the
+ * <code>SequenceCluster</code> to map a sequence of clusters
+ * visited by a user.
+ * <p />
+ * Clusters are accessed by their index in constant time. Adding a
+ * cluster does not change a sequence but returns a new one. The new
+ * sequence shares the array of this sequence as long as no other
+ * sequence was appended to this sequence before. Hence, appending
+ * clusters one after another is as cheap as adding them to a list while
+ * several sequences can be derived from the same prefix, e.g., while
+ * backtracking common subsequences. A sub-sequence is a view on the
+ * array of this sequence and is created in constant time as well.
+ *
  * @author Sebastian Oelke
- * 
+ *
  * @see de.tub.similarity.SequenceCluster SequenceCluster
- * @see java.util.LinkedList LinkedList
  *
  */
 public class Sequence<E> {
-	
-	private LinkedList<E> sequence = new LinkedList<E>();
-	
-	public Sequence() {}
-	
+
+	/** The capacity of the array of a sequence the first cluster is added to. */
+	private static final int DEFAULT_CAPACITY = 10;
+
+	/** The empty buffer is never written to as it has no capacity. */
+	private static final Buffer EMPTY_BUFFER = new Buffer(new Object[0], 0);
+
+	private final Buffer buffer;
+	private final int offset;
+	private final int size;
+
+	public Sequence() {
+		this(EMPTY_BUFFER, 0, 0);
+	}
+
 	/**
 	 * Initializes this sequence with the given list of elements of the same type.
-	 * 
+	 *
 	 * @param initialSequence the list of elements to use when initializing this sequence.
 	 */
 	public Sequence(List<E> initialSequence) {
-		this.sequence = new LinkedList<E>(initialSequence);
+		this(new Buffer(initialSequence.toArray(), initialSequence.size()), 0, initialSequence.size());
 	}
-	
+
 	/**
-	 * Initializes this sequence with the given sequence of the same type.
-	 * 
+	 * Initializes this sequence with the given sequence of the same type. As
+	 * sequences are immutable both sequences share the same array.
+	 *
 	 * @param initialSequence the sequence to use when initializing this sequence.
 	 */
 	public Sequence(Sequence<E> initialSequence) {
-		this.sequence = initialSequence.sequence;
+		this(initialSequence.buffer, initialSequence.offset, initialSequence.size);
 	}
-	
-	/**
-	 * Adds a cluster to this sequence.
-	 * 
-	 * @param cluster the cluster to add to this sequence.
-	 * @return <code>true</code> if the sequence changed as a result 
-	 * to the call, <code>false</code> otherwise.
-	 */
-	public Sequence<E> addCluster(E cluster) {
-		sequence.add(cluster);
-		return new Sequence<E>(sequence);
+
+	private Sequence(Buffer buffer, int offset, int size) {
+		this.buffer = buffer;
+		this.offset = offset;
+		this.size = size;
 	}
-	
+
 	/**
-	 * Removes the given cluster from this sequence.
-	 *  
-	 * @param cluster the cluster to remove.
-	 * @return <code>true</code> if the sequence contained the cluster. 
+	 * Adds a cluster to the end of this sequence. This sequence
+	 * is not changed.
+	 *
+	 * @param cluster the cluster to add.
+	 * @return a new sequence holding the clusters of this sequence
+	 * followed by the given cluster.
 	 */
-	public boolean removeCluster(E cluster) {
-		return sequence.remove(cluster);
+	public Sequence<E> addCluster(E cluster) {
+		int end = offset + size;
+
+		// Append to the shared array if no other sequence claimed the next slot
+		if (end < buffer.elements.length && buffer.used.compareAndSet(end, end + 1)) {
+			buffer.elements[end] = cluster;
+			return new Sequence<E>(buffer, offset, size + 1);
+		}
+
+		// Copy the clusters of this sequence to a new array with spare capacity
+		Object[] elements = new Object[Math.max(DEFAULT_CAPACITY, size + (size >> 1) + 1)];
+		System.arraycopy(buffer.elements, offset, elements, 0, size);
+		elements[size] = cluster;
+
+		return new Sequence<E>(new Buffer(elements, size + 1), 0, size + 1);
 	}
-	
+
 	/**
 	 * Returns the cluster at the position of the index.
-	 * 
+	 *
 	 * @param index the index of the cluster in this sequence to receive.
 	 * @return the cluster at the specified index in this sequence.
+	 * @throws IndexOutOfBoundsException if the index is out of the range of this sequence.
 	 */
-	public E getCluster(int index) {
-		return sequence.get(index);
+	@SuppressWarnings("unchecked")
+	public E getCluster(int index) throws IndexOutOfBoundsException {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+
+		return (E) buffer.elements[offset + index];
 	}
-	
+
 	/**
 	 * Returns the number of elements in this sequence.
-	 * 
+	 *
 	 * @return the number of elements in the sequence.
 	 */
 	public int size() {
-		return sequence.size();
+		return size;
 	}
-	
+
 	/**
 	 * Returns <code>true</code> if this sequence contains no
 	 * clusters.
-	 * 
+	 *
 	 * @return <code>true</code> if this sequence contains no clusters, <code>false</code> otherwise.
 	 */
 	public boolean isEmpty() {
-		return sequence.isEmpty();
+		return size == 0;
 	}
-	
+
 	/**
-	 * Uses the <code>sublist()</code> method of the underlying 
-	 * <code>LinkedList</code> to create a sub-sequence. This method 
-	 * returns a new sequence instance that consists of the elements
-	 * of the extracted sub-sequence.
-	 * 
+	 * Creates a sub-sequence of this sequence. The sub-sequence shares
+	 * the array of this sequence and is created in constant time.
+	 *
 	 * @param fromIndex the start index of the sub-sequence, inclusive.
 	 * @param toIndex the end index of the sub-sequence, exclusive.
-	 * @return a new sequence holding the elements of the extracted 
+	 * @return a new sequence holding the elements of the extracted
 	 * sub-sequence.
-	 * 
-	 * @see java.util.LinkedList#subList(int, int)
+	 * @throws IndexOutOfBoundsException if one of the indices is out of the
+	 * range of this sequence or if the start index is greater than the end index.
 	 */
-	public Sequence<E> subList(int fromIndex, int toIndex) {
-		return new Sequence<E>(sequence.subList(fromIndex, toIndex));
+	public Sequence<E> subList(int fromIndex, int toIndex) throws IndexOutOfBoundsException {
+		if (fromIndex < 0 || toIndex > size || fromIndex > toIndex)
+			throw new IndexOutOfBoundsException(
+					"From index: " + fromIndex + ", To index: " + toIndex + ", Size: " + size);
+
+		return new Sequence<E>(buffer, offset + fromIndex, toIndex - fromIndex);
 	}
-	
+
+	//###################################################################
+	// Buffer
+	//###################################################################
+
+	/**
+	 * The array shared by several sequences. Each sequence only reads the
+	 * range of the array it was created with. The number of used slots
+	 * is the end of the longest sequence that was appended to the array.
+	 */
+	private static final class Buffer {
+
+		private final Object[] elements;
+		private final AtomicInteger used;
+
+		private Buffer(Object[] elements, int used) {
+			this.elements = elements;
+			this.used = new AtomicInteger(used);
+		}
+	}
+
 	//###################################################################
 	// hashCode, equals & toString
 	//###################################################################
-	
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
-		
-		result = prime * result
-				+ ((sequence == null) ? 0 : sequence.hashCode());
-		
+
+		// Same hash code as a list holding the clusters of this sequence
+		int sequenceHashCode = 1;
+		for (int i = offset; i < offset + size; i++) {
+			Object current = buffer.elements[i];
+			sequenceHashCode = prime * sequenceHashCode + (current == null ? 0 : current.hashCode());
+		}
+
+		result = prime * result + sequenceHashCode;
+
 		return result;
 	}
-	
+
 	@Override
 	public boolean equals(Object obj) {
 		if (this == obj)
 			return true;
-		
+
 		if (obj == null)
 			return false;
-		
+
 		if (!(obj instanceof Sequence))
 			return false;
-		
-		Sequence<E> other = (Sequence<E>) obj;
-		if (sequence == null) {
-			if (other.sequence != null)
-				return false;
-		} else if (!sequence.equals(other.sequence))
+
+		Sequence<?> other = (Sequence<?>) obj;
+		if (size != other.size)
 			return false;
-		
+
+		for (int i = 0; i < size; i++) {
+			Object current = buffer.elements[offset + i];
+			Object otherCurrent = other.buffer.elements[other.offset + i];
+
+			if (current == null ? otherCurrent != null : !current.equals(otherCurrent))
+				return false;
+		}
+
 		return true;
 	}
-	
+
 	@Override
 	public String toString() {
 		StringBuilder builder = new StringBuilder();
-		
+
 		builder.append("\n--> ")
 				.append(Sequence.class.getSimpleName())
 				.append(" with ")
 				.append(this.size())
 				.append(" elements:\n");
-		
+
 		for (int i = 0; i < this.size(); i++) {
 			E current = this.getCluster(i);
 			builder.append("[")
@@ -161,7 +227,7 @@ public class Sequence<E> {
 					.append(current.toString())
 					.append("\n");
 		}
-		
+
 		return builder.toString();
 	}
 }
@@ -0,0 +1,532 @@
+package de.tub.similarity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.neo4j.graphdb.Node;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.tub.data.dao.DAOFactory;
+import de.tub.data.dao.Neo4JUserDAO;
+import de.tub.similarity.analysis.HgClusterFrequencyTable;
+import de.tub.similarity.analysis.Neo4JSimilarityAnalyzer;
+import de.tub.similarity.extraction.ClusterUserIndex;
+import de.tub.similarity.extraction.Neo4JSequenceExtractor;
+import de.tub.similarity.extraction.UserSequenceStore;
+import de.tub.similarity.matching.EncodedSequenceMatcher;
+import de.tub.similarity.matching.Neo4JSequenceMatcher;
+
+/**
+ * The <code>SimilarityCalculator</code> computes the spatial similarity
+ * between all pairs of the given users. For each pair the cluster sequences
+ * are extracted, matched and finally analyzed. The result is a matrix
+ * whose upper triangle holds the similarity scores, i.e., the similarity
+ * of the users <code>i</code> and <code>j</code> with <code>i &lt; j</code>
+ * is stored at <code>[i][j]</code>.
+ * <p />
+ * With more than one thread the upper triangle of the matrix is split into
+ * tiles which are processed by a fixed pool of workers. Each tile uses its
+ * own extractor, matcher and analyzer. As every pair is computed the same way
+ * in both modes the results do not depend on the number of threads.
+ * <p />
+ * If a <code>ClusterUserIndex</code> is set only the pairs of users that share
+ * at least one hg cluster are computed. All other pairs keep a score of zero.
+ * <p />
+ * If the sequence store holds a <code>ClusterIdDictionary</code> the sequences
+ * of each pair are extracted, matched and analyzed as encoded sequences.
+ *
+ * @author Sebastian Oelke
+ *
+ */
+public class SimilarityCalculator {
+
+	private static final Logger LOG = LoggerFactory.getLogger(SimilarityCalculator.class);
+
+	/** The default number of rows and columns of a tile. */
+	public static final int DEFAULT_TILE_SIZE = 32;
+
+	private List<Node> users;
+
+	private int fromLevel = -1;
+	private int toLevel = -1;
+	private int splitThreshold;
+	private int minSequenceLength = 1;
+	private double temporalConstraintThreshold;
+	private UserSequenceStore sequenceStore;
+	private ClusterUserIndex clusterUserIndex;
+	private HgClusterFrequencyTable frequencyTable;
+	private int maxSimilarSequences = -1;
+
+	private int threads = 1;
+	private int tileSize = DEFAULT_TILE_SIZE;
+
+	/**
+	 * @param users the users to compute the pair-wise similarity for.
+	 * @param splitThreshold the split threshold used by the sequence matcher in hours.
+	 * @param minSequenceLength the minimum length of a similar sequence.
+	 * @param temporalConstraintThreshold the temporal constraint threshold used by the sequence matcher.
+	 */
+	public SimilarityCalculator(List<Node> users, int splitThreshold, int minSequenceLength, double temporalConstraintThreshold) {
+		this.users = users;
+		this.splitThreshold = splitThreshold;
+		this.minSequenceLength = minSequenceLength;
+		this.temporalConstraintThreshold = temporalConstraintThreshold;
+	}
+
+	/**
+	 * Computes the similarity between all pairs of users.
+	 *
+	 * @return a matrix holding the similarity scores of all user pairs in its upper triangle.
+	 * @throws NullPointerException if the list of users is <code>null</code>.
+	 * @throws IllegalStateException if the calculation is interrupted while the tiles are
+	 * processed in parallel. Like any other error of a tile the remaining tiles are cancelled.
+	 */
+	public double[][] calculate() throws NullPointerException, IllegalStateException {
+		if (users == null)
+			throw new NullPointerException(
+				"You provided a null value for the list of users. " +
+				"This parameter is expected to be non-null.");
+
+		int usersCount = users.size();
+
+		// Create matrix that holds similarity results
+		double[][] similarityResults = new double[usersCount][usersCount];
+
+		// Process the whole matrix on the current thread
+		if (threads <= 1) {
+			new SimilarityTile(similarityResults, 0, usersCount, 0, usersCount).call();
+			return similarityResults;
+		}
+
+		// Split the upper triangle of the matrix into tiles
+		List<SimilarityTile> tiles = new ArrayList<SimilarityTile>();
+		for (int rowStart = 0; rowStart < usersCount; rowStart += tileSize) {
+			int rowEnd = Math.min(rowStart + tileSize, usersCount);
+
+			for (int columnStart = rowStart; columnStart < usersCount; columnStart += tileSize) {
+				int columnEnd = Math.min(columnStart + tileSize, usersCount);
+				tiles.add(new SimilarityTile(similarityResults, rowStart, rowEnd, columnStart, columnEnd));
+			}
+		}
+
+		LOG.info("Calculate similarity of {} users in {} tiles with {} threads.",
+				new Object[] { usersCount, tiles.size(), threads });
+
+		// Process the tiles with a fixed pool of workers
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<Integer>> futures = new ArrayList<Future<Integer>>(tiles.size());
+		try {
+			for (SimilarityTile tile : tiles)
+				futures.add(executor.submit(tile));
+
+			// Wait for all tiles, this also makes the written results visible
+			for (Future<Integer> future : futures)
+				future.get();
+		} catch (ExecutionException e) {
+			// The matrix is incomplete without the failed tile, do not return it
+			cancel(futures);
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			else if (cause instanceof Error)
+				throw (Error) cause;
+			throw new IllegalStateException("An error occurred while calculating the similarity of a tile.", cause);
+		} catch (InterruptedException e) {
+			cancel(futures);
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("The similarity calculation was interrupted.", e);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		return similarityResults;
+	}
+
+	//###################################################################
+	// Helper
+	//###################################################################
+
+	/**
+	 * Cancels the given tiles that are still waiting or running.
+	 *
+	 * @param futures the futures of the tiles.
+	 */
+	private static void cancel(List<Future<Integer>> futures) {
+		for (Future<Integer> future : futures)
+			future.cancel(true);
+	}
+
+	/**
+	 * A tile of the similarity matrix. Only cells of the upper triangle
+	 * within the tile are computed. Each tile creates its own extractor,
+	 * matcher and analyzer which are confined to the thread processing the tile.
+	 *
+	 * @author Sebastian Oelke
+	 *
+	 */
+	private class SimilarityTile implements Callable<Integer> {
+
+		private final double[][] similarityResults;
+		private final int rowStart, rowEnd, columnStart, columnEnd;
+
+		private final Neo4JUserDAO uDao = (Neo4JUserDAO) DAOFactory.instance().getUserDAO();
+		private Neo4JSequenceExtractor ex;
+		private Neo4JSequenceMatcher matcher;
+		private EncodedSequenceMatcher encodedMatcher;
+		private Neo4JSimilarityAnalyzer analyzer;
+
+		/**
+		 * @param similarityResults the matrix to write the similarity scores to.
+		 * @param rowStart the first row of the tile, inclusive.
+		 * @param rowEnd the last row of the tile, exclusive.
+		 * @param columnStart the first column of the tile, inclusive.
+		 * @param columnEnd the last column of the tile, exclusive.
+		 */
+		public SimilarityTile(double[][] similarityResults, int rowStart, int rowEnd, int columnStart, int columnEnd) {
+			this.similarityResults = similarityResults;
+			this.rowStart = rowStart;
+			this.rowEnd = rowEnd;
+			this.columnStart = columnStart;
+			this.columnEnd = columnEnd;
+		}
+
+		/**
+		 * @return the number of user pairs computed by this tile.
+		 */
+		@Override
+		public Integer call() {
+			// Instantiate all needed classes for similarity measurement
+			ex = new Neo4JSequenceExtractor();
+			ex.setFromLevel(fromLevel);
+			ex.setToLevel(toLevel);
+			ex.setSequenceStore(sequenceStore);
+
+			matcher = new Neo4JSequenceMatcher(splitThreshold, minSequenceLength, temporalConstraintThreshold);
+			matcher.setMaxSimilarSequences(maxSimilarSequences);
+			encodedMatcher = new EncodedSequenceMatcher(splitThreshold, minSequenceLength, temporalConstraintThreshold);
+			encodedMatcher.setMaxSimilarSequences(maxSimilarSequences);
+			analyzer = new Neo4JSimilarityAnalyzer();
+			analyzer.setFrequencyTable(frequencyTable);
+			if (sequenceStore != null)
+				analyzer.setClusterIdDictionary(sequenceStore.getClusterIdDictionary());
+
+			int pairs = 0;
+
+			// Go through all pair-wise user combinations of the tile
+			for (int i = rowStart; i < rowEnd; i++) {
+				Node userOne = users.get(i);
+
+				if (clusterUserIndex == null) {
+					for (int j = Math.max(i + 1, columnStart); j < columnEnd; j++) {
+						similarityResults[i][j] = similarity(userOne, users.get(j));
+						pairs++;
+					}
+				} else {
+					// Only users sharing at least one cluster can be similar, all other pairs keep a score of zero
+					for (int j : clusterUserIndex.candidatesOf(i)) {
+						if (j < columnStart) continue;
+						if (j >= columnEnd) break;
+						
+						similarityResults[i][j] = similarity(userOne, users.get(j));
+						pairs++;
+					}
+				}
+			}
+
+			return pairs;
+		}
+
+		/**
+		 * Computes the similarity between the given users.
+		 *
+		 * @param userOne the first user.
+		 * @param userTwo the second user.
+		 * @return the similarity score of both users or zero if it could not be computed.
+		 */
+		private double similarity(Node userOne, Node userTwo) {
+			Object userOneId = uDao.getUserId(userOne);
+			Object userTwoId = uDao.getUserId(userTwo);
+			LOG.info("Calculate similarity between user [{}] and [{}].", userOneId, userTwoId);
+
+			double similarity = 0.0;
+
+			// Steps 1 and 2: Find the maximal length similar sequences and pass them to the analyzer
+			ex.setUserNodeOne(userOne);
+			ex.setUserNodeTwo(userTwo);
+			
+			boolean matched = false;
+			if (sequenceStore != null && sequenceStore.getClusterIdDictionary() != null)
+				matched = matchEncoded(userOneId, userTwoId);
+			else
+				matched = match(userOneId, userTwoId);
+			
+			// Similarity measurement is only possible with a valid result of step 2
+			if (!matched)
+				return similarity;
+
+			// Step 3: Compute spatial similarity between the current two users
+			analyzer.setUserNodeOne(userOne);
+			analyzer.setUserNodeTwo(userTwo);
+
+			try {
+				// Start similarity measurement
+				LOG.info("Step 3: Similarity measurement.");
+				similarity = analyzer.analyze();
+				LOG.debug("Final similarity score: {}", similarity);
+			} catch (Exception e) {
+				LOG.error("An error occurred while measuring similarity between user [{}] and [{}]:\n{}",
+						new Object[] {userOneId, userTwoId, e});
+				LOG.debug("Similarity measurement stopped for users [{}] and [{}].", userOneId, userTwoId);
+			}
+
+			return similarity;
+		}
+
+		/**
+		 * Extracts and matches the cluster sequences of the current users. The found maximal
+		 * length similar sequences are passed to the analyzer.
+		 *
+		 * @param userOneId the id of the first user.
+		 * @param userTwoId the id of the second user.
+		 * @return <code>true</code> if maximal length similar sequences were found, <code>false</code> otherwise.
+		 */
+		private boolean match(Object userOneId, Object userTwoId) {
+			// Step 1: Extract cluster sequences of two users based on their hierarchical graphs
+			Map<Integer, SequenceWrapper> clusterSequences = null;
+
+			try {
+				// Start extraction of cluster sequences
+				LOG.info("Step 1: Extraction of cluster sequences from level {} to level {}.", fromLevel, toLevel);
+				clusterSequences = ex.extract();
+			} catch (Exception e) {
+				LOG.error("An error occurred while extracting the sequences of common clusters of user [{}] and [{}]:\n{}",
+						new Object[] {userOneId, userTwoId, e});
+				LOG.debug("Similarity measurement stopped for users [{}] and [{}].", userOneId, userTwoId);
+			}
+
+			// Matching is only possible if there is a valid result of step 1
+			if (clusterSequences == null || clusterSequences.isEmpty())
+				return false;
+
+			// Step 2: Match the extracted cluster sequences to find maximal length similar sequences
+			Map<Integer, List<Sequence<SimilarSequenceCluster>>> maxLengthSimilarSequences = null;
+			matcher.setSequencesOnLevel(clusterSequences);
+
+			try {
+				// Start matching of cluster sequences
+				LOG.info("Step 2: Matching of cluster sequences.");
+				maxLengthSimilarSequences = matcher.match();
+			} catch (Exception e) {
+				LOG.error("An error occurred while matching the sequences of common clusters of user [{}] and [{}]:\n{}",
+						new Object[] {userOneId, userTwoId, e});
+				LOG.debug("Similarity measurement stopped for users [{}] and [{}].", userOneId, userTwoId);
+			}
+
+			if (maxLengthSimilarSequences == null || maxLengthSimilarSequences.isEmpty())
+				return false;
+
+			analyzer.setMaximalLengthSimilarSequencesOnLevel(maxLengthSimilarSequences);
+			return true;
+		}
+
+		/**
+		 * Extracts and matches the encoded cluster sequences of the current users. The found
+		 * encoded maximal length similar sequences are passed to the analyzer.
+		 *
+		 * @param userOneId the id of the first user.
+		 * @param userTwoId the id of the second user.
+		 * @return <code>true</code> if maximal length similar sequences were found, <code>false</code> otherwise.
+		 */
+		private boolean matchEncoded(Object userOneId, Object userTwoId) {
+			// Step 1: Extract encoded cluster sequences of two users based on their hierarchical graphs
+			Map<Integer, EncodedSequenceWrapper> clusterSequences = null;
+
+			try {
+				LOG.info("Step 1: Extraction of encoded cluster sequences from level {} to level {}.", fromLevel, toLevel);
+				clusterSequences = ex.extractEncoded();
+			} catch (Exception e) {
+				LOG.error("An error occurred while extracting the sequences of common clusters of user [{}] and [{}]:\n{}",
+						new Object[] {userOneId, userTwoId, e});
+				LOG.debug("Similarity measurement stopped for users [{}] and [{}].", userOneId, userTwoId);
+			}
+
+			if (clusterSequences == null || clusterSequences.isEmpty())
+				return false;
+
+			// Step 2: Match the encoded cluster sequences to find maximal length similar sequences
+			Map<Integer, List<EncodedSimilarSequence>> maxLengthSimilarSequences = null;
+			encodedMatcher.setSequencesOnLevel(clusterSequences);
+
+			try {
+				LOG.info("Step 2: Matching of encoded cluster sequences.");
+				maxLengthSimilarSequences = encodedMatcher.match();
+			} catch (Exception e) {
+				LOG.error("An error occurred while matching the sequences of common clusters of user [{}] and [{}]:\n{}",
+						new Object[] {userOneId, userTwoId, e});
+				LOG.debug("Similarity measurement stopped for users [{}] and [{}].", userOneId, userTwoId);
+			}
+
+			if (maxLengthSimilarSequences == null || maxLengthSimilarSequences.isEmpty())
+				return false;
+
+			analyzer.setEncodedSimilarSequencesOnLevel(maxLengthSimilarSequences);
+			return true;
+		}
+	}
+
+	//###################################################################
+	// Setters & Getters
+	//###################################################################
+
+	/**
+	 * @return the users to compute the pair-wise similarity for.
+	 */
+	public List<Node> getUsers() {
+		return users;
+	}
+
+	/**
+	 * @param users the users to compute the pair-wise similarity for.
+	 */
+	public void setUsers(List<Node> users) {
+		this.users = users;
+	}
+
+	/**
+	 * @return the level of the hierarchical graphs to start the extraction from.
+	 */
+	public int getFromLevel() {
+		return fromLevel;
+	}
+
+	/**
+	 * @param fromLevel the level of the hierarchical graphs to start the extraction from.
+	 */
+	public void setFromLevel(int fromLevel) {
+		this.fromLevel = fromLevel;
+	}
+
+	/**
+	 * @return the level of the hierarchical graphs to end the extraction at.
+	 */
+	public int getToLevel() {
+		return toLevel;
+	}
+
+	/**
+	 * @param toLevel the level of the hierarchical graphs to end the extraction at.
+	 */
+	public void setToLevel(int toLevel) {
+		this.toLevel = toLevel;
+	}
+
+	/**
+	 * @return the store that holds the cluster visits of users or <code>null</code>.
+	 */
+	public UserSequenceStore getSequenceStore() {
+		return sequenceStore;
+	}
+
+	/**
+	 * @param sequenceStore the store that holds the cluster visits of users. It is shared
+	 * by all workers.
+	 */
+	public void setSequenceStore(UserSequenceStore sequenceStore) {
+		this.sequenceStore = sequenceStore;
+	}
+
+	/**
+	 * @return the index of users that share hg clusters or <code>null</code>.
+	 */
+	public ClusterUserIndex getClusterUserIndex() {
+		return clusterUserIndex;
+	}
+
+	/**
+	 * @param clusterUserIndex the index of users that share hg clusters. It has to be
+	 * built for the same list of users as this calculator. Giving <code>null</code> results
+	 * in computing all pairs of users.
+	 * @throws IllegalArgumentException if the index was built for a different number of users.
+	 */
+	public void setClusterUserIndex(ClusterUserIndex clusterUserIndex) throws IllegalArgumentException {
+		if (clusterUserIndex != null && users != null && clusterUserIndex.getUsersCount() != users.size())
+			throw new IllegalArgumentException(
+				"You provided an index for " + clusterUserIndex.getUsersCount() + " users but the " +
+				"similarity is calculated for " + users.size() + " users. The index has to be built " +
+				"for the same list of users.");
+
+		this.clusterUserIndex = clusterUserIndex;
+	}
+
+	/**
+	 * @return the table holding the number of users of each hg cluster or <code>null</code>.
+	 */
+	public HgClusterFrequencyTable getFrequencyTable() {
+		return frequencyTable;
+	}
+
+	/**
+	 * @param frequencyTable the table holding the number of users of each hg cluster. It is
+	 * shared by all workers.
+	 */
+	public void setFrequencyTable(HgClusterFrequencyTable frequencyTable) {
+		this.frequencyTable = frequencyTable;
+	}
+
+	/**
+	 * @return the maximal number of similar sequences kept by the sequence matcher.
+	 */
+	public int getMaxSimilarSequences() {
+		return maxSimilarSequences;
+	}
+
+	/**
+	 * @param maxSimilarSequences the maximal number of similar sequences kept by the sequence matcher.
+	 * @see de.tub.similarity.matching.Neo4JSequenceMatcher#setMaxSimilarSequences(int)
+	 */
+	public void setMaxSimilarSequences(int maxSimilarSequences) {
+		this.maxSimilarSequences = maxSimilarSequences;
+	}
+
+	/**
+	 * @return the number of threads used to compute the similarity.
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * @param threads the number of threads used to compute the similarity. A value
+	 * smaller than two computes all pairs on the calling thread.
+	 */
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	/**
+	 * @return the number of rows and columns of a tile.
+	 */
+	public int getTileSize() {
+		return tileSize;
+	}
+
+	/**
+	 * @param tileSize the number of rows and columns of a tile.
+	 * @throws IllegalArgumentException if the tile size is smaller than one.
+	 */
+	public void setTileSize(int tileSize) throws IllegalArgumentException {
+		if (tileSize < 1)
+			throw new IllegalArgumentException(
+				"You provided a tile size smaller than one. A tile has to " +
+				"include at least one row and one column.");
+
+		this.tileSize = tileSize;
+	}
+}
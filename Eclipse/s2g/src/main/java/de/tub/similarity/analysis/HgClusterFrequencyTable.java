@@ -0,0 +1,110 @@
+package de.tub.similarity.analysis;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.neo4j.cypher.javacompat.ExecutionResult;
+import org.neo4j.helpers.collection.IteratorUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.tub.graph.CypherQueries;
+import de.tub.graph.NodeProperties;
+import de.tub.util.SimilarityUtil;
+
+/**
+ * The <code>HgClusterFrequencyTable</code> holds the number of distinct
+ * users that visited each hg cluster (i.e., the document frequency of
+ * the hg cluster) as well as the overall number of users. Both are read
+ * from the graph database in one pass. Afterwards the IDF value of an
+ * hg cluster can be looked up without querying the graph database again.
+ * <p />
+ * The table does not change after it was built. Hence, it can be shared
+ * by several threads.
+ *
+ * @author Sebastian Oelke
+ *
+ */
+public class HgClusterFrequencyTable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(HgClusterFrequencyTable.class);
+
+	/** Holds the mapping <code>[hg_cluster_id, users_in_hg_cluster]</code>. */
+	private Map<String, Long> usersInHgCluster;
+	private long usersCount;
+
+	/**
+	 * @param usersInHgCluster the number of users for each hg cluster id.
+	 * @param usersCount the overall number of users.
+	 * @throws NullPointerException if the map of users for each hg cluster is <code>null</code>.
+	 */
+	public HgClusterFrequencyTable(Map<String, Long> usersInHgCluster, long usersCount) throws NullPointerException {
+		if (usersInHgCluster == null)
+			throw new NullPointerException(
+				"You provided a null value for the number of users in each hg cluster. " +
+				"This parameter is expected to be non-null.");
+
+		this.usersInHgCluster = new HashMap<String, Long>(usersInHgCluster);
+		this.usersCount = usersCount;
+	}
+
+	/**
+	 * Builds the table by querying the graph database for the number of users
+	 * of all hg clusters and the overall number of users.
+	 *
+	 * @return the table for the current graph database.
+	 */
+	public static HgClusterFrequencyTable build() {
+		Map<String, Long> usersInHgCluster = new HashMap<String, Long>();
+
+		// Read the number of users of all hg clusters
+		ExecutionResult result = CypherQueries.countUsersOfAllHgClusters();
+		for (Map<String, Object> row : result) {
+			usersInHgCluster.put(
+					(String) row.get(NodeProperties.HG_CLUSTER_ID),
+					(Long) row.get("usersInHgCluster"));
+		}
+
+		// Read the overall number of users
+		long usersCount = 0L;
+		Iterator<Long> resultIt = CypherQueries.countUsers().columnAs("usersCount");
+		for (Long count : IteratorUtil.asIterable(resultIt)) {
+			usersCount = count;
+			break;
+		}
+
+		LOG.info("Read the number of users of {} hg clusters, overall number of users: {}.",
+				usersInHgCluster.size(), usersCount);
+
+		return new HgClusterFrequencyTable(usersInHgCluster, usersCount);
+	}
+
+	/**
+	 * @param hgClusterId the id of the hg cluster.
+	 * @return the number of users that visited the hg cluster with the given id
+	 * or zero if the hg cluster is unknown.
+	 */
+	public long usersInHgCluster(String hgClusterId) {
+		Long count = usersInHgCluster.get(hgClusterId);
+		return count == null ? 0L : count;
+	}
+
+	/**
+	 * Computes the IDF value for the hg cluster with the given id.
+	 *
+	 * @param hgClusterId the id of the hg cluster.
+	 * @return the IDF value for the hg cluster.
+	 * @see de.tub.util.SimilarityUtil#idfOfHgCluster(long, long)
+	 */
+	public double idf(String hgClusterId) {
+		return SimilarityUtil.idfOfHgCluster(usersCount, usersInHgCluster(hgClusterId));
+	}
+
+	/**
+	 * @return the overall number of users.
+	 */
+	public long getUsersCount() {
+		return usersCount;
+	}
+}
@@ -1,5 +1,6 @@
 package de.tub.similarity.analysis;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -13,6 +14,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import de.tub.graph.CypherQueries;
+import de.tub.similarity.ClusterIdDictionary;
+import de.tub.similarity.EncodedSimilarSequence;
 import de.tub.similarity.Sequence;
 import de.tub.similarity.SimilarSequenceCluster;
 import de.tub.util.SimilarityUtil;
@@ -21,6 +24,15 @@ import de.tub.util.SimilarityUtil;
  * The <code>Neo4JSimilarityAnalyzer</code> computes the spatial
  * similarity between two users based on their maximal length
  * similar sequences.
+ * <p />
+ * If a <code>HgClusterFrequencyTable</code> is set the overall number of
+ * users and the IDF values of hg clusters are taken from the table instead
+ * of querying the graph database for each analysis.
+ * <p />
+ * If encoded similar sequences are set they are analyzed instead of the
+ * similar sequences of similar sequence clusters. The hg clusters of encoded
+ * similar sequences are resolved with a <code>ClusterIdDictionary</code>. If a
+ * frequency table is set the IDF value of each integer id is looked up only once.
  * 
  * @author Sebastian Oelke
  *
@@ -31,6 +43,12 @@ public class Neo4JSimilarityAnalyzer implements IAnalyzer<Double> {
 	
 	private Map<Integer, List<Sequence<SimilarSequenceCluster>>> maximalLengthSimilarSequencesOnLevel;
 	private Node userNodeOne, userNodeTwo;
+	private HgClusterFrequencyTable frequencyTable;
+	
+	private Map<Integer, List<EncodedSimilarSequence>> encodedSimilarSequencesOnLevel;
+	private ClusterIdDictionary clusterIdDictionary;
+	/** Holds the IDF value for each integer id of an hg cluster, unknown values are <code>NaN</code>. */
+	private double[] idfOfCluster = new double[0];
 	
 	public Neo4JSimilarityAnalyzer() {}
 	
@@ -51,6 +69,10 @@ public class Neo4JSimilarityAnalyzer implements IAnalyzer<Double> {
 	 * the user nodes is <code>null</code>.
 	 */
 	public Double analyze() throws NullPointerException {
+		// Analyze the encoded similar sequences if they are given
+		if (encodedSimilarSequencesOnLevel != null)
+			return analyzeEncoded();
+		
 		if (maximalLengthSimilarSequencesOnLevel == null)
 			throw new NullPointerException(
 				"You provided a null value for the required maximal length similar sequences on level. " +
@@ -118,6 +140,88 @@ public class Neo4JSimilarityAnalyzer implements IAnalyzer<Double> {
 		} else
 			LOG.warn("The similarity could not be computed because the given map of maximal length similar sequences is empty. A similarity score of zero is assumed.");
 		
+		return normalizeWithStayPoints(overallSimilarityScore);
+	}
+	
+	//###################################################################
+	// Helper
+	//###################################################################
+	
+	/**
+	 * Computes the spatial similarity between two users based on the encoded similar
+	 * sequences. The score is computed in the same way as for the similar sequences of
+	 * similar sequence clusters.
+	 * 
+	 * @return the spatial similarity score between two users.
+	 * @throws NullPointerException if the cluster id dictionary or one of the user nodes is <code>null</code>.
+	 */
+	private Double analyzeEncoded() throws NullPointerException {
+		if (clusterIdDictionary == null)
+			throw new NullPointerException(
+				"You provided a null value for the cluster id dictionary. " +
+				"This parameter is expected to be non-null to analyze encoded similar sequences.");
+		
+		if (userNodeOne == null || userNodeTwo == null)
+			throw new NullPointerException(
+				"You provided a null value for one of the required user nodes. " +
+				"Both parameters are expected to be non-null.");
+		
+		double overallSimilarityScore = 0;
+		if (!encodedSimilarSequencesOnLevel.isEmpty()) {
+			// Get number of users
+			long usersCount = computeUsersCount();
+			
+			for (Map.Entry<Integer, List<EncodedSimilarSequence>> levelSequences : encodedSimilarSequencesOnLevel.entrySet()) {
+				Integer level = levelSequences.getKey();
+				List<EncodedSimilarSequence> currentSequences = levelSequences.getValue();
+				
+				double levelSimilarityScore = 0;
+				// Compute the alpha value that is used to weight the overall similarity score
+				double alpha = SimilarityUtil.alpha(level);
+				
+				if (currentSequences != null && !currentSequences.isEmpty()) {
+					double sequenceSimilarityScore = 0;
+					double beta = 0;
+					
+					for (EncodedSimilarSequence seq : currentSequences) {
+						if (seq != null && !seq.isEmpty()) {
+							// Compute the beta value that is used to weight the level similarity score
+							beta = SimilarityUtil.beta(seq.size());
+							
+							int[] clusterIds = seq.getClusterIds();
+							int[] successivelyInCluster = seq.getSuccessivelyInCluster();
+							
+							// Compute sequence similarity score, depends on IDF of each cluster and the minimum number of 
+							// times the two users visited the cluster successively
+							for (int i = 0; i < clusterIds.length; i++) {
+								sequenceSimilarityScore += computeIdfForCluster(clusterIds[i], usersCount) * successivelyInCluster[i];
+							}
+						} else
+							LOG.warn("The similarity for a sequence on level {} could not be computed because it is null or empty. A sequence similarity score of zero is assumed.", level);
+						
+						// Compute level similarity score, depends on sequence similarity score and beta
+						levelSimilarityScore += beta * sequenceSimilarityScore;
+					}
+				} else
+					LOG.warn("The similarity for the level {} could not be computed because there are no maximal length similar sequences for it. A level similarity score of zero is assumed.", level);
+				
+				// Compute overall similarity score, depends on level similarity score and alpha
+				overallSimilarityScore += alpha * levelSimilarityScore;
+				LOG.debug("Alpha: {}, overall score: {}", alpha, overallSimilarityScore);
+			}
+		} else
+			LOG.warn("The similarity could not be computed because the given map of maximal length similar sequences is empty. A similarity score of zero is assumed.");
+		
+		return normalizeWithStayPoints(overallSimilarityScore);
+	}
+	
+	/**
+	 * Normalizes the given overall similarity score with the number of stay points of both users.
+	 * 
+	 * @param overallSimilarityScore the overall similarity score before normalization.
+	 * @return the normalized similarity score.
+	 */
+	private double normalizeWithStayPoints(double overallSimilarityScore) {
 		LOG.debug("Overall score before normalization: {}", overallSimilarityScore);
 		
 		// Normalize the overall similarity score with the number of stay points of both users
@@ -137,10 +241,6 @@ public class Neo4JSimilarityAnalyzer implements IAnalyzer<Double> {
 		
 		return overallSimilarityScore;
 	}
-	
-	//###################################################################
-	// Helper
-	//###################################################################
 
 	/**
 	 * Queries the graph database to get the overall number of user nodes.
@@ -148,6 +248,9 @@ public class Neo4JSimilarityAnalyzer implements IAnalyzer<Double> {
 	 * @return the overall number of users.
 	 */
 	private long computeUsersCount() {
+		// Use the number of users of the frequency table if available
+		if (frequencyTable != null) return frequencyTable.getUsersCount();
+		
 		// Query graph database
 		ExecutionResult result = CypherQueries.countUsers();
 		
@@ -174,6 +277,9 @@ public class Neo4JSimilarityAnalyzer implements IAnalyzer<Double> {
 	 * @return the IDF value for the hg cluster.
 	 */
 	private double computeIdfForHgCluster(String hgClusterId, long overallUsers) {
+		// Use the frequency table if available
+		if (frequencyTable != null) return frequencyTable.idf(hgClusterId);
+		
 		// Query graph database for users in given hg cluster
 		ExecutionResult result = CypherQueries.countUsersInHgCluster(hgClusterId);
 		
@@ -192,6 +298,34 @@ public class Neo4JSimilarityAnalyzer implements IAnalyzer<Double> {
 		return SimilarityUtil.idfOfHgCluster(overallUsers, usersInHgClusterCount);
 	}
 	
+	/**
+	 * Computes the IDF value for the hg cluster with the given integer id. If a frequency
+	 * table is set the value is computed only once for each integer id.
+	 * 
+	 * @param clusterId the integer id of the hg cluster.
+	 * @param overallUsers the overall number of users.
+	 * @return the IDF value for the hg cluster.
+	 */
+	private double computeIdfForCluster(int clusterId, long overallUsers) {
+		// Without a frequency table the graph database is queried each time
+		if (frequencyTable == null)
+			return computeIdfForHgCluster(clusterIdDictionary.hgClusterIdOf(clusterId), overallUsers);
+		
+		if (clusterId >= idfOfCluster.length) {
+			int oldLength = idfOfCluster.length;
+			idfOfCluster = Arrays.copyOf(idfOfCluster, Math.max(clusterId + 1, clusterIdDictionary.size()));
+			Arrays.fill(idfOfCluster, oldLength, idfOfCluster.length, Double.NaN);
+		}
+		
+		double idf = idfOfCluster[clusterId];
+		if (Double.isNaN(idf)) {
+			idf = frequencyTable.idf(clusterIdDictionary.hgClusterIdOf(clusterId));
+			idfOfCluster[clusterId] = idf;
+		}
+		
+		return idf;
+	}
+	
 	/**
 	 * Queries the graph database to compute the number of stay points for a given 
 	 * user node.
@@ -267,4 +401,54 @@ public class Neo4JSimilarityAnalyzer implements IAnalyzer<Double> {
 		this.userNodeTwo = userNodeTwo;
 	}
 	
+	/**
+	 * @return the table holding the number of users of each hg cluster or <code>null</code>
+	 * if the graph database is queried for each analysis.
+	 */
+	public HgClusterFrequencyTable getFrequencyTable() {
+		return frequencyTable;
+	}
+
+	/**
+	 * @param frequencyTable the table holding the number of users of each hg cluster. Giving
+	 * <code>null</code> results in querying the graph database for each analysis.
+	 */
+	public void setFrequencyTable(HgClusterFrequencyTable frequencyTable) {
+		this.frequencyTable = frequencyTable;
+		this.idfOfCluster = new double[0];
+	}
+	
+	/**
+	 * @return the encoded maximal length similar sequences of the two users to analyze or
+	 * <code>null</code> if the similar sequences of similar sequence clusters are analyzed.
+	 */
+	public Map<Integer, List<EncodedSimilarSequence>> getEncodedSimilarSequencesOnLevel() {
+		return encodedSimilarSequencesOnLevel;
+	}
+
+	/**
+	 * @param encodedSimilarSequencesOnLevel the encoded maximal length similar sequences of the two 
+	 * users to analyze. If they are given they are analyzed instead of the similar sequences of 
+	 * similar sequence clusters.
+	 */
+	public void setEncodedSimilarSequencesOnLevel(
+			Map<Integer, List<EncodedSimilarSequence>> encodedSimilarSequencesOnLevel) {
+		this.encodedSimilarSequencesOnLevel = encodedSimilarSequencesOnLevel;
+	}
+	
+	/**
+	 * @return the dictionary used to resolve the hg clusters of encoded similar sequences.
+	 */
+	public ClusterIdDictionary getClusterIdDictionary() {
+		return clusterIdDictionary;
+	}
+
+	/**
+	 * @param clusterIdDictionary the dictionary used to resolve the hg clusters of encoded similar sequences.
+	 */
+	public void setClusterIdDictionary(ClusterIdDictionary clusterIdDictionary) {
+		this.clusterIdDictionary = clusterIdDictionary;
+		this.idfOfCluster = new double[0];
+	}
+	
 }
@@ -0,0 +1,208 @@
+package de.tub.similarity.extraction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.neo4j.cypher.javacompat.ExecutionResult;
+import org.neo4j.graphdb.Node;
+import org.neo4j.helpers.collection.IteratorUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.tub.graph.CypherQueries;
+import de.tub.graph.NodeProperties;
+
+/**
+ * The <code>ClusterUserIndex</code> is an inverted index that maps the id
+ * of each hg cluster to the users that visited it. The users are identified
+ * by their position in the list of users the index was built for. As the id
+ * of an hg cluster includes its level, the index holds one posting list per
+ * cluster and level.
+ * <p />
+ * The index is used to find the candidate pairs of users that share at least
+ * one hg cluster. All other pairs cannot be spatially similar and do not have
+ * to be extracted at all.
+ *
+ * @author Sebastian Oelke
+ *
+ */
+public class ClusterUserIndex {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ClusterUserIndex.class);
+
+	/**
+	 * Holds the posting lists with the mapping <code>[hg_cluster_id, sorted_user_positions]</code>.
+	 */
+	private Map<String, int[]> usersOfCluster;
+
+	/**
+	 * Holds for each user position the sorted positions of all users with a greater
+	 * position that share at least one hg cluster with it.
+	 */
+	private int[][] candidatesOfUser;
+
+	private int usersCount;
+
+	private ClusterUserIndex() {}
+
+	/**
+	 * Builds the index for the given users by querying the hg cluster ids of each user once.
+	 * The depth of the indexed hg clusters can be tweaked by the parameters <code>fromLevel</code>
+	 * and <code>toLevel</code> in the same way as in the sequence extraction.
+	 *
+	 * @param users the users to build the index for.
+	 * @param fromLevel the level of the hierarchical graphs to start indexing from.
+	 * @param toLevel the level of the hierarchical graphs to stop indexing at.
+	 * @return the index for the given users.
+	 * @throws NullPointerException if the list of users is <code>null</code>.
+	 */
+	public static ClusterUserIndex build(List<Node> users, int fromLevel, int toLevel) throws NullPointerException {
+		if (users == null)
+			throw new NullPointerException(
+				"You provided a null value for the list of users. " +
+				"This parameter is expected to be non-null.");
+
+		// Collect the hg cluster ids of each user
+		List<List<String>> clustersOfUser = new ArrayList<List<String>>(users.size());
+		for (Node user : users) {
+			ExecutionResult result = CypherQueries.allHgClusterIdsForUsersFromToLevel(
+					new Long[] { user.getId() }, fromLevel, toLevel);
+
+			List<String> clusterIds = new ArrayList<String>();
+			Iterator<String> resultIt = result.columnAs(NodeProperties.HG_CLUSTER_ID);
+			for (String hgClusterId : IteratorUtil.asIterable(resultIt)) {
+				clusterIds.add(hgClusterId);
+			}
+
+			clustersOfUser.add(clusterIds);
+		}
+
+		return build(clustersOfUser);
+	}
+
+	/**
+	 * Builds the index with the given hg cluster ids of each user. The position of
+	 * a list of hg cluster ids is used as the position of the user.
+	 *
+	 * @param clustersOfUser the hg cluster ids of each user.
+	 * @return the index for the given users.
+	 * @throws NullPointerException if the list of hg cluster ids is <code>null</code>.
+	 */
+	public static ClusterUserIndex build(List<List<String>> clustersOfUser) throws NullPointerException {
+		if (clustersOfUser == null)
+			throw new NullPointerException(
+				"You provided a null value for the hg cluster ids of the users. " +
+				"This parameter is expected to be non-null.");
+
+		ClusterUserIndex index = new ClusterUserIndex();
+		index.usersCount = clustersOfUser.size();
+
+		// Build the posting lists, users are added in ascending order so the lists are sorted
+		Map<String, List<Integer>> postings = new HashMap<String, List<Integer>>();
+		for (int user = 0; user < clustersOfUser.size(); user++) {
+			for (String hgClusterId : clustersOfUser.get(user)) {
+				List<Integer> posting = postings.get(hgClusterId);
+				if (posting == null) {
+					posting = new ArrayList<Integer>();
+					postings.put(hgClusterId, posting);
+				}
+
+				// A user is only added once to a posting list
+				if (posting.isEmpty() || posting.get(posting.size() - 1) != user)
+					posting.add(user);
+			}
+		}
+
+		index.usersOfCluster = new HashMap<String, int[]>(postings.size());
+		for (Map.Entry<String, List<Integer>> posting : postings.entrySet()) {
+			index.usersOfCluster.put(posting.getKey(), toArray(posting.getValue()));
+		}
+
+		// Collect the candidates of each user from the posting lists of its clusters
+		index.candidatesOfUser = new int[index.usersCount][];
+		long candidatePairs = 0L;
+		BitSet candidates = new BitSet(index.usersCount);
+		for (int user = 0; user < index.usersCount; user++) {
+			candidates.clear();
+
+			for (String hgClusterId : clustersOfUser.get(user)) {
+				for (int otherUser : index.usersOfCluster.get(hgClusterId)) {
+					if (otherUser > user) candidates.set(otherUser);
+				}
+			}
+
+			int[] userCandidates = new int[candidates.cardinality()];
+			int k = 0;
+			for (int otherUser = candidates.nextSetBit(0); otherUser >= 0; otherUser = candidates.nextSetBit(otherUser + 1)) {
+				userCandidates[k++] = otherUser;
+			}
+
+			index.candidatesOfUser[user] = userCandidates;
+			candidatePairs += userCandidates.length;
+		}
+
+		LOG.info("Indexed {} hg clusters of {} users, {} candidate pairs share at least one cluster.",
+				new Object[] { index.usersOfCluster.size(), index.usersCount, candidatePairs });
+
+		return index;
+	}
+
+	/**
+	 * Returns the positions of all users with a greater position than the
+	 * given one that share at least one hg cluster with the given user.
+	 *
+	 * @param user the position of the user.
+	 * @return the sorted positions of the candidate users.
+	 */
+	public int[] candidatesOf(int user) {
+		return candidatesOfUser[user];
+	}
+
+	/**
+	 * Returns the positions of all users that visited the hg cluster with the given id.
+	 *
+	 * @param hgClusterId the id of the hg cluster.
+	 * @return the sorted positions of the users. If no user visited the hg cluster an
+	 * empty array is returned.
+	 */
+	public int[] usersOf(String hgClusterId) {
+		int[] users = usersOfCluster.get(hgClusterId);
+		return users == null ? new int[0] : users;
+	}
+
+	/**
+	 * @param userOne the position of the first user.
+	 * @param userTwo the position of the second user.
+	 * @return <code>true</code> if both users share at least one hg cluster, <code>false</code> otherwise.
+	 */
+	public boolean shareCluster(int userOne, int userTwo) {
+		if (userOne == userTwo) return false;
+
+		int[] candidates = candidatesOfUser[Math.min(userOne, userTwo)];
+		return Arrays.binarySearch(candidates, Math.max(userOne, userTwo)) >= 0;
+	}
+
+	/**
+	 * @return the number of users in this index.
+	 */
+	public int getUsersCount() {
+		return usersCount;
+	}
+
+	//###################################################################
+	// Helper
+	//###################################################################
+
+	private static int[] toArray(List<Integer> list) {
+		int[] array = new int[list.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = list.get(i);
+		}
+		return array;
+	}
+}
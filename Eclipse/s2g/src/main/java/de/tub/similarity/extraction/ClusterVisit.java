@@ -0,0 +1,98 @@
+package de.tub.similarity.extraction;
+
+import java.io.Serializable;
+
+/**
+ * A cluster visit represents one stay point of a user within
+ * a cluster of the user's hierarchical graph. It holds the id
+ * of the hg cluster as well as the arrival and leaving time of the
+ * stay point. In contrast to a <code>SequenceCluster</code> successive
+ * visits of the same cluster are not collapsed. This allows to
+ * restrict a timeline of visits to an arbitrary set of clusters
+ * before building a sequence of it.
+ * 
+ * @author Sebastian Oelke
+ * 
+ * @see de.tub.similarity.SequenceCluster SequenceCluster
+ *
+ */
+public class ClusterVisit implements Serializable {
+
+	private static final long serialVersionUID = 6046418338474352713L;
+	
+	private final String id;
+	private final int clusterId;
+	private final long arrivalTime;
+	private final long leavingTime;
+	
+	public ClusterVisit(String id, long arrivalTime, long leavingTime) {
+		this(id, -1, arrivalTime, leavingTime);
+	}
+	
+	/**
+	 * @param id the id of the visited hg cluster.
+	 * @param clusterId the integer id of the visited hg cluster assigned by a <code>ClusterIdDictionary</code>.
+	 * @param arrivalTime the arrival time of the stay point.
+	 * @param leavingTime the leaving time of the stay point.
+	 */
+	public ClusterVisit(String id, int clusterId, long arrivalTime, long leavingTime) {
+		this.id = id;
+		this.clusterId = clusterId;
+		this.arrivalTime = arrivalTime;
+		this.leavingTime = leavingTime;
+	}
+	
+	//###################################################################
+	// Getters
+	//###################################################################
+	
+	/**
+	 * @return the id of the visited hg cluster.
+	 */
+	public String getId() {
+		return id;
+	}
+	
+	/**
+	 * @return the integer id of the visited hg cluster or <code>-1</code> if
+	 * no integer id was assigned.
+	 * @see de.tub.similarity.ClusterIdDictionary
+	 */
+	public int getClusterId() {
+		return clusterId;
+	}
+	
+	/**
+	 * @return the arrival time of the stay point.
+	 */
+	public long getArrivalTime() {
+		return arrivalTime;
+	}
+	
+	/**
+	 * @return the leaving time of the stay point.
+	 */
+	public long getLeavingTime() {
+		return leavingTime;
+	}
+	
+	//###################################################################
+	// toString
+	//###################################################################
+	
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		
+		builder.append(ClusterVisit.class.getSimpleName())
+				.append("[ id=")
+				.append(this.id)
+				.append(", arrival time=")
+				.append(this.arrivalTime)
+				.append(", leaving time=")
+				.append(this.leavingTime)
+				.append(" ]");
+		
+		return builder.toString();
+	}
+}
@@ -1,8 +1,10 @@
 package de.tub.similarity.extraction;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -19,6 +21,9 @@ import de.tub.data.dao.DAOFactory;
 import de.tub.data.dao.Neo4JUserDAO;
 import de.tub.graph.CypherQueries;
 import de.tub.graph.NodeProperties;
+import de.tub.similarity.ClusterIdDictionary;
+import de.tub.similarity.EncodedSequence;
+import de.tub.similarity.EncodedSequenceWrapper;
 import de.tub.similarity.Sequence;
 import de.tub.similarity.SequenceCluster;
 import de.tub.similarity.SequenceWrapper;
@@ -29,6 +34,16 @@ import de.tub.util.ListUtil;
  * The <code>Neo4JSequenceExtractor</code> extracts cluster sequences
  * of two given users based on their hierarchical graphs that are persisted
  * in a Neo4j graph database.
+ * <p />
+ * If a <code>UserSequenceStore</code> is set the cluster visits of each
+ * user are taken from the store instead of querying the graph database
+ * for each user pair. This way the visits of a user are read only once
+ * when extracting the sequences of many user pairs.
+ * <p />
+ * If the store holds a <code>ClusterIdDictionary</code> the sequences can be
+ * extracted as <code>EncodedSequence</code>s with <code>extractEncoded()</code>.
+ * The common clusters of both users are then found by marking integer ids
+ * instead of intersecting sets of hg cluster ids.
  * 
  * @author Sebastian Oelke
  *
@@ -48,6 +63,14 @@ public class Neo4JSequenceExtractor implements IExtractor<Map<Integer, SequenceW
 	private int fromLevel = -1;
 	private int toLevel = -1;
 	private Node userNodeOne, userNodeTwo;
+	private UserSequenceStore sequenceStore;
+	
+	/**
+	 * Holds a mark for each integer id of an hg cluster. The marks are used to find
+	 * the common clusters of two users when extracting encoded sequences.
+	 */
+	private int[] clusterMarks = new int[0];
+	private int lastMark = 0;
 	
 	public Neo4JSequenceExtractor() {}
 	
@@ -79,6 +102,10 @@ public class Neo4JSequenceExtractor implements IExtractor<Map<Integer, SequenceW
 		// Initialize the sequences on level map
 		sequencesOnLevel = new HashMap<Integer, SequenceWrapper>();
 		
+		// Use the visits of both users held by the store
+		if (sequenceStore != null)
+			return extractFromStore();
+		
 		//###################################################################
 		// Step 1: 	Find the common clusters for both users on each level of 
 		//			their hierarchical graph.
@@ -154,9 +181,260 @@ public class Neo4JSequenceExtractor implements IExtractor<Map<Integer, SequenceW
 		return sequencesOnLevel;
 	}
 	
+	/**
+	 * Extracts the cluster sequences of both users from the visits held by the sequence
+	 * store as encoded sequences. The encoded sequences hold the same clusters as the
+	 * sequences returned by <code>extract()</code>.
+	 * 
+	 * @return the encoded cluster sequences of two users for each level of their hierarchical
+	 * graphs where common clusters were identified. If no common cluster could be found
+	 * an empty map is returned.
+	 * @throws NullPointerException if one or both of the given users is <code>null</code> or 
+	 * if no sequence store with a cluster id dictionary is set.
+	 */
+	public Map<Integer, EncodedSequenceWrapper> extractEncoded() throws NullPointerException {
+		if (userNodeOne == null || userNodeTwo == null)
+			throw new NullPointerException(
+				"You provided a null value for one or both required user nodes. " +
+				"Both parameters are expected to be non-null.");
+		
+		if (sequenceStore == null || sequenceStore.getClusterIdDictionary() == null)
+			throw new NullPointerException(
+				"You provided a null value for the sequence store or its cluster id dictionary. " +
+				"Both are expected to be non-null to extract encoded sequences.");
+		
+		ClusterIdDictionary dictionary = sequenceStore.getClusterIdDictionary();
+		Map<Integer, EncodedSequenceWrapper> encodedSequencesOnLevel = new HashMap<Integer, EncodedSequenceWrapper>();
+		
+		// Get the visits of both users, each level is ordered by leaving time of stay points
+		Map<Integer, List<ClusterVisit>> visitsUser1 = sequenceStore.visitsOnLevel(userNodeOne);
+		Map<Integer, List<ClusterVisit>> visitsUser2 = sequenceStore.visitsOnLevel(userNodeTwo);
+		
+		for (Entry<Integer, List<ClusterVisit>> levelVisitsUser1 : visitsUser1.entrySet()) {
+			Integer level = levelVisitsUser1.getKey();
+			
+			List<ClusterVisit> levelVisitsUser2 = visitsUser2.get(level);
+			if (levelVisitsUser2 == null) continue;
+			
+			// Mark the clusters of user 1, afterwards mark those clusters of user 2 that are also visited by user 1
+			int userOneMark = nextMarks();
+			int commonMark = userOneMark + 1;
+			
+			for (ClusterVisit visit : levelVisitsUser1.getValue()) {
+				clusterMarks[clusterIdOfVisit(visit, dictionary)] = userOneMark;
+			}
+			
+			boolean commonClusters = false;
+			for (ClusterVisit visit : levelVisitsUser2) {
+				int clusterId = clusterIdOfVisit(visit, dictionary);
+				if (clusterMarks[clusterId] == userOneMark || clusterMarks[clusterId] == commonMark) {
+					clusterMarks[clusterId] = commonMark;
+					commonClusters = true;
+				}
+			}
+			
+			if (!commonClusters) continue;
+			
+			// Build up sequences for the current level restricted to the common clusters
+			EncodedSequence levelSequenceUser1 = createEncodedSequenceFromVisits(levelVisitsUser1.getValue(), commonMark, dictionary);
+			EncodedSequence levelSequenceUser2 = createEncodedSequenceFromVisits(levelVisitsUser2, commonMark, dictionary);
+			
+			LOG.debug("User 1 level {} encoded sequence: {}", level, levelSequenceUser1);
+			LOG.debug("User 2 level {} encoded sequence: {}", level, levelSequenceUser2);
+			
+			encodedSequencesOnLevel.put(level, new EncodedSequenceWrapper(levelSequenceUser1, levelSequenceUser2));
+		}
+		
+		// If there are no common cluster ids the users do not share clusters. This means they cannot be spatially similar in any way.
+		if (encodedSequencesOnLevel.isEmpty())
+			LOG.warn("No common clusters were found for the users [{}] and [{}].",
+					uDao.getUserId(userNodeOne), uDao.getUserId(userNodeTwo));
+		
+		return encodedSequencesOnLevel;
+	}
+	
+	/**
+	 * Extracts the cluster sequences of both users from the visits held by the
+	 * sequence store. The results are the same as the ones of the query based 
+	 * extraction.
+	 * 
+	 * @return the cluster sequences of two users for each level of their hierarchical
+	 * graphs where common clusters were identified. If no common cluster could be found
+	 * an empty map is returned.
+	 */
+	private Map<Integer, SequenceWrapper> extractFromStore() {
+		// Get the visits of both users, each level is ordered by leaving time of stay points
+		Map<Integer, List<ClusterVisit>> visitsUser1 = sequenceStore.visitsOnLevel(userNodeOne);
+		Map<Integer, List<ClusterVisit>> visitsUser2 = sequenceStore.visitsOnLevel(userNodeTwo);
+		
+		for (Entry<Integer, List<ClusterVisit>> levelVisitsUser1 : visitsUser1.entrySet()) {
+			Integer level = levelVisitsUser1.getKey();
+			
+			List<ClusterVisit> levelVisitsUser2 = visitsUser2.get(level);
+			if (levelVisitsUser2 == null) continue;
+			
+			// Find the common clusters of both users on the current level
+			Set<String> commonClusterIds = clusterIdsOfVisits(levelVisitsUser1.getValue());
+			commonClusterIds.retainAll(clusterIdsOfVisits(levelVisitsUser2));
+			
+			if (commonClusterIds.isEmpty()) continue;
+			
+			LOG.debug("Common hg clusters on level {}: {}", level, commonClusterIds);
+			
+			// Build up sequence lists for the current level restricted to the common clusters
+			Sequence<SequenceCluster> levelSequenceUser1 = createSequenceClusterLevelListFromVisits(levelVisitsUser1.getValue(), commonClusterIds);
+			Sequence<SequenceCluster> levelSequenceUser2 = createSequenceClusterLevelListFromVisits(levelVisitsUser2, commonClusterIds);
+			
+			LOG.debug("User 1 level {} sequence: {}", level, levelSequenceUser1);
+			LOG.debug("User 2 level {} sequence: {}", level, levelSequenceUser2);
+			
+			// Wrap both sequences and add them for the current level
+			sequencesOnLevel.put(level, new SequenceWrapper(levelSequenceUser1, levelSequenceUser2));
+		}
+		
+		// If there are no common cluster ids the users do not share clusters. This means they cannot be spatially similar in any way.
+		if (sequencesOnLevel.isEmpty())
+			LOG.warn("No common clusters were found for the users [{}] and [{}].",
+					uDao.getUserId(userNodeOne), uDao.getUserId(userNodeTwo));
+		
+		return sequencesOnLevel;
+	}
+	
 	//###################################################################
 	// Helper
 	//###################################################################
+	
+	/**
+	 * Converts the given visits into a sequence of sequence clusters. Only visits
+	 * of the given clusters are considered. Successive visits of the same cluster
+	 * are combined to one sequence cluster.
+	 * 
+	 * @param visits the visits to convert ordered by leaving time.
+	 * @param clusterIds the ids of the clusters to restrict the sequence to.
+	 * @return a sequence of sequence clusters.
+	 * @see de.tub.similarity.Sequence
+	 * @see de.tub.similarity.SequenceCluster
+	 */
+	private Sequence<SequenceCluster> createSequenceClusterLevelListFromVisits(List<ClusterVisit> visits, Set<String> clusterIds) {
+		// The list holding the sequence clusters
+		Sequence<SequenceCluster> levelSequence = new Sequence<SequenceCluster>();
+		SequenceCluster currentSequenceCluster = null;
+		
+		for (ClusterVisit visit : visits) {
+			// Skip visits of clusters that are not of interest
+			if (!clusterIds.contains(visit.getId())) continue;
+			
+			// A visit of the same cluster increases the number of times the user stayed in the cluster
+			if (currentSequenceCluster != null && currentSequenceCluster.getId().equals(visit.getId())) {
+				currentSequenceCluster.incSuccessivelyInCluster();
+			}
+			// A visit of a new cluster starts a new sequence cluster
+			else {
+				currentSequenceCluster = new SequenceCluster(visit.getId());
+				currentSequenceCluster.setArrivalTime(visit.getArrivalTime());
+				levelSequence = levelSequence.addCluster(currentSequenceCluster);
+			}
+			
+			// The leaving time is always set to the latest value
+			currentSequenceCluster.setLeavingTime(visit.getLeavingTime());
+		}
+		
+		return levelSequence;
+	}
+	
+	/**
+	 * Converts the given visits into an encoded sequence. Only visits of clusters
+	 * with the given mark are included. Consecutive visits of the same cluster
+	 * are combined to one cluster of the sequence.
+	 * 
+	 * @param visits the visits to convert ordered by leaving time.
+	 * @param mark the mark of the clusters to restrict the sequence to.
+	 * @param dictionary the dictionary to look up integer ids of visits without one.
+	 * @return an encoded sequence.
+	 */
+	private EncodedSequence createEncodedSequenceFromVisits(List<ClusterVisit> visits, int mark, ClusterIdDictionary dictionary) {
+		int[] clusterIds = new int[visits.size()];
+		long[] arrivalTimes = new long[visits.size()];
+		long[] leavingTimes = new long[visits.size()];
+		int[] successivelyInCluster = new int[visits.size()];
+		int size = 0;
+		
+		for (ClusterVisit visit : visits) {
+			int clusterId = clusterIdOfVisit(visit, dictionary);
+			
+			// Skip visits of clusters that are not of interest
+			if (clusterMarks[clusterId] != mark) continue;
+			
+			// A visit of the same cluster increases the number of times the user stayed in the cluster
+			if (size > 0 && clusterIds[size - 1] == clusterId) {
+				successivelyInCluster[size - 1]++;
+			}
+			// A visit of a new cluster starts a new cluster of the sequence
+			else {
+				clusterIds[size] = clusterId;
+				arrivalTimes[size] = visit.getArrivalTime();
+				successivelyInCluster[size] = 1;
+				size++;
+			}
+			
+			// The leaving time is always set to the latest value
+			leavingTimes[size - 1] = visit.getLeavingTime();
+		}
+		
+		return new EncodedSequence(
+				Arrays.copyOf(clusterIds, size), 
+				Arrays.copyOf(arrivalTimes, size), 
+				Arrays.copyOf(leavingTimes, size), 
+				Arrays.copyOf(successivelyInCluster, size));
+	}
+	
+	/**
+	 * Returns the integer id of the cluster of the given visit. Visits without an integer
+	 * id are looked up in the dictionary. The marks are enlarged to hold the returned id.
+	 * 
+	 * @param visit the visit to get the integer id of its cluster for.
+	 * @param dictionary the dictionary to look up integer ids of visits without one.
+	 * @return the integer id of the cluster of the visit.
+	 */
+	private int clusterIdOfVisit(ClusterVisit visit, ClusterIdDictionary dictionary) {
+		int clusterId = visit.getClusterId();
+		if (clusterId < 0) clusterId = dictionary.idOf(visit.getId());
+		
+		if (clusterId >= clusterMarks.length)
+			clusterMarks = Arrays.copyOf(clusterMarks, Math.max(clusterId + 1, dictionary.size()));
+		
+		return clusterId;
+	}
+	
+	/**
+	 * Reserves two consecutive marks that were not used for any cluster before.
+	 * 
+	 * @return the first of both marks.
+	 */
+	private int nextMarks() {
+		// Start over with cleared marks before the marks overflow
+		if (lastMark >= Integer.MAX_VALUE - 2) {
+			Arrays.fill(clusterMarks, 0);
+			lastMark = 0;
+		}
+		
+		lastMark += 2;
+		return lastMark - 1;
+	}
+	
+	/**
+	 * @param visits the visits to get the cluster ids of.
+	 * @return a new set holding the distinct cluster ids of the given visits.
+	 */
+	private Set<String> clusterIdsOfVisits(List<ClusterVisit> visits) {
+		Set<String> clusterIds = new HashSet<String>();
+		
+		for (ClusterVisit visit : visits) {
+			clusterIds.add(visit.getId());
+		}
+		
+		return clusterIds;
+	}
 
 	/**
 	 * Converts the results of a Cypher query into a sequence of sequence clusters.
@@ -188,7 +466,7 @@ public class Neo4JSequenceExtractor implements IExtractor<Map<Integer, SequenceW
 					if (currentSequenceCluster.getId() == null) {
 						// Set current hg cluster id and add sequence cluster to sequence
 						currentSequenceCluster.setId(currentHgClusterId);
-						levelSequence.addCluster(currentSequenceCluster);
+						levelSequence = levelSequence.addCluster(currentSequenceCluster);
 						newCluster = true;
 					}
 					// A row with the same hg cluster id
@@ -201,7 +479,7 @@ public class Neo4JSequenceExtractor implements IExtractor<Map<Integer, SequenceW
 					else if (!currentSequenceCluster.getId().equals(currentHgClusterId)) {
 						// Create new current sequence cluster, set hg cluster id, add to sequence
 						currentSequenceCluster = new SequenceCluster(currentHgClusterId);
-						levelSequence.addCluster(currentSequenceCluster);
+						levelSequence = levelSequence.addCluster(currentSequenceCluster);
 						newCluster = true;
 					}
 				}
@@ -320,5 +598,20 @@ public class Neo4JSequenceExtractor implements IExtractor<Map<Integer, SequenceW
 		this.userNodeTwo = userNodeTwo;
 	}
 	
+	/**
+	 * @return the store that holds the cluster visits of users or <code>null</code>
+	 * if the visits are queried for each extraction.
+	 */
+	public UserSequenceStore getSequenceStore() {
+		return sequenceStore;
+	}
 	
+	/**
+	 * @param sequenceStore the store that holds the cluster visits of users. If set,
+	 * the levels of the store are used instead of the levels of this extractor. Giving 
+	 * <code>null</code> results in querying the graph database for each extraction.
+	 */
+	public void setSequenceStore(UserSequenceStore sequenceStore) {
+		this.sequenceStore = sequenceStore;
+	}
 }
@@ -0,0 +1,350 @@
+package de.tub.similarity.extraction;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.neo4j.cypher.javacompat.ExecutionResult;
+import org.neo4j.graphdb.Node;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.tub.graph.CypherQueries;
+import de.tub.graph.NodeProperties;
+import de.tub.similarity.ClusterIdDictionary;
+import de.tub.util.FileUtil;
+import de.tub.util.GraphUtil;
+
+/**
+ * The <code>UserSequenceStore</code> holds the cluster visits of users
+ * for each level of their hierarchical graphs. The visits of a user are
+ * read from the graph database only once, i.e., the first time they are
+ * requested. All subsequent requests are answered from the store.
+ * <p />
+ * By default all visits are held in memory. If a spill directory is given
+ * only a limited number of users is held in memory. The visits of the least
+ * recently used users are written to the spill directory and read back
+ * from there when they are requested again.
+ * <p />
+ * A store can be shared by several threads. The graph database is queried
+ * without holding the lock of the store, so the visits of different users can
+ * be read concurrently.
+ * <p />
+ * If a <code>ClusterIdDictionary</code> is set each visit read from the graph
+ * database also holds the integer id of its hg cluster. The dictionary has to
+ * be set before the first visits are requested.
+ *
+ * @author Sebastian Oelke
+ *
+ */
+public class UserSequenceStore {
+
+	private static final Logger LOG = LoggerFactory.getLogger(UserSequenceStore.class);
+
+	/** The default number of users to hold in memory if a spill directory is used. */
+	public static final int DEFAULT_USERS_IN_MEMORY = 1000;
+
+	/** The file extension of spilled user visits. */
+	private static final String SPILL_FILE_EXTENSION = ".visits";
+
+	private int fromLevel = -1;
+	private int toLevel = -1;
+
+	private File spillDirectory;
+	private int usersInMemory = DEFAULT_USERS_IN_MEMORY;
+	
+	private ClusterIdDictionary clusterIdDictionary;
+
+	/**
+	 * Holds the cluster visits of each level with the mapping
+	 * <code>[user_node_id, [level, visits_of_level]]</code>.
+	 */
+	private Map<Long, Map<Integer, List<ClusterVisit>>> visitsOfUser;
+
+	/** Holds the ids of the user nodes whose visits were written to the spill directory. */
+	private Set<Long> spilledUsers = new HashSet<Long>();
+
+	public UserSequenceStore() {
+		this(-1, -1);
+	}
+
+	public UserSequenceStore(int fromLevel, int toLevel) {
+		this.fromLevel = fromLevel;
+		this.toLevel = toLevel;
+		this.visitsOfUser = new HashMap<Long, Map<Integer, List<ClusterVisit>>>();
+	}
+
+	/**
+	 * Creates a store that holds at most <code>usersInMemory</code> users in memory. All
+	 * other users are written to the given spill directory.
+	 *
+	 * @param fromLevel the level of the hierarchical graphs to start reading visits from.
+	 * @param toLevel the level of the hierarchical graphs to stop reading visits at.
+	 * @param spillDirectory the directory to write spilled visits to.
+	 * @param usersInMemory the maximal number of users to hold in memory.
+	 * @throws NullPointerException if the spill directory is <code>null</code>.
+	 * @throws IllegalArgumentException if the number of users to hold in memory is smaller than one
+	 * or if the spill directory could not be created.
+	 */
+	public UserSequenceStore(int fromLevel, int toLevel, String spillDirectory, int usersInMemory)
+			throws NullPointerException, IllegalArgumentException {
+		this(fromLevel, toLevel);
+
+		if (spillDirectory == null)
+			throw new NullPointerException(
+				"You provided a null value for the spill directory. " +
+				"This parameter is expected to be non-null.");
+
+		if (usersInMemory < 1)
+			throw new IllegalArgumentException(
+				"You provided a number of users to hold in memory that is smaller than one. " +
+				"At least one user has to be held in memory.");
+
+		if (!FileUtil.ifNotExistCreateDir(spillDirectory))
+			throw new IllegalArgumentException(
+				"The spill directory '" + spillDirectory + "' does not exist and could not be created.");
+
+		this.spillDirectory = new File(spillDirectory);
+		this.usersInMemory = usersInMemory;
+
+		// Hold the users in access order to spill the least recently used one
+		this.visitsOfUser = new LinkedHashMap<Long, Map<Integer, List<ClusterVisit>>>(16, 0.75f, true) {
+			private static final long serialVersionUID = -3524711935489611474L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Map<Integer, List<ClusterVisit>>> eldest) {
+				if (size() <= UserSequenceStore.this.usersInMemory) return false;
+
+				// Visits of a user never change, they only have to be written once
+				if (!spilledUsers.contains(eldest.getKey()))
+					spill(eldest.getKey(), eldest.getValue());
+
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * Returns the cluster visits of the given user for each level of the user's
+	 * hierarchical graph. The visits of each level are ordered by the leaving time
+	 * of the corresponding stay points. The graph database is only queried
+	 * if the visits of the user are not already known to this store.
+	 *
+	 * @param userNode the user node to get the visits for.
+	 * @return the visits of the user with the mapping <code>[level, visits_of_level]</code>.
+	 * @throws NullPointerException if the given user node is <code>null</code>.
+	 */
+	public Map<Integer, List<ClusterVisit>> visitsOnLevel(Node userNode) throws NullPointerException {
+		if (userNode == null)
+			throw new NullPointerException(
+				"You provided a null value for the user node. " +
+				"This parameter is expected to be non-null.");
+
+		Long userNodeId = userNode.getId();
+		Map<Integer, List<ClusterVisit>> visits = null;
+
+		synchronized (this) {
+			// Visits are held in memory
+			visits = visitsOfUser.get(userNodeId);
+			if (visits != null) return visits;
+
+			// Visits were spilled to disk
+			if (spilledUsers.contains(userNodeId)) {
+				visits = readSpilled(userNodeId);
+
+				if (visits != null) {
+					visitsOfUser.put(userNodeId, visits);
+					return visits;
+				}
+			}
+		}
+
+		// Visits are unknown or could not be read from disk
+		visits = readFromGraph(userNodeId);
+
+		synchronized (this) {
+			// Another thread may have read the same visits in the meantime
+			Map<Integer, List<ClusterVisit>> knownVisits = visitsOfUser.get(userNodeId);
+			if (knownVisits != null) return knownVisits;
+
+			visitsOfUser.put(userNodeId, visits);
+		}
+
+		return visits;
+	}
+
+	/**
+	 * Removes all visits from this store including the spilled ones.
+	 */
+	public synchronized void clear() {
+		visitsOfUser.clear();
+
+		for (Long userNodeId : spilledUsers) {
+			FileUtil.deleteFileOrDirectory(spillFile(userNodeId));
+		}
+		spilledUsers.clear();
+	}
+
+	//###################################################################
+	// Helper
+	//###################################################################
+
+	/**
+	 * Queries the graph database for the visits of the given user and
+	 * maps them to the level of the visited clusters.
+	 *
+	 * @param userNodeId the id of the user node.
+	 * @return the visits of the user with the mapping <code>[level, visits_of_level]</code>.
+	 */
+	private Map<Integer, List<ClusterVisit>> readFromGraph(long userNodeId) {
+		Map<Integer, List<ClusterVisit>> visits = new HashMap<Integer, List<ClusterVisit>>();
+
+		// Get hg clusters of the user ordered by leaving time of stay points
+		ExecutionResult result = CypherQueries.hgClustersInStaypointOrderForUserFromToLevel(userNodeId, fromLevel, toLevel);
+
+		// Read each row of the result
+		for (Map<String, Object> row : result) {
+			String hgClusterId = (String) row.get(NodeProperties.HG_CLUSTER_ID);
+			long arrivalTime = (Long) row.get(NodeProperties.STAYPOINT_ARRIVAL);
+			long leavingTime = (Long) row.get(NodeProperties.STAYPOINT_LEAVING);
+
+			// Get visit list for the level of the current hg cluster, the dictionary holds the level of known clusters
+			int clusterId = -1;
+			Integer level = null;
+			if (clusterIdDictionary != null) {
+				clusterId = clusterIdDictionary.idOf(hgClusterId);
+				level = clusterIdDictionary.levelOf(clusterId);
+			} else
+				level = Integer.valueOf(GraphUtil.extractFrameworkClusterDepth(hgClusterId));
+			
+			List<ClusterVisit> levelVisits = visits.get(level);
+			// If there is no list for the current level create one
+			if (levelVisits == null) {
+				levelVisits = new ArrayList<ClusterVisit>();
+				visits.put(level, levelVisits);
+			}
+
+			levelVisits.add(new ClusterVisit(hgClusterId, clusterId, arrivalTime, leavingTime));
+		}
+
+		LOG.debug("Read visits of user node [{}] on {} levels.", userNodeId, visits.size());
+
+		return visits;
+	}
+
+	/**
+	 * Writes the given visits of a user to the spill directory.
+	 *
+	 * @param userNodeId the id of the user node.
+	 * @param visits the visits of the user.
+	 */
+	private void spill(Long userNodeId, Map<Integer, List<ClusterVisit>> visits) {
+		ObjectOutputStream out = null;
+		try {
+			out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(spillFile(userNodeId))));
+			out.writeObject(visits);
+
+			spilledUsers.add(userNodeId);
+		} catch (IOException e) {
+			// The visits are read from the graph again if they are requested
+			LOG.error("Could not spill the visits of user node [{}]:\n{}", userNodeId, e);
+		} finally {
+			if (out != null) {
+				try {
+					out.close();
+				} catch (IOException e) {
+					LOG.error("Could not close the spill file of user node [{}]:\n{}", userNodeId, e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads the visits of a user from the spill directory.
+	 *
+	 * @param userNodeId the id of the user node.
+	 * @return the visits of the user or <code>null</code> if they could not be read.
+	 */
+	@SuppressWarnings("unchecked")
+	private Map<Integer, List<ClusterVisit>> readSpilled(Long userNodeId) {
+		ObjectInputStream in = null;
+		try {
+			in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(spillFile(userNodeId))));
+			return (Map<Integer, List<ClusterVisit>>) in.readObject();
+		} catch (Exception e) {
+			LOG.error("Could not read the spilled visits of user node [{}]:\n{}", userNodeId, e);
+			spilledUsers.remove(userNodeId);
+			return null;
+		} finally {
+			if (in != null) {
+				try {
+					in.close();
+				} catch (IOException e) {
+					LOG.error("Could not close the spill file of user node [{}]:\n{}", userNodeId, e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param userNodeId the id of the user node.
+	 * @return the spill file of the given user node.
+	 */
+	private File spillFile(Long userNodeId) {
+		return new File(spillDirectory, userNodeId + SPILL_FILE_EXTENSION);
+	}
+
+	//###################################################################
+	// Setters & Getters
+	//###################################################################
+
+	/**
+	 * @return the level of the hierarchical graphs to start reading visits from.
+	 */
+	public int getFromLevel() {
+		return fromLevel;
+	}
+
+	/**
+	 * @return the level of the hierarchical graphs to stop reading visits at.
+	 */
+	public int getToLevel() {
+		return toLevel;
+	}
+
+	/**
+	 * @return the directory spilled visits are written to or <code>null</code> if
+	 * all visits are held in memory.
+	 */
+	public File getSpillDirectory() {
+		return spillDirectory;
+	}
+	
+	/**
+	 * @return the dictionary used to assign integer ids to the visited hg clusters or
+	 * <code>null</code> if visits do not hold integer ids.
+	 */
+	public ClusterIdDictionary getClusterIdDictionary() {
+		return clusterIdDictionary;
+	}
+	
+	/**
+	 * @param clusterIdDictionary the dictionary used to assign integer ids to the visited 
+	 * hg clusters. It has to be set before the first visits are requested.
+	 */
+	public void setClusterIdDictionary(ClusterIdDictionary clusterIdDictionary) {
+		this.clusterIdDictionary = clusterIdDictionary;
+	}
+}
@@ -0,0 +1,548 @@
+package de.tub.similarity.matching;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.tub.similarity.EncodedSequence;
+import de.tub.similarity.EncodedSequenceWrapper;
+import de.tub.similarity.EncodedSimilarSequence;
+import de.tub.util.DateTimeUtil;
+
+/**
+ * The <code>EncodedSequenceMatcher</code> matches the encoded cluster sequences
+ * of two users in the same way as the <code>Neo4JSequenceMatcher</code> matches
+ * their sequences of sequence clusters. Clusters are compared by their integer
+ * ids and the sub-sequences of a split sequence are ranges of its arrays.
+ * <p />
+ * The matrix of the lengths of common subsequences is held in an array that
+ * is reused for all pairs of sub-sequences. Only the maximal length similar
+ * sequences are enumerated, a similar sequence is represented by the positions
+ * of its clusters in both sub-sequences until the temporal constraint was
+ * checked. If a maximal number of similar sequences is set at most the given
+ * number of them is kept for each pair of sub-sequences.
+ * <p />
+ * An instance of this class must not be shared by several threads.
+ *
+ * @author Sebastian Oelke
+ *
+ * @see de.tub.similarity.matching.Neo4JSequenceMatcher
+ *
+ */
+public class EncodedSequenceMatcher implements IMatcher<Map<Integer, List<EncodedSimilarSequence>>> {
+
+	private static final Logger LOG = LoggerFactory.getLogger(EncodedSequenceMatcher.class);
+
+	private Map<Integer, EncodedSequenceWrapper> sequencesOnLevel;
+	private double temporalConstraintThreshold;
+	private int splitThreshold, minSequenceLength = 1;
+	private int maxSimilarSequences = -1;
+
+	/** The matrix of the lengths of common subsequences stored row by row. */
+	private int[] lengths = new int[0];
+	/** Marks the cells of the matrix that are visited when backtracking. */
+	private boolean[] reachable = new boolean[0];
+
+	/**
+	 * @param sequencesOnLevel the encoded sequences of two users on different levels of their hierarchical graphs.
+	 * @param splitThreshold the threshold in hours to use when splitting sequences in sub-sequences. If the transition time
+	 * between two consecutive clusters of a sequence exceeds this value the sequence is splitted.
+	 * @param minSequenceLength the minimum length a similar sequence has to have to be recognized. Defaults to a
+	 * length of one which is the minimal value possible.
+	 * @param temporalConstraintThreshold the temporal constraint threshold used to ensure that the sequences
+	 * of two users have similar transition times between consecutive clusters.
+	 */
+	public EncodedSequenceMatcher(Map<Integer, EncodedSequenceWrapper> sequencesOnLevel,
+			int splitThreshold, int minSequenceLength, double temporalConstraintThreshold) {
+		this.sequencesOnLevel = sequencesOnLevel;
+		this.splitThreshold = splitThreshold;
+		this.minSequenceLength = (minSequenceLength >= 1) ? minSequenceLength : 1;
+		this.temporalConstraintThreshold = temporalConstraintThreshold;
+	}
+
+	public EncodedSequenceMatcher(int splitThreshold, int minSequenceLength, double temporalConstraintThreshold) {
+		this(null, splitThreshold, minSequenceLength, temporalConstraintThreshold);
+	}
+
+	/**
+	 * @throws NullPointerException if the list of sequences on each level is <code>null</code>.
+	 */
+	@Override
+	public Map<Integer, List<EncodedSimilarSequence>> match() throws NullPointerException {
+		if (sequencesOnLevel == null)
+			throw new NullPointerException(
+				"You provided a null value for the required sequences on level. " +
+				"This parameter is expected to be non-null.");
+
+		Map<Integer, List<EncodedSimilarSequence>> maximalLengthSimilarSequencesOnLevel = new HashMap<Integer, List<EncodedSimilarSequence>>();
+
+		// Go through each level of the given sequences
+		for (Map.Entry<Integer, EncodedSequenceWrapper> levelSequences : sequencesOnLevel.entrySet()) {
+			Integer level = levelSequences.getKey();
+			EncodedSequenceWrapper wrapper = levelSequences.getValue();
+
+			if (wrapper == null) {
+				LOG.warn("A null sequence wrapper was found for level {}. Going to next level.", level);
+				continue;
+			}
+
+			EncodedSequence seq1 = wrapper.getFirstSequence();
+			EncodedSequence seq2 = wrapper.getSecondSequence();
+
+			// Step 1: Split the sequences of both users in sub-sequences, given by their start indices
+			int[] startsSeq1 = splitSequence(seq1);
+			int[] startsSeq2 = splitSequence(seq2);
+
+			// Step 2: Match all found sub-sequences against each other and apply the temporal constraint
+			List<EncodedSimilarSequence> levelList = new ArrayList<EncodedSimilarSequence>();
+			for (int i = 0; i < startsSeq1.length - 1; i++) {
+				for (int j = 0; j < startsSeq2.length - 1; j++) {
+					searchMaximalLengthSimilarSequences(
+							seq1, startsSeq1[i], startsSeq1[i + 1],
+							seq2, startsSeq2[j], startsSeq2[j + 1],
+							levelList);
+				}
+			}
+
+			if (!levelList.isEmpty())
+				maximalLengthSimilarSequencesOnLevel.put(level, levelList);
+		}
+
+		if (maximalLengthSimilarSequencesOnLevel.isEmpty())
+			LOG.warn("There were no maximal length similar sequences found.");
+		else
+			LOG.debug("Maximal length similar sequences: {}", maximalLengthSimilarSequencesOnLevel);
+
+		return maximalLengthSimilarSequencesOnLevel;
+	}
+
+	//###################################################################
+	// Helper
+	//###################################################################
+
+	/**
+	 * Goes through the given sequence and splits it if the transition time between
+	 * two consecutive clusters is greater than the split threshold.
+	 *
+	 * @param sequence the sequence to split.
+	 * @return the start index of each sub-sequence followed by the size of the sequence. If
+	 * the sequence is <code>null</code> or empty an array holding only zero is returned.
+	 */
+	private int[] splitSequence(EncodedSequence sequence) {
+		if (sequence == null || sequence.isEmpty()) return new int[] { 0 };
+
+		long[] arrivalTimes = sequence.getArrivalTimes();
+		long[] leavingTimes = sequence.getLeavingTimes();
+
+		int[] starts = new int[sequence.size() + 1];
+		int subSequences = 1;
+
+		for (int i = 1; i < sequence.size(); i++) {
+			// Start a new sub-sequence if the split threshold is exceeded
+			if (DateTimeUtil.differenceInHours(leavingTimes[i - 1], arrivalTimes[i]) > splitThreshold)
+				starts[subSequences++] = i;
+		}
+		starts[subSequences] = sequence.size();
+
+		int[] result = new int[subSequences + 1];
+		System.arraycopy(starts, 0, result, 0, result.length);
+		return result;
+	}
+
+	/**
+	 * Finds the maximal length similar sequences of the given sub-sequences, applies the
+	 * temporal constraint to them and adds the remaining ones to the given list.
+	 *
+	 * @param seq1 the first sequence.
+	 * @param from1 the start of the sub-sequence of the first sequence, inclusive.
+	 * @param to1 the end of the sub-sequence of the first sequence, exclusive.
+	 * @param seq2 the second sequence.
+	 * @param from2 the start of the sub-sequence of the second sequence, inclusive.
+	 * @param to2 the end of the sub-sequence of the second sequence, exclusive.
+	 * @param result the list to add the found similar sequences to.
+	 */
+	private void searchMaximalLengthSimilarSequences(
+			EncodedSequence seq1, int from1, int to1,
+			EncodedSequence seq2, int from2, int to2,
+			List<EncodedSimilarSequence> result) {
+		int n = to1 - from1;
+		int m = to2 - from2;
+		int width = m + 1;
+
+		int[] ids1 = seq1.getClusterIds();
+		int[] ids2 = seq2.getClusterIds();
+
+		// Compute the length of common subsequences into the reused matrix
+		int cells = (n + 1) * width;
+		if (lengths.length < cells) {
+			lengths = new int[cells];
+			reachable = new boolean[cells];
+		}
+
+		for (int j = 0; j <= m; j++) {
+			lengths[j] = 0;
+		}
+
+		for (int i = 1; i <= n; i++) {
+			int id1 = ids1[from1 + i - 1];
+			int row = i * width;
+			int previousRow = row - width;
+
+			lengths[row] = 0;
+			for (int j = 1; j <= m; j++) {
+				if (id1 == ids2[from2 + j - 1])
+					lengths[row + j] = lengths[previousRow + j - 1] + 1;
+				else
+					lengths[row + j] = Math.max(lengths[row + j - 1], lengths[previousRow + j]);
+			}
+		}
+
+		// Only sequences of maximal length that have at least minSequenceLength elements are of interest
+		int maxLength = lengths[n * width + m];
+		if (maxLength == 0 || maxLength < minSequenceLength) return;
+
+		// Enumerate the maximal length common subsequences and check the temporal constraint for each of them
+		for (MatchPath path : backtrackMaximalLength(ids1, from1, ids2, from2, n, m)) {
+			int[] positions1 = new int[path.length];
+			int[] positions2 = new int[path.length];
+
+			for (MatchPath current = path; current != null; current = current.previous) {
+				positions1[current.length - 1] = from1 + current.first - 1;
+				positions2[current.length - 1] = from2 + current.second - 1;
+			}
+
+			int checkedLength = checkTemporalConstraint(seq1, positions1, seq2, positions2);
+			if (checkedLength > 0)
+				result.add(createSimilarSequence(seq1, positions1, seq2, positions2, checkedLength));
+		}
+	}
+
+	/**
+	 * Extracts the common subsequences of maximal length from the matrix of lengths in the same
+	 * way as <code>Neo4JSequenceMatcher</code> does. Only the cells visited when backtracking
+	 * from the last cell are processed, row by row.
+	 *
+	 * @return the paths of the maximal length common subsequences. Duplicates are not returned.
+	 */
+	private Set<MatchPath> backtrackMaximalLength(int[] ids1, int from1, int[] ids2, int from2, int n, int m) {
+		int width = m + 1;
+		int limit = maxSimilarSequences > 0 ? maxSimilarSequences : Integer.MAX_VALUE;
+
+		// Step 1: Mark the cells that are visited when backtracking from the last cell
+		for (int cell = 0; cell < (n + 1) * width; cell++) {
+			reachable[cell] = false;
+		}
+		reachable[n * width + m] = true;
+
+		for (int i = n; i > 0; i--) {
+			for (int j = m; j > 0; j--) {
+				int cell = i * width + j;
+				// Cells without common subsequences end the backtracking
+				if (!reachable[cell] || lengths[cell] == 0) continue;
+
+				if (ids1[from1 + i - 1] == ids2[from2 + j - 1])
+					reachable[cell - width - 1] = true;
+				else {
+					if (lengths[cell - 1] >= lengths[cell - width]) reachable[cell - 1] = true;
+					if (lengths[cell - width] >= lengths[cell - 1]) reachable[cell - width] = true;
+				}
+			}
+		}
+
+		// Step 2: Build the maximal length paths of the marked cells row by row
+		List<Set<MatchPath>> previousRow = new ArrayList<Set<MatchPath>>(width);
+		List<Set<MatchPath>> currentRow = new ArrayList<Set<MatchPath>>(width);
+		for (int j = 0; j <= m; j++) {
+			previousRow.add(null);
+			currentRow.add(null);
+		}
+
+		boolean limitReached = false;
+
+		for (int i = 1; i <= n; i++) {
+			int id1 = ids1[from1 + i - 1];
+
+			for (int j = 1; j <= m; j++) {
+				currentRow.set(j, null);
+
+				int cell = i * width + j;
+				if (!reachable[cell] || lengths[cell] == 0) continue;
+
+				Set<MatchPath> cellSet = null;
+
+				// An element of both sequences is equal
+				if (id1 == ids2[from2 + j - 1]) {
+					cellSet = new LinkedHashSet<MatchPath>();
+
+					// The match starts a new path
+					if (lengths[cell - width - 1] == 0)
+						cellSet.add(new MatchPath(i, j, null));
+					// The match extends each previous path, previous paths are shared
+					else {
+						for (MatchPath path : previousRow.get(j - 1)) {
+							cellSet.add(new MatchPath(i, j, path));
+						}
+					}
+				}
+				// The current elements are not equal, take the paths of the previous element with the higher number
+				else {
+					boolean left = lengths[cell - 1] >= lengths[cell - width];
+					boolean up = lengths[cell - width] >= lengths[cell - 1];
+
+					if (left && !up)
+						cellSet = currentRow.get(j - 1);
+					else if (up && !left)
+						cellSet = previousRow.get(j);
+					else {
+						cellSet = new LinkedHashSet<MatchPath>(currentRow.get(j - 1));
+						for (MatchPath path : previousRow.get(j)) {
+							if (cellSet.size() >= limit) {
+								limitReached = true;
+								break;
+							}
+							cellSet.add(path);
+						}
+					}
+				}
+
+				currentRow.set(j, cellSet);
+			}
+
+			// The current row becomes the previous row
+			List<Set<MatchPath>> tempRow = previousRow;
+			previousRow = currentRow;
+			currentRow = tempRow;
+		}
+
+		Set<MatchPath> result = previousRow.get(m);
+
+		if (limitReached)
+			LOG.warn("More than {} maximal length similar sequences were found. Only the first {} are used.",
+					maxSimilarSequences, result.size());
+
+		return result;
+	}
+
+	/**
+	 * Checks the temporal constraint for the similar sequence given by the positions of its
+	 * clusters in the same way as <code>Neo4JSequenceMatcher</code> does. The positions of
+	 * rejected clusters are removed from both arrays, the remaining ones are moved to the front.
+	 *
+	 * @return the number of clusters of the similar sequence that redeem the temporal constraint.
+	 */
+	private int checkTemporalConstraint(EncodedSequence seq1, int[] positions1, EncodedSequence seq2, int[] positions2) {
+		long[] arrivalTimes1 = seq1.getArrivalTimes();
+		long[] leavingTimes1 = seq1.getLeavingTimes();
+		long[] arrivalTimes2 = seq2.getArrivalTimes();
+		long[] leavingTimes2 = seq2.getLeavingTimes();
+
+		int size = positions1.length;
+		boolean checkedTemporalConstraint = false;
+
+		while (!checkedTemporalConstraint && size > 0) {
+			// The sequence only has one element, check for overlap of its visiting intervals
+			if (size == 1) {
+				if (!DateTimeUtil.doTimeIntervalsOverlap(
+						arrivalTimes1[positions1[0]], leavingTimes1[positions1[0]],
+						arrivalTimes2[positions2[0]], leavingTimes2[positions2[0]]))
+					size = 0;
+
+				break;
+			}
+
+			// The first cluster of each pair that does not redeem the temporal constraint is rejected
+			boolean checkedTemporalConstraintInLoop = true;
+			int kept = 0;
+
+			for (int j = 0; j < size - 1; j++) {
+				int cluster1Seq1 = positions1[j], cluster1Seq2 = positions2[j];
+				int cluster2Seq1 = positions1[j + 1], cluster2Seq2 = positions2[j + 1];
+
+				boolean tempConstraintRedeemed = DateTimeUtil.isTemporalConstraintRedeemed(
+						arrivalTimes1[cluster2Seq1],
+						leavingTimes1[cluster1Seq1],
+						arrivalTimes2[cluster2Seq2],
+						leavingTimes2[cluster1Seq2],
+						temporalConstraintThreshold);
+
+				if (tempConstraintRedeemed) {
+					positions1[kept] = cluster1Seq1;
+					positions2[kept] = cluster1Seq2;
+					kept++;
+				} else
+					checkedTemporalConstraintInLoop = false;
+
+				if (j + 1 == size - 1) {
+					positions1[kept] = cluster2Seq1;
+					positions2[kept] = cluster2Seq2;
+					kept++;
+					if (checkedTemporalConstraintInLoop) checkedTemporalConstraint = true;
+				}
+			}
+
+			size = kept;
+		}
+
+		return size;
+	}
+
+	/**
+	 * Creates the similar sequence of the first <code>size</code> clusters given by their positions.
+	 * The successively in cluster count of each cluster is the minimum of both sequences.
+	 */
+	private EncodedSimilarSequence createSimilarSequence(
+			EncodedSequence seq1, int[] positions1, EncodedSequence seq2, int[] positions2, int size) {
+		int[] ids1 = seq1.getClusterIds();
+		int[] successivelyInCluster1 = seq1.getSuccessivelyInCluster();
+		int[] successivelyInCluster2 = seq2.getSuccessivelyInCluster();
+
+		int[] clusterIds = new int[size];
+		int[] successivelyInCluster = new int[size];
+
+		for (int k = 0; k < size; k++) {
+			clusterIds[k] = ids1[positions1[k]];
+			successivelyInCluster[k] = Math.min(
+					successivelyInCluster1[positions1[k]],
+					successivelyInCluster2[positions2[k]]);
+		}
+
+		return new EncodedSimilarSequence(clusterIds, successivelyInCluster);
+	}
+
+	//###################################################################
+	// MatchPath
+	//###################################################################
+
+	/**
+	 * A common subsequence given by the cells of the matched clusters. The path
+	 * ends with the cell <code>(first, second)</code> of the matrix and continues
+	 * with the previous path which is shared by all paths that extend it.
+	 */
+	private static final class MatchPath {
+
+		private final int first, second;
+		private final MatchPath previous;
+		private final int length;
+		private final int hash;
+
+		private MatchPath(int first, int second, MatchPath previous) {
+			this.first = first;
+			this.second = second;
+			this.previous = previous;
+			this.length = previous == null ? 1 : previous.length + 1;
+			this.hash = 31 * (31 * (previous == null ? 1 : previous.hash) + first) + second;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+
+			if (!(obj instanceof MatchPath))
+				return false;
+
+			MatchPath current = this;
+			MatchPath other = (MatchPath) obj;
+			if (current.length != other.length || current.hash != other.hash)
+				return false;
+
+			// Compare the cells until both paths share the same previous path
+			while (current != other) {
+				if (current.first != other.first || current.second != other.second)
+					return false;
+
+				current = current.previous;
+				other = other.previous;
+			}
+
+			return true;
+		}
+	}
+
+	//###################################################################
+	// Setters & Getters
+	//###################################################################
+
+	/**
+	 * @return the maximal number of similar sequences kept for each pair of sub-sequences.
+	 */
+	public int getMaxSimilarSequences() {
+		return maxSimilarSequences;
+	}
+
+	/**
+	 * @param maxSimilarSequences the maximal number of similar sequences kept for each pair
+	 * of sub-sequences. If the value is smaller than one all maximal length similar sequences
+	 * are kept.
+	 */
+	public void setMaxSimilarSequences(int maxSimilarSequences) {
+		this.maxSimilarSequences = maxSimilarSequences;
+	}
+
+	/**
+	 * @return the encoded sequences on the levels of the hierarchical graphs of two users.
+	 */
+	public Map<Integer, EncodedSequenceWrapper> getSequencesOnLevel() {
+		return sequencesOnLevel;
+	}
+
+	/**
+	 * @param sequencesOnLevel the encoded sequences on the levels of the hierarchical graphs of two users.
+	 */
+	public void setSequencesOnLevel(Map<Integer, EncodedSequenceWrapper> sequencesOnLevel) {
+		this.sequencesOnLevel = sequencesOnLevel;
+	}
+
+	/**
+	 * @return the temporal constraint threshold.
+	 */
+	public double getTemporalConstraintThreshold() {
+		return temporalConstraintThreshold;
+	}
+
+	/**
+	 * @param temporalConstraintThreshold the temporal constraint threshold to set.
+	 */
+	public void setTemporalConstraintThreshold(double temporalConstraintThreshold) {
+		this.temporalConstraintThreshold = temporalConstraintThreshold;
+	}
+
+	/**
+	 * @return the split threshold in hours.
+	 */
+	public int getSplitThreshold() {
+		return splitThreshold;
+	}
+
+	/**
+	 * @param splitThreshold the split threshold in hours to set.
+	 */
+	public void setSplitThreshold(int splitThreshold) {
+		this.splitThreshold = splitThreshold;
+	}
+
+	/**
+	 * @return the minimum length of a similar sequence.
+	 */
+	public int getMinSequenceLength() {
+		return minSequenceLength;
+	}
+
+	/**
+	 * @param minSequenceLength the minimum length of a similar sequence to set.
+	 */
+	public void setMinSequenceLength(int minSequenceLength) {
+		this.minSequenceLength = (minSequenceLength >= 1) ? minSequenceLength : 1;
+	}
+}
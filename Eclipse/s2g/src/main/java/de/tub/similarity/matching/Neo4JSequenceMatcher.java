@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -22,6 +23,12 @@ import de.tub.util.DateTimeUtil;
  * The <code>Neo4JSequenceMatcher</code> tries to match cluster sequences
  * of two users for different levels of their hierarchical graph to
  * find a maximal length similar sequence that both users share. 
+ * <p />
+ * By default all common subsequences of two sub-sequences are enumerated
+ * before the ones with maximal length are extracted. If a maximal number of
+ * similar sequences is set only the maximal length common subsequences
+ * are enumerated and at most the given number of them is kept for each
+ * pair of sub-sequences.
  * 
  * @author Sebastian Oelke
  *
@@ -34,6 +41,7 @@ public class Neo4JSequenceMatcher implements IMatcher<Map<Integer, List<Sequence
 	private Map<Integer, SequenceWrapper> sequencesOnLevel;
 	private double temporalConstraintThreshold;
 	private int splitThreshold, minSequenceLength = 1;
+	private int maxSimilarSequences = -1;
 	
 	/**
 	 * @param sequencesOnLevel the sequences of two users on different levels of their hierarchical graphs.
@@ -198,7 +206,13 @@ public class Neo4JSequenceMatcher implements IMatcher<Map<Integer, List<Sequence
 		int[][] c = computeLengthOfCommonSubsequences(seq1, seq2);
 		
 		// Extract all common subsequences with the help of the matrix
-		List<Sequence<SimilarSequenceCluster>> result = new ArrayList<Sequence<SimilarSequenceCluster>>(backtrackAll(c, seq1, seq2, seq1.size(), seq2.size()));
+		Set<Sequence<SimilarSequenceCluster>> commonSubsequences = null;
+		if (maxSimilarSequences > 0)
+			commonSubsequences = backtrackMaximalLength(c, seq1, seq2);
+		else
+			commonSubsequences = backtrackAll(c, seq1, seq2, seq1.size(), seq2.size());
+		
+		List<Sequence<SimilarSequenceCluster>> result = new ArrayList<Sequence<SimilarSequenceCluster>>(commonSubsequences);
 		
 		// <-- End: Longest common subsequence problem algorithm
 		// --> Start: Post-processing of common subsequences
@@ -298,9 +312,7 @@ public class Neo4JSequenceMatcher implements IMatcher<Map<Integer, List<Sequence
 	        for (Sequence<SimilarSequenceCluster> seq : backTrackSet)
 	        	returnSet.add(seq.addCluster(clusterToAdd));
 	        
-	        Sequence<SimilarSequenceCluster> tempSeq = new Sequence<SimilarSequenceCluster>();
-	        tempSeq.addCluster(clusterToAdd);
-	        returnSet.add(tempSeq);
+	        returnSet.add(new Sequence<SimilarSequenceCluster>().addCluster(clusterToAdd));
 	        
 	        return returnSet;
 	    }
@@ -318,6 +330,134 @@ public class Neo4JSequenceMatcher implements IMatcher<Map<Integer, List<Sequence
 	    }
 	}
 	
+	/**
+	 * Based on the length of longest common subsequences computed in <code>computeLengthOfCommonSubsequences()</code> 
+	 * this method extracts the common subsequences of maximal length. The result is the same as the
+	 * sequences of maximal length returned by <code>backtrackAll()</code>. But instead of collecting all common 
+	 * subsequences recursively only the maximal length ones are built for each cell of the matrix. The cells 
+	 * are processed row by row, so only the sequences of the current and the previous row are held in memory.
+	 * <p />
+	 * At most <code>maxSimilarSequences</code> sequences are kept for each cell. As the sequences of a cell are 
+	 * part of the sequences of all following cells the result is exact if it holds less sequences than this limit.
+	 * 
+	 * @param c the matrix that holds the length of longest common subsequences.
+	 * @param seq1 the first sequence that was analyzed.
+	 * @param seq2 the second sequence that was analyzed.
+	 * @return a set of the found similar sequences with maximal length. Duplicates are not returned.
+	 */
+	private Set<Sequence<SimilarSequenceCluster>> backtrackMaximalLength(
+			int[][] c, Sequence<SequenceCluster> seq1, Sequence<SequenceCluster> seq2) {
+		int n = seq1.size();
+		int m = seq2.size();
+		
+		// There is no common subsequence at all
+		if (c[n][m] == 0) return new LinkedHashSet<Sequence<SimilarSequenceCluster>>();
+		
+		// Step 1: Mark the cells that are visited when backtracking from the last cell
+		boolean[][] reachable = new boolean[n + 1][m + 1];
+		reachable[n][m] = true;
+		for (int i = n; i > 0; i--) {
+			for (int j = m; j > 0; j--) {
+				// Cells without common subsequences end the backtracking
+				if (!reachable[i][j] || c[i][j] == 0) continue;
+				
+				if (seq1.getCluster(i - 1).getId().equals(seq2.getCluster(j - 1).getId()))
+					reachable[i - 1][j - 1] = true;
+				else {
+					if (c[i][j - 1] >= c[i - 1][j]) reachable[i][j - 1] = true;
+					if (c[i - 1][j] >= c[i][j - 1]) reachable[i - 1][j] = true;
+				}
+			}
+		}
+		
+		// Step 2: Build the maximal length sequences of the marked cells row by row
+		List<Set<Sequence<SimilarSequenceCluster>>> previousRow = new ArrayList<Set<Sequence<SimilarSequenceCluster>>>();
+		List<Set<Sequence<SimilarSequenceCluster>>> currentRow = new ArrayList<Set<Sequence<SimilarSequenceCluster>>>();
+		for (int j = 0; j <= m; j++) {
+			previousRow.add(null);
+			currentRow.add(null);
+		}
+		
+		boolean limitReached = false;
+		
+		for (int i = 1; i <= n; i++) {
+			SequenceCluster currentSeq1Cluster = seq1.getCluster(i - 1);
+			
+			for (int j = 1; j <= m; j++) {
+				currentRow.set(j, null);
+				if (!reachable[i][j] || c[i][j] == 0) continue;
+				
+				SequenceCluster currentSeq2Cluster = seq2.getCluster(j - 1);
+				Set<Sequence<SimilarSequenceCluster>> cellSet = null;
+				
+				// An element of both sequences is equal
+				if (currentSeq1Cluster.getId().equals(currentSeq2Cluster.getId())) {
+					// Create a similar sequence cluster and set the successively in cluster count to
+					// the minimum of both current clusters
+					SimilarSequenceCluster clusterToAdd = new SimilarSequenceCluster(
+							currentSeq1Cluster.getId(), 
+							Math.min(currentSeq1Cluster.getSuccessivelyInCluster(),
+									currentSeq2Cluster.getSuccessivelyInCluster()),
+							currentSeq1Cluster.getArrivalTime(), 
+							currentSeq1Cluster.getLeavingTime(), 
+							currentSeq2Cluster.getArrivalTime(), 
+							currentSeq2Cluster.getLeavingTime());
+					
+					cellSet = new LinkedHashSet<Sequence<SimilarSequenceCluster>>();
+					
+					// The cluster starts a new sequence
+					if (c[i - 1][j - 1] == 0) {
+						cellSet.add(new Sequence<SimilarSequenceCluster>().addCluster(clusterToAdd));
+					}
+					// Add the similar sequence cluster to the end of each previous sequence, the
+					// previous sequences are not changed and share their clusters with the new ones
+					else {
+						for (Sequence<SimilarSequenceCluster> seq : previousRow.get(j - 1)) {
+							cellSet.add(seq.addCluster(clusterToAdd));
+						}
+					}
+				}
+				// The current elements of both sequences are not equal, take the sequences of
+				// the previous element with the higher number
+				else {
+					boolean left = c[i][j - 1] >= c[i - 1][j];
+					boolean up = c[i - 1][j] >= c[i][j - 1];
+					
+					// Sequences of a cell are never changed, so they can be shared
+					if (left && !up)
+						cellSet = currentRow.get(j - 1);
+					else if (up && !left)
+						cellSet = previousRow.get(j);
+					else {
+						cellSet = new LinkedHashSet<Sequence<SimilarSequenceCluster>>(currentRow.get(j - 1));
+						for (Sequence<SimilarSequenceCluster> seq : previousRow.get(j)) {
+							if (cellSet.size() >= maxSimilarSequences) {
+								limitReached = true;
+								break;
+							}
+							cellSet.add(seq);
+						}
+					}
+				}
+				
+				currentRow.set(j, cellSet);
+			}
+			
+			// The current row becomes the previous row
+			List<Set<Sequence<SimilarSequenceCluster>>> tempRow = previousRow;
+			previousRow = currentRow;
+			currentRow = tempRow;
+		}
+		
+		Set<Sequence<SimilarSequenceCluster>> result = previousRow.get(m);
+		
+		if (limitReached)
+			LOG.warn("More than {} maximal length similar sequences were found. Only the first {} are used.", 
+					maxSimilarSequences, result.size());
+		
+		return result;
+	}
+	
 	/**
 	 * Extracts those sequences of the given sequences list that have a maximum length and 
 	 * redeem the <code>minSequenceLength</code> parameter.
@@ -421,12 +561,12 @@ public class Neo4JSequenceMatcher implements IMatcher<Map<Integer, List<Sequence
 						temporalConstraintThreshold);
 				
 				if (tempConstraintRedeemed)
-					tempSequence.addCluster(cluster1);
+					tempSequence = tempSequence.addCluster(cluster1);
 				else
 					checkedTemporalConstraintInLoop = false;
 				
 				if (j+1 == seq.size()-1) {
-					tempSequence.addCluster(cluster2);
+					tempSequence = tempSequence.addCluster(cluster2);
 					if (checkedTemporalConstraintInLoop) checkedTemporalConstraint = true;
 				}
 			}
@@ -441,6 +581,22 @@ public class Neo4JSequenceMatcher implements IMatcher<Map<Integer, List<Sequence
 	// Setter & Getter
 	//###################################################################
 
+	/**
+	 * @return the maximal number of similar sequences kept for each pair of sub-sequences.
+	 */
+	public int getMaxSimilarSequences() {
+		return maxSimilarSequences;
+	}
+
+	/**
+	 * @param maxSimilarSequences the maximal number of similar sequences kept for each pair 
+	 * of sub-sequences. If a value greater than zero is given only the maximal length similar 
+	 * sequences are enumerated. Otherwise all common subsequences are enumerated.
+	 */
+	public void setMaxSimilarSequences(int maxSimilarSequences) {
+		this.maxSimilarSequences = maxSimilarSequences;
+	}
+	
 	/**
 	 * @return the sequences on the levels of the hierarchical graphs of two users.
 	 */
@@ -1,9 +1,17 @@
 package de.tub.util;
 
+import java.util.Collections;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.javalite.activejdbc.DB;
 import org.neo4j.cypher.javacompat.ExecutionEngine;
+import org.neo4j.cypher.javacompat.ExecutionResult;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.kernel.EmbeddedGraphDatabase;
 import org.slf4j.Logger;
@@ -23,8 +31,10 @@ public class DBUtil {
 	
 	// The logical name of the database connection
 	private static final String DB_LOGICAL_NAME = "default";
-	// The reference to the database connection
-	private static DB db;
+	// The reference to the database connection of each thread
+	private static final ThreadLocal<DB> db = new ThreadLocal<DB>();
+	// Whether the shutdown hook of the relational database is registered
+	private static final AtomicBoolean dbShutdownHookRegistered = new AtomicBoolean();
 	// Properties for relational database (e.g., MySQL)
 	private static String sqlDriver, sqlUrl, sqlUser, sqlPassword;
 	// Properties for graph database (e.g., Neo4j)
@@ -32,6 +42,16 @@ public class DBUtil {
 	
 	// Neo4j graph instance
 	private static GraphDatabaseService graph;
+	// Neo4j graph instance bound to a thread and the threads it creates instead of the shared instance
+	private static final InheritableThreadLocal<BoundGraph> boundGraph = new InheritableThreadLocal<BoundGraph>();
+	// The bound graph instances that are open, they are shutdown with the shared instance on exit
+	private static final Set<BoundGraph> openBoundGraphs = Collections.newSetFromMap(new ConcurrentHashMap<BoundGraph, Boolean>());
+	// Whether the shutdown hook of the graph databases is registered
+	private static final AtomicBoolean graphShutdownHookRegistered = new AtomicBoolean();
+	// Cypher execution engine shared by all queries on the graph instance
+	private static volatile ExecutionEngine cypherEngine;
+	// Query texts executed on the shared engine
+	private static final CypherQueryStatistics cypherQueryStatistics = new CypherQueryStatistics();
 	// Neo4j indices names
 	public static final String FRAMEWORK_CLUSTER_INDEX = "framework_cluster";
 	public static final String HG_CLUSTER_INDEX = "hg_cluster";
@@ -85,6 +105,10 @@ public class DBUtil {
 	/**
 	 * Sets up a connection to the database with the given
 	 * parameters. Checks for non-null values.
+	 * <p />
+	 * ActiveJDBC attaches a connection to the thread that opens it. Hence, 
+	 * each thread that accesses the database has to open its own connection 
+	 * with this method and close it with {@link #close()} when it is done.
 	 * 
 	 * @param driver the driver to use for the connection
 	 * @param url the url to use for the connection
@@ -112,29 +136,32 @@ public class DBUtil {
 					"\tDriver: {}\n\tURL: {}\n\tUser: {}\n\tPassword: {}",
 					new Object[] {driver, url, user, password});
 		
-		// Create database instance
-		if (db == null) {
-			db = new DB(DB_LOGICAL_NAME);
-		} else
-			LOG.warn("There is already a database instance. A new one is not created.");
+		// Create database instance of the current thread
+		DB threadDb = db.get();
+		if (threadDb == null) {
+			threadDb = new DB(DB_LOGICAL_NAME);
+			db.set(threadDb);
+		}
 		
 		// Setup connection to database if not already done
-		if (db != null && !db.hasConnection())
-			db.open(driver, url, user, password);
+		if (!threadDb.hasConnection())
+			threadDb.open(driver, url, user, password);
 		else
 			LOG.warn("A connection to the database called {} was already opened.", DB_LOGICAL_NAME);
 		
 		// Let the connection to the relational database be closed correctly
-		registerDbShutdownHook();
+		if (dbShutdownHookRegistered.compareAndSet(false, true))
+			registerDbShutdownHook();
 	}
 	
 	/**
-	 * Closes the connection to the database.
+	 * Closes the connection of the current thread to the database.
 	 */
 	public static void close() {
-		if (db != null && db.hasConnection()) {
+		DB threadDb = db.get();
+		if (threadDb != null && threadDb.hasConnection()) {
 			LOG.debug("Closing connection to database.");
-			db.close();
+			threadDb.close();
 		}
 	}
 	
@@ -146,13 +173,20 @@ public class DBUtil {
 	 * Creates a Neo4j <code>EmbeddedGraphDatabase</code> if not already done
 	 * and returns it. This is a convenience method for <code>graph(storagePath)</code>
 	 * using the default storage path for the creation of a Neo4j graph database.
+	 * <p />
+	 * If a graph database is bound to the current thread (see {@link #bindGraph(String)})
+	 * the bound graph database is returned instead.
 	 * 
 	 * @return an instance of <code>EmbeddedGraphDatabase</code> with the storage
 	 * directory specified in the properties file 'db.properties' with the key
-	 * 'neo4j.path'.
+	 * 'neo4j.path' or the graph database bound to the current thread.
 	 * @see DBUtil#graph(String)
 	 */
-	public synchronized static GraphDatabaseService graph() {
+	public static GraphDatabaseService graph() {
+		BoundGraph bound = boundGraph.get();
+		if (bound != null)
+			return bound.graph();
+		
 		return graph(neo4jPath);
 	}
 
@@ -172,7 +206,8 @@ public class DBUtil {
 			graph = new EmbeddedGraphDatabase(storagePath);
 			
 			// Let the graph database shutdown correctly
-			registerGraphShutdownHook();
+			if (graphShutdownHookRegistered.compareAndSet(false, true))
+				registerGraphShutdownHook();
 		}
 		else if (storagePath == null) {
 			throw new NullPointerException(
@@ -185,29 +220,255 @@ public class DBUtil {
 	
 	/**
 	 * Closes the Neo4j <code>EmbeddedGraphDatabase</code> if it was 
-	 * instantiated beforehand.
+	 * instantiated beforehand. If a graph database is bound to the current 
+	 * thread only the bound graph database is closed. It stays bound and is 
+	 * opened again on the next call of {@link #graph()}.
 	 * 
 	 * @see GraphDatabaseService#shutdown()
 	 */
-	public static void closeGraph() {
+	public synchronized static void closeGraph() {
+		BoundGraph bound = boundGraph.get();
+		if (bound != null) {
+			bound.shutdown();
+			return;
+		}
+		
+		closeSharedGraph();
+	}
+	
+	/**
+	 * Closes the shared graph database regardless of a graph database bound 
+	 * to the current thread.
+	 */
+	private synchronized static void closeSharedGraph() {
 		if (graph != null) {
 			LOG.debug("Closing connection to graph database.");
 			graph.shutdown();
 			graph = null;
 		}
+		
+		// The engine and its plans belong to the closed graph instance
+		cypherEngine = null;
+		cypherQueryStatistics.reset();
 	}
 	
 	/**
-	 * Creates a Neo4j Cypher <code>ExecutionEngine</code> to run
-	 * Cypher queries on the graph database.
+	 * Returns the Neo4j Cypher <code>ExecutionEngine</code> to run
+	 * Cypher queries on the graph database. The engine is created once
+	 * for the graph instance and shared by all callers. It is thread-safe
+	 * and caches the execution plans of the queries it runs by their query
+	 * text. Hence, queries should pass their values as parameters to keep
+	 * the query text stable.
+	 * <p />
+	 * If a graph database is bound to the current thread the engine of the
+	 * bound graph database is returned instead.
 	 * 
-	 * @return an instance of <code>ExecutionEngine</code>.
+	 * @return the shared instance of <code>ExecutionEngine</code>.
 	 * @see org.neo4j.cypher.javacompat.ExecutionEngine ExecutionEngine
 	 */
 	public static ExecutionEngine cypherEngine() {
-		LOG.debug("Creation of Cypher execution engine.");
+		BoundGraph bound = boundGraph.get();
+		if (bound != null)
+			return bound.cypherEngine();
 		
-		return new ExecutionEngine(graph());
+		ExecutionEngine engine = cypherEngine;
+		if (engine == null) {
+			synchronized (DBUtil.class) {
+				engine = cypherEngine;
+				if (engine == null) {
+					LOG.debug("Creation of Cypher execution engine.");
+					
+					engine = new ExecutionEngine(graph());
+					cypherEngine = engine;
+				}
+			}
+		}
+		
+		return engine;
+	}
+	
+	/**
+	 * Executes the given Cypher query with the given parameters on the shared 
+	 * <code>ExecutionEngine</code> and records whether its query text was 
+	 * executed before (see {@link #repeatedCypherQueryRate()}).
+	 * 
+	 * @param query the Cypher query to execute. Values should be referenced 
+	 * as parameters, e.g. <code>{id}</code>.
+	 * @param params the parameters of the query. May be <code>null</code> if 
+	 * the query has no parameters.
+	 * @return the result of the query.
+	 * @throws NullPointerException if the given query is <code>null</code>.
+	 * @see DBUtil#cypherEngine()
+	 */
+	public static ExecutionResult executeCypher(String query, Map<String, Object> params) 
+			throws NullPointerException {
+		if (query == null)
+			throw new NullPointerException(
+				"You provided a null value for the Cypher query. " +
+				"This parameter is expected to be non-null.");
+		
+		BoundGraph bound = boundGraph.get();
+		(bound != null ? bound.cypherQueryStatistics : cypherQueryStatistics).record(query);
+		
+		if (params == null)
+			return cypherEngine().execute(query);
+		
+		return cypherEngine().execute(query, params);
+	}
+	
+	/**
+	 * Returns the share of the Cypher executions through {@link #executeCypher(String, Map)} 
+	 * on the graph database of the current thread whose query text was executed on it before. 
+	 * This is an upper bound of the plan cache hit rate of the engine: the engine caches its 
+	 * execution plans by the query text but it may evict them. The statistics are reset when 
+	 * the graph database is closed or unbound.
+	 * 
+	 * @return the rate of repeated query texts between zero and one or zero if no query 
+	 * was executed yet.
+	 * @see DBUtil#executeCypher(String, Map)
+	 */
+	public static double repeatedCypherQueryRate() {
+		BoundGraph bound = boundGraph.get();
+		
+		return (bound != null ? bound.cypherQueryStatistics : cypherQueryStatistics).repeatedRate();
+	}
+	
+	/**
+	 * Resets the statistics of the Cypher queries on the graph database of the current thread.
+	 * 
+	 * @see DBUtil#repeatedCypherQueryRate()
+	 */
+	public static void resetCypherQueryStatistics() {
+		BoundGraph bound = boundGraph.get();
+		
+		(bound != null ? bound.cypherQueryStatistics : cypherQueryStatistics).reset();
+	}
+	
+	/**
+	 * Binds a graph database with the given storage path to the current thread.
+	 * All threads that are created by the current thread afterwards inherit the 
+	 * binding. While the binding exists {@link #graph()}, {@link #cypherEngine()}, 
+	 * {@link #closeGraph()} and {@link #getNeo4jPath()} refer to the bound graph 
+	 * database instead of the shared one. Hence, several threads can work on their
+	 * own graph databases at the same time. The graph database is opened on the 
+	 * first call of {@link #graph()}. Like the shared graph database it is shutdown 
+	 * on exit of the JVM if it is still open.
+	 * 
+	 * @param storagePath the path to store the bound graph database in.
+	 * @throws NullPointerException if the given <code>storagePath</code> is <code>null</code>.
+	 * @throws IllegalStateException if a graph database is already bound to the current thread.
+	 * @see DBUtil#unbindGraph()
+	 */
+	public static void bindGraph(String storagePath) throws NullPointerException, IllegalStateException {
+		if (storagePath == null)
+			throw new NullPointerException(
+					"You have to specify a non-null storage path for the proper creation of " +
+					"a Neo4j graph database.");
+		else if (boundGraph.get() != null)
+			throw new IllegalStateException(
+					"There is already a graph database bound to the current thread with the storage path " + 
+					boundGraph.get().storagePath + ". Unbind it before a new one is bound.");
+		
+		LOG.debug("Bind the graph database at {} to the current thread.", storagePath);
+		boundGraph.set(new BoundGraph(storagePath));
+	}
+	
+	/**
+	 * Closes the graph database bound to the current thread and removes the binding.
+	 * Nothing is done if no graph database is bound to the current thread. If the 
+	 * binding was inherited from another thread only the binding is removed.
+	 * 
+	 * @see DBUtil#bindGraph(String)
+	 */
+	public static void unbindGraph() {
+		BoundGraph bound = boundGraph.get();
+		if (bound != null) {
+			LOG.debug("Unbind the graph database at {} from the current thread.", bound.storagePath);
+			// The thread that bound the graph database is responsible for closing it
+			if (bound.owner == Thread.currentThread())
+				bound.shutdown();
+			boundGraph.remove();
+		}
+	}
+	
+	/**
+	 * A graph database and its Cypher execution engine that are bound to a thread.
+	 */
+	private static class BoundGraph {
+		private final String storagePath;
+		private final Thread owner = Thread.currentThread();
+		private final CypherQueryStatistics cypherQueryStatistics = new CypherQueryStatistics();
+		private GraphDatabaseService graph;
+		private ExecutionEngine cypherEngine;
+		
+		BoundGraph(String storagePath) {
+			this.storagePath = storagePath;
+		}
+		
+		synchronized GraphDatabaseService graph() {
+			if (graph == null) {
+				LOG.debug(	"Setup connection to bound Neo4j graph database:\n" +
+							"\tStorage path: {}", storagePath);
+				graph = new EmbeddedGraphDatabase(storagePath);
+				
+				// Let the bound graph database shutdown correctly as well
+				openBoundGraphs.add(this);
+				if (graphShutdownHookRegistered.compareAndSet(false, true))
+					registerGraphShutdownHook();
+			}
+			
+			return graph;
+		}
+		
+		synchronized ExecutionEngine cypherEngine() {
+			if (cypherEngine == null) {
+				LOG.debug("Creation of Cypher execution engine for the bound graph database.");
+				cypherEngine = new ExecutionEngine(graph());
+			}
+			
+			return cypherEngine;
+		}
+		
+		synchronized void shutdown() {
+			if (graph != null) {
+				LOG.debug("Closing connection to bound graph database at {}.", storagePath);
+				graph.shutdown();
+				graph = null;
+				openBoundGraphs.remove(this);
+			}
+			cypherEngine = null;
+			cypherQueryStatistics.reset();
+		}
+	}
+	
+	/**
+	 * Counts the Cypher executions on one graph database whose query text was
+	 * executed before and the ones with a new query text.
+	 */
+	private static class CypherQueryStatistics {
+		private final ConcurrentMap<String, Boolean> queryTexts = new ConcurrentHashMap<String, Boolean>();
+		private final AtomicLong repeated = new AtomicLong();
+		private final AtomicLong distinct = new AtomicLong();
+		
+		void record(String query) {
+			if (queryTexts.putIfAbsent(query, Boolean.TRUE) == null)
+				distinct.incrementAndGet();
+			else
+				repeated.incrementAndGet();
+		}
+		
+		double repeatedRate() {
+			long repeatedQueries = repeated.get();
+			long total = repeatedQueries + distinct.get();
+			
+			return total == 0 ? 0d : (double) repeatedQueries / total;
+		}
+		
+		void reset() {
+			queryTexts.clear();
+			repeated.set(0L);
+			distinct.set(0L);
+		}
 	}
 	
 	//###################################################################
@@ -232,16 +493,20 @@ public class DBUtil {
     }
 	
 	/**
-	 * This hook is registered when the graph database is invoked. If the 
+	 * This hook is registered when the first graph database is invoked. If the 
 	 * JVM is shutdown all shutdown hooks are invoked. This ensures that the 
-	 * graph database is shutdown successfully in any case.
+	 * shared graph database and all open bound graph databases are shutdown 
+	 * successfully in any case.
 	 * 
 	 */
 	private static void registerGraphShutdownHook() {
         Runtime.getRuntime().addShutdownHook(new Thread() {
             @Override
             public void run() {
-                closeGraph();
+            	// The hook inherits the binding of the registering thread, hence, close all graphs explicitly
+            	for (BoundGraph bound : openBoundGraphs)
+            		bound.shutdown();
+                closeSharedGraph();
             }
         }
         );
@@ -252,9 +517,14 @@ public class DBUtil {
 	//###################################################################
 	
 	/**
-	 * @return the the path to the Neo4j graph database.
+	 * @return the the path to the Neo4j graph database or the path of the 
+	 * graph database bound to the current thread.
 	 */
 	public static String getNeo4jPath() {
+		BoundGraph bound = boundGraph.get();
+		if (bound != null)
+			return bound.storagePath;
+		
 		return neo4jPath;
 	}
 }
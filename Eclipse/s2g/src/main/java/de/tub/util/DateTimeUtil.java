@@ -19,6 +19,10 @@ public class DateTimeUtil {
 	
 	public static final long MILLISECONDS_PER_MINUTE = 60 * 1000L;
 	public static final long MILLISECONDS_PER_HOUR = 60 * 60 * 1000L;
+	public static final long MILLISECONDS_PER_DAY = 24 * 60 * 60 * 1000L;
+	
+	// The days from 12/30/1899 to 01/01/1970
+	private static final int DAYS_FROM_1899_TO_EPOCH = 25569;
 	
 	public static final String DEFAULT_DATE_FORMAT = "dd-MM-yyyy HH:mm:ss.SSS";
 	
@@ -39,6 +43,32 @@ public class DateTimeUtil {
 		return (date2.getTime() - date1.getTime()) / (MILLISECONDS_PER_MINUTE);
 	}
 	
+	/**
+	 * Calculates the difference in minutes between two dates given as
+	 * <code>long</code> values.
+	 * 
+	 * @param date1 the first date
+	 * @param date2 the second date
+	 * @return the difference in minutes between <code>date1</code> and <code>date2</code>
+	 */
+	public static long differenceInMinutes(long date1, long date2) {
+		return (date2 - date1) / (MILLISECONDS_PER_MINUTE);
+	}
+	
+	/**
+	 * Converts a date given as the number of days passed since 12/30/1899
+	 * (e.g., the fifth column of the GPS logs of the GeoLife data set) to
+	 * milliseconds since 01/01/1970 UTC. The fraction of a day is the time
+	 * of the day. The result is rounded to full seconds as such dates do not
+	 * carry more precision than seconds.
+	 * 
+	 * @param days the days passed since 12/30/1899.
+	 * @return the date in milliseconds since 01/01/1970 UTC.
+	 */
+	public static long daysSince1899ToMillis(double days) {
+		return Math.round((days - DAYS_FROM_1899_TO_EPOCH) * (MILLISECONDS_PER_DAY / 1000)) * 1000;
+	}
+	
 	/**
 	 * Calculates the difference in hours between two dates given as
 	 * <code>long</code> values.
@@ -77,4 +77,30 @@ public class GeoUtil {
 		return new GeoPointWrapper(meanLatitude, meanLongitude);
 	}
 	
+	/**
+	 * Computes the mean longitude and latitude values for the points
+	 * in the given range of the given arrays.
+	 * 
+	 * @param latitudes the latitudes of the points
+	 * @param longitudes the longitudes of the points
+	 * @param from the index of the first point, inclusive
+	 * @param to the index of the last point, exclusive
+	 * @return the mean latitude and longitude wrapped in an instance of <code>GeoPointWrapper</code>
+	 */
+	public static GeoPointWrapper computeMeanPosition(double[] latitudes, double[] longitudes, int from, int to) {
+		double meanLatitude = 0.0, meanLongitude = 0.0;
+		
+		for (int i = from; i < to; i++) {
+			meanLatitude += latitudes[i];
+			meanLongitude += longitudes[i];
+		}
+		
+		// Compute mean
+		int itemsSize = to - from;
+		meanLatitude = meanLatitude / itemsSize;
+		meanLongitude = meanLongitude / itemsSize;
+		
+		return new GeoPointWrapper(meanLatitude, meanLongitude);
+	}
+	
 }
@@ -1,5 +1,6 @@
 package de.tub.util;
 
+import java.nio.charset.Charset;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.util.Locale;
@@ -19,6 +20,13 @@ public class NumberUtil {
 	
 	public static final String DEFAULT_DECIMAL_FORMAT = "0.##########";
 	
+	private static final Charset ASCII = Charset.forName("US-ASCII");
+	// The powers of ten that are exactly representable as double values
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+	
 	private static DecimalFormatSymbols symbols = new DecimalFormatSymbols(Locale.getDefault());
 	
 	static {
@@ -63,4 +71,72 @@ public class NumberUtil {
 		return new DecimalFormat(format, symbols);
 	}
 	
+	/**
+	 * Parses a list of integers which are separated by the ',' character.
+	 * Whitespace around the integers is ignored.
+	 * 
+	 * @param list the list of integers.
+	 * @return the integers in the order of the list.
+	 * @throws NullPointerException if the given list is <code>null</code>.
+	 * @throws NumberFormatException if an element of the list is not an integer.
+	 */
+	public static int[] parseIntegers(String list) throws NullPointerException, NumberFormatException {
+		if (list == null)
+			throw new NullPointerException(
+				"You provided a null value for the list of integers. " +
+				"This parameter is expected to be non-null.");
+		
+		String[] elements = list.split(",");
+		int[] integers = new int[elements.length];
+		for (int i = 0; i < elements.length; i++)
+			integers[i] = Integer.parseInt(elements[i].trim());
+		
+		return integers;
+	}
+	
+	/**
+	 * Parses the decimal number in the given range of the given ASCII bytes
+	 * (e.g., "-12.345") without creating a <code>String</code>. Numbers with 
+	 * more than 15 significant digits or an exponent are parsed with 
+	 * <code>Double.parseDouble(String)</code>, hence, the result is always
+	 * the same as the one of <code>Double.parseDouble(String)</code>.
+	 * 
+	 * @param bytes the bytes that contain the number.
+	 * @param from the index of the first byte of the number.
+	 * @param to the index after the last byte of the number.
+	 * @return the parsed number.
+	 * @throws NumberFormatException if the given range does not contain a number.
+	 */
+	public static double parseDouble(byte[] bytes, int from, int to) throws NumberFormatException {
+		int i = from;
+		boolean negative = false;
+		if (i < to && (bytes[i] == '-' || bytes[i] == '+'))
+			negative = bytes[i++] == '-';
+		
+		long mantissa = 0;
+		int digits = 0, fractionDigits = 0;
+		boolean anyDigit = false, fraction = false;
+		for (; i < to; i++) {
+			byte b = bytes[i];
+			if (b >= '0' && b <= '9') {
+				anyDigit = true;
+				mantissa = mantissa * 10 + (b - '0');
+				if (fraction) fractionDigits++;
+				// Leading zeros are not significant, a mantissa below 2^53 is exact
+				if (mantissa > 0 && ++digits > 15) break;
+			} else if (b == '.' && !fraction)
+				fraction = true;
+			else
+				break;
+		}
+		
+		// Too many digits, another format or no number at all
+		if (i < to || !anyDigit || fractionDigits >= POWERS_OF_TEN.length)
+			return Double.parseDouble(new String(bytes, from, to - from, ASCII));
+		
+		// The division of two exact values is correctly rounded
+		double value = mantissa / POWERS_OF_TEN[fractionDigits];
+		return negative ? -value : value;
+	}
+	
 }
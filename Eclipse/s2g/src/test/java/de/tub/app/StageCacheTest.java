@@ -0,0 +1,85 @@
+package de.tub.app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.tub.TestHelper;
+
+public class StageCacheTest {
+
+	private static final String CACHE_DIR = "stageCacheTestDir";
+	private static final String KEY = "key";
+
+	private StageCache cache;
+
+	@Before
+	public void setup() {
+		cache = new StageCache(CACHE_DIR);
+	}
+
+	@After
+	public void teardown() {
+		TestHelper.deleteFileOrDirectory(CACHE_DIR);
+	}
+
+	@Test
+	public void testHash() {
+		assertEquals("The hash of the same parts should be the same.",
+				StageCache.hash("a", 0.2, 20), StageCache.hash("a", 0.2, 20));
+		assertFalse("The hash of different parts should differ.",
+				StageCache.hash("a", 0.2, 20).equals(StageCache.hash("a", 0.3, 20)));
+		assertFalse("The hash should depend on the boundaries of the parts.",
+				StageCache.hash("ab", "c").equals(StageCache.hash("a", "bc")));
+	}
+
+	@Test
+	public void testComplete() {
+		assertFalse("The stage should not be complete before it was run.", cache.isComplete(StageCache.GRAPH, KEY));
+
+		File dir = cache.prepare(StageCache.GRAPH, KEY);
+		assertTrue("The output directory of the stage should exist.", dir.isDirectory());
+		assertFalse("The stage should not be complete before it was marked.", cache.isComplete(StageCache.GRAPH, KEY));
+
+		cache.complete(StageCache.GRAPH, KEY);
+		assertTrue("The stage should be complete.", cache.isComplete(StageCache.GRAPH, KEY));
+		assertFalse("Other stages should not be complete.", cache.isComplete(StageCache.CLUSTERING, KEY));
+	}
+
+	@Test
+	public void testPrepareDiscardsOutput() throws IOException {
+		File dir = cache.prepare(StageCache.CLUSTERING, KEY);
+		File output = new File(dir, "cluster.txt");
+		assertTrue(output.createNewFile());
+		cache.complete(StageCache.CLUSTERING, KEY);
+
+		dir = cache.prepare(StageCache.CLUSTERING, KEY);
+		assertFalse("The previous output of the stage should be deleted.", output.exists());
+		assertFalse("The stage should not be complete after it was prepared again.", cache.isComplete(StageCache.CLUSTERING, KEY));
+	}
+
+	@Test
+	public void testResults() {
+		double[][] results = new double[][] { { 0d, 0.5d, 1d }, { 0d, 0d, 0.25d }, { 0d, 0d, 0d } };
+
+		cache.storeResults(KEY, results);
+		assertTrue("The similarity stage should be complete.", cache.isComplete(StageCache.SIMILARITY, KEY));
+
+		double[][] loaded = cache.loadResults(KEY);
+		assertNotNull(loaded);
+		assertEquals(results.length, loaded.length);
+		for (int i = 0; i < results.length; i++) {
+			assertEquals(results[i].length, loaded[i].length);
+			for (int j = 0; j < results[i].length; j++)
+				assertEquals(results[i][j], loaded[i][j], 0d);
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package de.tub.clustering;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * @author Sebastian Oelke
+ *
+ */
+public class ClusteringIndexTest {
+
+	@Test
+	public void testForName() {
+		assertEquals("The name should be matched ignoring case.", ClusteringIndex.NONE, ClusteringIndex.forName("none"));
+		assertEquals("The name should be matched ignoring case.", ClusteringIndex.RSTAR, ClusteringIndex.forName(" RStar "));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testForUnknownName() {
+		ClusteringIndex.forName("kdtree");
+	}
+	
+	@Test
+	public void testDatabaseArguments() {
+		assertTrue("Without an index there should be no database arguments.", ClusteringIndex.NONE.databaseArguments().isEmpty());
+		assertTrue("Without an index there should be no index factories.", ClusteringIndex.NONE.createIndexFactories().isEmpty());
+		
+		List<String> args = ClusteringIndex.RSTAR.databaseArguments();
+		assertEquals("The index should be added to the database.", "-db.index", args.get(0));
+		assertEquals("There should be an even number of arguments.", 0, args.size() % 2);
+	}
+}
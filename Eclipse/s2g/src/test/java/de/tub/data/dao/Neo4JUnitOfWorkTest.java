@@ -0,0 +1,157 @@
+package de.tub.data.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.TransactionFailureException;
+import org.neo4j.helpers.collection.IteratorUtil;
+
+import de.tub.Neo4JTestHelper;
+
+/**
+ *
+ * @author Sebastian Oelke
+ *
+ */
+public class Neo4JUnitOfWorkTest {
+
+	@Test
+	public void testBatchedOperations() {
+		Neo4JStaypointDAO sDao = (Neo4JStaypointDAO) DAOFactory.instance().getStaypointDAO();
+		Neo4JFrameworkClusterDAO cDao = (Neo4JFrameworkClusterDAO) DAOFactory.instance().getFrameworkClusterDAO();
+
+		Neo4JUnitOfWork unitOfWork = Neo4JUnitOfWork.begin(2);
+		assertTrue("The unit of work should be the current one of this thread.", unitOfWork == Neo4JUnitOfWork.current());
+
+		// Two operations fill the first batch
+		Node c = cDao.createFrameworkCluster("1");
+		Node sp1 = sDao.createStayPoint(1, 10.0, 120.0, 1L, 2L);
+
+		assertEquals("The first batch should have been committed.", 1, unitOfWork.getCommits());
+		assertEquals("There should be no pending operations.", 0, unitOfWork.getOperationsInBatch());
+
+		cDao.addStayPoint(c, sp1);
+
+		// A failed creation does not affect the pending operations
+		boolean hasThrownException = false;
+		try {
+			sDao.createStayPoint(1, 10.0, 120.0, 1L, 2L);
+		} catch (RuntimeException e) {
+			hasThrownException = true;
+		}
+		assertTrue("An error should have been thrown during creation of a stay point with an id that exists.", hasThrownException);
+
+		Node sp2 = sDao.createStayPoint(2, 11.0, 121.0, 3L, 4L);
+		cDao.addStayPoint(c, sp2);
+
+		assertEquals("The second batch should have been committed.", 2, unitOfWork.getCommits());
+		assertEquals("There should be one pending operation.", 1, unitOfWork.getOperationsInBatch());
+
+		unitOfWork.finish();
+
+		assertFalse("The unit of work should not be active anymore.", unitOfWork.isActive());
+		assertNull("There should be no current unit of work.", Neo4JUnitOfWork.current());
+		assertEquals("The pending operation should have been committed.", 3, unitOfWork.getCommits());
+
+		assertNotNull("The cluster should have been created.", cDao.findFrameworkClusterById("1"));
+		for (int id = 1; id <= 2; id++)
+			assertNotNull("The stay point with id " + id + " should have been created.", sDao.findStayPointById(id));
+
+		assertEquals("The cluster should be connected to two stay points.", 2, IteratorUtil.count(c.getRelationships()));
+	}
+
+	@Test
+	public void testAbort() {
+		Neo4JStaypointDAO sDao = (Neo4JStaypointDAO) DAOFactory.instance().getStaypointDAO();
+
+		Neo4JUnitOfWork unitOfWork = Neo4JUnitOfWork.begin(2);
+		try {
+			sDao.createStayPoint(1, 10.0, 120.0, 1L, 2L);
+			sDao.createStayPoint(2, 11.0, 121.0, 3L, 4L);
+			sDao.createStayPoint(3, 12.0, 122.0, 5L, 6L);
+		} finally {
+			unitOfWork.abort();
+		}
+
+		assertFalse("The unit of work should not be active anymore.", unitOfWork.isActive());
+		assertNull("There should be no current unit of work.", Neo4JUnitOfWork.current());
+		assertNotNull("The stay point of the committed batch should exist.", sDao.findStayPointById(1));
+		assertNotNull("The stay point of the committed batch should exist.", sDao.findStayPointById(2));
+		assertNull("The pending stay point should have been rolled back.", sDao.findStayPointById(3));
+
+		// Aborting twice does nothing and a new unit of work can be started
+		unitOfWork.abort();
+		Neo4JUnitOfWork.begin(2).finish();
+	}
+
+	@Test
+	public void testFailedOperation() {
+		Neo4JStaypointDAO sDao = (Neo4JStaypointDAO) DAOFactory.instance().getStaypointDAO();
+		Neo4JFrameworkClusterDAO cDao = (Neo4JFrameworkClusterDAO) DAOFactory.instance().getFrameworkClusterDAO();
+
+		Neo4JUnitOfWork unitOfWork = Neo4JUnitOfWork.begin(3);
+		boolean hasThrownException = false;
+		try {
+			// The first batch is committed
+			Node c = cDao.createFrameworkCluster("1");
+			Node sp1 = sDao.createStayPoint(1, 10.0, 120.0, 1L, 2L);
+			sDao.createStayPoint(2, 11.0, 121.0, 3L, 4L);
+			assertEquals("The first batch should have been committed.", 1, unitOfWork.getCommits());
+
+			// The stay point is deleted in the second batch, a relationship to it fails within the transaction
+			sDao.createStayPoint(3, 12.0, 122.0, 5L, 6L);
+			sDao.deleteStayPoint(1);
+			try {
+				cDao.addStayPoint(c, sp1);
+			} catch (RuntimeException e) {
+				hasThrownException = true;
+			}
+			assertTrue("An error should have been thrown during the connection of a deleted stay point.", hasThrownException);
+
+			// The failure is reported when the batch is committed
+			hasThrownException = false;
+			try {
+				unitOfWork.finish();
+			} catch (TransactionFailureException e) {
+				hasThrownException = true;
+			}
+			assertTrue("The failed batch should have been reported.", hasThrownException);
+			assertFalse("The unit of work should not be active anymore.", unitOfWork.isActive());
+		} finally {
+			unitOfWork.abort();
+		}
+
+		assertNull("There should be no current unit of work.", Neo4JUnitOfWork.current());
+		assertEquals("Only the first batch should have been committed.", 1, unitOfWork.getCommits());
+		assertNotNull("The stay point of the committed batch should exist.", sDao.findStayPointById(1));
+		assertNull("The stay point of the failed batch should have been rolled back.", sDao.findStayPointById(3));
+		assertEquals("The cluster should not be connected to a stay point.", 0, 
+				IteratorUtil.count(cDao.findFrameworkClusterById("1").getRelationships()));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testBeginTwice() {
+		Neo4JUnitOfWork unitOfWork = Neo4JUnitOfWork.begin(10);
+		try {
+			Neo4JUnitOfWork.begin(10);
+		} finally {
+			unitOfWork.finish();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidBatchSize() {
+		Neo4JUnitOfWork.begin(0);
+	}
+
+	@After
+	public void resetGraph() {
+		Neo4JTestHelper.resetGraph();
+	}
+}
@@ -0,0 +1,77 @@
+package de.tub.data.geo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BinaryTrajectoryTest {
+
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("trajectories", ".bin");
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Test
+	public void testWriteAndRead() throws IOException {
+		// More points than fit into the buffer of the writer at once
+		Trajectory trajectory = new Trajectory();
+		for (int i = 0; i < 10000; i++)
+			trajectory.add(39.9 + i, 116.3 - i, 1224730384000L + i * 1000L);
+
+		BinaryTrajectoryWriter writer = new BinaryTrajectoryWriter(file);
+		writer.write(7, trajectory);
+		trajectory.clear();
+		trajectory.add(52.5, 13.4, -1000L);
+		writer.write(3, trajectory);
+		writer.close();
+
+		BinaryTrajectoryReader reader = new BinaryTrajectoryReader(file);
+		try {
+			assertEquals(2, reader.getUsers());
+			assertEquals(10001L, reader.getPoints());
+			assertEquals("The users should be in the order they were written.", 7, reader.getUserId(0));
+			assertEquals(10000, reader.getPointCount(0));
+
+			Trajectory loaded = reader.load(7, new Trajectory(2));
+			assertEquals(10000, loaded.size());
+			for (int i = 0; i < 10000; i++) {
+				assertEquals(39.9 + i, loaded.getLatitudes()[i], 0d);
+				assertEquals(116.3 - i, loaded.getLongitudes()[i], 0d);
+				assertEquals(1224730384000L + i * 1000L, loaded.getTimes()[i]);
+			}
+
+			loaded = reader.load(3, loaded);
+			assertEquals("The trajectory should only hold the points of the loaded user.", 1, loaded.size());
+			assertEquals(52.5, loaded.getLatitudes()[0], 0d);
+			assertEquals(13.4, loaded.getLongitudes()[0], 0d);
+			assertEquals(-1000L, loaded.getTimes()[0]);
+
+			assertNull("A user that is not in the file should not be loaded.", reader.load(1, loaded));
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testReadTextFile() throws IOException {
+		FileWriter writer = new FileWriter(file);
+		writer.write("0\t39.984702\t116.318417\t1224730384000\n");
+		writer.close();
+
+		new BinaryTrajectoryReader(file);
+	}
+}
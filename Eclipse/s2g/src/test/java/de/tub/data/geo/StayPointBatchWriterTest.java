@@ -0,0 +1,52 @@
+package de.tub.data.geo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class StayPointBatchWriterTest {
+
+	@Test
+	public void testAdd() {
+		StayPointBatchWriter writer = new StayPointBatchWriter(2);
+		assertEquals(0, writer.size());
+		assertFalse("An empty writer should not be full.", writer.isFull());
+		
+		writer.add(1L, 52.5d, 13.4d, 0L, 1000L);
+		assertEquals(1, writer.size());
+		assertFalse("The writer should not be full before the batch size is reached.", writer.isFull());
+		
+		writer.add(1L, 52.6d, 13.5d, 2000L, 3000L);
+		writer.add(2L, 52.7d, 13.6d, 4000L, 5000L);
+		assertEquals(3, writer.size());
+		assertTrue("The writer should be full after the batch size was reached.", writer.isFull());
+	}
+
+	@Test
+	public void testGrow() {
+		StayPointBatchWriter writer = new StayPointBatchWriter(1000);
+		for (int i = 0; i < 1000; i++)
+			writer.add((long) i, 52.5d, 13.4d, i, i + 1);
+		
+		assertEquals(1000, writer.size());
+		assertTrue(writer.isFull());
+	}
+
+	@Test
+	public void testFlushEmpty() throws Exception {
+		// No connection is needed if nothing was collected
+		assertEquals(0, new StayPointBatchWriter(1).flush());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidBatchSize() {
+		new StayPointBatchWriter(0);
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testAddNullUser() {
+		new StayPointBatchWriter(1).add(null, 52.5d, 13.4d, 0L, 1000L);
+	}
+}
@@ -0,0 +1,61 @@
+package de.tub.data.geo;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class TrajectoryTest {
+
+	@Test
+	public void testAddBeyondCapacity() {
+		Trajectory trajectory = new Trajectory(2);
+		for (int i = 0; i < 5; i++)
+			trajectory.add(i, -i, 1000L * i);
+
+		assertEquals("The trajectory should hold all added points.", 5, trajectory.size());
+		for (int i = 0; i < 5; i++) {
+			assertEquals(i, trajectory.getLatitudes()[i], 0d);
+			assertEquals(-i, trajectory.getLongitudes()[i], 0d);
+			assertEquals(1000L * i, trajectory.getTimes()[i]);
+		}
+	}
+
+	@Test
+	public void testClearKeepsArrays() {
+		Trajectory trajectory = new Trajectory(4);
+		trajectory.add(1d, 2d, 3L);
+		double[] latitudes = trajectory.getLatitudes();
+
+		trajectory.clear();
+		assertEquals("A cleared trajectory should be empty.", 0, trajectory.size());
+
+		trajectory.add(4d, 5d, 6L);
+		assertEquals("The arrays should be reused after clearing.", latitudes, trajectory.getLatitudes());
+		assertEquals(4d, trajectory.getLatitudes()[0], 0d);
+		assertEquals(1, trajectory.size());
+	}
+
+	@Test
+	public void testSortByTime() {
+		Trajectory trajectory = new Trajectory();
+		trajectory.add(3d, 30d, 3000L);
+		trajectory.add(1d, 10d, 1000L);
+		trajectory.add(2d, 20d, 2000L);
+		trajectory.add(4d, 40d, 1000L);
+
+		trajectory.sortByTime();
+
+		assertEquals(4, trajectory.size());
+		double[] latitudes = { 1d, 4d, 2d, 3d };
+		for (int i = 0; i < 4; i++) {
+			assertEquals("The points should be ordered by time and keep the order of equal times.", latitudes[i], trajectory.getLatitudes()[i], 0d);
+			assertEquals(latitudes[i] * 10, trajectory.getLongitudes()[i], 0d);
+		}
+		assertEquals(3000L, trajectory.getTimes()[3]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidCapacity() {
+		new Trajectory(0);
+	}
+}
@@ -0,0 +1,267 @@
+package de.tub.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.graphdb.index.Index;
+import org.neo4j.tooling.GlobalGraphOperations;
+
+import de.tub.Neo4JTestHelper;
+import de.tub.TestDatabase;
+import de.tub.TestPropertiesLoader;
+import de.tub.data.model.User;
+import de.tub.observer.Interests;
+import de.tub.observer.Observer;
+import de.tub.processor.IProcessor;
+import de.tub.processor.graph.BatchHierarchicalGraphProcessor;
+import de.tub.processor.graph.BatchSharedFrameworkProcessor;
+import de.tub.processor.graph.HierarchicalGraphProcessor;
+import de.tub.processor.graph.SharedFrameworkProcessor;
+import de.tub.reader.ReaderFactory;
+import de.tub.reader.file.IterativeFileReader;
+import de.tub.reader.file.TextFileLineReader;
+import de.tub.reader.model.UserReader;
+import de.tub.util.DBUtil;
+import de.tub.util.FileUtil;
+
+/**
+ * Builds the graphs of the same cluster files and users with the Neo4J DAOs
+ * and with the <code>BatchGraphImporter</code> and compares them.
+ *
+ * @author Sebastian Oelke
+ *
+ */
+public class BatchGraphImporterTest {
+
+	public final static String POPULATE_FILE = "/sql/user_framework_staypoint_populate.sql";
+	public final static String DELETE_FILE = "/sql/user_hg_staypoint_delete.sql";
+	// Cluster files with two levels below the root that have two clusters each
+	public final static String SIBLINGS_DIR = "/clustering-siblings";
+
+	// The ids of the clusters given by ELKI in the cluster files
+	private static final String[] ELKI_CLUSTER_IDS = { "Cluster", "Cluster_1037_1088" };
+	private static final String[] SIBLINGS_ELKI_CLUSTER_IDS = 
+		{ "Cluster", "Cluster_0_40", "Cluster_41_90", "Cluster_0_12", "Cluster_13_40" };
+
+	@Before
+	public void populateDatabase() {
+		URL url = BatchGraphImporterTest.class.getResource(POPULATE_FILE);
+		TestDatabase.setup();
+		TestDatabase.executeStatementsFromFile(url.getFile());
+	}
+
+	@After
+	public void tearDown() {
+		URL url = BatchGraphImporterTest.class.getResource(DELETE_FILE);
+		TestDatabase.executeStatementsFromFile(url.getFile());
+		TestDatabase.teardown();
+
+		Neo4JTestHelper.resetGraph();
+	}
+
+	@Test
+	public void testImportEqualsBuild() {
+		File clusterDir = new File(TestPropertiesLoader.getSharedFrameworkInDir());
+
+		// ### Build the graphs with transactions
+		buildGraphs(clusterDir);
+		List<String> built = describeGraph(ELKI_CLUSTER_IDS);
+
+		// ### Import the graphs into a new graph database
+		Neo4JTestHelper.resetGraph();
+		importGraphs(clusterDir);
+		List<String> imported = describeGraph(ELKI_CLUSTER_IDS);
+
+		// ### Compare both graphs
+		assertTrue("The pretty id of the root framework cluster should have been generated.",
+				built.contains("framework_cluster 1_0 root=true children=[2_0] stay_points=[30661, 30662]"));
+		assertTrue("The hierarchical graph of the user should have been built.",
+				built.contains("user 0 hg_root=1_0 indexed=true"));
+		assertEquals("The imported graph should be the same as the built one.", built, imported);
+	}
+
+	@Test
+	public void testImportEqualsBuildWithSiblings() {
+		File clusterDir = new File(BatchGraphImporterTest.class.getResource(SIBLINGS_DIR).getFile());
+
+		// ### Build the graphs with transactions
+		buildGraphs(clusterDir);
+		Map<String, Object> builtIds = prettyIds(SIBLINGS_ELKI_CLUSTER_IDS);
+		List<String> built = describeGraph(SIBLINGS_ELKI_CLUSTER_IDS);
+
+		// ### Import the graphs into a new graph database
+		Neo4JTestHelper.resetGraph();
+		importGraphs(clusterDir);
+		Map<String, Object> importedIds = prettyIds(SIBLINGS_ELKI_CLUSTER_IDS);
+		List<String> imported = describeGraph(SIBLINGS_ELKI_CLUSTER_IDS);
+
+		// ### Compare both graphs
+		assertEquals("The root framework cluster should have the first pretty id.", "1_0", builtIds.get("Cluster"));
+		assertEquals("Both clusters on the second level should have pretty ids of the second level.",
+				set("2_0", "2_1"), set(builtIds.get("Cluster_0_40"), builtIds.get("Cluster_41_90")));
+		assertEquals("Both clusters on the third level should have pretty ids of the third level.",
+				set("3_0", "3_1"), set(builtIds.get("Cluster_0_12"), builtIds.get("Cluster_13_40")));
+		for (String elkiId : SIBLINGS_ELKI_CLUSTER_IDS)
+			assertEquals("The imported framework cluster " + elkiId + " should have the same pretty id as the built one.",
+					builtIds.get(elkiId), importedIds.get(elkiId));
+		assertEquals("The imported graph should be the same as the built one.", built, imported);
+	}
+
+	private static void buildGraphs(File clusterDir) {
+		SharedFrameworkProcessor frameworkProc = new SharedFrameworkProcessor();
+		readClusterFiles(clusterDir, frameworkProc, frameworkProc);
+		HierarchicalGraphProcessor hgProc = new HierarchicalGraphProcessor();
+		readUsers(hgProc, hgProc);
+	}
+
+	private static void importGraphs(File clusterDir) {
+		BatchGraphImporter importer = new BatchGraphImporter();
+		try {
+			BatchSharedFrameworkProcessor batchFrameworkProc = new BatchSharedFrameworkProcessor(importer);
+			readClusterFiles(clusterDir, batchFrameworkProc, batchFrameworkProc);
+			BatchHierarchicalGraphProcessor batchHgProc = new BatchHierarchicalGraphProcessor(importer);
+			readUsers(batchHgProc, batchHgProc);
+		} finally {
+			importer.shutdown();
+		}
+	}
+
+	private static void readClusterFiles(File clusterDir, IProcessor<String> processor, Observer observer) {
+		IterativeFileReader iterativeFileReader = (IterativeFileReader) ReaderFactory.instance().getIterativeFileReader();
+		TextFileLineReader textFileLineReader = (TextFileLineReader) ReaderFactory.instance().getTextFileLineReader();
+		iterativeFileReader.setReader(textFileLineReader);
+		iterativeFileReader.setFile(clusterDir);
+		iterativeFileReader.setFileFilter(FileUtil.acceptOnlyClusterFilesFilter());
+
+		textFileLineReader.setProcessor(processor);
+		textFileLineReader.attach(observer, Interests.HasFinished);
+		iterativeFileReader.attach(observer, Interests.HasFinished);
+
+		iterativeFileReader.read();
+	}
+
+	private static void readUsers(IProcessor<User> processor, Observer observer) {
+		UserReader userReader = (UserReader) ReaderFactory.instance().getUserReader();
+		userReader.setProcessor(processor);
+		userReader.attach(observer, Interests.UserFinished);
+
+		userReader.read();
+	}
+
+	/**
+	 * @return a sorted description of the nodes, relationships and index entries of the
+	 * shared framework and the hierarchical graphs that does not depend on the node ids.
+	 */
+	private static List<String> describeGraph(String[] elkiClusterIds) {
+		GraphDatabaseService graph = DBUtil.graph();
+		Index<Node> cIndex = graph.index().forNodes(DBUtil.FRAMEWORK_CLUSTER_INDEX);
+		Index<Node> hgIndex = graph.index().forNodes(DBUtil.HG_CLUSTER_INDEX);
+		Index<Node> sIndex = graph.index().forNodes(DBUtil.STAYPOINT_INDEX);
+		Index<Node> uIndex = graph.index().forNodes(DBUtil.USER_INDEX);
+		List<String> lines = new ArrayList<String>();
+
+		// Framework clusters and stay points
+		for (Node n : GlobalGraphOperations.at(graph).getAllNodes()) {
+			if (n.hasProperty(NodeProperties.FRAMEWORK_CLUSTER_ID)) {
+				lines.add("framework_cluster " + n.getProperty(NodeProperties.FRAMEWORK_CLUSTER_ID) +
+						" root=" + n.hasRelationship(RelTypes.RootFrameworkCluster, Direction.INCOMING) +
+						" children=" + related(n, RelTypes.HasChildCluster, NodeProperties.FRAMEWORK_CLUSTER_ID) +
+						" stay_points=" + related(n, RelTypes.HasStayPoint, NodeProperties.STAYPOINT_ID));
+			} else if (n.hasProperty(NodeProperties.STAYPOINT_ID)) {
+				Object id = n.getProperty(NodeProperties.STAYPOINT_ID);
+				lines.add("stay_point " + id + " indexed=" + n.equals(sIndex.get(NodeProperties.STAYPOINT_ID, id).getSingle()));
+			}
+		}
+
+		// Users and their hierarchical graphs
+		for (Relationship r : graph.getReferenceNode().getRelationships(RelTypes.RootUser, Direction.OUTGOING)) {
+			Node user = r.getEndNode();
+			Object userId = user.getProperty(NodeProperties.USER_ID);
+			Relationship hg = user.getSingleRelationship(RelTypes.HasHG, Direction.OUTGOING);
+
+			lines.add("user " + userId + " hg_root=" + (hg != null ? hg.getEndNode().getProperty(NodeProperties.HG_CLUSTER_ID) : null) +
+					" indexed=" + user.equals(uIndex.get(NodeProperties.USER_ID, userId).getSingle()));
+			if (hg != null)
+				describeHGCluster(hg.getEndNode(), userId, hgIndex, lines, new HashSet<Node>());
+		}
+
+		// Index entries of the framework clusters are kept under the ids given by ELKI
+		for (String elkiId : elkiClusterIds)
+			lines.add("framework_cluster_index " + elkiId + " -> " +
+					cIndex.get(NodeProperties.FRAMEWORK_CLUSTER_ID, elkiId).getSingle().getProperty(NodeProperties.FRAMEWORK_CLUSTER_ID));
+
+		lines.add("index sizes framework_cluster=" + count(cIndex, NodeProperties.FRAMEWORK_CLUSTER_ID) +
+				" hg_cluster=" + count(hgIndex, NodeProperties.HG_CLUSTER_ID) +
+				" staypoints=" + count(sIndex, NodeProperties.STAYPOINT_ID) +
+				" users=" + count(uIndex, NodeProperties.USER_ID));
+
+		Collections.sort(lines);
+		return lines;
+	}
+
+	/**
+	 * @return the pretty ids of the framework clusters with the given ids given by ELKI.
+	 */
+	private static Map<String, Object> prettyIds(String[] elkiClusterIds) {
+		Index<Node> cIndex = DBUtil.graph().index().forNodes(DBUtil.FRAMEWORK_CLUSTER_INDEX);
+		Map<String, Object> ids = new HashMap<String, Object>();
+		for (String elkiId : elkiClusterIds)
+			ids.put(elkiId, cIndex.get(NodeProperties.FRAMEWORK_CLUSTER_ID, elkiId).getSingle().getProperty(NodeProperties.FRAMEWORK_CLUSTER_ID));
+
+		return ids;
+	}
+
+	private static Set<Object> set(Object... values) {
+		return new HashSet<Object>(Arrays.asList(values));
+	}
+
+	private static void describeHGCluster(Node cluster, Object userId, Index<Node> hgIndex, List<String> lines, Set<Node> visited) {
+		if (!visited.add(cluster)) return;
+
+		Object id = cluster.getProperty(NodeProperties.HG_CLUSTER_ID);
+		Node indexed = hgIndex.query(NodeProperties.HG_CLUSTER_ID + ":" + id + " AND " + NodeProperties.USER_ID + ":" + userId).getSingle();
+		lines.add("hg_cluster " + userId + " " + id +
+				" children=" + related(cluster, RelTypes.HasHGChildCluster, NodeProperties.HG_CLUSTER_ID) +
+				" stay_points=" + related(cluster, RelTypes.HasHGStayPoint, NodeProperties.STAYPOINT_ID) +
+				" indexed=" + cluster.equals(indexed));
+
+		for (Relationship r : cluster.getRelationships(RelTypes.HasHGChildCluster, Direction.OUTGOING))
+			describeHGCluster(r.getEndNode(), userId, hgIndex, lines, visited);
+	}
+
+	/**
+	 * @return the sorted values of the given property of the nodes at the end of the
+	 * outgoing relationships of the given type.
+	 */
+	private static List<String> related(Node node, RelationshipType type, String property) {
+		List<String> values = new ArrayList<String>();
+		for (Relationship r : node.getRelationships(type, Direction.OUTGOING))
+			values.add(String.valueOf(r.getEndNode().getProperty(property)));
+
+		Collections.sort(values);
+		return values;
+	}
+
+	private static int count(Index<Node> index, String key) {
+		return index.query(key, "*").size();
+	}
+}
@@ -21,6 +21,7 @@ import de.tub.data.dao.DAOFactory;
 import de.tub.data.dao.Neo4JHGClusterDAO;
 import de.tub.data.dao.Neo4JStaypointDAO;
 import de.tub.data.dao.Neo4JUserDAO;
+import de.tub.util.DBUtil;
 
 public class CypherQueriesTest {
 
@@ -324,6 +325,34 @@ public class CypherQueriesTest {
 		assertTrue("There should be an exception thrown when counting the stay points for a not existing user.", exceptionThrown);
 	}
 	
+	@Test
+	public void testRepeatedQueryRate() {
+		DBUtil.resetCypherQueryStatistics();
+		assertEquals("The rate should be zero without any query.", 0d, DBUtil.repeatedCypherQueryRate(), 0d);
+		
+		// The hg cluster id is a parameter, hence the query text does not change
+		CypherQueries.countUsersInHgCluster(HG_CLUSTER_LEVEL_1_0);
+		CypherQueries.countUsersInHgCluster(HG_CLUSTER_LEVEL_3_1);
+		
+		assertEquals("The second query should repeat the query text of the first one.", 0.5d, DBUtil.repeatedCypherQueryRate(), 0d);
+		assertTrue("The Cypher engine should be shared.", DBUtil.cypherEngine() == DBUtil.cypherEngine());
+		
+		// The user node id and hg cluster ids are parameters as well
+		CypherQueries.hgClustersInStaypointOrderForUser(user1NodeId, new String[] { HG_CLUSTER_LEVEL_1_0 });
+		CypherQueries.hgClustersInStaypointOrderForUser(user2NodeId, new String[] { HG_CLUSTER_LEVEL_2_0, HG_CLUSTER_LEVEL_3_1 });
+		
+		assertEquals("Half of the queries should repeat a query text.", 0.5d, DBUtil.repeatedCypherQueryRate(), 0d);
+		
+		// The statistics belong to the graph database of the current thread
+		DBUtil.bindGraph(DBUtil.getNeo4jPath() + "-bound");
+		try {
+			assertEquals("The rate of another graph database should be zero.", 0d, DBUtil.repeatedCypherQueryRate(), 0d);
+		} finally {
+			DBUtil.unbindGraph();
+		}
+		assertEquals("The rate of the shared graph database should be kept.", 0.5d, DBUtil.repeatedCypherQueryRate(), 0d);
+	}
+	
 	//###################################################################
 	// Helper
 	//###################################################################
@@ -0,0 +1,109 @@
+package de.tub.processor.graph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.Node;
+import org.neo4j.tooling.GlobalGraphOperations;
+
+import de.tub.Neo4JTestHelper;
+import de.tub.TestPropertiesLoader;
+import de.tub.graph.BatchGraphImporter;
+import de.tub.graph.NodeProperties;
+import de.tub.graph.RelTypes;
+import de.tub.observer.Interests;
+import de.tub.reader.ReaderFactory;
+import de.tub.reader.file.IterativeFileReader;
+import de.tub.reader.file.TextFileLineReader;
+import de.tub.util.DBUtil;
+import de.tub.util.FileUtil;
+
+/**
+ * @author Sebastian Oelke
+ *
+ */
+public class BatchSharedFrameworkProcessorTest {
+
+	private List<Integer> stayPointIds = new ArrayList<Integer>();
+	
+	@Before
+	public void setup() {
+		// Initialize list with expected stay points
+		stayPointIds.add(30661);
+		stayPointIds.add(30662);
+		stayPointIds.add(10656);
+		stayPointIds.add(13675);
+		
+		// The batch insertion needs exclusive access to the graph database
+		DBUtil.closeGraph();
+	}
+	
+	@Test
+	public void testClusterAndStaypointImport() {
+		// ### Initialize all readers and the processor
+		IterativeFileReader iterativeFileReader = (IterativeFileReader) ReaderFactory.instance().getIterativeFileReader();
+    	TextFileLineReader textFileLineReader = (TextFileLineReader) ReaderFactory.instance().getTextFileLineReader();
+    	iterativeFileReader.setReader(textFileLineReader);
+    	
+    	// Setup IterativeFileReader
+    	File dir = new File(TestPropertiesLoader.getSharedFrameworkInDir());
+    	iterativeFileReader.setFile(dir);
+    	iterativeFileReader.setFileFilter(FileUtil.acceptOnlyClusterFilesFilter());
+    	
+    	// Setup processor
+    	BatchGraphImporter importer = new BatchGraphImporter();
+    	BatchSharedFrameworkProcessor clusterPostProcessor = new BatchSharedFrameworkProcessor(importer);
+    	textFileLineReader.setProcessor(clusterPostProcessor);
+    	textFileLineReader.attach(clusterPostProcessor, Interests.HasFinished);
+    	iterativeFileReader.attach(clusterPostProcessor, Interests.HasFinished);
+    	
+    	try {
+    		iterativeFileReader.read();
+    	} finally {
+    		importer.shutdown();
+    	}
+    	
+    	// ### Test imported clusters and stay points in the same way as the ones of the SharedFrameworkProcessor
+    	Node ref = DBUtil.graph().getReferenceNode();
+    	
+    	Node root = ref.getSingleRelationship(RelTypes.RootFrameworkCluster, Direction.OUTGOING).getEndNode();
+    	Node child = root.getSingleRelationship(RelTypes.HasChildCluster, Direction.OUTGOING).getEndNode();
+    	
+    	assertNotNull("The root framework cluster should not be null.", root);
+    	assertEquals("The framework cluster id of the root cluster is not as expected.", 
+    			SharedFrameworkProcessorTest.ROOT_CLUSTER_ID, root.getProperty(NodeProperties.FRAMEWORK_CLUSTER_ID));
+    	assertNotNull("The child framework cluster should not be null.", child);
+    	assertEquals("The framework cluster id of the child cluster is not as expected.", 
+    			SharedFrameworkProcessorTest.CHILD_CLUSTER_ID, child.getProperty(NodeProperties.FRAMEWORK_CLUSTER_ID));
+    	
+    	// Count all stay points
+    	int spCount = 0;
+    	for (Node n : GlobalGraphOperations.at(DBUtil.graph()).getAllNodes()) {
+    		if (n.hasRelationship(RelTypes.HasStayPoint, Direction.INCOMING)) {
+    			spCount++;
+    			stayPointIds.remove(n.getProperty(NodeProperties.STAYPOINT_ID));
+    		}
+    	}
+    	assertEquals("There should be exactly four stay points.", 4, spCount);
+    	assertTrue("All expected stay points should have been found.", stayPointIds.isEmpty());
+    	
+    	// The imported stay points should be indexed
+    	assertNotNull("The stay point should be found by its id.", 
+    			DBUtil.graph().index().forNodes(DBUtil.STAYPOINT_INDEX).get(NodeProperties.STAYPOINT_ID, 30661).getSingle());
+	}
+	
+	@After
+	public void resetGraph() {
+		Neo4JTestHelper.resetGraph();
+	}
+
+}
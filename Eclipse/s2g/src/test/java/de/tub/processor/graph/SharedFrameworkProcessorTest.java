@@ -1,7 +1,10 @@
 package de.tub.processor.graph;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.util.ArrayList;
@@ -16,6 +19,10 @@ import org.neo4j.tooling.GlobalGraphOperations;
 
 import de.tub.Neo4JTestHelper;
 import de.tub.TestPropertiesLoader;
+import de.tub.data.dao.DAOFactory;
+import de.tub.data.dao.Neo4JFrameworkClusterDAO;
+import de.tub.data.dao.Neo4JStaypointDAO;
+import de.tub.data.dao.Neo4JUnitOfWork;
 import de.tub.graph.NodeProperties;
 import de.tub.graph.RelTypes;
 import de.tub.observer.Interests;
@@ -107,6 +114,41 @@ public class SharedFrameworkProcessorTest {
     	
 	}
 	
+	@Test
+	public void testFailedClusterFile() {
+		Neo4JFrameworkClusterDAO cDao = (Neo4JFrameworkClusterDAO) DAOFactory.instance().getFrameworkClusterDAO();
+		Neo4JStaypointDAO sDao = (Neo4JStaypointDAO) DAOFactory.instance().getStaypointDAO();
+		String stayPoint = "ID=1 8.3352576 98.5045304 '1' '2009-03-22 05:11:18' '2009-03-22 05:57:59' reachability=808.5024539029628";
+		
+		// The creation of the cluster and the stay point fill the first batch
+		SharedFrameworkProcessor processor = new SharedFrameworkProcessor(2);
+		processor.newData(SharedFrameworkProcessor.CLUSTER_REG + ROOT_CLUSTER_ID);
+		processor.newData(stayPoint);
+		
+		// A stay point with the same id cannot be created
+		boolean hasThrownException = false;
+		try {
+			processor.newData(stayPoint);
+		} catch (RuntimeException e) {
+			hasThrownException = true;
+		}
+		assertTrue("An error should have been thrown during creation of a stay point with an id that exists.", hasThrownException);
+		assertNull("There should be no unit of work left after the failure.", Neo4JUnitOfWork.current());
+		
+		// The first batch is committed, the pending connection of the stay point is rolled back
+		Node cluster = cDao.findFrameworkClusterById(ROOT_CLUSTER_ID);
+		assertNotNull("The cluster of the committed batch should exist.", cluster);
+		assertNotNull("The stay point of the committed batch should exist.", sDao.findStayPointById(1));
+		assertFalse("The connection to the stay point should have been rolled back.", 
+				cluster.hasRelationship(RelTypes.HasStayPoint, Direction.OUTGOING));
+		
+		// The following cluster file can be processed
+		processor.newData(SharedFrameworkProcessor.CLUSTER_REG + CHILD_CLUSTER_ID);
+		processor.finish();
+		assertNotNull("The cluster of the following file should exist.", cDao.findFrameworkClusterById(CHILD_CLUSTER_ID));
+		assertNull("There should be no unit of work left after the cluster file.", Neo4JUnitOfWork.current());
+	}
+	
 	@After
 	public void resetGraph() {
 		Neo4JTestHelper.resetGraph();
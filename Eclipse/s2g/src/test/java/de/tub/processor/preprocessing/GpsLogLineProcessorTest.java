@@ -0,0 +1,71 @@
+package de.tub.processor.preprocessing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.tub.observer.Interests;
+import de.tub.reader.directory.IterativeDirectoryReader;
+import de.tub.reader.file.ByteLine;
+
+public class GpsLogLineProcessorTest {
+
+	// A point of the GeoLife data set recorded at 2008-10-23 02:53:04 UTC
+	public static final String LINE = "39.984702,116.318417,0,492,39744.1201851852,2008-10-23,02:53:04";
+	public static final String OUT_LINE = "3\t39.984702\t116.318417\t1224730384000";
+
+	private File outFile;
+	private GpsLogLineProcessor processor;
+
+	@Before
+	public void setUp() throws IOException {
+		outFile = File.createTempFile("gps_log", ".txt");
+		processor = new GpsLogLineProcessor(outFile.getPath());
+		processor.update(new IterativeDirectoryReader(), Interests.NewChildDirectory, "3");
+	}
+
+	@After
+	public void tearDown() {
+		outFile.delete();
+	}
+
+	@Test
+	public void testProcessLines() throws IOException {
+		processor.newData(LINE);
+		byte[] bytes = ("#" + LINE + "#").getBytes("US-ASCII");
+		processor.newLine(new ByteLine(bytes, 1, bytes.length - 2));
+		processor.newData("invalid,line");
+		processor.finish();
+
+		BufferedReader br = new BufferedReader(new FileReader(outFile));
+		try {
+			assertEquals("The line given as string was not written as expected.", OUT_LINE, br.readLine());
+			assertEquals("The line given as bytes was not written as expected.", OUT_LINE, br.readLine());
+			assertNull("The invalid line should be skipped.", br.readLine());
+		} finally {
+			br.close();
+		}
+	}
+
+	@Test
+	public void testParse() throws IOException {
+		GpsLogLineParser parser = new GpsLogLineParser();
+		byte[] bytes = LINE.getBytes("US-ASCII");
+
+		assertEquals(true, parser.parse(new ByteLine(bytes, 0, bytes.length), ','));
+		assertEquals(39.984702, parser.getLatitude(), 0d);
+		assertEquals(116.318417, parser.getLongitude(), 0d);
+		assertEquals(1224730384000L, parser.getTime());
+
+		bytes = "39.984702,116.318417,0,492".getBytes("US-ASCII");
+		assertEquals("A line without date should not be valid.", false, parser.parse(new ByteLine(bytes, 0, bytes.length), ','));
+	}
+}
@@ -0,0 +1,136 @@
+package de.tub.processor.preprocessing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.tub.data.geo.BinaryTrajectoryReader;
+import de.tub.data.geo.Trajectory;
+import de.tub.observer.Interests;
+import de.tub.reader.directory.IterativeDirectoryReader;
+import de.tub.reader.file.IterativeFileReader;
+import de.tub.reader.file.NioTextFileLineReader;
+import de.tub.util.FileUtil;
+
+public class ParallelGpsLogPreprocessorTest {
+
+	public static final String PATH_IN_CHILD = "Trajectory";
+	public static final String HEADER = "Geolife trajectory\n";
+	public static final int USERS = 5;
+
+	private File root;
+
+	@Before
+	public void setUp() throws IOException {
+		root = File.createTempFile("geolife", "");
+		root.delete();
+
+		// Each user has two logs with a different number of points
+		for (int user = 0; user < USERS; user++) {
+			File trajectories = new File(new File(root, "00" + user), PATH_IN_CHILD);
+			trajectories.mkdirs();
+			for (int log = 0; log < 2; log++) {
+				FileWriter writer = new FileWriter(new File(trajectories, log + ".plt"));
+				writer.write(HEADER);
+				for (int point = 0; point <= user + log; point++)
+					writer.write("39.9" + user + ",116.3" + point + ",0,492,39744." + log + point + ",2008-10-23,02:53:04\n");
+				writer.close();
+			}
+		}
+	}
+
+	@After
+	public void tearDown() {
+		delete(root);
+	}
+
+	@Test
+	public void testPreprocess() throws IOException {
+		File sequentialOut = new File(root, "sequential.txt");
+		File parallelOut = new File(root, "parallel.txt");
+
+		preprocessSequentially(sequentialOut);
+		int users = new ParallelGpsLogPreprocessor(root.getPath(), PATH_IN_CHILD, parallelOut.getPath(), 1, 3).preprocess();
+
+		assertEquals("All users should be preprocessed.", USERS, users);
+		List<String> expected = lines(sequentialOut);
+		assertEquals(USERS * (USERS + 2), expected.size());
+		assertEquals("The parallel preprocessing should write the same lines in the same order.", expected, lines(parallelOut));
+		assertFalse("The files of the users should be deleted.", new File(parallelOut.getPath() + ".shards").exists());
+	}
+
+	@Test
+	public void testPreprocessBinary() throws IOException {
+		File out = new File(root, "parallel.bin");
+
+		int users = new ParallelGpsLogPreprocessor(root.getPath(), PATH_IN_CHILD, out.getPath(), 1, 3, true).preprocess();
+		assertEquals("All users should be preprocessed.", USERS, users);
+
+		BinaryTrajectoryReader reader = new BinaryTrajectoryReader(out);
+		try {
+			assertEquals(USERS, reader.getUsers());
+			assertEquals("All points should be written.", USERS * (USERS + 2), reader.getPoints());
+			Trajectory trajectory = new Trajectory();
+			for (int i = 0; i < USERS; i++) {
+				assertEquals("The users should be written in their order.", i, reader.getUserId(i));
+				reader.loadAt(i, trajectory);
+				for (int p = 1; p < trajectory.size(); p++)
+					assertTrue("The points should be ordered by time.", trajectory.getTimes()[p - 1] <= trajectory.getTimes()[p]);
+			}
+		} finally {
+			reader.close();
+		}
+		assertFalse("The files of the users should be deleted.", new File(out.getPath() + ".shards").exists());
+	}
+
+	private void preprocessSequentially(File out) {
+		IterativeDirectoryReader directoryReader = new IterativeDirectoryReader();
+		directoryReader.setDirectoryName(root.getPath());
+		directoryReader.setPathInChildDirectory(PATH_IN_CHILD);
+		IterativeFileReader fileReader = new IterativeFileReader();
+		fileReader.setFileFilter(FileUtil.acceptVisibleFilesFilter(false, true));
+		NioTextFileLineReader lineReader = new NioTextFileLineReader();
+		lineReader.setOffset(1);
+
+		GpsLogLineProcessor processor = new GpsLogLineProcessor(out.getPath());
+		directoryReader.setReader(fileReader);
+		fileReader.setReader(lineReader);
+		lineReader.setProcessor(processor);
+		directoryReader.attach(processor, new Interests[] { Interests.NewChildDirectory, Interests.HasFinished });
+
+		directoryReader.read();
+	}
+
+	private static List<String> lines(File file) throws IOException {
+		List<String> lines = new ArrayList<String>();
+		BufferedReader br = new BufferedReader(new FileReader(file));
+		try {
+			String line;
+			while ((line = br.readLine()) != null)
+				lines.add(line);
+		} finally {
+			br.close();
+		}
+		return lines;
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null)
+			for (File child : children)
+				delete(child);
+		file.delete();
+	}
+}
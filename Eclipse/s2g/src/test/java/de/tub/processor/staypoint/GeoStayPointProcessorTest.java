@@ -14,6 +14,7 @@ import org.junit.Test;
 import de.tub.TestDatabase;
 import de.tub.TestPropertiesLoader;
 import de.tub.data.model.StayPoint;
+import de.tub.observer.Interests;
 import de.tub.reader.ReaderFactory;
 import de.tub.reader.model.UserReader;
 
@@ -73,5 +74,69 @@ public class GeoStayPointProcessorTest {
 		assertEquals("The arrival time of the generated stay point is not as expected.", Timestamp.valueOf(STAYPOINT_ARR), sp.getTimestamp("arr_time"));
 		assertEquals("The leaving time of the generated stay point is not as expected.", Timestamp.valueOf(STAYPOINT_LEAV), sp.getTimestamp("leav_time"));
 	}
+	
+	@Test
+	public void testSweepMatchesDetection() {
+		int distance = TestPropertiesLoader.getDistanceThreshold();
+		int time = TestPropertiesLoader.getTimeThreshold();
+		
+		UserReader reader = (UserReader) ReaderFactory.instance().getUserReader();
+		StayPointSweepSimulator simulator = new StayPointSweepSimulator(new int[] { distance }, new int[] { time, 10 * time });
+		reader.setProcessor(simulator);
+		reader.read();
+		
+		int[][] stayPoints = simulator.getTotalStayPoints();
+		assertEquals("The sweep should count the stay point of the detection.", 1, stayPoints[0][0]);
+		assertEquals("The stay point should not be counted for a larger time threshold.", 0, stayPoints[0][1]);
+		assertEquals("No stay point should be persisted by the sweep.", 0, StayPoint.findAll().size());
+	}
+	
+	@Test
+	public void testIncrementalDetection() {
+		UserReader reader = (UserReader) ReaderFactory.instance().getUserReader();
+		reader.setProcessor(new IncrementalStayPointProcessor(TestPropertiesLoader.getDistanceThreshold(), TestPropertiesLoader.getTimeThreshold()));
+		
+		reader.read();
+		
+		List<StayPoint> stayPoints = StayPoint.findAll();
+		assertEquals("There should be one stay point created.", 1, stayPoints.size());
+		assertEquals("The latitude value of the generated stay point is not as expected.", STAYPOINT_LAT, stayPoints.get(0).getDouble("latitude"), 0.1);
+		assertEquals("The arrival time of the generated stay point is not as expected.", Timestamp.valueOf(STAYPOINT_ARR), stayPoints.get(0).getTimestamp("arr_time"));
+		assertEquals("The leaving time of the generated stay point is not as expected.", Timestamp.valueOf(STAYPOINT_LEAV), stayPoints.get(0).getTimestamp("leav_time"));
+		
+		// Without new points no new stay point is detected
+		reader.read();
+		assertEquals("The stay point should not be created again.", 1, StayPoint.findAll().size());
+	}
+	
+	@Test
+	public void testDetectStaypointsInBatches() {
+		UserReader reader = (UserReader) ReaderFactory.instance().getUserReader();
+		GeoStayPointProcessor processor = new GeoStayPointProcessor(TestPropertiesLoader.getDistanceThreshold(), TestPropertiesLoader.getTimeThreshold());
+		// The batch is not full after the only stay point
+		processor.setBatchSize(10);
+		reader.setProcessor(processor);
+		
+		reader.read();
+		assertEquals("The stay point should not be written before the batch is full.", 0, StayPoint.findAll().size());
+		
+		processor.finish();
+		assertEquals("The stay point should be written when the processor finishes.", 1, StayPoint.findAll().size());
+	}
+	
+	@Test
+	public void testDetectStaypointsWritesWhenReaderFinishes() {
+		UserReader reader = (UserReader) ReaderFactory.instance().getUserReader();
+		GeoStayPointProcessor processor = new GeoStayPointProcessor(TestPropertiesLoader.getDistanceThreshold(), TestPropertiesLoader.getTimeThreshold());
+		processor.setBatchSize(10);
+		reader.setProcessor(processor);
+		reader.attach(processor, Interests.HasFinished);
+		
+		reader.read();
+		
+		List<StayPoint> stayPoints = StayPoint.findAll();
+		assertEquals("The stay point should be written when the reader finishes.", 1, stayPoints.size());
+		assertEquals("The latitude value of the generated stay point is not as expected.", STAYPOINT_LAT, stayPoints.get(0).getDouble("latitude"), 0.1);
+	}
 
 }
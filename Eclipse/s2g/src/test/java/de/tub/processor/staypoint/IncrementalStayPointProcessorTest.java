@@ -0,0 +1,75 @@
+package de.tub.processor.staypoint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import de.tub.data.geo.StayPointBatchWriter;
+import de.tub.data.geo.StayPointState;
+
+public class IncrementalStayPointProcessorTest {
+
+	private static final long MINUTE = 60 * 1000L;
+	private static final Long USER_ID = 1L;
+	
+	// A user stays 35 minutes at the first place, 25 minutes at the second place and leaves
+	private static final double[] LATITUDES = { 52.5000, 52.5001, 52.5002, 52.5100, 52.5101, 52.5200 };
+	private static final double[] LONGITUDES = { 13.4000, 13.4001, 13.4000, 13.4000, 13.4001, 13.4000 };
+	private static final long[] TIMES = { 0, 10 * MINUTE, 20 * MINUTE, 35 * MINUTE, 50 * MINUTE, 60 * MINUTE };
+	
+	private final IncrementalStayPointProcessor processor = new IncrementalStayPointProcessor(200, 20);
+	
+	@Test
+	public void testDetect() {
+		StayPointState state = new StayPointState();
+		StayPointBatchWriter writer = new StayPointBatchWriter(10);
+		
+		int stayPoints = processor.detect(USER_ID, state, LATITUDES, LONGITUDES, TIMES, TIMES.length, writer);
+		
+		assertEquals("Both places should be stay points.", 2, stayPoints);
+		assertEquals(2, writer.size());
+		assertEquals("The last point should be the anchor.", TIMES[5], state.getAnchorTime());
+		assertEquals(1, state.getPoints());
+		assertEquals(TIMES[5], state.getRecordedUntil());
+	}
+	
+	@Test
+	public void testDetectInParts() {
+		for (int split = 0; split <= TIMES.length; split++) {
+			StayPointState state = new StayPointState();
+			StayPointBatchWriter writer = new StayPointBatchWriter(10);
+			
+			// The points until the split were processed by a previous detection
+			int stayPoints = processor.detect(USER_ID, state, LATITUDES, LONGITUDES, TIMES, split, writer);
+			stayPoints += processor.detect(USER_ID, state, 
+					Arrays.copyOfRange(LATITUDES, split, TIMES.length), 
+					Arrays.copyOfRange(LONGITUDES, split, TIMES.length), 
+					Arrays.copyOfRange(TIMES, split, TIMES.length), TIMES.length - split, writer);
+			
+			assertEquals("The same stay points should be detected for the split at " + split + ".", 2, stayPoints);
+			assertEquals(TIMES[5], state.getRecordedUntil());
+		}
+	}
+	
+	@Test
+	public void testOpenStayPointIsNotCreated() {
+		StayPointState state = new StayPointState();
+		StayPointBatchWriter writer = new StayPointBatchWriter(10);
+		
+		// The user did not leave the first place yet
+		int stayPoints = processor.detect(USER_ID, state, LATITUDES, LONGITUDES, TIMES, 3, writer);
+		
+		assertEquals(0, stayPoints);
+		assertEquals("The points since the anchor should be counted.", 3, state.getPoints());
+		assertEquals(LATITUDES[0] + LATITUDES[1] + LATITUDES[2], state.getLatitudeSum(), 0d);
+		assertTrue(!state.isEmpty());
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testStateWithoutPoints() {
+		new StayPointState(52.5d, 13.4d, 0L, 52.5d, 13.4d, 0, 0L);
+	}
+}
@@ -0,0 +1,63 @@
+package de.tub.processor.staypoint;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class StayPointSweepSimulatorTest {
+
+	private static final long MINUTE = 60 * 1000L;
+	
+	// A user stays 35 minutes at the first place, 25 minutes at the second place and leaves
+	private static final double[] LATITUDES = { 52.5000, 52.5001, 52.5002, 52.5100, 52.5101, 52.5200 };
+	private static final double[] LONGITUDES = { 13.4000, 13.4001, 13.4000, 13.4000, 13.4001, 13.4000 };
+	private static final long[] TIMES = { 0, 10 * MINUTE, 20 * MINUTE, 35 * MINUTE, 50 * MINUTE, 60 * MINUTE };
+	
+	@Test
+	public void testCountStayPoints() {
+		int[] timeThresholds = { 20, 30, 40 };
+		int[] counts = new int[timeThresholds.length];
+		
+		StayPointSweepSimulator.countStayPoints(LATITUDES, LONGITUDES, TIMES, TIMES.length, 200, timeThresholds, counts);
+		
+		assertArrayEquals("Both places should be stay points for 20 minutes, only the first one for 30 minutes.", 
+				new int[] { 2, 1, 0 }, counts);
+	}
+	
+	@Test
+	public void testCountStayPointsWithLargeDistance() {
+		int[] timeThresholds = { 20 };
+		int[] counts = new int[timeThresholds.length];
+		
+		// The user never leaves an area of this size, hence, there is no stay point
+		StayPointSweepSimulator.countStayPoints(LATITUDES, LONGITUDES, TIMES, TIMES.length, 10000, timeThresholds, counts);
+		
+		assertEquals(0, counts[0]);
+	}
+	
+	@Test
+	public void testThresholdsAreSorted() {
+		StayPointSweepSimulator simulator = new StayPointSweepSimulator(new int[] { 300, 100 }, new int[] { 30, 20, 40 });
+		
+		assertArrayEquals(new int[] { 100, 300 }, simulator.getDistanceThresholds());
+		assertArrayEquals(new int[] { 20, 30, 40 }, simulator.getTimeThresholds());
+		assertEquals(2, simulator.getTotalStayPoints().length);
+		assertEquals(3, simulator.getTotalStayPoints()[0].length);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoThresholds() {
+		new StayPointSweepSimulator(new int[0], new int[] { 20 });
+	}
+	
+	@Test(expected = NullPointerException.class)
+	public void testNullThresholds() {
+		new StayPointSweepSimulator(new int[] { 100 }, null);
+	}
+	
+	@Test(expected = UnsupportedOperationException.class)
+	public void testSimulationCannotBeTurnedOff() {
+		new StayPointSweepSimulator(new int[] { 100 }, new int[] { 20 }).setSimulation(false);
+	}
+}
@@ -46,12 +46,12 @@ public class ReaderFactoryTest {
 	
 	@Test
 	public void testRemoveReader() {
-		assertEquals("The size of available Readers is not as expected.", 4, ReaderFactory.instance().getAvailableReaders().size());
+		assertEquals("The size of available Readers is not as expected.", 5, ReaderFactory.instance().getAvailableReaders().size());
 		assertTrue("The Reader Factory does not contain " + TextFileLineReader.class.getName(), ReaderFactory.instance().getAvailableReaders().contains(TextFileLineReader.class));
 		
 		ReaderFactory.instance().removeReader(TextFileLineReader.class);
 		
-		assertEquals("The size of available Reader is not as expected.", 3, ReaderFactory.instance().getAvailableReaders().size());
+		assertEquals("The size of available Reader is not as expected.", 4, ReaderFactory.instance().getAvailableReaders().size());
 		assertFalse("The Reader Factory does still contain " + TextFileLineReader.class.getName(), ReaderFactory.instance().getAvailableReaders().contains(TextFileLineReader.class));
 	}
 	
@@ -0,0 +1,86 @@
+package de.tub.reader.directory;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import de.tub.processor.preprocessing.IByteLineProcessor;
+import de.tub.reader.ReaderFactory;
+import de.tub.reader.SimpleTextLineProcessor;
+import de.tub.reader.file.ByteLine;
+import de.tub.reader.file.NioTextFileLineReader;
+
+public class NioTextFileLineReaderTest {
+
+	@Test
+	public void testReadLines() {
+		URL url = NioTextFileLineReaderTest.class.getResource(TextFileLineReaderTest.FILE);
+
+		NioTextFileLineReader lr = (NioTextFileLineReader) ReaderFactory.instance().getNioTextFileLineReader();
+		lr.setResourceName(url.getFile());
+
+		SimpleTextLineProcessor p = new SimpleTextLineProcessor();
+		lr.setProcessor(p);
+
+		lr.read();
+
+		assertEquals("The number of lines read is not right.", 4, p.getLines().size());
+		for (int i = 0; i < p.getLines().size(); i++) {
+			assertEquals("The content of this line is not right.", TextFileLineReaderTest.LINE_START + i, p.getLines().get(i));
+		}
+	}
+
+	@Test
+	public void testReadByteLinesWithOffset() throws IOException {
+		File file = File.createTempFile("nio_line_data", ".txt");
+		file.deleteOnExit();
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write("header\r\nline0\r\n\nline1\rline2".getBytes("US-ASCII"));
+		} finally {
+			out.close();
+		}
+
+		NioTextFileLineReader lr = new NioTextFileLineReader();
+		lr.setResourceName(file.getPath());
+		lr.setOffset(1);
+
+		SimpleByteLineProcessor p = new SimpleByteLineProcessor();
+		lr.setProcessor(p);
+
+		lr.read();
+
+		assertEquals("The lines should be given as byte lines.", 0, p.strings);
+		assertEquals("line0", p.lines.get(0));
+		assertEquals("An empty line should be read.", "", p.lines.get(1));
+		assertEquals("line1", p.lines.get(2));
+		assertEquals("The last line without a line break should be read.", "line2", p.lines.get(3));
+		assertEquals("The number of lines read is not right.", 4, p.lines.size());
+	}
+
+	private static class SimpleByteLineProcessor implements IByteLineProcessor {
+
+		private List<String> lines = new ArrayList<String>();
+		private int strings;
+
+		@Override
+		public void newLine(ByteLine line) {
+			lines.add(line.toString());
+		}
+
+		@Override
+		public void newData(String data) {
+			strings++;
+		}
+
+		@Override
+		public void finish() {}
+	}
+}
@@ -76,5 +76,36 @@ public class UserReaderTest {
     	assertEquals("All expected users should have been found.", 0, userIds.size());
     	
 	}
+	
+	@Test
+	public void testReadUsersInPages() {
+		UserReader ur = (UserReader) ReaderFactory.instance().getUserReader();
+		SimpleUserProcessor up = new SimpleUserProcessor();
+		ur.setProcessor(up);
+		// The last page is not full
+		ur.setPageSize(2);
+		
+		ur.read();
+		
+		List<User> users = up.getUsers();
+		assertEquals("The wrong number of users was read.", 3, users.size());
+		
+		// The users are read ordered by their id
+		for (int i = 0; i < users.size(); i++)
+			assertEquals("The users should be read in the order of their ids.", i + 1L, (long) (Long) users.get(i).getId());
+	}
+	
+	@Test
+	public void testReadUsersInFullPages() {
+		UserReader ur = (UserReader) ReaderFactory.instance().getUserReader();
+		SimpleUserProcessor up = new SimpleUserProcessor();
+		ur.setProcessor(up);
+		// The last page is full, hence, an empty page is requested
+		ur.setPageSize(1);
+		
+		ur.read();
+		
+		assertEquals("The wrong number of users was read.", 3, up.getUsers().size());
+	}
 
 }
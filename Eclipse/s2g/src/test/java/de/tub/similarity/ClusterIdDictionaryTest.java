@@ -0,0 +1,38 @@
+package de.tub.similarity;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class ClusterIdDictionaryTest {
+
+	@Test
+	public void testIdOf() {
+		ClusterIdDictionary dictionary = new ClusterIdDictionary();
+
+		assertEquals("The first hg cluster id should get the id zero.", 0, dictionary.idOf("3_17"));
+		assertEquals("The second hg cluster id should get the id one.", 1, dictionary.idOf("1_0"));
+		assertEquals("A known hg cluster id should keep its id.", 0, dictionary.idOf("3_17"));
+		assertEquals("The dictionary should hold two hg cluster ids.", 2, dictionary.size());
+
+		assertEquals("The hg cluster id should be resolved.", "3_17", dictionary.hgClusterIdOf(0));
+		assertEquals("The level of the first hg cluster is not right.", 3, dictionary.levelOf(0));
+		assertEquals("The level of the second hg cluster is not right.", 1, dictionary.levelOf(1));
+
+		// Enough ids to enlarge the levels
+		for (int i = 0; i < 100; i++) {
+			dictionary.idOf("12_" + i);
+		}
+		assertEquals("The level of the last hg cluster is not right.", 12, dictionary.levelOf(dictionary.size() - 1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIdOfWithoutLevel() {
+		new ClusterIdDictionary().idOf("no_level");
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testLevelOfUnknownId() {
+		new ClusterIdDictionary().levelOf(0);
+	}
+}
@@ -0,0 +1,67 @@
+package de.tub.similarity;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class SequenceTest {
+
+	@Test
+	public void testAddCluster() {
+		Sequence<String> empty = new Sequence<String>();
+		Sequence<String> one = empty.addCluster("1_0");
+		Sequence<String> two = one.addCluster("2_0");
+
+		assertTrue("The empty sequence should not have been changed.", empty.isEmpty());
+		assertEquals("The sequence with one cluster should not have been changed.", 1, one.size());
+		assertEquals("The sequence should have two clusters.", 2, two.size());
+		assertEquals("The first cluster should be shared.", "1_0", two.getCluster(0));
+		assertEquals("The second cluster should have been added.", "2_0", two.getCluster(1));
+
+		// Two sequences are derived from the same prefix
+		Sequence<String> left = one.addCluster("2_1");
+
+		assertEquals("The sequence derived first should not have been changed.", "2_0", two.getCluster(1));
+		assertEquals("The sequence derived second should hold its own cluster.", "2_1", left.getCluster(1));
+		assertEquals("The sequence derived second should have two clusters.", 2, left.size());
+
+		// Appending to both derived sequences does not interfere
+		Sequence<String> three = two.addCluster("3_0");
+		Sequence<String> leftThree = left.addCluster("3_1");
+
+		assertEquals("The sequence should be equal to the list of its clusters.",
+				new Sequence<String>(Arrays.asList("1_0", "2_0", "3_0")), three);
+		assertEquals("The sequence should be equal to the list of its clusters.",
+				new Sequence<String>(Arrays.asList("1_0", "2_1", "3_1")), leftThree);
+	}
+
+	@Test
+	public void testSubList() {
+		Sequence<String> seq = new Sequence<String>(Arrays.asList("1_0", "2_0", "2_1", "3_0"));
+		Sequence<String> sub = seq.subList(1, 3);
+
+		assertEquals("The sub-sequence should have two clusters.", 2, sub.size());
+		assertEquals("The sub-sequence should start at the given index.", "2_0", sub.getCluster(0));
+		assertEquals("The sub-sequence should be equal to the list of its clusters.",
+				new Sequence<String>(Arrays.asList("2_0", "2_1")), sub);
+		assertEquals("Equal sequences should have the same hash code.",
+				new Sequence<String>(Arrays.asList("2_0", "2_1")).hashCode(), sub.hashCode());
+		assertEquals("The hash code should be the one of a sequence backed by a list.",
+				31 + Arrays.asList("2_0", "2_1").hashCode(), sub.hashCode());
+
+		// Appending to a sub-sequence does not change the original sequence
+		Sequence<String> appended = sub.addCluster("4_0");
+
+		assertEquals("The original sequence should not have been changed.", "3_0", seq.getCluster(3));
+		assertEquals("The cluster should have been added to the sub-sequence.", "4_0", appended.getCluster(2));
+		assertTrue("An empty sub-sequence should be empty.", seq.subList(2, 2).isEmpty());
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testGetClusterOutOfRange() {
+		Sequence<String> seq = new Sequence<String>(Arrays.asList("1_0", "2_0", "2_1"));
+		seq.subList(0, 2).getCluster(2);
+	}
+}
@@ -0,0 +1,103 @@
+package de.tub.similarity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.neo4j.graphdb.Node;
+
+import de.tub.Neo4JTestHelper;
+import de.tub.similarity.extraction.ClusterUserIndex;
+import de.tub.similarity.extraction.UserSequenceStore;
+
+/**
+ * @author Sebastian Oelke
+ *
+ */
+public class SimilarityCalculatorTest {
+
+	private static List<Node> users;
+	
+	@AfterClass
+	public static void resetGraph() {
+		Neo4JTestHelper.resetGraph();
+	}
+	
+	@BeforeClass
+	public static void buildGraph() {
+		// Generate hg for three users
+		Neo4JTestHelper.generateHg(true);
+		
+		users = new ArrayList<Node>();
+		users.add(Neo4JTestHelper.userNode1);
+		users.add(Neo4JTestHelper.userNode2);
+		users.add(Neo4JTestHelper.userNode3);
+	}
+	
+	@Test
+	public void testCalculate() {
+		// Calculate sequentially
+		SimilarityCalculator calculator = new SimilarityCalculator(users, 48, 1, 0.41);
+		double[][] sequentialResults = calculator.calculate();
+		
+		assertEquals("The result matrix has not the expected number of rows.", users.size(), sequentialResults.length);
+		assertTrue("The users 1 and 2 share clusters and should be similar.", sequentialResults[0][1] > 0);
+		
+		// The lower triangle and the diagonal are not computed
+		for (int i = 0; i < users.size(); i++) {
+			for (int j = 0; j <= i; j++) {
+				assertEquals("Only the upper triangle of the matrix should be filled.", 0.0, sequentialResults[i][j], 0.0);
+			}
+		}
+		
+		// Calculate with several threads and tiles of a single pair
+		calculator.setThreads(3);
+		calculator.setTileSize(1);
+		assertSameResults(sequentialResults, calculator.calculate());
+		
+		// Calculate with several threads and a shared sequence store
+		calculator.setTileSize(2);
+		calculator.setSequenceStore(new UserSequenceStore());
+		assertSameResults(sequentialResults, calculator.calculate());
+		
+		// Calculate only the pairs that share clusters
+		calculator.setClusterUserIndex(ClusterUserIndex.build(users, -1, -1));
+		assertSameResults(sequentialResults, calculator.calculate());
+		
+		calculator.setThreads(1);
+		assertSameResults(sequentialResults, calculator.calculate());
+	}
+	
+	@Test
+	public void testSetTileSize() {
+		SimilarityCalculator calculator = new SimilarityCalculator(users, 48, 1, 0.41);
+		
+		boolean exceptionThrown = false;
+		try {
+			calculator.setTileSize(0);
+		} catch (IllegalArgumentException e) {
+			exceptionThrown = true;
+		}
+		
+		assertTrue("An exception should have been thrown for a tile size of zero.", exceptionThrown);
+	}
+	
+	//###################################################################
+	// Helper
+	//###################################################################
+	
+	private void assertSameResults(double[][] expected, double[][] actual) {
+		assertEquals("The result matrix has not the expected number of rows.", expected.length, actual.length);
+		
+		for (int i = 0; i < expected.length; i++) {
+			for (int j = 0; j < expected.length; j++) {
+				assertEquals("The similarity of the users " + i + " and " + j + " is not the same.", expected[i][j], actual[i][j], 0.0);
+			}
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package de.tub.similarity.analysis;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import de.tub.Neo4JTestHelper;
+import de.tub.util.SimilarityUtil;
+
+/**
+ * @author Sebastian Oelke
+ *
+ */
+public class HgClusterFrequencyTableTest {
+
+	@AfterClass
+	public static void resetGraph() {
+		Neo4JTestHelper.resetGraph();
+	}
+	
+	@BeforeClass
+	public static void buildGraph() {
+		// Generate hg for two users
+		Neo4JTestHelper.generateHg(false);
+	}
+	
+	@Test
+	public void testBuild() {
+		HgClusterFrequencyTable table = HgClusterFrequencyTable.build();
+		
+		assertEquals("The overall number of users is not right.", 3L, table.getUsersCount());
+		
+		assertEquals("The number of users in the hg cluster is not right.", 2L, table.usersInHgCluster(Neo4JTestHelper.HG_CLUSTER_LEVEL_1_0));
+		assertEquals("The number of users in the hg cluster is not right.", 2L, table.usersInHgCluster(Neo4JTestHelper.HG_CLUSTER_LEVEL_2_1));
+		assertEquals("The number of users in the hg cluster is not right.", 2L, table.usersInHgCluster(Neo4JTestHelper.HG_CLUSTER_LEVEL_3_0));
+		assertEquals("The number of users in the hg cluster is not right.", 1L, table.usersInHgCluster(Neo4JTestHelper.HG_CLUSTER_LEVEL_3_1));
+		assertEquals("An unknown hg cluster should have no users.", 0L, table.usersInHgCluster("9_9"));
+		
+		assertEquals("The IDF of the hg cluster is not right.", 
+				SimilarityUtil.idfOfHgCluster(3L, 1L), table.idf(Neo4JTestHelper.HG_CLUSTER_LEVEL_3_1), 0.0);
+	}
+	
+	@Test
+	public void testIdf() {
+		Map<String, Long> usersInHgCluster = new HashMap<String, Long>();
+		usersInHgCluster.put(Neo4JTestHelper.HG_CLUSTER_LEVEL_1_0, 4L);
+		usersInHgCluster.put(Neo4JTestHelper.HG_CLUSTER_LEVEL_2_0, 1L);
+		
+		HgClusterFrequencyTable table = new HgClusterFrequencyTable(usersInHgCluster, 4L);
+		
+		assertEquals("A cluster visited by all users should have an IDF of zero.", 0.0, table.idf(Neo4JTestHelper.HG_CLUSTER_LEVEL_1_0), 0.0);
+		assertEquals("The IDF of the hg cluster is not right.", Math.log(4.0), table.idf(Neo4JTestHelper.HG_CLUSTER_LEVEL_2_0), 0.0);
+	}
+	
+	@Test(expected = NullPointerException.class)
+	public void testNullMap() {
+		new HgClusterFrequencyTable(null, 0L);
+	}
+}
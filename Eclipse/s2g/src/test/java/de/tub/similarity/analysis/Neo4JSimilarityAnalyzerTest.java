@@ -13,6 +13,8 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import de.tub.Neo4JTestHelper;
+import de.tub.similarity.ClusterIdDictionary;
+import de.tub.similarity.EncodedSimilarSequence;
 import de.tub.similarity.Sequence;
 import de.tub.similarity.SimilarSequenceCluster;
 
@@ -61,7 +63,7 @@ public class Neo4JSimilarityAnalyzerTest {
 		Sequence<SimilarSequenceCluster> seqLevel1 = new Sequence<SimilarSequenceCluster>();
 		
 		SimilarSequenceCluster c1Level1 = new SimilarSequenceCluster(Neo4JTestHelper.HG_CLUSTER_LEVEL_1_0, 16, 0L, 0L, 0L, 0L);
-		seqLevel1.addCluster(c1Level1);
+		seqLevel1 = seqLevel1.addCluster(c1Level1);
 		sequencesLevel1.add(seqLevel1);
 		
 		maximalLengthSimilarSequencesOnLevel.put(1, sequencesLevel1);
@@ -75,10 +77,10 @@ public class Neo4JSimilarityAnalyzerTest {
 		SimilarSequenceCluster c3Level2 = new SimilarSequenceCluster(Neo4JTestHelper.HG_CLUSTER_LEVEL_2_0, 7, 0L, 0L, 0L, 0L);
 		SimilarSequenceCluster c4Level2 = new SimilarSequenceCluster(Neo4JTestHelper.HG_CLUSTER_LEVEL_2_0, 2, 0L, 0L, 0L, 0L);
 		
-		seqLevel2.addCluster(c1Level2);
-		seqLevel2.addCluster(c2Level2);
-		seqLevel2.addCluster(c3Level2);
-		seqLevel2.addCluster(c4Level2);
+		seqLevel2 = seqLevel2.addCluster(c1Level2);
+		seqLevel2 = seqLevel2.addCluster(c2Level2);
+		seqLevel2 = seqLevel2.addCluster(c3Level2);
+		seqLevel2 = seqLevel2.addCluster(c4Level2);
 		sequencesLevel2.add(seqLevel2);
 		
 		maximalLengthSimilarSequencesOnLevel.put(2, sequencesLevel2);
@@ -91,9 +93,9 @@ public class Neo4JSimilarityAnalyzerTest {
 		SimilarSequenceCluster c2Level3 = new SimilarSequenceCluster(Neo4JTestHelper.HG_CLUSTER_LEVEL_3_0, 2, 0L, 0L, 0L, 0L);
 		SimilarSequenceCluster c3Level3 = new SimilarSequenceCluster(Neo4JTestHelper.HG_CLUSTER_LEVEL_3_0, 6, 0L, 0L, 0L, 0L);
 		
-		seqLevel3.addCluster(c1Level3);
-		seqLevel3.addCluster(c2Level3);
-		seqLevel3.addCluster(c3Level3);
+		seqLevel3 = seqLevel3.addCluster(c1Level3);
+		seqLevel3 = seqLevel3.addCluster(c2Level3);
+		seqLevel3 = seqLevel3.addCluster(c3Level3);
 		sequencesLevel3.add(seqLevel3);
 		
 		maximalLengthSimilarSequencesOnLevel.put(3, sequencesLevel3);
@@ -103,6 +105,31 @@ public class Neo4JSimilarityAnalyzerTest {
 		similarityScore = analyzer.analyze();
 		
 		assertEquals("A similarity score of around 0.7 is assumed.", 0.7, similarityScore, 0.005);
+		
+		// Run similarity measurement with a precomputed frequency table
+		analyzer.setFrequencyTable(HgClusterFrequencyTable.build());
+		assertEquals("The similarity score should not change with a frequency table.", similarityScore, analyzer.analyze(), 0.0);
+		
+		// Run similarity measurement with the same similar sequences encoded
+		ClusterIdDictionary dictionary = new ClusterIdDictionary();
+		Map<Integer, List<EncodedSimilarSequence>> encodedSimilarSequencesOnLevel = new HashMap<Integer, List<EncodedSimilarSequence>>();
+		for (Integer level : maximalLengthSimilarSequencesOnLevel.keySet()) {
+			List<EncodedSimilarSequence> encodedSequences = new ArrayList<EncodedSimilarSequence>();
+			for (Sequence<SimilarSequenceCluster> seq : maximalLengthSimilarSequencesOnLevel.get(level)) {
+				int[] clusterIds = new int[seq.size()];
+				int[] successivelyInCluster = new int[seq.size()];
+				for (int i = 0; i < seq.size(); i++) {
+					clusterIds[i] = dictionary.idOf(seq.getCluster(i).getId());
+					successivelyInCluster[i] = seq.getCluster(i).getSuccessivelyInCluster();
+				}
+				encodedSequences.add(new EncodedSimilarSequence(clusterIds, successivelyInCluster));
+			}
+			encodedSimilarSequencesOnLevel.put(level, encodedSequences);
+		}
+		
+		analyzer.setClusterIdDictionary(dictionary);
+		analyzer.setEncodedSimilarSequencesOnLevel(encodedSimilarSequencesOnLevel);
+		assertEquals("The similarity score should not change for encoded similar sequences.", similarityScore, analyzer.analyze(), 0.0);
 	}
 
 }
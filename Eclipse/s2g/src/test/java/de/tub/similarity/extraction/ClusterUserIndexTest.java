@@ -0,0 +1,61 @@
+package de.tub.similarity.extraction;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * @author Sebastian Oelke
+ *
+ */
+public class ClusterUserIndexTest {
+
+	private static final String CLUSTER_10 = "1_0";
+	private static final String CLUSTER_20 = "2_0";
+	private static final String CLUSTER_21 = "2_1";
+	private static final String CLUSTER_30 = "3_0";
+	
+	@Test
+	public void testBuild() {
+		// Build the hg cluster ids of four users, user 3 shares no cluster
+		List<List<String>> clustersOfUser = new ArrayList<List<String>>();
+		clustersOfUser.add(Arrays.asList(CLUSTER_10, CLUSTER_20));
+		clustersOfUser.add(Arrays.asList(CLUSTER_10, CLUSTER_21));
+		clustersOfUser.add(Arrays.asList(CLUSTER_21, CLUSTER_30));
+		clustersOfUser.add(new ArrayList<String>());
+		
+		ClusterUserIndex index = ClusterUserIndex.build(clustersOfUser);
+		assertEquals("The number of users of the index is not right.", 4, index.getUsersCount());
+		
+		// Test posting lists
+		assertArrayEquals("The users of the cluster are not right.", new int[] {0, 1}, index.usersOf(CLUSTER_10));
+		assertArrayEquals("The users of the cluster are not right.", new int[] {1, 2}, index.usersOf(CLUSTER_21));
+		assertArrayEquals("The users of the cluster are not right.", new int[] {2}, index.usersOf(CLUSTER_30));
+		assertEquals("An unknown cluster should have no users.", 0, index.usersOf("4_0").length);
+		
+		// Test candidates
+		assertArrayEquals("The candidates of the user are not right.", new int[] {1}, index.candidatesOf(0));
+		assertArrayEquals("The candidates of the user are not right.", new int[] {2}, index.candidatesOf(1));
+		assertArrayEquals("The candidates of the user are not right.", new int[] {}, index.candidatesOf(2));
+		assertArrayEquals("The candidates of the user are not right.", new int[] {}, index.candidatesOf(3));
+		
+		// Test shared clusters in both directions
+		assertTrue("The users should share a cluster.", index.shareCluster(0, 1));
+		assertTrue("The users should share a cluster.", index.shareCluster(2, 1));
+		assertFalse("The users should not share a cluster.", index.shareCluster(0, 2));
+		assertFalse("The users should not share a cluster.", index.shareCluster(0, 3));
+		assertFalse("A user should not share a cluster with itself.", index.shareCluster(1, 1));
+	}
+	
+	@Test(expected = NullPointerException.class)
+	public void testBuildWithNull() {
+		ClusterUserIndex.build(null);
+	}
+}
@@ -3,6 +3,7 @@ package de.tub.similarity.extraction;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
+import java.io.File;
 import java.util.Map;
 
 import org.junit.AfterClass;
@@ -10,6 +11,10 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import de.tub.Neo4JTestHelper;
+import de.tub.TestHelper;
+import de.tub.similarity.ClusterIdDictionary;
+import de.tub.similarity.EncodedSequence;
+import de.tub.similarity.EncodedSequenceWrapper;
 import de.tub.similarity.Sequence;
 import de.tub.similarity.SequenceCluster;
 import de.tub.similarity.SequenceWrapper;
@@ -20,6 +25,8 @@ import de.tub.similarity.SequenceWrapper;
  */
 public class Neo4JSequenceExtractorTest {
 	
+	private static final String SPILL_DIR = System.getProperty("java.io.tmpdir") + File.separator + "s2g_sequence_spill";
+	
 	@AfterClass
 	public static void resetGraph() {
 		Neo4JTestHelper.resetGraph();
@@ -136,4 +143,78 @@ public class Neo4JSequenceExtractorTest {
 		assertEquals("The arrival time of the cluster is not right.", 5L, c.getArrivalTime());
 		assertEquals("The leaving time of the cluster is not right.", 12L, c.getLeavingTime());
 	}
+	
+	@Test
+	public void testExtractWithSequenceStore() {
+		// Extract sequences by querying the graph for the user pair
+		Neo4JSequenceExtractor ex = new Neo4JSequenceExtractor(Neo4JTestHelper.userNode1, Neo4JTestHelper.userNode2);
+		Map<Integer, SequenceWrapper> expectedSequences = ex.extract();
+		
+		// Extract sequences with the visits held in memory
+		ex.setSequenceStore(new UserSequenceStore());
+		assertSameSequences(expectedSequences, ex.extract());
+		
+		// Extract sequences a second time to use the already read visits
+		assertSameSequences(expectedSequences, ex.extract());
+		
+		// Extract sequences with only one user held in memory, the other one is spilled
+		UserSequenceStore spillingStore = new UserSequenceStore(-1, -1, SPILL_DIR, 1);
+		ex.setSequenceStore(spillingStore);
+		try {
+			assertSameSequences(expectedSequences, ex.extract());
+			assertSameSequences(expectedSequences, ex.extract());
+			
+			spillingStore.clear();
+			assertEquals("The spill directory should be empty after clearing the store.", 0, new File(SPILL_DIR).list().length);
+		} finally {
+			TestHelper.deleteFileOrDirectory(SPILL_DIR);
+		}
+	}
+	
+	@Test
+	public void testExtractEncoded() {
+		// Extract sequences by querying the graph for the user pair
+		Neo4JSequenceExtractor ex = new Neo4JSequenceExtractor(Neo4JTestHelper.userNode1, Neo4JTestHelper.userNode2);
+		Map<Integer, SequenceWrapper> expectedSequences = ex.extract();
+		
+		// Extract encoded sequences with the visits held in memory
+		ClusterIdDictionary dictionary = new ClusterIdDictionary();
+		UserSequenceStore store = new UserSequenceStore();
+		store.setClusterIdDictionary(dictionary);
+		ex.setSequenceStore(store);
+		
+		Map<Integer, EncodedSequenceWrapper> encodedSequences = ex.extractEncoded();
+		
+		assertEquals("The levels of the extracted sequences are not right.", expectedSequences.keySet(), encodedSequences.keySet());
+		for (Integer level : expectedSequences.keySet()) {
+			assertEquals("The encoded sequence of user 1 on level " + level + " is not right.", 
+					EncodedSequence.encode(expectedSequences.get(level).getFirstSequence(), dictionary), 
+					encodedSequences.get(level).getFirstSequence());
+			assertEquals("The encoded sequence of user 2 on level " + level + " is not right.", 
+					EncodedSequence.encode(expectedSequences.get(level).getSecondSequence(), dictionary), 
+					encodedSequences.get(level).getSecondSequence());
+		}
+		
+		// The dictionary holds the level of each encoded cluster
+		for (Integer level : encodedSequences.keySet()) {
+			for (int clusterId : encodedSequences.get(level).getFirstSequence().getClusterIds()) {
+				assertEquals("The level of the encoded cluster is not right.", level.intValue(), dictionary.levelOf(clusterId));
+			}
+		}
+	}
+	
+	//###################################################################
+	// Helper
+	//###################################################################
+	
+	private void assertSameSequences(Map<Integer, SequenceWrapper> expected, Map<Integer, SequenceWrapper> actual) {
+		assertEquals("The levels of the extracted sequences are not right.", expected.keySet(), actual.keySet());
+		
+		for (Integer level : expected.keySet()) {
+			assertEquals("The sequence of user 1 on level " + level + " is not right.", 
+					expected.get(level).getFirstSequence(), actual.get(level).getFirstSequence());
+			assertEquals("The sequence of user 2 on level " + level + " is not right.", 
+					expected.get(level).getSecondSequence(), actual.get(level).getSecondSequence());
+		}
+	}
 }
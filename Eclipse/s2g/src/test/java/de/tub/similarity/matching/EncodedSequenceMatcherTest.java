@@ -0,0 +1,174 @@
+package de.tub.similarity.matching;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.tub.similarity.ClusterIdDictionary;
+import de.tub.similarity.EncodedSequence;
+import de.tub.similarity.EncodedSequenceWrapper;
+import de.tub.similarity.EncodedSimilarSequence;
+import de.tub.similarity.Sequence;
+import de.tub.similarity.SequenceCluster;
+import de.tub.similarity.SequenceWrapper;
+import de.tub.similarity.SimilarSequenceCluster;
+import de.tub.util.DateTimeUtil;
+
+public class EncodedSequenceMatcherTest {
+
+	private static final int SPLIT_THRESHOLD = 1;
+	private static final int MIN_SEQUENCE_LENGTH = 1;
+	private static final double TEMPORAL_CONSTRAINT = 0.5;
+
+	@Test
+	public void testMatch() {
+		ClusterIdDictionary dictionary = new ClusterIdDictionary();
+
+		// The second half of both sequences is split from the first one by a long transition time
+		Map<Integer, SequenceWrapper> sequencesOnLevel = new HashMap<Integer, SequenceWrapper>();
+		sequencesOnLevel.put(2, new SequenceWrapper(
+				buildSequence(new String[] { "2_0", "2_1", "2_0", "2_1", "2_2", "2_3" }, new long[] { 0, 1, 2, 3, 10, 11 }),
+				buildSequence(new String[] { "2_1", "2_0", "2_1", "2_0", "2_3", "2_2" }, new long[] { 0, 1, 2, 3, 10, 11 })));
+		sequencesOnLevel.put(3, new SequenceWrapper(
+				buildSequence(new String[] { "3_0", "3_1", "3_2" }, new long[] { 0, 1, 2 }),
+				buildSequence(new String[] { "3_4", "3_5" }, new long[] { 0, 1 })));
+
+		assertSameSimilarSequences(dictionary, sequencesOnLevel, -1);
+		assertSameSimilarSequences(dictionary, sequencesOnLevel, 10);
+
+		// Two sequences of three clusters are found in the first sub-sequences, the single clusters
+		// of the second sub-sequences are visited at different times and do not redeem the temporal constraint
+		EncodedSequenceMatcher matcher = new EncodedSequenceMatcher(
+				encode(sequencesOnLevel, dictionary), SPLIT_THRESHOLD, MIN_SEQUENCE_LENGTH, TEMPORAL_CONSTRAINT);
+		List<EncodedSimilarSequence> level2 = matcher.match().get(2);
+
+		assertEquals("There should be two sequences for level 2.", 2, level2.size());
+
+		// The limit is reached, only one sequence is kept
+		matcher.setMaxSimilarSequences(1);
+		Map<Integer, List<EncodedSimilarSequence>> limitedResults = matcher.match();
+
+		assertEquals("Only level 2 should have similar sequences.", 1, limitedResults.size());
+		assertEquals("There should be one sequence for level 2.", 1, limitedResults.get(2).size());
+		assertEquals("The sequence of level 2 should have three clusters.", 3, limitedResults.get(2).get(0).size());
+		assertTrue("The sequence should be one of the sequences found without a limit.", level2.contains(limitedResults.get(2).get(0)));
+	}
+
+	@Test
+	public void testMatchEmpty() {
+		Map<Integer, EncodedSequenceWrapper> sequencesOnLevel = new HashMap<Integer, EncodedSequenceWrapper>();
+		sequencesOnLevel.put(1, new EncodedSequenceWrapper(new EncodedSequence(), new EncodedSequence()));
+		sequencesOnLevel.put(2, null);
+
+		EncodedSequenceMatcher matcher = new EncodedSequenceMatcher(
+				sequencesOnLevel, SPLIT_THRESHOLD, MIN_SEQUENCE_LENGTH, TEMPORAL_CONSTRAINT);
+
+		assertTrue("No similar sequences should have been found for empty sequences.", matcher.match().isEmpty());
+	}
+
+	@Test
+	public void testMatchRandomSequences() {
+		ClusterIdDictionary dictionary = new ClusterIdDictionary();
+		Random random = new Random(42L);
+
+		for (int run = 0; run < 200; run++) {
+			Map<Integer, SequenceWrapper> sequencesOnLevel = new HashMap<Integer, SequenceWrapper>();
+			sequencesOnLevel.put(2, new SequenceWrapper(buildRandomSequence(random), buildRandomSequence(random)));
+
+			assertSameSimilarSequences(dictionary, sequencesOnLevel, -1);
+		}
+	}
+
+	//###################################################################
+	// Helper
+	//###################################################################
+
+	/**
+	 * Matches the given sequences with both matchers and compares the similar sequences of each level.
+	 */
+	private void assertSameSimilarSequences(ClusterIdDictionary dictionary,
+			Map<Integer, SequenceWrapper> sequencesOnLevel, int maxSimilarSequences) {
+		Neo4JSequenceMatcher matcher = new Neo4JSequenceMatcher(
+				sequencesOnLevel, SPLIT_THRESHOLD, MIN_SEQUENCE_LENGTH, TEMPORAL_CONSTRAINT);
+		Map<Integer, List<Sequence<SimilarSequenceCluster>>> expected = matcher.match();
+
+		EncodedSequenceMatcher encodedMatcher = new EncodedSequenceMatcher(
+				encode(sequencesOnLevel, dictionary), SPLIT_THRESHOLD, MIN_SEQUENCE_LENGTH, TEMPORAL_CONSTRAINT);
+		encodedMatcher.setMaxSimilarSequences(maxSimilarSequences);
+		Map<Integer, List<EncodedSimilarSequence>> actual = encodedMatcher.match();
+
+		assertEquals("The same levels should have been matched.", expected.keySet(), actual.keySet());
+		for (Integer level : expected.keySet()) {
+			List<EncodedSimilarSequence> expectedLevel = new ArrayList<EncodedSimilarSequence>();
+			for (Sequence<SimilarSequenceCluster> seq : expected.get(level)) {
+				expectedLevel.add(encode(seq, dictionary));
+			}
+
+			assertEquals("The same number of sequences should have been matched on level " + level + ".",
+					expectedLevel.size(), actual.get(level).size());
+			assertEquals("The same sequences should have been matched on level " + level + ".",
+					new HashSet<EncodedSimilarSequence>(expectedLevel),
+					new HashSet<EncodedSimilarSequence>(actual.get(level)));
+		}
+	}
+
+	private Map<Integer, EncodedSequenceWrapper> encode(Map<Integer, SequenceWrapper> sequencesOnLevel, ClusterIdDictionary dictionary) {
+		Map<Integer, EncodedSequenceWrapper> encoded = new HashMap<Integer, EncodedSequenceWrapper>();
+		for (Integer level : sequencesOnLevel.keySet()) {
+			encoded.put(level, new EncodedSequenceWrapper(
+					EncodedSequence.encode(sequencesOnLevel.get(level).getFirstSequence(), dictionary),
+					EncodedSequence.encode(sequencesOnLevel.get(level).getSecondSequence(), dictionary)));
+		}
+		return encoded;
+	}
+
+	private EncodedSimilarSequence encode(Sequence<SimilarSequenceCluster> seq, ClusterIdDictionary dictionary) {
+		int[] clusterIds = new int[seq.size()];
+		int[] successivelyInCluster = new int[seq.size()];
+		for (int i = 0; i < seq.size(); i++) {
+			clusterIds[i] = dictionary.idOf(seq.getCluster(i).getId());
+			successivelyInCluster[i] = seq.getCluster(i).getSuccessivelyInCluster();
+		}
+		return new EncodedSimilarSequence(clusterIds, successivelyInCluster);
+	}
+
+	/**
+	 * Builds a sequence of the given cluster ids. Each cluster is visited for half an hour
+	 * starting at the given hour.
+	 */
+	private Sequence<SequenceCluster> buildSequence(String[] clusterIds, long[] hours) {
+		Sequence<SequenceCluster> seq = new Sequence<SequenceCluster>();
+
+		for (int i = 0; i < clusterIds.length; i++) {
+			SequenceCluster cluster = new SequenceCluster(clusterIds[i]);
+			cluster.setArrivalTime(hours[i] * DateTimeUtil.MILLISECONDS_PER_HOUR);
+			cluster.setLeavingTime(hours[i] * DateTimeUtil.MILLISECONDS_PER_HOUR + DateTimeUtil.MILLISECONDS_PER_HOUR / 2);
+			cluster.setSuccessivelyInCluster(1 + i % 3);
+			seq = seq.addCluster(cluster);
+		}
+
+		return seq;
+	}
+
+	private Sequence<SequenceCluster> buildRandomSequence(Random random) {
+		int size = 1 + random.nextInt(10);
+		String[] clusterIds = new String[size];
+		long[] hours = new long[size];
+
+		long hour = 0;
+		for (int i = 0; i < size; i++) {
+			clusterIds[i] = "2_" + random.nextInt(4);
+			hour += 1 + random.nextInt(3);
+			hours[i] = hour;
+		}
+
+		return buildSequence(clusterIds, hours);
+	}
+}
@@ -3,6 +3,7 @@ package de.tub.similarity.matching;
 import static org.junit.Assert.*;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 
@@ -87,6 +88,74 @@ public class Neo4JSequenceMatcherTest {
 				0, matchingResults.size());
 	}
 
+	@Test
+	public void testMatchMaximalLength() {
+		// Match exhaustively
+		Neo4JSequenceMatcher matcher = new Neo4JSequenceMatcher(
+				buildSequencesForTwoUsers(), 
+				SPLIT_THRESHOLD, MIN_SEQUENCE_LENGTH, TEMPORAL_CONSTRAINT);
+		Map<Integer, List<Sequence<SimilarSequenceCluster>>> exhaustiveResults = matcher.match();
+		
+		// Match only maximal length sequences
+		matcher.setMaxSimilarSequences(100);
+		Map<Integer, List<Sequence<SimilarSequenceCluster>>> maximalLengthResults = matcher.match();
+		
+		assertEquals("The same levels should have been matched.", exhaustiveResults.keySet(), maximalLengthResults.keySet());
+		for (Integer level : exhaustiveResults.keySet()) {
+			assertEquals("The same sequences should have been matched on level " + level + ".",
+					new HashSet<Sequence<SimilarSequenceCluster>>(exhaustiveResults.get(level)), 
+					new HashSet<Sequence<SimilarSequenceCluster>>(maximalLengthResults.get(level)));
+		}
+	}
+	
+	@Test
+	public void testMatchRepeatedClusters() {
+		// Two users visit the same clusters alternately, there are two longest common subsequences
+		Map<Integer, SequenceWrapper> sequencesOnLevel = new HashMap<Integer, SequenceWrapper>();
+		sequencesOnLevel.put(2, new SequenceWrapper(
+				buildSequence(CLUSTER_20, CLUSTER_21, CLUSTER_20, CLUSTER_21), 
+				buildSequence(CLUSTER_21, CLUSTER_20, CLUSTER_21, CLUSTER_20)));
+		
+		Neo4JSequenceMatcher matcher = new Neo4JSequenceMatcher(
+				sequencesOnLevel, SPLIT_THRESHOLD, MIN_SEQUENCE_LENGTH, TEMPORAL_CONSTRAINT);
+		List<Sequence<SimilarSequenceCluster>> exhaustiveLevel2 = matcher.match().get(2);
+		
+		assertEquals("There should be two sequences included for level 2.", 2, exhaustiveLevel2.size());
+		
+		// The limit is not reached, the same sequences are expected
+		matcher.setMaxSimilarSequences(2);
+		List<Sequence<SimilarSequenceCluster>> maximalLengthLevel2 = matcher.match().get(2);
+		
+		assertEquals("The same sequences should have been matched.", 
+				new HashSet<Sequence<SimilarSequenceCluster>>(exhaustiveLevel2), 
+				new HashSet<Sequence<SimilarSequenceCluster>>(maximalLengthLevel2));
+		
+		// The limit is reached, only one sequence is expected
+		matcher.setMaxSimilarSequences(1);
+		List<Sequence<SimilarSequenceCluster>> limitedLevel2 = matcher.match().get(2);
+		
+		assertEquals("There should be one sequence included for level 2.", 1, limitedLevel2.size());
+		assertEquals("The sequence of level 2 should have three clusters.", 3, limitedLevel2.get(0).size());
+		assertTrue("The sequence should be one of the sequences found without a limit.", exhaustiveLevel2.contains(limitedLevel2.get(0)));
+	}
+	
+	/**
+	 * Builds a sequence of the given cluster ids. Each cluster is visited 
+	 * for 50 time units with a transition time of 50 time units.
+	 */
+	private Sequence<SequenceCluster> buildSequence(String... clusterIds) {
+		Sequence<SequenceCluster> seq = new Sequence<SequenceCluster>();
+		
+		for (int i = 0; i < clusterIds.length; i++) {
+			SequenceCluster cluster = new SequenceCluster(clusterIds[i]);
+			cluster.setArrivalTime(i * 100L);
+			cluster.setLeavingTime(i * 100L + 50L);
+			seq = seq.addCluster(cluster);
+		}
+		
+		return seq;
+	}
+
 	private Map<Integer, SequenceWrapper> buildSequencesForTwoUsers() {
 		Map<Integer, SequenceWrapper> sequencesOnLevel = new HashMap<Integer, SequenceWrapper>();
 		
@@ -100,7 +169,7 @@ public class Neo4JSequenceMatcherTest {
 		seq1Level1Cluster.setArrivalTime(100L);
 		seq1Level1Cluster.setLeavingTime(5000L);
 		
-		seq1.addCluster(seq1Level1Cluster);
+		seq1 = seq1.addCluster(seq1Level1Cluster);
 		wrapperLevel1.setFirstSequence(seq1);
 		
 		Sequence<SequenceCluster> seq2 = new Sequence<SequenceCluster>();
@@ -110,7 +179,7 @@ public class Neo4JSequenceMatcherTest {
 		seq2Level1Cluster.setArrivalTime(250L);
 		seq2Level1Cluster.setLeavingTime(6500L);
 		
-		seq2.addCluster(seq2Level1Cluster);
+		seq2 = seq2.addCluster(seq2Level1Cluster);
 		wrapperLevel1.setSecondSequence(seq2);
 		
 		// ### Level two
@@ -135,9 +204,9 @@ public class Neo4JSequenceMatcherTest {
 		seq3Level2Cluster3.setArrivalTime(2250L);
 		seq3Level2Cluster3.setLeavingTime(4000L);
 		
-		seq3.addCluster(seq3Level2Cluster1);
-		seq3.addCluster(seq3Level2Cluster2);
-		seq3.addCluster(seq3Level2Cluster3);
+		seq3 = seq3.addCluster(seq3Level2Cluster1);
+		seq3 = seq3.addCluster(seq3Level2Cluster2);
+		seq3 = seq3.addCluster(seq3Level2Cluster3);
 		
 		wrapperLevel2.setFirstSequence(seq3);
 		
@@ -166,10 +235,10 @@ public class Neo4JSequenceMatcherTest {
 		seq4Level2Cluster4.setArrivalTime(4500L);
 		seq4Level2Cluster4.setLeavingTime(5900L);
 		
-		seq4.addCluster(seq4Level2Cluster1);
-		seq4.addCluster(seq4Level2Cluster2);
-		seq4.addCluster(seq4Level2Cluster3);
-		seq4.addCluster(seq4Level2Cluster4);
+		seq4 = seq4.addCluster(seq4Level2Cluster1);
+		seq4 = seq4.addCluster(seq4Level2Cluster2);
+		seq4 = seq4.addCluster(seq4Level2Cluster3);
+		seq4 = seq4.addCluster(seq4Level2Cluster4);
 		
 		wrapperLevel2.setSecondSequence(seq4);
 		
@@ -195,9 +264,9 @@ public class Neo4JSequenceMatcherTest {
 		seq5Level3Cluster3.setArrivalTime(4670L);
 		seq5Level3Cluster3.setLeavingTime(5000L);
 		
-		seq5.addCluster(seq5Level3Cluster1);
-		seq5.addCluster(seq5Level3Cluster2);
-		seq5.addCluster(seq5Level3Cluster3);
+		seq5 = seq5.addCluster(seq5Level3Cluster1);
+		seq5 = seq5.addCluster(seq5Level3Cluster2);
+		seq5 = seq5.addCluster(seq5Level3Cluster3);
 		
 		wrapperLevel3.setFirstSequence(seq5);
 		
@@ -226,10 +295,10 @@ public class Neo4JSequenceMatcherTest {
 		seq6Level3Cluster4.setArrivalTime(6650L);
 		seq6Level3Cluster4.setLeavingTime(6800L);
 		
-		seq6.addCluster(seq6Level3Cluster1);
-		seq6.addCluster(seq6Level3Cluster2);
-		seq6.addCluster(seq6Level3Cluster3);
-		seq6.addCluster(seq6Level3Cluster4);
+		seq6 = seq6.addCluster(seq6Level3Cluster1);
+		seq6 = seq6.addCluster(seq6Level3Cluster2);
+		seq6 = seq6.addCluster(seq6Level3Cluster3);
+		seq6 = seq6.addCluster(seq6Level3Cluster4);
 		
 		wrapperLevel3.setSecondSequence(seq6);
 		
@@ -0,0 +1,105 @@
+package de.tub.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.graphdb.GraphDatabaseService;
+
+public class DBUtilBoundGraphTest {
+
+	private String boundPath;
+
+	@Before
+	public void setup() {
+		boundPath = DBUtil.getNeo4jPath() + "-bound-test";
+	}
+
+	@After
+	public void teardown() {
+		DBUtil.unbindGraph();
+		FileUtil.deleteFileOrDirectory(boundPath);
+	}
+
+	@Test
+	public void testBoundGraph() {
+		GraphDatabaseService shared = DBUtil.graph();
+		String sharedPath = DBUtil.getNeo4jPath();
+
+		DBUtil.bindGraph(boundPath);
+		assertEquals("The path of the bound graph database is expected.", boundPath, DBUtil.getNeo4jPath());
+
+		GraphDatabaseService bound = DBUtil.graph();
+		assertNotSame("The bound graph database should not be the shared one.", shared, bound);
+		assertSame("The bound graph database should be returned again.", bound, DBUtil.graph());
+		assertSame("The engine of the bound graph database should be returned again.",
+				DBUtil.cypherEngine(), DBUtil.cypherEngine());
+
+		DBUtil.unbindGraph();
+		assertEquals("The path of the shared graph database is expected.", sharedPath, DBUtil.getNeo4jPath());
+		assertSame("The shared graph database should be returned after the unbinding.", shared, DBUtil.graph());
+	}
+
+	@Test
+	public void testBoundGraphIsInherited() throws InterruptedException {
+		DBUtil.bindGraph(boundPath);
+		final GraphDatabaseService bound = DBUtil.graph();
+
+		final GraphDatabaseService[] childGraph = new GraphDatabaseService[1];
+		Thread child = new Thread() {
+			@Override
+			public void run() {
+				childGraph[0] = DBUtil.graph();
+			}
+		};
+		child.start();
+		child.join();
+
+		assertSame("A thread created by the bound thread should use the bound graph database.", bound, childGraph[0]);
+	}
+
+	@Test
+	public void testThreadsHaveOwnBoundGraphs() throws InterruptedException {
+		final String otherPath = boundPath + "-other";
+		final GraphDatabaseService[] otherGraph = new GraphDatabaseService[1];
+
+		DBUtil.bindGraph(boundPath);
+		GraphDatabaseService bound = DBUtil.graph();
+
+		Thread other = new Thread() {
+			@Override
+			public void run() {
+				// Bindings of other threads are not affected
+				DBUtil.unbindGraph();
+				DBUtil.bindGraph(otherPath);
+				otherGraph[0] = DBUtil.graph();
+				DBUtil.unbindGraph();
+			}
+		};
+		other.start();
+		other.join();
+
+		try {
+			assertNotSame("Each thread should use its own bound graph database.", bound, otherGraph[0]);
+			assertSame("The binding of this thread should be unchanged.", bound, DBUtil.graph());
+		} finally {
+			FileUtil.deleteFileOrDirectory(otherPath);
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testBindTwice() {
+		DBUtil.bindGraph(boundPath);
+		DBUtil.bindGraph(boundPath);
+	}
+
+	@Test(expected = NullPointerException.class)
+	public void testBindNull() {
+		DBUtil.bindGraph(null);
+	}
+}
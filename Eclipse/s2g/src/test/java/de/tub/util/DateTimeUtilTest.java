@@ -5,6 +5,7 @@ import static org.junit.Assert.*;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.TimeZone;
 
 import org.junit.Test;
 
@@ -44,6 +45,24 @@ public class DateTimeUtilTest {
 		}
         
         assertEquals(1300L, DateTimeUtil.differenceInMinutes(d1, d2));
+        assertEquals(1300L, DateTimeUtil.differenceInMinutes(d1.getTime(), d2.getTime()));
+	}
+	
+	@Test
+	public void testDaysSince1899ToMillis() {
+		SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+		formatter.setTimeZone(TimeZone.getTimeZone("UTC"));
+		
+		// A point of the GeoLife data set recorded at 2008-10-23 02:53:04
+		Date date = null;
+		try {
+			date = formatter.parse("2008-10-23 02:53:04");
+		} catch (ParseException e) {
+			System.err.println("An error occurred parsing the date string:\n" + e);
+		}
+		
+		assertEquals(date.getTime(), DateTimeUtil.daysSince1899ToMillis(39744.1201851852));
+		assertEquals(0L, DateTimeUtil.daysSince1899ToMillis(25569));
 	}
 	
 	@Test
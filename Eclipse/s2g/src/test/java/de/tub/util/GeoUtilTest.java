@@ -4,6 +4,8 @@ import static org.junit.Assert.*;
 
 import org.junit.Test;
 
+import de.tub.data.geo.GeoPointWrapper;
+
 public class GeoUtilTest {
 
 	private static final double lat1 = 38.929854;
@@ -23,5 +25,16 @@ public class GeoUtilTest {
 		result = GeoUtil.distanceInMeter(lat1, long1, lat3, long3);
 		assertEquals(6160838.0, Math.floor(result), (6160838.0 / 10e6));
 	}
+	
+	@Test
+	public void testComputeMeanPositionOfArrays() {
+		double[] latitudes = { lat3, lat1, lat2, lat3 };
+		double[] longitudes = { long3, long1, long2, long3 };
+		
+		// Only the points of the given range are considered
+		GeoPointWrapper mean = GeoUtil.computeMeanPosition(latitudes, longitudes, 1, 3);
+		assertEquals((lat1 + lat2) / 2, mean.getMeanLatitude(), 1e-9);
+		assertEquals((long1 + long2) / 2, mean.getMeanLongitude(), 1e-9);
+	}
 
 }
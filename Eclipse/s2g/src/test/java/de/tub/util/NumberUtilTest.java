@@ -22,5 +22,35 @@ public class NumberUtilTest {
 		DecimalFormat customDf = NumberUtil.decimalFormat(FORMAT);
 		assertTrue("The decimal number was not formatted correctly with the custom formatter.", customDf.format(NUMBER).equals(CUSTOM_RESULT));
 	}
+	
+	@Test
+	public void testParseIntegers() {
+		int[] integers = NumberUtil.parseIntegers("100, 200,300");
+		assertEquals(3, integers.length);
+		assertEquals(100, integers[0]);
+		assertEquals(200, integers[1]);
+		assertEquals(300, integers[2]);
+	}
+	
+	@Test(expected = NumberFormatException.class)
+	public void testParseInvalidIntegers() {
+		NumberUtil.parseIntegers("100,a");
+	}
+
+	@Test
+	public void testParseDoubleFromBytes() throws Exception {
+		String[] numbers = { "39.984702", "-116.318417", "39744.1201851852", "0", "+1.5", "007.250", "0.000001", "1.2345678901234567", "1e-3" };
+		for (String number : numbers) {
+			byte[] bytes = ("," + number + ",").getBytes("US-ASCII");
+			assertEquals("The number " + number + " was not parsed correctly.", 
+					Double.parseDouble(number), NumberUtil.parseDouble(bytes, 1, bytes.length - 1), 0d);
+		}
+	}
+	
+	@Test(expected = NumberFormatException.class)
+	public void testParseInvalidDoubleFromBytes() throws Exception {
+		byte[] bytes = "1.2.3".getBytes("US-ASCII");
+		NumberUtil.parseDouble(bytes, 0, bytes.length);
+	}
 
 }
@@ -0,0 +1,10 @@
+# Inserts test users, the last one has no stay points
+INSERT INTO `users` (`id`, `points_in_data_count`) VALUES (0, 162);
+INSERT INTO `users` (`id`, `points_in_data_count`) VALUES (1, 53);
+INSERT INTO `users` (`id`, `points_in_data_count`) VALUES (2, 12);
+
+# Inserts the stay points of the clustering test files for the users above
+INSERT INTO `stay_points` (`id`, `latitude`, `longitude`, `arr_time`, `leav_time`, `user_id`) VALUES	(10656, 39.97841, 116.300913, '2009-04-15 09:59:46', '2009-04-16 00:05:10', 0);
+INSERT INTO `stay_points` (`id`, `latitude`, `longitude`, `arr_time`, `leav_time`, `user_id`) VALUES	(13675, 39.978687, 116.3005364, '2008-06-23 10:34:53', '2008-06-24 04:48:06', 0);
+INSERT INTO `stay_points` (`id`, `latitude`, `longitude`, `arr_time`, `leav_time`, `user_id`) VALUES	(30661, 39.9839738, 116.3001619, '2008-02-17 05:25:01', '2008-02-17 10:39:57', 0);
+INSERT INTO `stay_points` (`id`, `latitude`, `longitude`, `arr_time`, `leav_time`, `user_id`) VALUES	(30662, 40.2218458, 115.151025, '2008-02-17 10:44:26', '2008-03-14 02:57:55', 1);
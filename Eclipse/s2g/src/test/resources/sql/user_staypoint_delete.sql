@@ -1,4 +1,5 @@
 # Reset tables
 DELETE FROM `users`;
 DELETE FROM `geo_points`;
-DELETE FROM `stay_points`;
\ No newline at end of file
+DELETE FROM `stay_points`;
+DELETE FROM `stay_point_states`;
\ No newline at end of file